@@ -15,6 +15,7 @@
 package org.perfrepo.client;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
@@ -23,11 +24,13 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 import org.perfrepo.model.Metric;
@@ -36,16 +39,30 @@ import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.Value;
 import org.perfrepo.model.auth.Permission;
 import org.perfrepo.model.report.Report;
+import org.perfrepo.model.to.AttachmentUploadTO;
+import org.perfrepo.model.to.BulkCreateResultTO;
+import org.perfrepo.model.to.BulkOperationTO;
 import org.perfrepo.model.to.ListWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 
 import javax.xml.bind.DataBindingException;
 import javax.xml.bind.JAXB;
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
 import javax.xml.transform.stream.StreamSource;
 import java.io.*;
+import java.net.URLEncoder;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Performance Repository REST API Client.
@@ -58,6 +75,16 @@ public class PerfRepoClient {
    private static final Logger log = Logger.getLogger(PerfRepoClient.class);
 
    private static final String CONTENT_TYPE_XML = "text/xml";
+
+   /**
+    * Maximal number of connections to the server used in parallel, e.g. by chunks of resumable attachment upload.
+    */
+   public static final int MAX_CONNECTIONS = 8;
+
+   /**
+    * Number of attempts to upload one chunk of resumable attachment upload.
+    */
+   private static final int CHUNK_ATTEMPTS = 3;
    private static final String REST_BASE_URL_TEMPLATE = "http://%s%s/rest/";
    private String host;
    private String url;
@@ -83,7 +110,7 @@ public class PerfRepoClient {
       }
 
       this.basicAuthHash = Base64.encodeBase64String((username + ":" + password).getBytes()).trim();
-      httpClient = new DefaultHttpClient();
+      httpClient = createHttpClient();
    }
 
    /**
@@ -104,7 +131,14 @@ public class PerfRepoClient {
       }
 
       this.basicAuthHash = basicAuthHash;
-      httpClient = new DefaultHttpClient();
+      httpClient = createHttpClient();
+   }
+
+   private static HttpClient createHttpClient() {
+      PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+      connectionManager.setMaxTotal(MAX_CONNECTIONS);
+      connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+      return new DefaultHttpClient(connectionManager);
    }
 
    /**
@@ -304,6 +338,35 @@ public class PerfRepoClient {
       return id;
    }
 
+   /**
+    * Create many test executions in one request. It's considerably faster than calling
+    * {@link #createTestExecution(TestExecution)} repeatedly. Test executions which can't be created
+    * (e.g. the test doesn't exist) are skipped by the server, the others are created.
+    *
+    * @param testExecutions
+    * @return ID or error message for every test execution, in the same order, or null in case of error
+    * @throws Exception
+    */
+   public BulkCreateResultTO createTestExecutions(List<TestExecution> testExecutions) throws Exception {
+      HttpPost post = createBasicPost("testExecution/bulkCreate");
+      ListWrapper<TestExecution> wrapper = new ListWrapper<>();
+      wrapper.setItems(testExecutions);
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      JAXBContext.newInstance(ListWrapper.class, TestExecution.class).createMarshaller()
+          .marshal(new JAXBElement<>(new QName("testExecutions"), ListWrapper.class, wrapper), bos);
+      post.setEntity(new ByteArrayEntity(bos.toByteArray()));
+
+      HttpResponse resp = httpClient.execute(post);
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+         logHttpError("Error while creating test executions", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+      BulkCreateResultTO result = JAXB.unmarshal(resp.getEntity().getContent(), BulkCreateResultTO.class);
+      EntityUtils.consume(resp.getEntity());
+      return result;
+   }
+
     /**
      * Searches through test execution according to criteria.
      *
@@ -332,6 +395,33 @@ public class PerfRepoClient {
       }
    }
 
+   /**
+    * Exports all test executions matching the criteria. Unlike {@link #searchTestExecutions(TestExecutionSearchTO)},
+    * the test executions are streamed by the server and read one by one by the returned iterator, so any number
+    * of test executions can be processed. Only DATE_* and NAME_* ordering is supported, limitHowMany limits
+    * the total number of exported test executions.
+    *
+    * The iterator must be read to the end or closed before the client is used again.
+    *
+    * @param criteria search criteria
+    * @return iterator over the test executions or null in case of error
+    * @throws Exception
+    */
+   public TestExecutionIterator exportTestExecutions(TestExecutionSearchTO criteria) throws Exception {
+      HttpPost post = createBasicPost("testExecution/export");
+      post.setHeader(HttpHeaders.ACCEPT, "application/xml");
+      setPostEntity(post, criteria);
+      HttpResponse resp = httpClient.execute(post);
+
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+         logHttpError("Error while exporting test executions", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+
+      return new TestExecutionIterator(post, resp.getEntity());
+   }
+
    /**
     * Updates existing test execution.
     *
@@ -412,6 +502,89 @@ public class PerfRepoClient {
       }
    }
 
+   /**
+    * Starts adding tags to all test executions matching the criteria, regardless of the pagination. The operation
+    * runs on the server in background, its progress can be checked by {@link #getBulkOperation(Long)}.
+    *
+    * @param criteria
+    * @param tags
+    * @return the started operation, or null in case of error
+    * @throws Exception
+    */
+   public BulkOperationTO addTagsToTestExecutions(TestExecutionSearchTO criteria, List<String> tags) throws Exception {
+      return startBulkOperation("testExecution/bulk/addTags" + tagQuery(tags), criteria);
+   }
+
+   /**
+    * Starts removing tags from all test executions matching the criteria, regardless of the pagination. The operation
+    * runs on the server in background, its progress can be checked by {@link #getBulkOperation(Long)}.
+    *
+    * @param criteria
+    * @param tags
+    * @return the started operation, or null in case of error
+    * @throws Exception
+    */
+   public BulkOperationTO removeTagsFromTestExecutions(TestExecutionSearchTO criteria, List<String> tags) throws Exception {
+      return startBulkOperation("testExecution/bulk/removeTags" + tagQuery(tags), criteria);
+   }
+
+   /**
+    * Starts deleting all test executions matching the criteria, regardless of the pagination. The operation runs on
+    * the server in background, its progress can be checked by {@link #getBulkOperation(Long)}.
+    *
+    * @param criteria
+    * @return the started operation, or null in case of error
+    * @throws Exception
+    */
+   public BulkOperationTO deleteTestExecutions(TestExecutionSearchTO criteria) throws Exception {
+      return startBulkOperation("testExecution/bulk/remove", criteria);
+   }
+
+   /**
+    * Get current state of bulk operation.
+    *
+    * @param id
+    * @return the operation, or null if it doesn't exist
+    * @throws Exception
+    */
+   public BulkOperationTO getBulkOperation(Long id) throws Exception {
+      HttpGet get = createBasicGet("testExecution/bulk/%s", id);
+      HttpResponse resp = httpClient.execute(get);
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+         if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+            logHttpError("Error while getting bulk operation", get, resp);
+         }
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+      BulkOperationTO result = JAXB.unmarshal(resp.getEntity().getContent(), BulkOperationTO.class);
+      EntityUtils.consume(resp.getEntity());
+      return result;
+   }
+
+   private BulkOperationTO startBulkOperation(String relURL, TestExecutionSearchTO criteria) throws Exception {
+      // the URL is passed as parameter, so the escaped characters aren't interpreted by the format
+      HttpPost post = createBasicPost("%s", relURL);
+      setPostEntity(post, criteria);
+      HttpResponse resp = httpClient.execute(post);
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_ACCEPTED) {
+         logHttpError("Error while starting bulk operation", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+      BulkOperationTO result = JAXB.unmarshal(resp.getEntity().getContent(), BulkOperationTO.class);
+      EntityUtils.consume(resp.getEntity());
+      return result;
+   }
+
+   private static String tagQuery(List<String> tags) throws UnsupportedEncodingException {
+      StringBuilder query = new StringBuilder();
+      for (String tag : tags) {
+         query.append(query.length() == 0 ? "?" : "&").append("tag=").append(URLEncoder.encode(tag, "UTF-8"));
+      }
+      return query.toString();
+   }
+
    /**
     * Add metric to an existing test.
     *
@@ -491,6 +664,24 @@ public class PerfRepoClient {
       return uploadAttachment(testExecutionId, new ByteArrayEntity(content), mimeType, fileNameInRepo);
    }
 
+   /**
+    * Add attachment to an existing test execution, the content is streamed to the server without being held in
+    * memory.
+    *
+    * @param testExecutionId Test execution id
+    * @param content Stream with the content, it's read until its end, but not closed
+    * @param length Number of bytes of the content, or -1 if unknown
+    * @param mimeType Mime type
+    * @param fileNameInRepo The name the attachment will have in the perf repo.
+    * @return Id of the new attachment
+    * @throws Exception
+    */
+   public Long uploadAttachment(Long testExecutionId, InputStream content, long length, String mimeType, String fileNameInRepo) throws Exception {
+      InputStreamEntity entity = new InputStreamEntity(content, length);
+      entity.setChunked(length < 0);
+      return uploadAttachment(testExecutionId, entity, mimeType, fileNameInRepo);
+   }
+
    private Long uploadAttachment(Long testExecutionId, AbstractHttpEntity entity, String mimeType, String fileNameInRepo) throws Exception {
       HttpPost post = new HttpPost(restUrl("testExecution/%s/addAttachment", testExecutionId));
       post.setHeader(HttpHeaders.CONTENT_TYPE, mimeType);
@@ -512,6 +703,208 @@ public class PerfRepoClient {
       return id;
    }
 
+   /**
+    * Uploads attachment in chunks sent in parallel. If the upload fails, it can be continued by
+    * {@link #resumeAttachmentUpload(String, File, int)} with the ID of the upload, which is logged, only the chunks
+    * which weren't stored are sent then.
+    *
+    * @param testExecutionId Test execution id
+    * @param file File to upload
+    * @param mimeType Mime type
+    * @param fileNameInRepo The name the attachment will have in the perf repo.
+    * @param chunkSize Size of the chunks in bytes, default size of the server is used if it's not positive
+    * @param parallelism Number of chunks sent at once, at most {@link #MAX_CONNECTIONS}
+    * @return Id of the new attachment, or null in case of error
+    * @throws Exception
+    */
+   public Long uploadAttachment(Long testExecutionId, File file, String mimeType, String fileNameInRepo, int chunkSize, int parallelism) throws Exception {
+      AttachmentUploadTO upload = startAttachmentUpload(testExecutionId, file.length(), mimeType, fileNameInRepo, chunkSize);
+      if (upload == null) {
+         return null;
+      }
+      log.debug("Started attachment upload " + upload.getId());
+      return resumeAttachmentUpload(upload.getId(), file, parallelism);
+   }
+
+   /**
+    * Starts resumable upload of attachment, the content is then sent by {@link #uploadAttachmentChunk(String, int, InputStream, long)}
+    * and the attachment is created by {@link #completeAttachmentUpload(String, String)}.
+    *
+    * @param testExecutionId Test execution id
+    * @param size Number of bytes of the content
+    * @param mimeType Mime type
+    * @param fileNameInRepo The name the attachment will have in the perf repo.
+    * @param chunkSize Size of the chunks in bytes, default size of the server is used if it's not positive
+    * @return the upload with the chunk size assigned by the server, or null in case of error
+    * @throws Exception
+    */
+   public AttachmentUploadTO startAttachmentUpload(Long testExecutionId, long size, String mimeType, String fileNameInRepo, int chunkSize) throws Exception {
+      HttpPost post = createBasicPost("testExecution/%s/attachmentUpload?filename=%s&mimetype=%s&size=%s&chunkSize=%s", testExecutionId,
+                                      URLEncoder.encode(fileNameInRepo, "UTF-8"), URLEncoder.encode(mimeType, "UTF-8"), size, chunkSize);
+      HttpResponse resp = httpClient.execute(post);
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_CREATED) {
+         logHttpError("Error while starting attachment upload", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+      AttachmentUploadTO result = JAXB.unmarshal(resp.getEntity().getContent(), AttachmentUploadTO.class);
+      EntityUtils.consume(resp.getEntity());
+      return result;
+   }
+
+   /**
+    * Get current state of attachment upload.
+    *
+    * @param uploadId
+    * @return the upload with numbers of the chunks already stored, or null if it doesn't exist
+    * @throws Exception
+    */
+   public AttachmentUploadTO getAttachmentUpload(String uploadId) throws Exception {
+      HttpGet get = createBasicGet("testExecution/attachmentUpload/%s", uploadId);
+      HttpResponse resp = httpClient.execute(get);
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+         if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+            logHttpError("Error while getting attachment upload", get, resp);
+         }
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+      AttachmentUploadTO result = JAXB.unmarshal(resp.getEntity().getContent(), AttachmentUploadTO.class);
+      EntityUtils.consume(resp.getEntity());
+      return result;
+   }
+
+   /**
+    * Sends one chunk of attachment upload, chunk sent before is replaced. The method can be called from several
+    * threads at once.
+    *
+    * @param uploadId
+    * @param chunk Number of the chunk, it starts at offset chunk * chunk size
+    * @param content Stream with the content of the chunk, it isn't closed
+    * @param length Number of bytes of the chunk, the chunk size or the rest of the content for the last chunk
+    * @return True on success
+    * @throws Exception
+    */
+   public boolean uploadAttachmentChunk(String uploadId, int chunk, InputStream content, long length) throws Exception {
+      HttpPut put = new HttpPut(restUrl("testExecution/attachmentUpload/%s/%s", uploadId, chunk));
+      put.setHeader(HttpHeaders.CONTENT_TYPE, "application/octet-stream");
+      put.setHeader(HttpHeaders.AUTHORIZATION, "Basic " + this.basicAuthHash);
+      put.setEntity(new InputStreamEntity(content, length));
+      HttpResponse resp = httpClient.execute(put);
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_NO_CONTENT) {
+         logHttpError("Error while uploading chunk " + chunk + " of attachment upload " + uploadId, put, resp);
+         EntityUtils.consume(resp.getEntity());
+         return false;
+      }
+      EntityUtils.consume(resp.getEntity());
+      return true;
+   }
+
+   /**
+    * Sends the chunks of the file which aren't stored on the server yet in parallel, every chunk is attempted
+    * {@link #CHUNK_ATTEMPTS} times, and completes the upload with SHA-256 checksum of the file.
+    *
+    * @param uploadId
+    * @param file File to upload, it has to be the same as when the upload was started
+    * @param parallelism Number of chunks sent at once, at most {@link #MAX_CONNECTIONS}
+    * @return Id of the new attachment, or null in case of error, then the upload can be resumed again
+    * @throws Exception
+    */
+   public Long resumeAttachmentUpload(String uploadId, File file, int parallelism) throws Exception {
+      AttachmentUploadTO upload = getAttachmentUpload(uploadId);
+      if (upload == null) {
+         return null;
+      }
+      if (upload.getSize() != file.length()) {
+         log.error("File " + file + " doesn't have size " + upload.getSize() + " of attachment upload " + uploadId);
+         return null;
+      }
+
+      Set<Integer> stored = new HashSet<>(upload.getStoredChunks());
+      ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, MAX_CONNECTIONS)));
+      try {
+         List<Future<Boolean>> results = new ArrayList<>();
+         for (int chunk = 0; chunk < upload.getChunkCount(); chunk++) {
+            if (!stored.contains(chunk)) {
+               int number = chunk;
+               results.add(executor.submit(() -> uploadAttachmentChunk(upload, number, file)));
+            }
+         }
+         boolean uploaded = true;
+         for (Future<Boolean> result : results) {
+            uploaded &= result.get();
+         }
+         if (!uploaded) {
+            log.error("Some chunks of attachment upload " + uploadId + " weren't stored, the upload can be resumed");
+            return null;
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      try (InputStream input = new DigestInputStream(new BufferedInputStream(new FileInputStream(file)), digest)) {
+         byte[] buffer = new byte[8192];
+         while (input.read(buffer) != -1) {
+         }
+      }
+      return completeAttachmentUpload(uploadId, Hex.encodeHexString(digest.digest()));
+   }
+
+   private boolean uploadAttachmentChunk(AttachmentUploadTO upload, int chunk, File file) throws Exception {
+      for (int attempt = 1; attempt <= CHUNK_ATTEMPTS; attempt++) {
+         try (FileInputStream input = new FileInputStream(file)) {
+            input.getChannel().position(upload.getOffset(chunk));
+            if (uploadAttachmentChunk(upload.getId(), chunk, input, upload.getChunkLength(chunk))) {
+               return true;
+            }
+         } catch (IOException e) {
+            log.warn("Attempt " + attempt + " to upload chunk " + chunk + " of attachment upload " + upload.getId() + " failed", e);
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Creates the attachment from all chunks of the upload.
+    *
+    * @param uploadId
+    * @param checksum Hex encoded SHA-256 checksum of the whole content, or null if it shouldn't be verified
+    * @return Id of the new attachment, or null in case of error
+    * @throws Exception
+    */
+   public Long completeAttachmentUpload(String uploadId, String checksum) throws Exception {
+      HttpPost post = checksum == null ? createBasicPost("testExecution/attachmentUpload/%s/complete", uploadId)
+          : createBasicPost("testExecution/attachmentUpload/%s/complete?checksum=%s", uploadId, checksum);
+      HttpResponse resp = httpClient.execute(post);
+      if (resp.getStatusLine().getStatusCode() != HttpStatus.SC_CREATED) {
+         logHttpError("Error while completing attachment upload", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+      Header[] locations = resp.getHeaders(HttpHeaders.LOCATION);
+      if (locations != null && locations.length > 0) {
+         log.debug("Uploaded attachment: " + locations[0].getValue());
+      }
+      Long id = new Long(EntityUtils.toString(resp.getEntity()));
+      EntityUtils.consume(resp.getEntity());
+      return id;
+   }
+
+   /**
+    * Cancels attachment upload, all chunks stored on the server are removed.
+    *
+    * @param uploadId
+    * @return True on success
+    * @throws Exception
+    */
+   public boolean cancelAttachmentUpload(String uploadId) throws Exception {
+      HttpDelete delete = createBasicDelete("testExecution/attachmentUpload/%s", uploadId);
+      HttpResponse resp = httpClient.execute(delete);
+      EntityUtils.consume(resp.getEntity());
+      return resp.getStatusLine().getStatusCode() == HttpStatus.SC_NO_CONTENT;
+   }
+
    /**
     * Downloads attachment to a local file.
     *
@@ -521,13 +914,45 @@ public class PerfRepoClient {
     * @throws Exception
     */
    public boolean downloadAttachment(Long attachmentId, File file) throws Exception {
+      try (OutputStream output = new FileOutputStream(file)) {
+         return downloadAttachment(attachmentId, output, 0);
+      }
+   }
+
+   /**
+    * Downloads attachment, or its part, to a stream. The content is streamed, it's never held in memory as a whole,
+    * so it can be used e.g. to resume interrupted download.
+    *
+    * @param attachmentId Attachment id
+    * @param output Stream the content is written to, it isn't closed
+    * @param offset Number of bytes at the beginning of the content to skip
+    * @return True on success
+    * @throws Exception
+    */
+   public boolean downloadAttachment(Long attachmentId, OutputStream output, long offset) throws Exception {
       HttpGet get = createBasicGet("testExecution/attachment/%s", attachmentId);
+      if (offset > 0) {
+         get.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-");
+      }
       HttpResponse resp = httpClient.execute(get);
-      if (resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-         resp.getEntity().writeTo(new FileOutputStream(file));
+      int status = resp.getStatusLine().getStatusCode();
+      if (status == HttpStatus.SC_OK && offset > 0) {
+         // the range was ignored, the skipped part is read and dropped
+         InputStream input = resp.getEntity().getContent();
+         for (long skipped = 0; skipped < offset && input.read() != -1; skipped++) {
+            skipped += input.skip(offset - skipped - 1);
+         }
+         byte[] buffer = new byte[8192];
+         for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+            output.write(buffer, 0, read);
+         }
          EntityUtils.consume(resp.getEntity());
          return true;
-      } else if (resp.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+      } else if (status == HttpStatus.SC_OK || status == HttpStatus.SC_PARTIAL_CONTENT) {
+         resp.getEntity().writeTo(output);
+         EntityUtils.consume(resp.getEntity());
+         return true;
+      } else if (status == HttpStatus.SC_NOT_FOUND) {
          EntityUtils.consume(resp.getEntity());
          return false;
       } else {
@@ -0,0 +1,127 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.util.EntityUtils;
+import org.perfrepo.model.TestExecution;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over test executions streamed by the export REST endpoint. Test executions are unmarshalled one by one
+ * as they're read from the HTTP response, so the whole result is never held in memory.
+ *
+ * The iterator holds the HTTP connection of the client, it has to be read to the end or closed before the client
+ * is used again.
+ */
+public class TestExecutionIterator implements Iterator<TestExecution>, Closeable {
+
+   private static final String TEST_EXECUTION_ELEMENT = "testExecution";
+
+   private static JAXBContext jaxbContext;
+
+   private final HttpRequestBase request;
+   private final HttpEntity entity;
+   private final XMLStreamReader reader;
+   private final Unmarshaller unmarshaller;
+   private boolean finished = false;
+   private boolean closed = false;
+
+   TestExecutionIterator(HttpRequestBase request, HttpEntity entity) throws IOException, JAXBException, XMLStreamException {
+      this.request = request;
+      this.entity = entity;
+      this.reader = XMLInputFactory.newInstance().createXMLStreamReader(entity.getContent());
+      this.unmarshaller = getJaxbContext().createUnmarshaller();
+   }
+
+   @Override
+   public boolean hasNext() {
+      if (closed) {
+         return false;
+      }
+
+      try {
+         // move to the start of next test execution element or to the end of the document
+         while (!(reader.isStartElement() && TEST_EXECUTION_ELEMENT.equals(reader.getLocalName()))) {
+            if (!reader.hasNext()) {
+               finished = true;
+               close();
+               return false;
+            }
+            reader.next();
+         }
+         return true;
+      } catch (XMLStreamException | IOException e) {
+         throw new IllegalStateException("Error while reading test executions.", e);
+      }
+   }
+
+   @Override
+   public TestExecution next() {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+
+      try {
+         return unmarshaller.unmarshal(reader, TestExecution.class).getValue();
+      } catch (JAXBException e) {
+         throw new IllegalStateException("Error while reading test executions.", e);
+      }
+   }
+
+   /**
+    * Releases the connection. If the stream wasn't read to the end, the request is aborted rather than reading
+    * the rest of the response.
+    *
+    * @throws IOException
+    */
+   @Override
+   public void close() throws IOException {
+      if (closed) {
+         return;
+      }
+      closed = true;
+
+      try {
+         reader.close();
+      } catch (XMLStreamException e) {
+         throw new IOException(e);
+      } finally {
+         if (finished) {
+            EntityUtils.consume(entity);
+         } else {
+            request.abort();
+         }
+      }
+   }
+
+   private static synchronized JAXBContext getJaxbContext() throws JAXBException {
+      if (jaxbContext == null) {
+         jaxbContext = JAXBContext.newInstance(TestExecution.class);
+      }
+      return jaxbContext;
+   }
+}
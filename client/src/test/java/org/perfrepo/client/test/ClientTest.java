@@ -25,6 +25,7 @@ import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.junit.*;
 import org.junit.runner.RunWith;
 import org.perfrepo.client.PerfRepoClient;
+import org.perfrepo.client.TestExecutionIterator;
 import org.perfrepo.model.*;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.auth.AccessLevel;
@@ -33,9 +34,14 @@ import org.perfrepo.model.auth.Permission;
 import org.perfrepo.model.builder.TestExecutionBuilder;
 import org.perfrepo.model.report.Report;
 import org.perfrepo.model.report.ReportProperty;
+import org.perfrepo.model.to.AttachmentUploadTO;
+import org.perfrepo.model.to.BulkCreateResultTO;
+import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 
+import javax.xml.bind.DatatypeConverter;
 import java.io.*;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -269,6 +275,86 @@ public class ClientTest {
       client.deleteTest(testId);
    }
 
+   @org.junit.Test
+   public void testStreamedAttachmentWithRange() throws Exception {
+      Long testId = client.createTest(createTest());
+      Long testExecutionId = client.createTestExecution(createTestExecution(testId));
+
+      byte[] content = new byte[100000];
+      new Random(1).nextBytes(content);
+      // unknown length, the upload is chunked
+      Long attachmentId = client.uploadAttachment(testExecutionId, new ByteArrayInputStream(content), -1, "application/octet-stream", "random.bin");
+      assertNotNull(attachmentId);
+
+      ByteArrayOutputStream whole = new ByteArrayOutputStream();
+      assertTrue(client.downloadAttachment(attachmentId, whole, 0));
+      assertTrue(Arrays.equals(content, whole.toByteArray()));
+
+      ByteArrayOutputStream tail = new ByteArrayOutputStream();
+      assertTrue(client.downloadAttachment(attachmentId, tail, 99000));
+      assertTrue(Arrays.equals(Arrays.copyOfRange(content, 99000, content.length), tail.toByteArray()));
+
+      client.deleteTestExecution(testExecutionId);
+      client.deleteTest(testId);
+   }
+
+   @org.junit.Test
+   public void testResumableAttachmentUpload() throws Exception {
+      Long testId = client.createTest(createTest());
+      Long testExecutionId = client.createTestExecution(createTestExecution(testId));
+
+      byte[] content = new byte[250000];
+      new Random(2).nextBytes(content);
+      File file = new File("target/resumable.bin");
+      try (OutputStream output = new FileOutputStream(file)) {
+         output.write(content);
+      }
+
+      // the first chunk is sent, then the upload is interrupted
+      AttachmentUploadTO upload = client.startAttachmentUpload(testExecutionId, content.length, "application/octet-stream", "resumable.bin", 100000);
+      assertEquals(3, upload.getChunkCount());
+      assertTrue(client.uploadAttachmentChunk(upload.getId(), 0, new ByteArrayInputStream(content, 0, 100000), 100000));
+      assertEquals(Arrays.asList(0), client.getAttachmentUpload(upload.getId()).getStoredChunks());
+      assertNull(client.completeAttachmentUpload(upload.getId(), null));
+
+      Long attachmentId = client.resumeAttachmentUpload(upload.getId(), file, 2);
+      assertNotNull(attachmentId);
+      assertNull(client.getAttachmentUpload(upload.getId()));
+
+      ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+      assertTrue(client.downloadAttachment(attachmentId, downloaded, 0));
+      assertTrue(Arrays.equals(content, downloaded.toByteArray()));
+
+      // wrong checksum
+      upload = client.startAttachmentUpload(testExecutionId, 10, "application/octet-stream", "small.bin", 0);
+      assertTrue(client.uploadAttachmentChunk(upload.getId(), 0, new ByteArrayInputStream(content, 0, 10), 10));
+      assertNull(client.completeAttachmentUpload(upload.getId(), "00"));
+      assertTrue(client.cancelAttachmentUpload(upload.getId()));
+
+      client.deleteTestExecution(testExecutionId);
+      client.deleteTest(testId);
+   }
+
+   @org.junit.Test
+   public void testAttachmentMetadata() throws Exception {
+      Long testId = client.createTest(createTest());
+      Long testExecutionId = client.createTestExecution(createTestExecution(testId));
+
+      byte[] content = "attachment metadata".getBytes("UTF-8");
+      Long attachmentId = client.uploadAttachment(testExecutionId, content, "text/plain", "metadata.txt");
+      assertNotNull(attachmentId);
+
+      // size and checksum are listed without the content
+      TestExecution testExecution = client.getTestExecution(testExecutionId);
+      assertEquals(1, testExecution.getAttachments().size());
+      TestExecutionAttachment attachment = testExecution.getAttachments().iterator().next();
+      assertEquals(Long.valueOf(content.length), attachment.getContentSize());
+      assertEquals(DatatypeConverter.printHexBinary(MessageDigest.getInstance("SHA-256").digest(content)).toLowerCase(), attachment.getChecksum());
+
+      client.deleteTestExecution(testExecutionId);
+      client.deleteTest(testId);
+   }
+
    @org.junit.Test
    public void testCreateReport() throws Exception {
       Report report = createReport();
@@ -412,6 +498,71 @@ public class ClientTest {
       client.deleteTest(test2Id);
    }
 
+   @org.junit.Test
+   public void testExportTestExecutions() throws Exception {
+      Test test = createTest("test1");
+      Long testId = client.createTest(test);
+
+      Calendar calendar = Calendar.getInstance();
+      List<Long> testExecutionIds = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+         calendar.set(2016, 7, 7 + i);
+         testExecutionIds.add(client.createTestExecution(createTestExecution(testId, "execution" + i, calendar.getTime(), Arrays.asList("param1"), Arrays.asList("value" + i), Arrays.asList("tag1"))));
+      }
+
+      TestExecutionSearchTO criteria = createSearchCriteria(null, null, null, "tag1", test.getUid());
+      criteria.setOrderBy(OrderBy.DATE_ASC);
+      List<Long> exportedIds = new ArrayList<>();
+      try (TestExecutionIterator iterator = client.exportTestExecutions(criteria)) {
+         while (iterator.hasNext()) {
+            TestExecution exported = iterator.next();
+            assertEquals(1, exported.getParameters().size());
+            exportedIds.add(exported.getId());
+         }
+      }
+      assertEquals(testExecutionIds, exportedIds);
+
+      for (Long testExecutionId : testExecutionIds) {
+         client.deleteTestExecution(testExecutionId);
+      }
+      client.deleteTest(testId);
+   }
+
+   @org.junit.Test
+   public void testCreateTestExecutions() throws Exception {
+      Test test = createTest();
+      Long testId = client.createTest(test);
+
+      List<TestExecution> testExecutions = Arrays.asList(
+          createTestExecution(testId, "execution1", new Date(), Arrays.asList("param1"), Arrays.asList("value1"), Arrays.asList("tag1", "bulkTag")),
+          createInvalidMultivalueTestExecution(testId),
+          createTestExecutionWithParam(testId));
+      BulkCreateResultTO result = client.createTestExecutions(testExecutions);
+
+      assertNotNull(result);
+      assertEquals(3, result.getItems().size());
+      assertNotNull(result.getItems().get(0).getId());
+      assertNull(result.getItems().get(0).getError());
+      assertNull(result.getItems().get(1).getId()); //this is expected, the test execution was invalid
+      assertNotNull(result.getItems().get(1).getError());
+      assertNotNull(result.getItems().get(2).getId());
+
+      TestExecution created = client.getTestExecution(result.getItems().get(0).getId());
+      assertEquals("execution1", created.getName());
+      assertEquals(1, created.getParameters().size());
+      assertEquals(4, created.getValues().size());
+      List<String> tags = created.getSortedTags().stream().map(Tag::getName).collect(Collectors.toList());
+      assertEquals(Arrays.asList("bulkTag", "tag1"), tags);
+
+      TestExecution created2 = client.getTestExecution(result.getItems().get(2).getId());
+      assertEquals(getFirstValueHavingMetricAndParameter(created2, "multimetric", "client", "20"), 40.0d);
+
+      for (Long testExecutionId : result.getCreatedIds()) {
+         client.deleteTestExecution(testExecutionId);
+      }
+      client.deleteTest(testId);
+   }
+
    private TestExecutionSearchTO createSearchCriteria(List<Long> ids, Date startedFrom, Date startedTo, String tags, String testUid) {
       TestExecutionSearchTO criteria = new TestExecutionSearchTO();
       criteria.setIds(ids);
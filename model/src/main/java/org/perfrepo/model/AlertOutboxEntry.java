@@ -0,0 +1,151 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Test execution waiting for evaluation of alerts. The entry is stored in the same transaction as the test execution,
+ * so no test execution is lost, and it's removed once the alerts are evaluated. Failed evaluations are retried
+ * later, the number of attempts is limited.
+ */
+@javax.persistence.Entity
+@Table(name = "alert_outbox")
+@NamedQueries({
+    @NamedQuery(name = AlertOutboxEntry.FIND_PENDING, query = "SELECT entry from AlertOutboxEntry entry where entry.attempts < :maxAttempts order by entry.id"),
+    @NamedQuery(name = AlertOutboxEntry.FIND_PENDING_HEADS, query = "SELECT entry from AlertOutboxEntry entry where entry.id in (SELECT min(head.id) from AlertOutboxEntry head where head.attempts < :maxAttempts group by head.testId) and entry.nextAttempt <= :now order by entry.id"),
+    @NamedQuery(name = AlertOutboxEntry.FIND_PENDING_BY_TEST, query = "SELECT entry from AlertOutboxEntry entry where entry.testId = :testId and entry.attempts < :maxAttempts order by entry.id"),
+    @NamedQuery(name = AlertOutboxEntry.COUNT_PENDING, query = "SELECT count(entry) from AlertOutboxEntry entry where entry.attempts < :maxAttempts")
+})
+public class AlertOutboxEntry implements Entity<AlertOutboxEntry> {
+
+   private static final long serialVersionUID = 5166735342170151837L;
+
+   public static final String FIND_PENDING = "AlertOutboxEntry.findPending";
+   public static final String FIND_PENDING_HEADS = "AlertOutboxEntry.findPendingHeads";
+   public static final String FIND_PENDING_BY_TEST = "AlertOutboxEntry.findPendingByTest";
+   public static final String COUNT_PENDING = "AlertOutboxEntry.countPending";
+
+   @Id
+   @SequenceGenerator(name = "ALERT_OUTBOX_ID_GENERATOR", sequenceName = "ALERT_OUTBOX_SEQUENCE", allocationSize = 50)
+   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ALERT_OUTBOX_ID_GENERATOR")
+   private Long id;
+
+   @Column(name = "test_execution_id", nullable = false)
+   private Long testExecutionId;
+
+   @Column(name = "test_id", nullable = false)
+   private Long testId;
+
+   @Column(name = "created", nullable = false)
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date created;
+
+   @Column(name = "attempts", nullable = false)
+   private int attempts;
+
+   @Column(name = "next_attempt", nullable = false)
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date nextAttempt;
+
+   @Column(name = "last_error")
+   private String lastError;
+
+   public AlertOutboxEntry() {
+   }
+
+   public AlertOutboxEntry(Long testExecutionId, Long testId) {
+      this.testExecutionId = testExecutionId;
+      this.testId = testId;
+      this.created = new Date();
+      this.nextAttempt = this.created;
+   }
+
+   @Override
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   public Long getTestExecutionId() {
+      return testExecutionId;
+   }
+
+   public void setTestExecutionId(Long testExecutionId) {
+      this.testExecutionId = testExecutionId;
+   }
+
+   public Long getTestId() {
+      return testId;
+   }
+
+   public void setTestId(Long testId) {
+      this.testId = testId;
+   }
+
+   public Date getCreated() {
+      return created;
+   }
+
+   public void setCreated(Date created) {
+      this.created = created;
+   }
+
+   public int getAttempts() {
+      return attempts;
+   }
+
+   public void setAttempts(int attempts) {
+      this.attempts = attempts;
+   }
+
+   public Date getNextAttempt() {
+      return nextAttempt;
+   }
+
+   public void setNextAttempt(Date nextAttempt) {
+      this.nextAttempt = nextAttempt;
+   }
+
+   public String getLastError() {
+      return lastError;
+   }
+
+   public void setLastError(String lastError) {
+      this.lastError = lastError;
+   }
+
+   @Override
+   public AlertOutboxEntry clone() {
+      try {
+         return (AlertOutboxEntry) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "AlertOutboxEntry{"
+          + "id=" + id
+          + ", testExecutionId=" + testExecutionId
+          + ", attempts=" + attempts
+          + '}';
+   }
+}
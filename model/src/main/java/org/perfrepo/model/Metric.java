@@ -30,9 +30,11 @@ import java.util.Collection;
  */
 @javax.persistence.Entity
 @Table(name = "metric")
+@Cacheable
 @NamedQueries({
     @NamedQuery(name = Metric.GET_TEST, query = "SELECT m.tests from Metric m where m= :entity"),
-    @NamedQuery(name = Metric.FIND_BY_NAME_GROUPID, query = "SELECT m from Metric m inner join m.tests test where test.groupId= :groupId and m.name= :name"),
+    @NamedQuery(name = Metric.FIND_BY_NAME_GROUPID, query = "SELECT m from Metric m inner join m.tests test where test.groupId= :groupId and m.name= :name",
+                hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
     @NamedQuery(name = Metric.FIND_BY_GROUPID, query = "SELECT DISTINCT m from Metric m inner join m.tests t WHERE t.groupId= :groupId ORDER BY m.name"),
 })
 @XmlRootElement(name = "metric")
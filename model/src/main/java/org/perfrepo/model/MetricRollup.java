@@ -0,0 +1,351 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import org.perfrepo.model.util.QuantileSketch;
+
+import javax.persistence.*;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Pre-aggregated values of one metric of test executions of one test with the same set of tags, started in one
+ * day or week. Holds count, minimum, maximum, sum and sum of squares of the values and {@link QuantileSketch} for
+ * approximate quantiles, so charts over long periods don't have to read all the values.
+ *
+ * Rollups are maintained together with the values, rollups of several sets of tags of the same period can be
+ * merged by {@link #merge(MetricRollup)}.
+ */
+@javax.persistence.Entity
+@Table(name = "metric_rollup")
+public class MetricRollup implements Entity<MetricRollup> {
+
+   private static final long serialVersionUID = -2365125296434405571L;
+
+   /**
+    * Tag set of rollups of test executions without tags.
+    */
+   public static final Long NO_TAGS = 0L;
+
+   /**
+    * Length of the period of a rollup.
+    */
+   public enum Granularity {
+
+      DAY(Calendar.DAY_OF_MONTH), WEEK(Calendar.WEEK_OF_YEAR);
+
+      private final int calendarField;
+
+      Granularity(int calendarField) {
+         this.calendarField = calendarField;
+      }
+
+      /**
+       * @param date
+       * @return start of the period containing the date, weeks start on Monday
+       */
+      public Date truncate(Date date) {
+         Calendar calendar = Calendar.getInstance();
+         calendar.setTime(date);
+         calendar.set(Calendar.HOUR_OF_DAY, 0);
+         calendar.set(Calendar.MINUTE, 0);
+         calendar.set(Calendar.SECOND, 0);
+         calendar.set(Calendar.MILLISECOND, 0);
+         if (this == WEEK) {
+            // Sunday is 1, Monday is 2
+            calendar.add(Calendar.DAY_OF_MONTH, -((calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7));
+         }
+         return calendar.getTime();
+      }
+
+      /**
+       * @param periodStart
+       * @return start of the following period
+       */
+      public Date next(Date periodStart) {
+         Calendar calendar = Calendar.getInstance();
+         calendar.setTime(periodStart);
+         calendar.add(calendarField, 1);
+         return calendar.getTime();
+      }
+
+      /**
+       * @param from
+       * @param to
+       * @return number of periods overlapping the range
+       */
+      public int countPeriods(Date from, Date to) {
+         int periods = 0;
+         for (Date period = truncate(from); !period.after(to); period = next(period)) {
+            periods++;
+         }
+         return periods;
+      }
+
+      /**
+       * Picks the granularity of chart of the range.
+       *
+       * @param from
+       * @param to
+       * @param maxPoints maximal number of points of the chart
+       * @return the finest granularity with at most maxPoints periods in the range, {@link #WEEK} if there's none
+       */
+      public static Granularity forRange(Date from, Date to, int maxPoints) {
+         return DAY.countPeriods(from, to) <= maxPoints ? DAY : WEEK;
+      }
+   }
+
+   @Id
+   @SequenceGenerator(name = "METRIC_ROLLUP_ID_GENERATOR", sequenceName = "METRIC_ROLLUP_SEQUENCE", allocationSize = 1)
+   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "METRIC_ROLLUP_ID_GENERATOR")
+   private Long id;
+
+   @Column(name = "test_id", nullable = false, updatable = false)
+   private Long testId;
+
+   @Column(name = "metric_id", nullable = false, updatable = false)
+   private Long metricId;
+
+   // not a reference to the tag set, 0 for test executions without tags
+   @Column(name = "tag_set_id", nullable = false, updatable = false)
+   private Long tagSetId;
+
+   @Column(name = "granularity", nullable = false, updatable = false)
+   @Enumerated(EnumType.STRING)
+   private Granularity granularity;
+
+   @Column(name = "period_start", nullable = false, updatable = false)
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date periodStart;
+
+   @Column(name = "count", nullable = false)
+   private long count;
+
+   @Column(name = "min")
+   private Double min;
+
+   @Column(name = "max")
+   private Double max;
+
+   @Column(name = "sum", nullable = false)
+   private double sum;
+
+   @Column(name = "sum_of_squares", nullable = false)
+   private double sumOfSquares;
+
+   @Column(name = "sketch")
+   private byte[] sketch;
+
+   @Column(name = "last_test_execution_id")
+   private Long lastTestExecutionId;
+
+   // decoded sketch, written back to the column before the rollup is stored
+   @Transient
+   private QuantileSketch quantiles;
+
+   public MetricRollup() {
+   }
+
+   public MetricRollup(Long testId, Long metricId, Long tagSetId, Granularity granularity, Date periodStart) {
+      this.testId = testId;
+      this.metricId = metricId;
+      this.tagSetId = tagSetId;
+      this.granularity = granularity;
+      this.periodStart = periodStart;
+   }
+
+   /**
+    * Adds value of the test execution.
+    *
+    * @param value
+    * @param testExecutionId
+    */
+   public void add(double value, Long testExecutionId) {
+      count++;
+      min = min == null ? value : Math.min(min, value);
+      max = max == null ? value : Math.max(max, value);
+      sum += value;
+      sumOfSquares += value * value;
+      getQuantiles().add(value);
+      updateLastTestExecution(testExecutionId);
+   }
+
+   /**
+    * Adds all values of the other rollup.
+    *
+    * @param other
+    */
+   public void merge(MetricRollup other) {
+      if (other.count == 0) {
+         return;
+      }
+      count += other.count;
+      min = min == null ? other.min : Math.min(min, other.min);
+      max = max == null ? other.max : Math.max(max, other.max);
+      sum += other.sum;
+      sumOfSquares += other.sumOfSquares;
+      getQuantiles().merge(other.getQuantiles());
+      updateLastTestExecution(other.lastTestExecutionId);
+   }
+
+   /**
+    * Removes all values.
+    */
+   public void clear() {
+      count = 0;
+      min = null;
+      max = null;
+      sum = 0;
+      sumOfSquares = 0;
+      quantiles = new QuantileSketch();
+      lastTestExecutionId = null;
+   }
+
+   /**
+    * @return mean of the values, NaN if there are none
+    */
+   public double getMean() {
+      return count == 0 ? Double.NaN : sum / count;
+   }
+
+   /**
+    * @return population standard deviation of the values, NaN if there are none
+    */
+   public double getStandardDeviation() {
+      if (count == 0) {
+         return Double.NaN;
+      }
+      double mean = getMean();
+      return Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+   }
+
+   /**
+    * @param quantile between 0 and 1
+    * @return approximate value of the quantile within minimum and maximum, NaN if the quantiles are not known, e.g.
+    * for rollups created by the migration from values stored before
+    */
+   public double getQuantile(double quantile) {
+      if (count == 0 || !hasQuantiles()) {
+         return Double.NaN;
+      }
+      return Math.min(max, Math.max(min, getQuantiles().getQuantile(quantile)));
+   }
+
+   /**
+    * @return true if the quantile sketch covers all values of the rollup
+    */
+   public boolean hasQuantiles() {
+      return getQuantiles().getCount() == count;
+   }
+
+   @PrePersist
+   @PreUpdate
+   protected void encodeSketch() {
+      if (quantiles != null) {
+         sketch = quantiles.toBytes();
+      }
+   }
+
+   private QuantileSketch getQuantiles() {
+      if (quantiles == null) {
+         quantiles = QuantileSketch.fromBytes(sketch);
+      }
+      return quantiles;
+   }
+
+   private void updateLastTestExecution(Long testExecutionId) {
+      if (testExecutionId != null && (lastTestExecutionId == null || testExecutionId > lastTestExecutionId)) {
+         lastTestExecutionId = testExecutionId;
+      }
+   }
+
+   @Override
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   public Long getTestId() {
+      return testId;
+   }
+
+   public Long getMetricId() {
+      return metricId;
+   }
+
+   /**
+    * @return ID of the set of tags of the test executions, {@link #NO_TAGS} if they have no tags
+    */
+   public Long getTagSetId() {
+      return tagSetId;
+   }
+
+   public Granularity getGranularity() {
+      return granularity;
+   }
+
+   public Date getPeriodStart() {
+      return periodStart;
+   }
+
+   public long getCount() {
+      return count;
+   }
+
+   public Double getMin() {
+      return min;
+   }
+
+   public Double getMax() {
+      return max;
+   }
+
+   public double getSum() {
+      return sum;
+   }
+
+   public double getSumOfSquares() {
+      return sumOfSquares;
+   }
+
+   /**
+    * @return binary form of the quantile sketch, see {@link QuantileSketch#toBytes()}
+    */
+   public byte[] getSketch() {
+      return quantiles != null ? quantiles.toBytes() : sketch;
+   }
+
+   /**
+    * @return ID of the latest test execution with a value in the rollup
+    */
+   public Long getLastTestExecutionId() {
+      return lastTestExecutionId;
+   }
+
+   @Override
+   public MetricRollup clone() {
+      try {
+         MetricRollup clone = (MetricRollup) super.clone();
+         clone.quantiles = null;
+         clone.sketch = quantiles != null ? quantiles.toBytes() : sketch;
+         return clone;
+      } catch (CloneNotSupportedException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
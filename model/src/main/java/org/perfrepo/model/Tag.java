@@ -23,12 +23,18 @@ import java.util.Collection;
 
 @javax.persistence.Entity
 @Table(name = "tag")
+@Cacheable
+@NamedQueries({
+    @NamedQuery(name = Tag.FIND_BY_NAME, query = "SELECT tag FROM Tag tag WHERE tag.name = :name",
+                hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
+})
 @XmlRootElement(name = "tag")
 public class Tag implements Entity<Tag>, Comparable<Tag> {
 
    private static final long serialVersionUID = -5239043908577304531L;
 
    public static final String FIND_BY_PREFIX = "Tag.findByPrefix";
+   public static final String FIND_BY_NAME = "Tag.findByName";
 
    @Id
    @SequenceGenerator(name = "TAG_ID_GENERATOR", sequenceName = "TAG_SEQUENCE", allocationSize = 1)
@@ -0,0 +1,135 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import javax.persistence.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Distinct set of tags. Every set of tags is stored only once and test executions refer to the set of their tags,
+ * so test executions with exactly the same tags share the set and can be found or grouped by its ID.
+ *
+ * The set is identified by its canonical form, i.e. sorted tag names separated by space, and by MD5 hash of the
+ * canonical form, which is unique.
+ */
+@javax.persistence.Entity
+@Table(name = "tag_set")
+@NamedQueries({@NamedQuery(name = TagSet.FIND_BY_HASH, query = "SELECT tagSet from TagSet tagSet where tagSet.hash = :hash")})
+public class TagSet implements Entity<TagSet> {
+
+   private static final long serialVersionUID = 3017851244710829612L;
+
+   public static final String FIND_BY_HASH = "TagSet.findByHash";
+
+   @Id
+   @SequenceGenerator(name = "TAG_SET_ID_GENERATOR", sequenceName = "TAG_SET_SEQUENCE", allocationSize = 1)
+   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "TAG_SET_ID_GENERATOR")
+   private Long id;
+
+   @Column(name = "hash", nullable = false, updatable = false)
+   private String hash;
+
+   @Column(name = "tags", nullable = false, updatable = false)
+   private String tags;
+
+   @Column(name = "size", nullable = false, updatable = false)
+   private int size;
+
+   @ManyToMany(fetch = FetchType.LAZY)
+   @JoinTable(
+       name = "tag_set_tag",
+       joinColumns = {@JoinColumn(name = "tag_set_id", nullable = false, updatable = false)},
+       inverseJoinColumns = {@JoinColumn(name = "tag_id", nullable = false, updatable = false)}
+   )
+   private Collection<Tag> tagEntities;
+
+   public TagSet() {
+   }
+
+   public TagSet(Collection<Tag> tagEntities) {
+      TreeSet<String> names = new TreeSet<>();
+      tagEntities.forEach(tag -> names.add(tag.getName()));
+      this.tags = canonicalize(names);
+      this.hash = hash(this.tags);
+      this.size = names.size();
+      this.tagEntities = tagEntities;
+   }
+
+   /**
+    * @param tagNames
+    * @return canonical form of the set of tags, i.e. distinct names sorted and separated by space
+    */
+   public static String canonicalize(Collection<String> tagNames) {
+      return String.join(" ", new TreeSet<>(tagNames));
+   }
+
+   /**
+    * @param canonicalTags set of tags in canonical form, see {@link #canonicalize(Collection)}
+    * @return hash identifying the set, equal to <code>md5(tags)</code> in database
+    */
+   public static String hash(String canonicalTags) {
+      try {
+         byte[] digest = MessageDigest.getInstance("MD5").digest(canonicalTags.getBytes(StandardCharsets.UTF_8));
+         StringBuilder result = new StringBuilder(2 * digest.length);
+         for (byte b : digest) {
+            result.append(String.format("%02x", b & 0xff));
+         }
+         return result.toString();
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException("MD5 is not supported.", e);
+      }
+   }
+
+   @Override
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   public String getHash() {
+      return hash;
+   }
+
+   /**
+    * @return tags in canonical form, see {@link #canonicalize(Collection)}
+    */
+   public String getTags() {
+      return tags;
+   }
+
+   public int getSize() {
+      return size;
+   }
+
+   public Collection<Tag> getTagEntities() {
+      return tagEntities;
+   }
+
+   @Override
+   public TagSet clone() {
+      try {
+         return (TagSet) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
@@ -14,6 +14,8 @@
  */
 package org.perfrepo.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.perfrepo.model.auth.EntityType;
 import org.perfrepo.model.auth.SecuredEntity;
 import org.perfrepo.model.builder.TestBuilder;
@@ -36,9 +38,11 @@ import java.util.stream.Collectors;
  */
 @javax.persistence.Entity
 @Table(name = "test")
+@Cacheable
 @SecuredEntity(type = EntityType.TEST)
 @NamedQueries({
-    @NamedQuery(name = Test.FIND_BY_UID, query = "SELECT test FROM Test test WHERE test.uid = :uid")
+    @NamedQuery(name = Test.FIND_BY_UID, query = "SELECT test FROM Test test WHERE test.uid = :uid",
+                hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 })
 @XmlRootElement(name = "test")
 public class Test implements Entity<Test> {
@@ -66,6 +70,7 @@ public class Test implements Entity<Test> {
            joinColumns = {@JoinColumn(name = "test_id", nullable = false, updatable = false)},
            inverseJoinColumns = {@JoinColumn(name = "metric_id", nullable = false, updatable = false)}
    )
+   @Cache(usage = CacheConcurrencyStrategy.TRANSACTIONAL)
    private Collection<Metric> metrics;
 
    @ManyToMany(fetch = FetchType.LAZY)
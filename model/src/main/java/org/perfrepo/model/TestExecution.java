@@ -54,7 +54,7 @@ public class TestExecution implements Entity<TestExecution> {
    public static final String GET_TEST = "TestExecution.getTest";
 
    @Id
-   @SequenceGenerator(name = "TEST_EXECUTION_ID_GENERATOR", sequenceName = "TEST_EXECUTION_SEQUENCE", allocationSize = 1)
+   @SequenceGenerator(name = "TEST_EXECUTION_ID_GENERATOR", sequenceName = "TEST_EXECUTION_SEQUENCE", allocationSize = 50)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "TEST_EXECUTION_ID_GENERATOR")
    private Long id;
 
@@ -78,6 +78,13 @@ public class TestExecution implements Entity<TestExecution> {
    )
    private Collection<Tag> tags;
 
+   @ManyToOne(fetch = FetchType.LAZY)
+   @JoinColumn(name = "tag_set_id")
+   private TagSet tagSet;
+
+   @Column(name = "tag_set_id", insertable = false, updatable = false)
+   private Long tagSetId;
+
    @OneToMany(mappedBy = "testExecution")
    private Collection<Value> values;
 
@@ -178,6 +185,25 @@ public class TestExecution implements Entity<TestExecution> {
       return this.tags;
    }
 
+   @XmlTransient
+   public TagSet getTagSet() {
+      return tagSet;
+   }
+
+   public void setTagSet(TagSet tagSet) {
+      this.tagSet = tagSet;
+      this.tagSetId = tagSet == null ? null : tagSet.getId();
+   }
+
+   /**
+    * @return ID of the set of tags of this test execution, test executions with exactly the same tags have the same ID,
+    * null if the test execution has no tags
+    */
+   @XmlTransient
+   public Long getTagSetId() {
+      return tagSetId;
+   }
+
    public void setValues(Collection<Value> values) {
       this.values = values;
    }
@@ -26,14 +26,16 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 /**
- * A binary file that can be attached to test execution.
+ * A binary file that can be attached to test execution. Only metadata of the file are mapped here, size and SHA-256
+ * checksum of the content are computed when it's uploaded. The content itself is mapped by
+ * {@link TestExecutionAttachmentContent}, it's loaded only when the attachment is downloaded.
  *
  * @author Michal Linhard (mlinhard@redhat.com)
  */
 @javax.persistence.Entity
 @Table(name = "test_execution_attachment")
 @NamedQueries({
-    @NamedQuery(name = TestExecutionAttachment.FIND_BY_EXECUTION, query = "SELECT new TestExecutionAttachment(a.id, a.filename, a.mimetype) from TestExecutionAttachment a WHERE a.testExecution.id = :exec"),
+    @NamedQuery(name = TestExecutionAttachment.FIND_BY_EXECUTION, query = "SELECT new TestExecutionAttachment(a.id, a.filename, a.mimetype, a.contentSize, a.checksum) from TestExecutionAttachment a WHERE a.testExecution.id = :exec"),
     @NamedQuery(name = TestExecutionAttachment.GET_TEST, query = "SELECT test from Test test inner join test.testExecutions te inner join te.attachments tea where tea = :entity")
 })
 @XmlRootElement(name = "attachment")
@@ -65,6 +67,21 @@ public class TestExecutionAttachment implements Entity<TestExecutionAttachment>
       this.mimetype = mimetype;
    }
 
+   /**
+    * Constructor.
+    *
+    * @param id
+    * @param filename
+    * @param mimetype
+    * @param contentSize
+    * @param checksum
+    */
+   public TestExecutionAttachment(Long id, String filename, String mimetype, Long contentSize, String checksum) {
+      this(id, filename, mimetype);
+      this.contentSize = contentSize;
+      this.checksum = checksum;
+   }
+
    @Id
    @SequenceGenerator(name = "TEST_EXECUTION_ATTACHMENT_ID_GENERATOR", sequenceName = "TEST_EXECUTION_ATTACHMENT_SEQUENCE", allocationSize = 1)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "TEST_EXECUTION_ATTACHMENT_ID_GENERATOR")
@@ -84,11 +101,12 @@ public class TestExecutionAttachment implements Entity<TestExecutionAttachment>
    @JoinColumn(name = "test_execution_id", referencedColumnName = "id")
    private TestExecution testExecution;
 
-   @Lob
-   @Column(name = "content")
-   @NotNull
-   @Size(max = 1048576)
-   private byte[] content;
+   @Column(name = "content_size")
+   private Long contentSize;
+
+   @Column(name = "checksum")
+   @Size(max = 64)
+   private String checksum;
 
    @XmlTransient
    public Long getId() {
@@ -135,13 +153,28 @@ public class TestExecutionAttachment implements Entity<TestExecutionAttachment>
       this.mimetype = mimetype;
    }
 
-   @XmlTransient
-   public byte[] getContent() {
-      return content;
+   /**
+    * @return size of the content in bytes
+    */
+   @XmlAttribute(name = "size")
+   public Long getContentSize() {
+      return contentSize;
+   }
+
+   public void setContentSize(Long contentSize) {
+      this.contentSize = contentSize;
+   }
+
+   /**
+    * @return hex encoded SHA-256 checksum of the content, null for content stored in database before it was computed
+    */
+   @XmlAttribute(name = "checksum")
+   public String getChecksum() {
+      return checksum;
    }
 
-   public void setContent(byte[] content) {
-      this.content = content;
+   public void setChecksum(String checksum) {
+      this.checksum = checksum;
    }
 
    @Override
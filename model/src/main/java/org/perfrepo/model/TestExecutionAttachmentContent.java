@@ -0,0 +1,98 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import javax.persistence.*;
+import javax.validation.constraints.Size;
+import java.sql.Blob;
+
+/**
+ * Content of {@link TestExecutionAttachment}, mapped separately from the attachment, so listing attachments never
+ * touches the content. The content is stored either as a large object mapped as {@link Blob}, or in an external
+ * storage under the storage key, then the content is null. It's loaded only when the attachment is downloaded.
+ */
+@javax.persistence.Entity
+@Table(name = "test_execution_attachment_content")
+public class TestExecutionAttachmentContent implements Entity<TestExecutionAttachmentContent> {
+
+   private static final long serialVersionUID = 4391268705317642710L;
+
+   @Id
+   @Column(name = "attachment_id")
+   private Long attachmentId;
+
+   @Lob
+   @Column(name = "content")
+   private Blob content;
+
+   @Column(name = "storage_key")
+   @Size(max = 255)
+   private String storageKey;
+
+   /**
+    * Constructor.
+    */
+   public TestExecutionAttachmentContent() {
+      super();
+   }
+
+   /**
+    * Constructor.
+    *
+    * @param attachmentId
+    */
+   public TestExecutionAttachmentContent(Long attachmentId) {
+      super();
+      this.attachmentId = attachmentId;
+   }
+
+   @Override
+   public Long getId() {
+      return attachmentId;
+   }
+
+   public Long getAttachmentId() {
+      return attachmentId;
+   }
+
+   public void setAttachmentId(Long attachmentId) {
+      this.attachmentId = attachmentId;
+   }
+
+   public Blob getContent() {
+      return content;
+   }
+
+   public void setContent(Blob content) {
+      this.content = content;
+   }
+
+   public String getStorageKey() {
+      return storageKey;
+   }
+
+   public void setStorageKey(String storageKey) {
+      this.storageKey = storageKey;
+   }
+
+   @Override
+   public TestExecutionAttachmentContent clone() {
+      try {
+         return (TestExecutionAttachmentContent) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
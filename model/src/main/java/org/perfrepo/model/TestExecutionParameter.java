@@ -23,6 +23,10 @@ import javax.validation.constraints.Size;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 @javax.persistence.Entity
 @Table(name = "test_execution_parameter")
@@ -41,7 +45,7 @@ public class TestExecutionParameter implements Entity<TestExecutionParameter>, C
    public static final String FIND_BY_TEST_ID = "TestExecutionParameter.findByTestId";
 
    @Id
-   @SequenceGenerator(name = "TEST_EXECUTION_PARAMETER_ID_GENERATOR", sequenceName = "TEST_EXECUTION_PARAMETER_SEQUENCE", allocationSize = 1)
+   @SequenceGenerator(name = "TEST_EXECUTION_PARAMETER_ID_GENERATOR", sequenceName = "TEST_EXECUTION_PARAMETER_SEQUENCE", allocationSize = 50)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "TEST_EXECUTION_PARAMETER_ID_GENERATOR")
    private Long id;
 
@@ -59,6 +63,9 @@ public class TestExecutionParameter implements Entity<TestExecutionParameter>, C
    @Size(max = 2047)
    private String value;
 
+   @Column(name = "pair_key")
+   private Long pairKey;
+
    public TestExecutionParameter() {
       super();
    }
@@ -105,6 +112,41 @@ public class TestExecutionParameter implements Entity<TestExecutionParameter>, C
       return this.value;
    }
 
+   /**
+    * @return encoded pair (name, value) of the parameter, see {@link #pairKey(String, String)}
+    */
+   @XmlTransient
+   public Long getPairKey() {
+      return pairKey;
+   }
+
+   @PrePersist
+   @PreUpdate
+   protected void updatePairKey() {
+      pairKey = name == null || value == null ? null : pairKey(name, value);
+   }
+
+   /**
+    * Encodes pair (name, value) of a parameter to a number, so the test executions having the parameter with exactly
+    * this value can be looked up by index of fixed width, regardless of the length of the name and value. Different
+    * pairs may rarely have the same key, the name and value have to be compared as well.
+    *
+    * The key is the first 8 bytes of MD5 hash of name and value separated by character 0x1f, i.e.
+    * <code>('x' || substr(md5(name || chr(31) || value), 1, 16))::bit(64)::bigint</code> in database.
+    *
+    * @param name
+    * @param value
+    * @return
+    */
+   public static long pairKey(String name, String value) {
+      try {
+         byte[] digest = MessageDigest.getInstance("MD5").digest((name + '\u001f' + value).getBytes(StandardCharsets.UTF_8));
+         return ByteBuffer.wrap(digest).getLong();
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException("MD5 is not supported.", e);
+      }
+   }
+
    @Override
    public int compareTo(TestExecutionParameter o) {
       return this.getName().compareTo(o.getName());
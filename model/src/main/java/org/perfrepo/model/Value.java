@@ -25,6 +25,7 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 import java.util.Collection;
+import java.util.Date;
 
 /**
  * Represents one value measured in a {@link TestExecution}.
@@ -44,7 +45,7 @@ public class Value implements Entity<Value> {
    public static final String GET_TEST = "Value.getTest";
 
    @Id
-   @SequenceGenerator(name = "VALUE_ID_GENERATOR", sequenceName = "VALUE_SEQUENCE", allocationSize = 1)
+   @SequenceGenerator(name = "VALUE_ID_GENERATOR", sequenceName = "VALUE_SEQUENCE", allocationSize = 50)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "VALUE_ID_GENERATOR")
    private Long id;
 
@@ -59,6 +60,10 @@ public class Value implements Entity<Value> {
    @JoinColumn(name = "test_execution_id", referencedColumnName = "id")
    private TestExecution testExecution;
 
+   // copy of the start of the test execution, the values are partitioned by it together with the test executions
+   @Column(name = "started", nullable = false, updatable = false)
+   private Date started;
+
    @OneToMany(mappedBy = "value")
    private Collection<ValueParameter> parameters;
 
@@ -98,6 +103,18 @@ public class Value implements Entity<Value> {
       return this.testExecution;
    }
 
+   @XmlTransient
+   public Date getStarted() {
+      return started;
+   }
+
+   @PrePersist
+   protected void copyStarted() {
+      if (testExecution != null) {
+         started = testExecution.getStarted();
+      }
+   }
+
    public void setParameters(Collection<ValueParameter> valueParameters) {
       this.parameters = valueParameters;
    }
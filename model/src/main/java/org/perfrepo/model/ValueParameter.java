@@ -23,6 +23,7 @@ import javax.validation.constraints.Size;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
+import java.util.Date;
 
 @javax.persistence.Entity
 @Table(name = "value_parameter")
@@ -57,7 +58,7 @@ public class ValueParameter implements Entity<ValueParameter>, Comparable<ValueP
    public static final String NQ_ID = "valueParameterId";
 
    @Id
-   @SequenceGenerator(name = "VALUE_PARAMETER_ID_GENERATOR", sequenceName = "VALUE_PARAMETER_SEQUENCE", allocationSize = 1)
+   @SequenceGenerator(name = "VALUE_PARAMETER_ID_GENERATOR", sequenceName = "VALUE_PARAMETER_SEQUENCE", allocationSize = 50)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "VALUE_PARAMETER_ID_GENERATOR")
    private Long id;
 
@@ -75,6 +76,10 @@ public class ValueParameter implements Entity<ValueParameter>, Comparable<ValueP
    @JoinColumn(name = "value_id", referencedColumnName = "id")
    private Value value;
 
+   // copy of the start of the test execution, the parameters are partitioned by it together with the test executions
+   @Column(name = "started", nullable = false, updatable = false)
+   private Date started;
+
    @XmlTransient
    public Value getValue() {
       return value;
@@ -84,6 +89,19 @@ public class ValueParameter implements Entity<ValueParameter>, Comparable<ValueP
       this.value = value;
    }
 
+   @XmlTransient
+   public Date getStarted() {
+      return started;
+   }
+
+   @PrePersist
+   protected void copyStarted() {
+      if (value != null) {
+         // merged value doesn't carry the copy, it's not updatable
+         started = value.getStarted() != null || value.getTestExecution() == null ? value.getStarted() : value.getTestExecution().getStarted();
+      }
+   }
+
    public ValueParameter() {
       super();
    }
@@ -25,11 +25,18 @@ import javax.xml.bind.annotation.XmlTransient;
 
 @javax.persistence.Entity
 @Table(name = "permission")
+@Cacheable
+@NamedQueries({
+    @NamedQuery(name = Permission.FIND_BY_REPORT, query = "SELECT permission FROM Permission permission WHERE permission.report.id = :reportId",
+                hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
+})
 @XmlRootElement(name = "report-permission")
 public class Permission implements Entity<Permission>, Comparable<Permission> {
 
    private static final long serialVersionUID = 5637370080321126750L;
 
+   public static final String FIND_BY_REPORT = "Permission.findByReport";
+
    @Id
    @SequenceGenerator(name = "PERMISSION_ID_GENERATOR", sequenceName = "PERMISSION_SEQUENCE", allocationSize = 1)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "PERMISSION_ID_GENERATOR")
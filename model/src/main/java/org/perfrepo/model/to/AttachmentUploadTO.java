@@ -0,0 +1,142 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.to;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of resumable upload of attachment content. The content of the given size is uploaded in numbered chunks of
+ * the chunk size, only the last chunk may be shorter. Chunk <code>n</code> starts at offset <code>n * chunkSize</code>.
+ * Chunks can be uploaded in any order and repeatedly, the upload is completed once all chunks are stored.
+ */
+@XmlRootElement(name = "attachment-upload")
+public class AttachmentUploadTO implements Serializable {
+
+   private static final long serialVersionUID = 6014927316251839052L;
+
+   private String id;
+   private Long testExecutionId;
+   private String filename;
+   private String mimetype;
+   private long size;
+   private int chunkSize;
+   private List<Integer> storedChunks = new ArrayList<>();
+
+   @XmlAttribute(name = "id")
+   public String getId() {
+      return id;
+   }
+
+   public void setId(String id) {
+      this.id = id;
+   }
+
+   @XmlAttribute(name = "testExecutionId")
+   public Long getTestExecutionId() {
+      return testExecutionId;
+   }
+
+   public void setTestExecutionId(Long testExecutionId) {
+      this.testExecutionId = testExecutionId;
+   }
+
+   @XmlAttribute(name = "filename")
+   public String getFilename() {
+      return filename;
+   }
+
+   public void setFilename(String filename) {
+      this.filename = filename;
+   }
+
+   @XmlAttribute(name = "mimetype")
+   public String getMimetype() {
+      return mimetype;
+   }
+
+   public void setMimetype(String mimetype) {
+      this.mimetype = mimetype;
+   }
+
+   @XmlAttribute(name = "size")
+   public long getSize() {
+      return size;
+   }
+
+   public void setSize(long size) {
+      this.size = size;
+   }
+
+   @XmlAttribute(name = "chunkSize")
+   public int getChunkSize() {
+      return chunkSize;
+   }
+
+   public void setChunkSize(int chunkSize) {
+      this.chunkSize = chunkSize;
+   }
+
+   /**
+    * @return numbers of the chunks already stored, in ascending order
+    */
+   @XmlElementWrapper(name = "stored-chunks")
+   @XmlElement(name = "chunk")
+   public List<Integer> getStoredChunks() {
+      return storedChunks;
+   }
+
+   public void setStoredChunks(List<Integer> storedChunks) {
+      this.storedChunks = storedChunks;
+   }
+
+   /**
+    * @return number of chunks of the content
+    */
+   @XmlTransient
+   public int getChunkCount() {
+      return (int) ((size + chunkSize - 1) / chunkSize);
+   }
+
+   /**
+    * @param chunk
+    * @return offset of the first byte of the chunk
+    */
+   public long getOffset(int chunk) {
+      return (long) chunk * chunkSize;
+   }
+
+   /**
+    * @param chunk
+    * @return number of bytes of the chunk
+    */
+   public int getChunkLength(int chunk) {
+      return (int) Math.min(chunkSize, size - getOffset(chunk));
+   }
+
+   /**
+    * @return true if all chunks are stored
+    */
+   @XmlTransient
+   public boolean isComplete() {
+      return storedChunks.size() == getChunkCount();
+   }
+}
@@ -0,0 +1,114 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.to;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of bulk creation of test executions. Contains one item per submitted test execution, in the same order,
+ * with either the ID of created test execution or the reason why it wasn't created.
+ */
+@XmlRootElement(name = "bulk-create-result")
+public class BulkCreateResultTO implements Serializable {
+
+   private static final long serialVersionUID = 3415869541201857604L;
+
+   private List<Item> items = new ArrayList<>();
+
+   @XmlElement(name = "item")
+   public List<Item> getItems() {
+      return items;
+   }
+
+   public void setItems(List<Item> items) {
+      this.items = items;
+   }
+
+   public void addCreated(int index, Long id) {
+      items.add(new Item(index, id, null));
+   }
+
+   public void addError(int index, String error) {
+      items.add(new Item(index, null, error));
+   }
+
+   /**
+    * @return IDs of created test executions, without the rejected ones
+    */
+   @XmlTransient
+   public List<Long> getCreatedIds() {
+      List<Long> result = new ArrayList<>();
+      for (Item item : items) {
+         if (item.getId() != null) {
+            result.add(item.getId());
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Result of one test execution, identified by its position in the request.
+    */
+   public static class Item implements Serializable {
+
+      private static final long serialVersionUID = -6208432167794826715L;
+
+      private int index;
+      private Long id;
+      private String error;
+
+      public Item() {
+      }
+
+      public Item(int index, Long id, String error) {
+         this.index = index;
+         this.id = id;
+         this.error = error;
+      }
+
+      @XmlAttribute(name = "index")
+      public int getIndex() {
+         return index;
+      }
+
+      public void setIndex(int index) {
+         this.index = index;
+      }
+
+      @XmlAttribute(name = "id")
+      public Long getId() {
+         return id;
+      }
+
+      public void setId(Long id) {
+         this.id = id;
+      }
+
+      @XmlAttribute(name = "error")
+      public String getError() {
+         return error;
+      }
+
+      public void setError(String error) {
+         this.error = error;
+      }
+   }
+}
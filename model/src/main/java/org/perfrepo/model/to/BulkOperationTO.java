@@ -0,0 +1,159 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.to;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * State of bulk operation on test executions matching search criteria, i.e. adding tags, removing tags or removing
+ * the test executions. The operation runs in background, the progress is given by the number of processed test
+ * executions out of the total number of matching ones.
+ */
+@XmlRootElement(name = "bulk-operation")
+public class BulkOperationTO implements Serializable {
+
+   private static final long serialVersionUID = -2937466418925006873L;
+
+   public enum Type {
+      ADD_TAGS, REMOVE_TAGS, REMOVE
+   }
+
+   public enum State {
+      RUNNING, FINISHED, FAILED
+   }
+
+   private Long id;
+   private Type type;
+   private State state;
+   private List<String> tags = new ArrayList<>();
+   private int total;
+   private int processed;
+   private Date started;
+   private Date finished;
+   private String error;
+
+   public BulkOperationTO() {
+   }
+
+   public BulkOperationTO(BulkOperationTO other) {
+      this.id = other.id;
+      this.type = other.type;
+      this.state = other.state;
+      this.tags = new ArrayList<>(other.tags);
+      this.total = other.total;
+      this.processed = other.processed;
+      this.started = other.started;
+      this.finished = other.finished;
+      this.error = other.error;
+   }
+
+   @XmlAttribute(name = "id")
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   @XmlAttribute(name = "type")
+   public Type getType() {
+      return type;
+   }
+
+   public void setType(Type type) {
+      this.type = type;
+   }
+
+   @XmlAttribute(name = "state")
+   public State getState() {
+      return state;
+   }
+
+   public void setState(State state) {
+      this.state = state;
+   }
+
+   @XmlElementWrapper(name = "tags")
+   @XmlElement(name = "tag")
+   public List<String> getTags() {
+      return tags;
+   }
+
+   public void setTags(List<String> tags) {
+      this.tags = tags;
+   }
+
+   @XmlAttribute(name = "total")
+   public int getTotal() {
+      return total;
+   }
+
+   public void setTotal(int total) {
+      this.total = total;
+   }
+
+   @XmlAttribute(name = "processed")
+   public int getProcessed() {
+      return processed;
+   }
+
+   public void setProcessed(int processed) {
+      this.processed = processed;
+   }
+
+   @XmlAttribute(name = "started")
+   public Date getStarted() {
+      return started;
+   }
+
+   public void setStarted(Date started) {
+      this.started = started;
+   }
+
+   @XmlAttribute(name = "finished")
+   public Date getFinished() {
+      return finished;
+   }
+
+   public void setFinished(Date finished) {
+      this.finished = finished;
+   }
+
+   @XmlAttribute(name = "error")
+   public String getError() {
+      return error;
+   }
+
+   public void setError(String error) {
+      this.error = error;
+   }
+
+   /**
+    * @return true if the operation finished, successfully or not
+    */
+   @XmlTransient
+   public boolean isDone() {
+      return state != State.RUNNING;
+   }
+}
@@ -19,6 +19,7 @@ import org.perfrepo.model.Test;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -263,6 +264,8 @@ public class MetricReportTO {
 
       private List<ChartRequest> chartSpecs;
       private int limitSize = DEFAULT_SIZE_LIMIT;
+      private Date from;
+      private Date to;
 
       public Request() {
 
@@ -280,6 +283,26 @@ public class MetricReportTO {
          this.limitSize = limitSize;
       }
 
+      public Date getFrom() {
+         return from;
+      }
+
+      public Date getTo() {
+         return to;
+      }
+
+      /**
+       * Restricts the charts to test executions started in the range. If there are more of them than the limit size,
+       * the points are aggregated by days or weeks, see {@link org.perfrepo.model.MetricRollup}.
+       *
+       * @param from
+       * @param to
+       */
+      public void setRange(Date from, Date to) {
+         this.from = from;
+         this.to = to;
+      }
+
       public List<ChartRequest> getCharts() {
          return chartSpecs;
       }
@@ -14,16 +14,37 @@ public class SearchResultWrapper<T> {
    private List<T> result;
    private int totalSearchResultsCount;
 
+   private String nextCursor;
+
    public SearchResultWrapper(List<T> result, int totalSearchResultsCount) {
       this.result = result;
       this.totalSearchResultsCount = totalSearchResultsCount;
    }
 
+   public SearchResultWrapper(List<T> result, int totalSearchResultsCount, String nextCursor) {
+      this(result, totalSearchResultsCount);
+      this.nextCursor = nextCursor;
+   }
+
    public List<T> getResult() {
       return result;
    }
 
+   /**
+    * Total number of entities matched by the search query, -1 if it wasn't computed (cursor-based search).
+    *
+    * @return
+    */
    public int getTotalSearchResultsCount() {
       return totalSearchResultsCount;
    }
+
+   /**
+    * Cursor pointing after the last returned entity, used to retrieve next page of the cursor-based search.
+    *
+    * @return cursor or null if the search isn't cursor-based or there are no more results
+    */
+   public String getNextCursor() {
+      return nextCursor;
+   }
 }
@@ -47,6 +47,8 @@ public class TestExecutionSearchTO implements Serializable {
    private List<ParamCriteria> parameters = new ArrayList<ParamCriteria>();
    private Integer limitFrom;
    private Integer limitHowMany;
+   //opaque cursor returned by previous cursor-based search, empty string for the first page
+   private String cursor;
    private GroupFilter groupFilter;
 
    private OrderBy orderBy = OrderBy.DATE_ASC;
@@ -135,6 +137,22 @@ public class TestExecutionSearchTO implements Serializable {
       this.limitHowMany = limitHowMany;
    }
 
+   /**
+    * Switches the search to cursor-based (keyset) pagination, limitFrom is ignored in this mode and
+    * total count of results isn't computed. Supported only with DATE_* and NAME_* ordering.
+    *
+    * @return cursor returned by previous search as {@link SearchResultWrapper#getNextCursor()},
+    * empty string for the first page, null if the cursor-based pagination isn't used
+    */
+   @XmlElement(name = "cursor")
+   public String getCursor() {
+      return cursor;
+   }
+
+   public void setCursor(String cursor) {
+      this.cursor = cursor;
+   }
+
    @XmlElement(name = "group-filter")
    public GroupFilter getGroupFilter() {
       return groupFilter;
@@ -180,6 +198,7 @@ public class TestExecutionSearchTO implements Serializable {
       if (ids != null ? !ids.equals(that.ids) : that.ids != null) return false;
       if (limitFrom != null ? !limitFrom.equals(that.limitFrom) : that.limitFrom != null) return false;
       if (limitHowMany != null ? !limitHowMany.equals(that.limitHowMany) : that.limitHowMany != null) return false;
+      if (cursor != null ? !cursor.equals(that.cursor) : that.cursor != null) return false;
       if (parameters != null ? !parameters.equals(that.parameters) : that.parameters != null) return false;
       if (startedFrom != null ? !startedFrom.equals(that.startedFrom) : that.startedFrom != null) return false;
       if (startedTo != null ? !startedTo.equals(that.startedTo) : that.startedTo != null) return false;
@@ -201,6 +220,7 @@ public class TestExecutionSearchTO implements Serializable {
       result = 31 * result + (parameters != null ? parameters.hashCode() : 0);
       result = 31 * result + (limitFrom != null ? limitFrom.hashCode() : 0);
       result = 31 * result + (limitHowMany != null ? limitHowMany.hashCode() : 0);
+      result = 31 * result + (cursor != null ? cursor.hashCode() : 0);
       result = 31 * result + (groupFilter != null ? groupFilter.hashCode() : 0);
       return result;
    }
@@ -16,6 +16,7 @@ package org.perfrepo.model.user;
 
 import org.perfrepo.model.Entity;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
@@ -28,6 +29,7 @@ import java.util.Collection;
 
 @javax.persistence.Entity
 @Table(name = "\"group\"")
+@Cacheable
 public class Group implements Entity<Group>, Comparable<Group> {
 
    private static final long serialVersionUID = -9158731656089441951L;
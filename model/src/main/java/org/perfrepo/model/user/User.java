@@ -14,6 +14,8 @@
  */
 package org.perfrepo.model.user;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Email;
 import org.perfrepo.model.Entity;
 import org.perfrepo.model.FavoriteParameter;
@@ -27,6 +29,7 @@ import java.util.Collection;
 
 @javax.persistence.Entity
 @Table(name = "\"user\"")
+@Cacheable
 @NamedQueries({
     @NamedQuery(name = User.GET_SUBSCRIBERS_FOR_TEST, query = "SELECT distinct user from User user join user.subscribedTests test where test.id = :testId")
 })
@@ -79,6 +82,7 @@ public class User implements Entity<User>, Comparable<User> {
        joinColumns = {@JoinColumn(name = "user_id", nullable = false, updatable = false)},
        inverseJoinColumns = {@JoinColumn(name = "group_id", nullable = false, updatable = false)}
    )
+   @Cache(usage = CacheConcurrencyStrategy.TRANSACTIONAL)
    private Collection<Group> groups;
 
    @ManyToMany(mappedBy = "subscribers")
@@ -0,0 +1,193 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Approximate distribution of values for computing quantiles. Values are counted in buckets growing exponentially
+ * with the absolute value, so every quantile is returned with relative error of at most {@link #RELATIVE_ACCURACY},
+ * no matter how many values were added. Sketches can be merged, the result is the same as if all values were added
+ * to one sketch. Binary forms of sketches can be merged by concatenation, so database can merge them without
+ * decoding.
+ */
+public class QuantileSketch {
+
+   /**
+    * Maximal relative error of the returned quantiles.
+    */
+   public static final double RELATIVE_ACCURACY = 0.01;
+
+   private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+   private static final double LOG_GAMMA = Math.log(GAMMA);
+
+   private static final byte FORMAT_VERSION = 1;
+
+   // counts of values by bucket index, negative values are counted by their absolute value
+   private final TreeMap<Integer, Long> positive = new TreeMap<>();
+   private final TreeMap<Integer, Long> negative = new TreeMap<>();
+   private long zeroCount;
+   private long count;
+
+   /**
+    * Adds the value, NaN and infinite values are ignored.
+    *
+    * @param value
+    */
+   public void add(double value) {
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+         return;
+      }
+      if (value > 0) {
+         positive.merge(bucket(value), 1L, Long::sum);
+      } else if (value < 0) {
+         negative.merge(bucket(-value), 1L, Long::sum);
+      } else {
+         zeroCount++;
+      }
+      count++;
+   }
+
+   /**
+    * Adds all values of the other sketch.
+    *
+    * @param other
+    */
+   public void merge(QuantileSketch other) {
+      other.positive.forEach((bucket, bucketCount) -> positive.merge(bucket, bucketCount, Long::sum));
+      other.negative.forEach((bucket, bucketCount) -> negative.merge(bucket, bucketCount, Long::sum));
+      zeroCount += other.zeroCount;
+      count += other.count;
+   }
+
+   /**
+    * @return number of added values
+    */
+   public long getCount() {
+      return count;
+   }
+
+   /**
+    * @param quantile between 0 and 1
+    * @return approximate value of the quantile, NaN if there are no values
+    */
+   public double getQuantile(double quantile) {
+      if (quantile < 0 || quantile > 1) {
+         throw new IllegalArgumentException("Quantile has to be between 0 and 1.");
+      }
+      if (count == 0) {
+         return Double.NaN;
+      }
+
+      long rank = (long) Math.floor(quantile * (count - 1));
+      long seen = 0;
+      for (Map.Entry<Integer, Long> entry : negative.descendingMap().entrySet()) {
+         seen += entry.getValue();
+         if (rank < seen) {
+            return -value(entry.getKey());
+         }
+      }
+      seen += zeroCount;
+      if (rank < seen) {
+         return 0;
+      }
+      for (Map.Entry<Integer, Long> entry : positive.entrySet()) {
+         seen += entry.getValue();
+         if (rank < seen) {
+            return value(entry.getKey());
+         }
+      }
+      return value(positive.lastKey());
+   }
+
+   /**
+    * @return binary form of the sketch, see {@link #fromBytes(byte[])}, always compacted, i.e. with every bucket
+    * stored once
+    */
+   public byte[] toBytes() {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream output = new DataOutputStream(bytes)) {
+         output.writeByte(FORMAT_VERSION);
+         output.writeLong(zeroCount);
+         writeBuckets(output, positive);
+         writeBuckets(output, negative);
+      } catch (IOException e) {
+         throw new IllegalStateException("Unable to serialize quantile sketch.", e);
+      }
+      return bytes.toByteArray();
+   }
+
+   /**
+    * @param bytes binary form created by {@link #toBytes()} or concatenation of such forms, which is decoded as the
+    * merged sketch, null or empty for an empty sketch
+    * @return the sketch
+    */
+   public static QuantileSketch fromBytes(byte[] bytes) {
+      QuantileSketch sketch = new QuantileSketch();
+      if (bytes == null || bytes.length == 0) {
+         return sketch;
+      }
+
+      try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+         while (input.available() > 0) {
+            byte version = input.readByte();
+            if (version != FORMAT_VERSION) {
+               throw new IllegalArgumentException("Unsupported version of quantile sketch " + version);
+            }
+            long zeroCount = input.readLong();
+            sketch.zeroCount += zeroCount;
+            sketch.count += zeroCount + readBuckets(input, sketch.positive) + readBuckets(input, sketch.negative);
+         }
+      } catch (IOException e) {
+         throw new IllegalArgumentException("Malformed quantile sketch.", e);
+      }
+      return sketch;
+   }
+
+   private static int bucket(double absoluteValue) {
+      return (int) Math.ceil(Math.log(absoluteValue) / LOG_GAMMA);
+   }
+
+   private static double value(int bucket) {
+      // middle of the bucket (gamma^(bucket - 1), gamma^bucket] in terms of relative error
+      return 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+   }
+
+   private static void writeBuckets(DataOutputStream output, TreeMap<Integer, Long> buckets) throws IOException {
+      output.writeInt(buckets.size());
+      for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+         output.writeInt(entry.getKey());
+         output.writeLong(entry.getValue());
+      }
+   }
+
+   private static long readBuckets(DataInputStream input, TreeMap<Integer, Long> buckets) throws IOException {
+      long total = 0;
+      int size = input.readInt();
+      for (int i = 0; i < size; i++) {
+         int bucket = input.readInt();
+         long bucketCount = input.readLong();
+         buckets.merge(bucket, bucketCount, Long::sum);
+         total += bucketCount;
+      }
+      return total;
+   }
+}
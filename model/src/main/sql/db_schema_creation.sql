@@ -104,10 +104,11 @@ ALTER TABLE public.test_execution OWNER TO perfrepo;
 
 CREATE TABLE test_execution_attachment (
     id bigint NOT NULL,
-    content oid NOT NULL,
     filename character varying(2047) NOT NULL,
     mimetype character varying(255) NOT NULL,
-    test_execution_id bigint NOT NULL
+    test_execution_id bigint NOT NULL,
+    content_size bigint,
+    checksum character varying(64)
 );
 
 
@@ -127,6 +128,19 @@ CREATE SEQUENCE test_execution_attachment_sequence
 
 ALTER TABLE public.test_execution_attachment_sequence OWNER TO perfrepo;
 
+--
+-- Name: test_execution_attachment_content; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace: 
+--
+
+CREATE TABLE test_execution_attachment_content (
+    attachment_id bigint NOT NULL,
+    content oid,
+    storage_key character varying(255)
+);
+
+
+ALTER TABLE public.test_execution_attachment_content OWNER TO perfrepo;
+
 --
 -- Name: test_execution_parameter; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace: 
 --
@@ -147,7 +161,7 @@ ALTER TABLE public.test_execution_parameter OWNER TO perfrepo;
 
 CREATE SEQUENCE test_execution_parameter_sequence
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 50
     NO MAXVALUE
     NO MINVALUE
     CACHE 1;
@@ -161,7 +175,7 @@ ALTER TABLE public.test_execution_parameter_sequence OWNER TO perfrepo;
 
 CREATE SEQUENCE test_execution_sequence
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 50
     NO MAXVALUE
     NO MINVALUE
     CACHE 1;
@@ -273,7 +287,8 @@ CREATE TABLE value (
     id bigint NOT NULL,
     result_value double precision,
     metric_id bigint NOT NULL,
-    test_execution_id bigint NOT NULL
+    test_execution_id bigint NOT NULL,
+    started timestamp without time zone NOT NULL
 );
 
 
@@ -287,7 +302,8 @@ CREATE TABLE value_parameter (
     id bigint NOT NULL,
     name character varying(255),
     value character varying(255),
-    value_id bigint NOT NULL
+    value_id bigint NOT NULL,
+    started timestamp without time zone NOT NULL
 );
 
 
@@ -299,7 +315,7 @@ ALTER TABLE public.value_parameter OWNER TO perfrepo;
 
 CREATE SEQUENCE value_parameter_sequence
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 50
     NO MAXVALUE
     NO MINVALUE
     CACHE 1;
@@ -313,7 +329,7 @@ ALTER TABLE public.value_parameter_sequence OWNER TO perfrepo;
 
 CREATE SEQUENCE value_sequence
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 50
     NO MAXVALUE
     NO MINVALUE
     CACHE 1;
@@ -337,6 +353,14 @@ ALTER TABLE ONLY tag
     ADD CONSTRAINT tag_pkey PRIMARY KEY (id);
 
 
+--
+-- Name: tag_name_key; Type: CONSTRAINT; Schema: public; Owner: perfrepo; Tablespace: 
+--
+
+ALTER TABLE ONLY tag
+    ADD CONSTRAINT tag_name_key UNIQUE (name);
+
+
 --
 -- Name: test_execution_attachment_pkey; Type: CONSTRAINT; Schema: public; Owner: perfrepo; Tablespace: 
 --
@@ -345,6 +369,14 @@ ALTER TABLE ONLY test_execution_attachment
     ADD CONSTRAINT test_execution_attachment_pkey PRIMARY KEY (id);
 
 
+--
+-- Name: test_execution_attachment_content_pkey; Type: CONSTRAINT; Schema: public; Owner: perfrepo; Tablespace: 
+--
+
+ALTER TABLE ONLY test_execution_attachment_content
+    ADD CONSTRAINT test_execution_attachment_content_pkey PRIMARY KEY (attachment_id);
+
+
 --
 -- Name: test_execution_parameter_pkey; Type: CONSTRAINT; Schema: public; Owner: perfrepo; Tablespace: 
 --
@@ -489,6 +521,14 @@ ALTER TABLE ONLY test_execution_attachment
     ADD CONSTRAINT fkca230a37fdfcba9a FOREIGN KEY (test_execution_id) REFERENCES test_execution(id);
 
 
+--
+-- Name: test_execution_attachment_content_attachment_fkey; Type: FK CONSTRAINT; Schema: public; Owner: perfrepo
+--
+
+ALTER TABLE ONLY test_execution_attachment_content
+    ADD CONSTRAINT test_execution_attachment_content_attachment_fkey FOREIGN KEY (attachment_id) REFERENCES test_execution_attachment(id) ON DELETE CASCADE;
+
+
 --
 -- Name: fke696c5fd3f0c1115; Type: FK CONSTRAINT; Schema: public; Owner: perfrepo
 --
@@ -570,6 +610,23 @@ CREATE INDEX test_metric_metric ON test_metric(metric_id);
 
 CREATE INDEX test_execution_tag_test_execution ON test_execution_tag(test_execution_id);
 CREATE INDEX test_execution_parameter_test_execution ON test_execution_parameter(test_execution_id);
+CREATE INDEX test_execution_attachment_content_storage_key ON test_execution_attachment_content(storage_key);
+
+-- large objects aren't removed together with the rows referencing them, content of deleted attachments and content
+-- moved to external storage is unlinked by the trigger, unless the rows are being archived (PerfRepo sets
+-- perfrepo.keep_attachment_content for the transaction then)
+CREATE OR REPLACE FUNCTION perfrepo_unlink_attachment_content() RETURNS trigger AS $$
+BEGIN
+    IF OLD.content IS NOT NULL AND (TG_OP = 'DELETE' OR NEW.content IS DISTINCT FROM OLD.content)
+        AND coalesce(current_setting('perfrepo.keep_attachment_content', true), '') <> 'on' THEN
+        PERFORM lo_unlink(OLD.content);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER test_execution_attachment_content_unlink AFTER DELETE OR UPDATE OF content ON test_execution_attachment_content
+    FOR EACH ROW EXECUTE PROCEDURE perfrepo_unlink_attachment_content();
 
 --
 -- Name: report; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
@@ -830,6 +887,166 @@ ALTER TABLE ONLY public.alert_tag
 CREATE INDEX alert_tag_alert ON alert_tag(alert_id);
 CREATE INDEX alert_tag_tag ON alert_tag(tag_id);
 
+CREATE INDEX test_execution_started_id ON test_execution(started, id);
+
+--
+-- Name: alert_outbox; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+
+CREATE TABLE alert_outbox (
+    id bigint NOT NULL,
+    test_execution_id bigint NOT NULL,
+    test_id bigint NOT NULL,
+    created timestamp without time zone NOT NULL,
+    attempts integer NOT NULL,
+    next_attempt timestamp without time zone NOT NULL,
+    last_error character varying(2097)
+);
+
+ALTER TABLE public.alert_outbox OWNER TO perfrepo;
+
+ALTER TABLE ONLY public.alert_outbox
+    ADD CONSTRAINT alert_outbox_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.alert_outbox
+    ADD CONSTRAINT alert_outbox_test_execution_fkey FOREIGN KEY (test_execution_id) REFERENCES test_execution(id) ON DELETE CASCADE;
+
+ALTER TABLE ONLY public.alert_outbox
+    ADD CONSTRAINT alert_outbox_test_fkey FOREIGN KEY (test_id) REFERENCES test(id) ON DELETE CASCADE;
+
+CREATE INDEX alert_outbox_test_id ON alert_outbox(test_id, id);
+
+--
+-- Name: alert_outbox_sequence; Type: SEQUENCE; Schema: public; Owner: perfrepo
+--
+
+CREATE SEQUENCE alert_outbox_sequence
+    START WITH 1
+    INCREMENT BY 50
+    NO MAXVALUE
+    NO MINVALUE
+    CACHE 1;
+
+ALTER TABLE public.alert_outbox_sequence OWNER TO perfrepo;
+
+
+--
+-- Name: tag_set; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+
+CREATE TABLE tag_set (
+    id bigint NOT NULL,
+    hash character varying(32) NOT NULL,
+    tags text NOT NULL,
+    size integer NOT NULL
+);
+
+ALTER TABLE public.tag_set OWNER TO perfrepo;
+
+ALTER TABLE ONLY public.tag_set
+    ADD CONSTRAINT tag_set_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.tag_set
+    ADD CONSTRAINT tag_set_hash_key UNIQUE (hash);
+
+--
+-- Name: tag_set_tag; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+
+CREATE TABLE tag_set_tag (
+    tag_set_id bigint NOT NULL,
+    tag_id bigint NOT NULL
+);
+
+ALTER TABLE public.tag_set_tag OWNER TO perfrepo;
+
+ALTER TABLE ONLY public.tag_set_tag
+    ADD CONSTRAINT tag_set_tag_pkey PRIMARY KEY (tag_set_id, tag_id);
+
+ALTER TABLE ONLY public.tag_set_tag
+    ADD CONSTRAINT tag_set_tag_tag_set_fkey FOREIGN KEY (tag_set_id) REFERENCES tag_set(id) ON DELETE CASCADE;
+
+ALTER TABLE ONLY public.tag_set_tag
+    ADD CONSTRAINT tag_set_tag_tag_fkey FOREIGN KEY (tag_id) REFERENCES tag(id);
+
+CREATE INDEX tag_set_tag_tag ON tag_set_tag(tag_id);
+
+--
+-- Name: tag_set_sequence; Type: SEQUENCE; Schema: public; Owner: perfrepo
+--
+
+CREATE SEQUENCE tag_set_sequence
+    START WITH 1
+    INCREMENT BY 1
+    NO MAXVALUE
+    NO MINVALUE
+    CACHE 1;
+
+ALTER TABLE public.tag_set_sequence OWNER TO perfrepo;
+
+ALTER TABLE test_execution
+    ADD tag_set_id bigint NULL;
+
+ALTER TABLE ONLY public.test_execution
+    ADD CONSTRAINT test_execution_tag_set_fkey FOREIGN KEY (tag_set_id) REFERENCES tag_set(id);
+
+CREATE INDEX test_execution_tag_set ON test_execution(tag_set_id);
+
+
+ALTER TABLE test_execution_parameter
+    ADD pair_key bigint NULL;
+
+CREATE INDEX test_execution_parameter_pair ON test_execution_parameter(pair_key, test_execution_id);
+
+
+--
+-- Name: metric_rollup; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+
+CREATE TABLE metric_rollup (
+    id bigint NOT NULL,
+    test_id bigint NOT NULL,
+    metric_id bigint NOT NULL,
+    tag_set_id bigint NOT NULL,
+    granularity character varying(8) NOT NULL,
+    period_start timestamp without time zone NOT NULL,
+    count bigint NOT NULL,
+    min double precision,
+    max double precision,
+    sum double precision NOT NULL,
+    sum_of_squares double precision NOT NULL,
+    sketch bytea,
+    last_test_execution_id bigint
+);
+
+
+ALTER TABLE public.metric_rollup OWNER TO perfrepo;
+
+ALTER TABLE ONLY public.metric_rollup
+    ADD CONSTRAINT metric_rollup_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY public.metric_rollup
+    ADD CONSTRAINT metric_rollup_test_fkey FOREIGN KEY (test_id) REFERENCES test(id);
+
+ALTER TABLE ONLY public.metric_rollup
+    ADD CONSTRAINT metric_rollup_metric_fkey FOREIGN KEY (metric_id) REFERENCES metric(id);
+
+CREATE UNIQUE INDEX metric_rollup_period ON metric_rollup(test_id, metric_id, tag_set_id, granularity, period_start);
+CREATE INDEX metric_rollup_range ON metric_rollup(test_id, metric_id, granularity, period_start);
+
+--
+-- Name: metric_rollup_sequence; Type: SEQUENCE; Schema: public; Owner: perfrepo
+--
+
+CREATE SEQUENCE metric_rollup_sequence
+    START WITH 1
+    INCREMENT BY 1
+    NO MAXVALUE
+    NO MINVALUE
+    CACHE 1;
+
+ALTER TABLE public.metric_rollup_sequence OWNER TO perfrepo;
+
 
 --
 -- User/Group data
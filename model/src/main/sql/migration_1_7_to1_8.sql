@@ -0,0 +1,261 @@
+-----------------------------------------------------------------------------------------------
+--                                                                                           --
+-- Upgrade of db schema from version 1.7 to 1.8                                           --
+--                                                                                           --
+-----------------------------------------------------------------------------------------------
+
+BEGIN;
+
+-- keyset pagination of test execution search
+CREATE INDEX test_execution_started_id ON test_execution(started, id);
+
+-- pooled id allocation for batch inserts of test executions, must match allocationSize of the entities
+ALTER SEQUENCE test_execution_sequence INCREMENT BY 50;
+ALTER SEQUENCE test_execution_parameter_sequence INCREMENT BY 50;
+ALTER SEQUENCE value_sequence INCREMENT BY 50;
+ALTER SEQUENCE value_parameter_sequence INCREMENT BY 50;
+
+-- queue of test executions waiting for asynchronous evaluation of alerts
+CREATE TABLE alert_outbox (
+    id bigint NOT NULL,
+    test_execution_id bigint NOT NULL,
+    test_id bigint NOT NULL,
+    created timestamp without time zone NOT NULL,
+    attempts integer NOT NULL,
+    next_attempt timestamp without time zone NOT NULL,
+    last_error character varying(2097)
+);
+
+ALTER TABLE ONLY alert_outbox
+    ADD CONSTRAINT alert_outbox_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY alert_outbox
+    ADD CONSTRAINT alert_outbox_test_execution_fkey FOREIGN KEY (test_execution_id) REFERENCES test_execution(id) ON DELETE CASCADE;
+
+ALTER TABLE ONLY alert_outbox
+    ADD CONSTRAINT alert_outbox_test_fkey FOREIGN KEY (test_id) REFERENCES test(id) ON DELETE CASCADE;
+
+CREATE INDEX alert_outbox_test_id ON alert_outbox(test_id, id);
+
+CREATE SEQUENCE alert_outbox_sequence
+    START WITH 1
+    INCREMENT BY 50
+    NO MAXVALUE
+    NO MINVALUE
+    CACHE 1;
+
+
+-- canonical sets of tags referenced by test executions
+CREATE TABLE tag_set (
+    id bigint NOT NULL,
+    hash character varying(32) NOT NULL,
+    tags text NOT NULL,
+    size integer NOT NULL
+);
+
+ALTER TABLE ONLY tag_set
+    ADD CONSTRAINT tag_set_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY tag_set
+    ADD CONSTRAINT tag_set_hash_key UNIQUE (hash);
+
+CREATE TABLE tag_set_tag (
+    tag_set_id bigint NOT NULL,
+    tag_id bigint NOT NULL
+);
+
+ALTER TABLE ONLY tag_set_tag
+    ADD CONSTRAINT tag_set_tag_pkey PRIMARY KEY (tag_set_id, tag_id);
+
+ALTER TABLE ONLY tag_set_tag
+    ADD CONSTRAINT tag_set_tag_tag_set_fkey FOREIGN KEY (tag_set_id) REFERENCES tag_set(id) ON DELETE CASCADE;
+
+ALTER TABLE ONLY tag_set_tag
+    ADD CONSTRAINT tag_set_tag_tag_fkey FOREIGN KEY (tag_id) REFERENCES tag(id);
+
+CREATE INDEX tag_set_tag_tag ON tag_set_tag(tag_id);
+
+CREATE SEQUENCE tag_set_sequence
+    START WITH 1
+    INCREMENT BY 1
+    NO MAXVALUE
+    NO MINVALUE
+    CACHE 1;
+
+ALTER TABLE test_execution
+    ADD tag_set_id bigint NULL;
+
+ALTER TABLE ONLY test_execution
+    ADD CONSTRAINT test_execution_tag_set_fkey FOREIGN KEY (tag_set_id) REFERENCES tag_set(id);
+
+CREATE INDEX test_execution_tag_set ON test_execution(tag_set_id);
+
+-- materialize the sets of tags of existing test executions, canonical form must match TagSet.canonicalize
+CREATE TEMPORARY TABLE test_execution_tags ON COMMIT DROP AS
+    SELECT tet.test_execution_id, string_agg(t.name, ' ' ORDER BY t.name COLLATE "C") AS tags, count(*) AS size
+    FROM test_execution_tag tet
+    JOIN tag t ON t.id = tet.tag_id
+    GROUP BY tet.test_execution_id;
+
+INSERT INTO tag_set (id, hash, tags, size)
+    SELECT nextval('tag_set_sequence'), md5(tags), tags, size
+    FROM (SELECT DISTINCT tags, size FROM test_execution_tags) distinct_tags;
+
+UPDATE test_execution te
+    SET tag_set_id = ts.id
+    FROM test_execution_tags tets
+    JOIN tag_set ts ON ts.hash = md5(tets.tags)
+    WHERE te.id = tets.test_execution_id;
+
+INSERT INTO tag_set_tag (tag_set_id, tag_id)
+    SELECT DISTINCT te.tag_set_id, tet.tag_id
+    FROM test_execution te
+    JOIN test_execution_tag tet ON tet.test_execution_id = te.id
+    WHERE te.tag_set_id IS NOT NULL;
+
+-- encoded (name, value) pairs of test execution parameters, must match TestExecutionParameter.pairKey
+ALTER TABLE test_execution_parameter
+    ADD pair_key bigint NULL;
+
+UPDATE test_execution_parameter
+    SET pair_key = ('x' || substr(md5(name || chr(31) || value), 1, 16))::bit(64)::bigint;
+
+CREATE INDEX test_execution_parameter_pair ON test_execution_parameter(pair_key, test_execution_id);
+
+-- start of the test execution copied to its values and value parameters, they can be partitioned by it
+-- together with the test executions, see partitioning_1_8.sql
+ALTER TABLE value
+    ADD started timestamp without time zone NULL;
+
+UPDATE value v
+    SET started = te.started
+    FROM test_execution te
+    WHERE te.id = v.test_execution_id;
+
+ALTER TABLE value
+    ALTER COLUMN started SET NOT NULL;
+
+ALTER TABLE value_parameter
+    ADD started timestamp without time zone NULL;
+
+UPDATE value_parameter vp
+    SET started = v.started
+    FROM value v
+    WHERE v.id = vp.value_id;
+
+ALTER TABLE value_parameter
+    ALTER COLUMN started SET NOT NULL;
+
+-- daily and weekly aggregates of values per test, metric and set of tags, tag_set_id is 0 for no tags
+CREATE TABLE metric_rollup (
+    id bigint NOT NULL,
+    test_id bigint NOT NULL,
+    metric_id bigint NOT NULL,
+    tag_set_id bigint NOT NULL,
+    granularity character varying(8) NOT NULL,
+    period_start timestamp without time zone NOT NULL,
+    count bigint NOT NULL,
+    min double precision,
+    max double precision,
+    sum double precision NOT NULL,
+    sum_of_squares double precision NOT NULL,
+    sketch bytea,
+    last_test_execution_id bigint
+);
+
+ALTER TABLE ONLY metric_rollup
+    ADD CONSTRAINT metric_rollup_pkey PRIMARY KEY (id);
+
+ALTER TABLE ONLY metric_rollup
+    ADD CONSTRAINT metric_rollup_test_fkey FOREIGN KEY (test_id) REFERENCES test(id);
+
+ALTER TABLE ONLY metric_rollup
+    ADD CONSTRAINT metric_rollup_metric_fkey FOREIGN KEY (metric_id) REFERENCES metric(id);
+
+CREATE UNIQUE INDEX metric_rollup_period ON metric_rollup(test_id, metric_id, tag_set_id, granularity, period_start);
+CREATE INDEX metric_rollup_range ON metric_rollup(test_id, metric_id, granularity, period_start);
+
+CREATE SEQUENCE metric_rollup_sequence
+    START WITH 1
+    INCREMENT BY 1
+    NO MAXVALUE
+    NO MINVALUE
+    CACHE 1;
+
+-- quantile sketches can't be computed here, they're left empty and the rollup is recomputed by PerfRepo
+-- when a value is added to it
+INSERT INTO metric_rollup (id, test_id, metric_id, tag_set_id, granularity, period_start, count, min, max, sum, sum_of_squares, last_test_execution_id)
+    SELECT nextval('metric_rollup_sequence'), r.*
+    FROM (SELECT te.test_id, v.metric_id, coalesce(te.tag_set_id, 0), g.granularity, date_trunc(g.unit, te.started),
+                 count(*), min(v.result_value), max(v.result_value), sum(v.result_value), sum(v.result_value * v.result_value), max(te.id)
+          FROM value v
+          JOIN test_execution te ON te.id = v.test_execution_id
+          CROSS JOIN (VALUES ('DAY', 'day'), ('WEEK', 'week')) AS g(granularity, unit)
+          WHERE v.result_value IS NOT NULL
+          GROUP BY 1, 2, 3, 4, 5) r;
+
+-- tags are created by INSERT ... ON CONFLICT on the unique name, tags duplicated by concurrent uploads
+-- are merged into the one with the lowest ID first
+CREATE TEMPORARY TABLE tag_duplicate ON COMMIT DROP AS
+    SELECT t.id, kept.id AS kept_id
+    FROM tag t
+    JOIN (SELECT name, min(id) AS id FROM tag GROUP BY name HAVING count(*) > 1) kept ON kept.name = t.name AND kept.id <> t.id;
+
+DELETE FROM test_execution_tag tet USING tag_duplicate d
+    WHERE tet.tag_id = d.id
+    AND EXISTS (SELECT 1 FROM test_execution_tag o WHERE o.test_execution_id = tet.test_execution_id AND o.tag_id = d.kept_id);
+UPDATE test_execution_tag tet SET tag_id = d.kept_id FROM tag_duplicate d WHERE tet.tag_id = d.id;
+
+DELETE FROM alert_tag atg USING tag_duplicate d
+    WHERE atg.tag_id = d.id
+    AND EXISTS (SELECT 1 FROM alert_tag o WHERE o.alert_id = atg.alert_id AND o.tag_id = d.kept_id);
+UPDATE alert_tag atg SET tag_id = d.kept_id FROM tag_duplicate d WHERE atg.tag_id = d.id;
+
+DELETE FROM tag_set_tag tst USING tag_duplicate d
+    WHERE tst.tag_id = d.id
+    AND EXISTS (SELECT 1 FROM tag_set_tag o WHERE o.tag_set_id = tst.tag_set_id AND o.tag_id = d.kept_id);
+UPDATE tag_set_tag tst SET tag_id = d.kept_id FROM tag_duplicate d WHERE tst.tag_id = d.id;
+
+DELETE FROM tag WHERE id IN (SELECT id FROM tag_duplicate);
+
+ALTER TABLE ONLY tag
+    ADD CONSTRAINT tag_name_key UNIQUE (name);
+
+-- attachment content is mapped separately from the metadata, it's stored either as large object, or in external
+-- storage under the key
+CREATE TABLE test_execution_attachment_content (
+    attachment_id bigint NOT NULL,
+    content oid,
+    storage_key character varying(255)
+);
+ALTER TABLE public.test_execution_attachment_content OWNER TO perfrepo;
+INSERT INTO test_execution_attachment_content (attachment_id, content) SELECT id, content FROM test_execution_attachment;
+ALTER TABLE ONLY test_execution_attachment_content
+    ADD CONSTRAINT test_execution_attachment_content_pkey PRIMARY KEY (attachment_id);
+ALTER TABLE ONLY test_execution_attachment_content
+    ADD CONSTRAINT test_execution_attachment_content_attachment_fkey FOREIGN KEY (attachment_id) REFERENCES test_execution_attachment(id) ON DELETE CASCADE;
+CREATE INDEX test_execution_attachment_content_storage_key ON test_execution_attachment_content(storage_key);
+
+-- large objects aren't removed together with the rows referencing them, content of deleted attachments and content
+-- moved to external storage is unlinked by the trigger, unless the rows are being archived (PerfRepo sets
+-- perfrepo.keep_attachment_content for the transaction then)
+CREATE OR REPLACE FUNCTION perfrepo_unlink_attachment_content() RETURNS trigger AS $$
+BEGIN
+    IF OLD.content IS NOT NULL AND (TG_OP = 'DELETE' OR NEW.content IS DISTINCT FROM OLD.content)
+        AND coalesce(current_setting('perfrepo.keep_attachment_content', true), '') <> 'on' THEN
+        PERFORM lo_unlink(OLD.content);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER test_execution_attachment_content_unlink AFTER DELETE OR UPDATE OF content ON test_execution_attachment_content
+    FOR EACH ROW EXECUTE PROCEDURE perfrepo_unlink_attachment_content();
+
+-- size of existing content is read from the large objects, checksum is computed when they're moved to external storage
+ALTER TABLE test_execution_attachment ADD COLUMN content_size bigint;
+ALTER TABLE test_execution_attachment ADD COLUMN checksum character varying(64);
+UPDATE test_execution_attachment SET content_size = lo_lseek64(lo_open(content, 262144), 0, 2);
+ALTER TABLE test_execution_attachment DROP COLUMN content;
+
+COMMIT;
@@ -0,0 +1,91 @@
+-----------------------------------------------------------------------------------------------
+--                                                                                           --
+-- Optional monthly partitioning of test_execution, value and value_parameter by the start   --
+-- of the test execution. Requires PostgreSQL 11 or newer, run after migration_1_7_to1_8.sql --
+--                                                                                           --
+-----------------------------------------------------------------------------------------------
+--
+-- Searches and charts bounded by date scan only the partitions of the months in the range and
+-- the retention (see retention.months in app_config.properties) drops or archives whole months
+-- instead of deleting test executions one by one.
+--
+-- Primary key of a partitioned table has to contain the partition key, so test executions and
+-- values can't be referenced by foreign keys anymore. PerfRepo removes the referencing rows
+-- itself. Cascading triggers can't be used, moving a row to another partition when the start
+-- of the test execution is changed fires them as well.
+--
+
+BEGIN;
+
+-- creates missing monthly partitions of the table for all months from from_date to to_date
+CREATE OR REPLACE FUNCTION perfrepo_create_monthly_partitions(parent text, from_date timestamp, to_date timestamp) RETURNS void AS $$
+DECLARE
+    month timestamp := date_trunc('month', from_date);
+BEGIN
+    WHILE month <= to_date LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                       parent || '_' || to_char(month, 'YYYY_MM'), parent, month, month + interval '1 month');
+        month := month + interval '1 month';
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE test_execution RENAME TO test_execution_unpartitioned;
+ALTER TABLE value RENAME TO value_unpartitioned;
+ALTER TABLE value_parameter RENAME TO value_parameter_unpartitioned;
+
+CREATE TABLE test_execution (LIKE test_execution_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (started);
+CREATE TABLE value (LIKE value_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (started);
+CREATE TABLE value_parameter (LIKE value_parameter_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (started);
+
+ALTER TABLE public.test_execution OWNER TO perfrepo;
+ALTER TABLE public.value OWNER TO perfrepo;
+ALTER TABLE public.value_parameter OWNER TO perfrepo;
+
+-- partitions of all months with data and of the following three months, the scheduled maintenance creates the next ones
+SELECT perfrepo_create_monthly_partitions(t.name, coalesce(d.min_started, now()), greatest(d.max_started, now()) + interval '3 months')
+    FROM (VALUES ('test_execution'), ('value'), ('value_parameter')) AS t(name),
+         (SELECT min(started) AS min_started, max(started) AS max_started FROM test_execution_unpartitioned) d;
+
+-- rows out of the range of the monthly partitions, if any, are not lost
+CREATE TABLE test_execution_default PARTITION OF test_execution DEFAULT;
+CREATE TABLE value_default PARTITION OF value DEFAULT;
+CREATE TABLE value_parameter_default PARTITION OF value_parameter DEFAULT;
+
+INSERT INTO test_execution SELECT * FROM test_execution_unpartitioned;
+INSERT INTO value SELECT * FROM value_unpartitioned;
+INSERT INTO value_parameter SELECT * FROM value_parameter_unpartitioned;
+
+-- drops also the foreign keys referencing the tables
+DROP TABLE value_parameter_unpartitioned CASCADE;
+DROP TABLE value_unpartitioned CASCADE;
+DROP TABLE test_execution_unpartitioned CASCADE;
+
+ALTER TABLE test_execution
+    ADD CONSTRAINT test_execution_pkey PRIMARY KEY (id, started);
+
+ALTER TABLE value
+    ADD CONSTRAINT value_pkey PRIMARY KEY (id, started);
+
+ALTER TABLE value_parameter
+    ADD CONSTRAINT value_parameter_pkey PRIMARY KEY (id, started);
+
+ALTER TABLE test_execution
+    ADD CONSTRAINT fkc4d93bab3f0c1115 FOREIGN KEY (test_id) REFERENCES test(id);
+
+ALTER TABLE test_execution
+    ADD CONSTRAINT test_execution_tag_set_fkey FOREIGN KEY (tag_set_id) REFERENCES tag_set(id);
+
+ALTER TABLE value
+    ADD CONSTRAINT fk6ac9171c4825995 FOREIGN KEY (metric_id) REFERENCES metric(id);
+
+CREATE INDEX test_execution_test ON test_execution(test_id);
+CREATE INDEX test_execution_started_id ON test_execution(started, id);
+CREATE INDEX test_execution_tag_set ON test_execution(tag_set_id);
+CREATE INDEX value_test_execution ON value(test_execution_id);
+CREATE INDEX value_parameter_value ON value_parameter(value_id);
+
+-- archived partitions are moved here by the retention, see retention.action in app_config.properties
+CREATE SCHEMA IF NOT EXISTS perfrepo_archive AUTHORIZATION perfrepo;
+
+COMMIT;
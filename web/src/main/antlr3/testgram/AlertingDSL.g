@@ -18,7 +18,7 @@ tokens {
 }
 
 /* Forces parser to store an exception upon recognition error. These can be then retrieved via getErrors(), which is done
-in ConditionCheckerImpl.parseTree(). Furthermore if any were encountered, IllegalArgumentExpression is thrown.
+in CompiledCondition.parseTree(). Furthermore if any were encountered, IllegalArgumentExpression is thrown.
 Normally, ANTLR recovers from recognition errors and prints them into console, then skips the problematic token and attempts to resync.
 While it is handy, it might hurt in our case - having the parser 'strict' allows for much easier tree verification. */
 @members {
@@ -53,6 +53,13 @@ IN                   : 'IN';
 AVG                  : 'AVG';
 MIN                  : 'MIN';
 MAX                  : 'MAX';
+MEDIAN               : 'MEDIAN';
+P90                  : 'P90';
+P95                  : 'P95';
+P99                  : 'P99';
+STDDEV               : 'STDDEV';
+EWMA                 : 'EWMA';
+MANNWHITNEY          : 'MANNWHITNEY';
 NUMBER_NOT_ONE       : ('0' | '2'..'9');
 ONE                  : '1';
 COMMA                : ',';
@@ -77,18 +84,14 @@ grouping          : GROUPING^;
 
 // Force only one variable in DEFINE part
 define_single_var_no_grouping     : DEFINE^ assign_no_grouping;
-// Force only grouping functions in DEFINE part
+// Force only grouping functions in DEFINE part, all of them have to be the same (checked in CompiledCondition)
 define_grouping   : DEFINE^ assign_sequence_grouping;
 
 assign_no_grouping  :   any ASSIGN^ '('! multi_select ')'! |
                         any ASSIGN^ multi_select;
-assign_sequence_grouping   : assign_grouping_avg  (COMMA! assign_grouping_avg)* |
-                             assign_grouping_max  (COMMA! assign_grouping_max)* |
-                             assign_grouping_min  (COMMA! assign_grouping_min)* ;
+assign_sequence_grouping   : assign_grouping  (COMMA! assign_grouping)*;
 
-assign_grouping_avg : any ASSIGN^ avg;
-assign_grouping_max : any ASSIGN^ max;
-assign_grouping_min : any ASSIGN^ min;
+assign_grouping   : any ASSIGN^ grouping_function;
 
 // Following lines are related to singlevalue alerting only
 define            : DEFINE^ assign_sequence;
@@ -96,14 +99,21 @@ assign_sequence   : assign  (COMMA! assign)*;
 
 assign            : any ASSIGN^ '('! simple_select ')'! |
                     any ASSIGN^ simple_select |
-                    any ASSIGN^ avg |
-                    any ASSIGN^ max |
-                    any ASSIGN^ min;
+                    any ASSIGN^ grouping_function;
 
 // Following lines are used in both, multi && single value alerting
+grouping_function : avg | max | min | median | p90 | p95 | p99 | stddev | ewma | mannwhitney;
+
 avg               : AVG^ '('! multi_select ')'!;
 max               : MAX^ '('! multi_select ')'!;
 min               : MIN^ '('! multi_select ')'!;
+median            : MEDIAN^ '('! multi_select ')'!;
+p90               : P90^ '('! multi_select ')'!;
+p95               : P95^ '('! multi_select ')'!;
+p99               : P99^ '('! multi_select ')'!;
+stddev            : STDDEV^ '('! multi_select ')'!;
+ewma              : EWMA^ '('! multi_select ')'!;
+mannwhitney       : MANNWHITNEY^ '('! multi_select ')'!;
 
 simple_select     : SELECT^ equals_where simple_last? | SELECT^ simple_last;
 
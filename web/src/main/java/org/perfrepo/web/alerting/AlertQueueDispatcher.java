@@ -0,0 +1,164 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.alerting;
+
+import org.apache.log4j.Logger;
+import org.perfrepo.model.AlertOutboxEntry;
+import org.perfrepo.web.service.AlertingService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically hands queued test executions (see {@link AlertingService#enqueueAlerts}) over to
+ * {@link AlertQueueWorker}s. Test executions of one test are always evaluated by one worker in the order they were
+ * queued, different tests are evaluated in parallel, up to {@link #MAX_PARALLEL_TESTS} at a time.
+ *
+ * The queue is exposed via JMX as {@link #OBJECT_NAME}.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class AlertQueueDispatcher implements AlertQueueMXBean {
+
+   private static final Logger log = Logger.getLogger(AlertQueueDispatcher.class);
+
+   public static final String OBJECT_NAME = "org.perfrepo:type=AlertQueue";
+
+   /**
+    * Maximal number of tests which alerts are evaluated in parallel.
+    */
+   public static final int MAX_PARALLEL_TESTS = 4;
+
+   /**
+    * Maximal number of queued entries of one test handed over to a worker at once.
+    */
+   private static final int DISPATCH_BATCH_SIZE = 500;
+
+   @Inject
+   private AlertingService alertingService;
+
+   @Inject
+   private AlertQueueWorker worker;
+
+   private final Set<Long> testsInProgress = ConcurrentHashMap.newKeySet();
+
+   private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+   private volatile boolean paused;
+
+   @PostConstruct
+   public void registerMBean() {
+      try {
+         ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to register alert queue MBean", e);
+      }
+   }
+
+   @PreDestroy
+   public void unregisterMBean() {
+      try {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to unregister alert queue MBean", e);
+      }
+   }
+
+   @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+   @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+   public void dispatch() {
+      if (paused || !dispatching.compareAndSet(false, true)) {
+         return;
+      }
+
+      try {
+         // the oldest entry of every test, so a test with many queued entries doesn't hold the others back,
+         // tests which oldest entry is postponed are left out, the postponed entry blocks the following ones to keep the order
+         List<AlertOutboxEntry> heads = alertingService.getQueuedAlertHeads(MAX_PARALLEL_TESTS + testsInProgress.size());
+         for (AlertOutboxEntry head : heads) {
+            if (testsInProgress.size() >= MAX_PARALLEL_TESTS) {
+               break;
+            }
+            Long testId = head.getTestId();
+            if (!testsInProgress.add(testId)) {
+               continue;
+            }
+
+            try {
+               List<Long> entryIds = alertingService.getQueuedAlerts(testId, DISPATCH_BATCH_SIZE).stream()
+                   .map(AlertOutboxEntry::getId).collect(Collectors.toList());
+               if (entryIds.isEmpty()) {
+                  testsInProgress.remove(testId);
+                  continue;
+               }
+               worker.process(testId, entryIds);
+            } catch (Exception e) {
+               testsInProgress.remove(testId);
+               throw e;
+            }
+         }
+      } catch (Exception e) {
+         log.error("Error while dispatching queued alerts", e);
+      } finally {
+         dispatching.set(false);
+      }
+   }
+
+   /**
+    * Called by the worker when it finished the evaluation of alerts of the test.
+    *
+    * @param testId
+    */
+   public void testFinished(Long testId) {
+      testsInProgress.remove(testId);
+   }
+
+   @Override
+   public long getQueueDepth() {
+      return alertingService.getAlertQueueDepth();
+   }
+
+   @Override
+   public int getTestsInProgress() {
+      return testsInProgress.size();
+   }
+
+   @Override
+   public boolean isPaused() {
+      return paused;
+   }
+
+   @Override
+   public void setPaused(boolean paused) {
+      this.paused = paused;
+   }
+}
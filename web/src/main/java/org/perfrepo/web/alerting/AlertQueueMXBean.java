@@ -0,0 +1,44 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.alerting;
+
+/**
+ * JMX view of the queue of test executions waiting for evaluation of alerts.
+ */
+public interface AlertQueueMXBean {
+
+   /**
+    * @return number of test executions waiting for evaluation of alerts, without the ones that exceeded the number
+    * of attempts
+    */
+   long getQueueDepth();
+
+   /**
+    * @return number of tests which alerts are being evaluated right now
+    */
+   int getTestsInProgress();
+
+   /**
+    * @return true if queued test executions aren't dispatched for evaluation of alerts
+    */
+   boolean isPaused();
+
+   /**
+    * Pauses or resumes dispatching of queued test executions, evaluations already in progress are finished.
+    *
+    * @param paused
+    */
+   void setPaused(boolean paused);
+}
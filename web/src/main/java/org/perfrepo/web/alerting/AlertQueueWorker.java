@@ -0,0 +1,69 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.alerting;
+
+import com.google.common.base.Throwables;
+import org.apache.log4j.Logger;
+import org.perfrepo.web.service.AlertingService;
+
+import javax.ejb.Asynchronous;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Evaluates alerts of queued test executions asynchronously, outside of the transaction that stored them.
+ */
+@Stateless
+@TransactionManagement(TransactionManagementType.CONTAINER)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class AlertQueueWorker {
+
+   private static final Logger log = Logger.getLogger(AlertQueueWorker.class);
+
+   @Inject
+   private AlertingService alertingService;
+
+   @Inject
+   private AlertQueueDispatcher dispatcher;
+
+   /**
+    * Evaluates queued test executions of one test in the given order, each one in its own transaction. When
+    * an evaluation fails, the entry is postponed and the rest is left in the queue to keep the order.
+    *
+    * @param testId
+    * @param entryIds IDs of queue entries, in the order they were queued
+    */
+   @Asynchronous
+   public void process(Long testId, List<Long> entryIds) {
+      try {
+         for (Long entryId : entryIds) {
+            try {
+               alertingService.processQueuedAlerts(entryId);
+            } catch (Exception e) {
+               log.warn("Evaluation of queued alerts " + entryId + " failed, it will be retried later", e);
+               alertingService.postponeQueuedAlerts(entryId, Throwables.getRootCause(e).toString());
+               return;
+            }
+         }
+      } finally {
+         dispatcher.testFinished(testId);
+      }
+   }
+}
@@ -0,0 +1,247 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.alerting;
+
+import org.antlr.runtime.ANTLRStringStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.TokenStream;
+import org.antlr.runtime.tree.CommonTree;
+import org.antlr.runtime.tree.Tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Alert condition in our custom DSL that was parsed into the structure needed for checking, i.e. the kind of the
+ * condition, the variable assignments in DEFINE part and the compiled CONDITION expression. It holds nothing that
+ * depends on test executions, so it's parsed only once and reused for every check of the condition.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class CompiledCondition {
+
+   private final String condition;
+   private final String expression;
+   // null if the expression uses syntax that is not supported by ConditionExpression, script engine is used instead
+   private final ConditionExpression compiledExpression;
+   private final List<Tree> variableAssignments;
+
+   private final boolean multivalue;
+   private final boolean multivalueGrouping;
+   private final boolean strict;
+
+   private CompiledCondition(String condition, String expression, List<Tree> variableAssignments, boolean multivalue, boolean multivalueGrouping, boolean strict) {
+      this.condition = condition;
+      this.expression = expression;
+      this.variableAssignments = Collections.unmodifiableList(variableAssignments);
+      this.multivalue = multivalue;
+      this.multivalueGrouping = multivalueGrouping;
+      this.strict = strict;
+
+      ConditionExpression compiled;
+      try {
+         compiled = ConditionExpression.compile(expression);
+      } catch (IllegalArgumentException e) {
+         compiled = null;
+      }
+      this.compiledExpression = compiled;
+   }
+
+   /**
+    * Parses the condition.
+    *
+    * @param condition specification of condition in String in our custom DSL
+    * @return parsed condition
+    * @throws IllegalArgumentException if the condition is not valid
+    */
+   public static CompiledCondition compile(String condition) {
+      if (condition == null) {
+         throw new IllegalArgumentException("Condition cannot be null.");
+      }
+
+      return walkTree(condition, parseTree(condition));
+   }
+
+   /**
+    * Parses the string in our DSL into Abstract Syntax Tree
+    *
+    * @param string
+    * @return AST
+    */
+   private static CommonTree parseTree(String string) {
+      //lexer splits input into tokens
+      ANTLRStringStream input = new ANTLRStringStream(string);
+      TokenStream tokens = new CommonTokenStream(new AlertingDSLLexer(input));
+
+      //parser generates abstract syntax tree
+      AlertingDSLParser parser = new AlertingDSLParser(tokens);
+
+      AlertingDSLParser.expression_return ret;
+      try {
+         ret = parser.expression();
+      } catch (RecognitionException ex) {
+         throw new IllegalStateException("Recognition exception is never thrown, only declared.");
+      }
+      // retieve stored parser errors and force exception if there are any, this will easily allow to verify condition input
+      // based solely on grammar.
+      List<String> parserErrors = parser.getErrors();
+      if (!parserErrors.isEmpty()) {
+         StringBuilder exceptionMsgBuilder = new StringBuilder(100);
+         for (String error : parserErrors) {
+            exceptionMsgBuilder.append(error + System.lineSeparator());
+         }
+         throw new IllegalArgumentException("Following errors were encountered during condition parsing process: " + exceptionMsgBuilder.toString());
+      }
+      return (CommonTree) ret.tree;
+   }
+
+   /**
+    * Walks through the AST and extract condition expression and it's parameters
+    *
+    * @param condition
+    * @param tree
+    */
+   private static CompiledCondition walkTree(String condition, CommonTree tree) {
+      if (tree == null) {
+         throw new IllegalArgumentException("Tree cannot be null.");
+      }
+      // due to grammar being very strict and throwing errors upon parsing problems, most checks below are just my paranoia
+
+      // tree has to start with MULTIVALUE or CONDITION
+      if (!tree.getChild(0).getText().equalsIgnoreCase("MULTIVALUE") && !tree.getChild(0).getText().equalsIgnoreCase("CONDITION")) {
+         throw new IllegalArgumentException("Tree has to start with either MULTIVALUE or CONDITION.");
+      }
+
+      boolean isMultivalue = false;
+      boolean isMultivalueGrouping = false;
+      boolean isStrict = false;
+
+      // number of child node in a tree where the CONDITION keyword resides
+      int conditionKeywordIndex;
+
+      // determine multivalue condition
+      if (tree.getChild(0).getText().equalsIgnoreCase("MULTIVALUE")) {
+         isMultivalue = true;
+         String nextNode = tree.getChild(1).getText();
+         if (!(nextNode.equalsIgnoreCase("STRICT") || nextNode.equalsIgnoreCase("GROUPING") || nextNode.equalsIgnoreCase("CONDITION"))) {
+            throw new IllegalArgumentException("After MULTIVALUE there has to one of these: STRICT, GROUPING, CONDITION.");
+         }
+         if (tree.getChild(1).getText().equalsIgnoreCase("STRICT")) {
+            nextNode = tree.getChild(2).getText();
+            if (!nextNode.equalsIgnoreCase("CONDITION")) {
+               throw new IllegalArgumentException("After MULTIVALUE STRICT there has to be CONDITION statement.");
+            }
+            // multivalue strict condition
+            // MULTIVALUE STRICT CONDITION ...
+            conditionKeywordIndex = 2;
+            isStrict = true;
+         } else {
+            if (tree.getChild(1).getText().equalsIgnoreCase("GROUPING")) {
+               nextNode = tree.getChild(2).getText();
+               if (!nextNode.equalsIgnoreCase("CONDITION")) {
+                  throw new IllegalArgumentException("After MULTIVALUE GROUPING there has to be a CONDITION statement.");
+               }
+               // multivalue grouping condition
+               // MULTIVALUE GROUPING CONDITION ...
+               conditionKeywordIndex = 2;
+               isMultivalueGrouping = true;
+            } else {
+               // plain multivalue condition
+               // MULTIVALUE CONDITION ...
+               conditionKeywordIndex = 1;
+            }
+         }
+
+      } else {
+         // single value test execution condition
+         // good old CONDITION ... DEFINE ...
+         conditionKeywordIndex = 0;
+      }
+
+      // there is always CONDITION ... DEFINE ... EOF
+      // their position in the tree depends on the expression structure we have
+      int defineKeywordIndex = conditionKeywordIndex + 1;
+      int eofIndex = conditionKeywordIndex + 2;
+
+      if (!tree.getChild(conditionKeywordIndex).getText().equalsIgnoreCase("CONDITION") || !tree.getChild(defineKeywordIndex).getText().equalsIgnoreCase("DEFINE")) {
+         throw new IllegalArgumentException("Doesn't have exactly 1 CONDITION and 1 DEFINE statements.");
+      }
+
+      //<missing EOF>. I haven't figured out any better way to recognize this error.
+      // TODO: figure something out
+      if (tree.getChild(eofIndex).getText().contains("missing")) {
+         throw new IllegalArgumentException("Unexpected end of condition.");
+      }
+
+      String expression = tree.getChild(conditionKeywordIndex).getChild(0).getText(); //equation after condition
+      if (expression == null) {
+         throw new IllegalStateException("Condition was not correctly parsed.");
+      }
+
+      //variables, they are processed during every check
+      Tree defineNode = tree.getChild(defineKeywordIndex);
+      List<Tree> variableAssignments = new ArrayList<>();
+      Set<String> groupingFunctions = new HashSet<>();
+      for (int i = 0; i < defineNode.getChildCount(); i++) {
+         Tree variableAssignment = defineNode.getChild(i);
+         variableAssignments.add(variableAssignment);
+         if (variableAssignment.getChildCount() > 1) {
+            groupingFunctions.add(variableAssignment.getChild(1).getText().toUpperCase());
+         }
+      }
+
+      // "result" is grouped by the same function as the variables, so only one function can be used
+      if (isMultivalueGrouping && groupingFunctions.size() > 1) {
+         throw new IllegalArgumentException("All variables in MULTIVALUE GROUPING condition have to use the same grouping function.");
+      }
+
+      return new CompiledCondition(condition, expression, variableAssignments, isMultivalue, isMultivalueGrouping, isStrict);
+   }
+
+   public String getCondition() {
+      return condition;
+   }
+
+   public String getExpression() {
+      return expression;
+   }
+
+   /**
+    * @return compiled CONDITION expression or null if it can be evaluated only by a script engine
+    */
+   public ConditionExpression getCompiledExpression() {
+      return compiledExpression;
+   }
+
+   public List<Tree> getVariableAssignments() {
+      return variableAssignments;
+   }
+
+   public boolean isMultivalue() {
+      return multivalue;
+   }
+
+   public boolean isMultivalueGrouping() {
+      return multivalueGrouping;
+   }
+
+   public boolean isStrict() {
+      return strict;
+   }
+}
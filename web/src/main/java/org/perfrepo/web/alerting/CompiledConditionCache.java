@@ -0,0 +1,72 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.model.Alert;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Globally scoped cache of parsed alert conditions, keyed by alert ID. Conditions are compiled when the alert is
+ * created or updated, every check of the alert then reuses the compiled condition.
+ *
+ * The cached condition is used only if its text equals to the current condition of the alert, so a condition changed
+ * without invalidation (e.g. by another node) is never evaluated in the old version.
+ */
+@ApplicationScoped
+public class CompiledConditionCache {
+
+   private final ConcurrentMap<Long, CompiledCondition> conditions = new ConcurrentHashMap<>();
+
+   /**
+    * Retrieves compiled condition of the alert, compiles it if it's not cached yet or if the condition has changed.
+    *
+    * @param alert
+    * @return
+    */
+   public CompiledCondition get(Alert alert) {
+      if (alert.getId() == null) {
+         return CompiledCondition.compile(alert.getCondition());
+      }
+
+      CompiledCondition compiled = conditions.get(alert.getId());
+      if (compiled == null || !compiled.getCondition().equals(alert.getCondition())) {
+         compiled = CompiledCondition.compile(alert.getCondition());
+         conditions.put(alert.getId(), compiled);
+      }
+
+      return compiled;
+   }
+
+   /**
+    * Removes compiled condition of the alert, e.g. when the alert is updated or removed.
+    *
+    * @param alertId
+    */
+   public void invalidate(Long alertId) {
+      if (alertId != null) {
+         conditions.remove(alertId);
+      }
+   }
+
+   /**
+    * @return number of cached conditions
+    */
+   public int size() {
+      return conditions.size();
+   }
+}
@@ -15,6 +15,7 @@
 package org.perfrepo.web.alerting;
 
 
+import org.perfrepo.model.Alert;
 import org.perfrepo.model.Metric;
 
 import java.util.Map;
@@ -39,6 +40,17 @@ public interface ConditionChecker {
     */
    public boolean checkCondition(String condition, TestExecution currentResult, Metric metric);
 
+   /**
+    * Checks the condition of the alert. Unlike {@link #checkCondition(String, TestExecution, Metric)}, the condition is
+    * parsed only once and reused for subsequent checks of the same alert.
+    *
+    * @param alert alert with the condition that should hold
+    * @param currentResult the test execution object that is currently being processed
+    * @param metric metric that the condition is linked to
+    * @return true if condition still hold | false if condition is broken
+    */
+   public boolean checkCondition(Alert alert, TestExecution currentResult, Metric metric);
+
    /**
     * Check the condition syntax only. Invokes a grammar tree parser which detects errors.
     * When an error is found, exception is thrown.
@@ -1,15 +1,14 @@
 package org.perfrepo.web.alerting;
 
-import org.antlr.runtime.ANTLRStringStream;
-import org.antlr.runtime.CommonTokenStream;
-import org.antlr.runtime.RecognitionException;
-import org.antlr.runtime.TokenStream;
-import org.antlr.runtime.tree.CommonTree;
+import com.google.common.primitives.Doubles;
 import org.antlr.runtime.tree.Tree;
+import org.perfrepo.model.Alert;
 import org.perfrepo.model.Metric;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.Value;
+import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.web.dao.SearchCursor;
 import org.perfrepo.web.dao.TestExecutionDAO;
 import org.perfrepo.web.service.UserService;
 
@@ -59,7 +58,13 @@ public class ConditionCheckerImpl implements ConditionChecker {
     @Inject
     private UserService userService;
 
-    private String expression;
+    @Inject
+    private CompiledConditionCache compiledConditionCache;
+
+    @Inject
+    private RollingStatisticsStore rollingStatisticsStore;
+
+    private CompiledCondition compiledCondition;
     // maps variable name to the list of relevant (sorted) values from executions, only for multi valued tests
     private Map<String, List<MultiValue.ValueInfo>> varToListOfValues;
     // latest execution stored as a List of ValueInfo
@@ -81,8 +86,8 @@ public class ConditionCheckerImpl implements ConditionChecker {
     @Override
     public void checkConditionSyntax(String condition, Metric metric) {
         // creates dummy execution and triggers evaluation against it
-        // if we had a 'perfect' grammar, we would only need to call parseTree(condition);
-        // but ATM we need script engine to evaluate CONDITION and tell us if there were any errors
+        // if we had a 'perfect' grammar, we would only need to call CompiledCondition.compile(condition);
+        // but ATM CONDITION has to be evaluated to find out if there were any errors
         // e.g. current grammar cannot catch nonsenses such as: CONDITION x <!= 10
         TestExecution testExecution;
         TestExecutionBuilder builder = TestExecution.builder();
@@ -99,13 +104,31 @@ public class ConditionCheckerImpl implements ConditionChecker {
 
     @Override
     public boolean checkCondition(String condition, TestExecution currentResult, Metric metric) {
+        return checkCondition(CompiledCondition.compile(condition), currentResult, metric);
+    }
+
+    @Override
+    public boolean checkCondition(Alert alert, TestExecution currentResult, Metric metric) {
+        return checkCondition(compiledConditionCache.get(alert), currentResult, metric);
+    }
+
+    /**
+     * Checks the already parsed condition, only variables from DEFINE part are retrieved for every check.
+     *
+     * @param condition
+     * @param currentResult
+     * @param metric
+     * @return true if condition still hold | false if condition is broken
+     */
+    private boolean checkCondition(CompiledCondition condition, TestExecution currentResult, Metric metric) {
+        this.compiledCondition = condition;
         this.metric = metric;
-        this.isMultivalue = false;
-        this.isMultivalueGrouping = false;
-        this.isStrict = false;
+        this.isMultivalue = condition.isMultivalue();
+        this.isMultivalueGrouping = condition.isMultivalueGrouping();
+        this.isStrict = condition.isStrict();
         // store current result separately to easily access it
         currentExecutionValueInfo = MultiValue.find(MultiValue.createFrom(currentResult), this.metric.getName());
-        if (!(currentExecutionValueInfo.isMultiValue() == condition.contains("MULTIVALUE"))) {
+        if (!(currentExecutionValueInfo.isMultiValue() == condition.getCondition().contains("MULTIVALUE"))) {
             throw new IllegalArgumentException("Multivalue execution cannot be bound to non-multivalue condition and vice versa.");
         }
         // TODO - currently we will forcibly use the first param found, this could be enhanced in the future
@@ -113,23 +136,19 @@ public class ConditionCheckerImpl implements ConditionChecker {
             paramBoundToMetric = currentExecutionValueInfo.getComplexValueParams().get(0);
         }
         
-        expression = null;
         varToListOfValues = new HashMap<>();
         simpleVariables = new HashMap<>();
         failedEvaluationVariables = new HashMap<>();
 
-        CommonTree ast = parseTree(condition);
-        walkTree(ast);
-
-        if (expression == null) {
-            throw new IllegalStateException("Condition was not correctly parsed.");
+        for (Tree variableAssignment : condition.getVariableAssignments()) {
+            processVariableAssignment(variableAssignment, currentResult);
         }
 
         // depending on what was the alert expression, the evaluation differs
         if (isMultivalue) {
             if (isMultivalueGrouping) {
                 // at this point we have calculated grouping functions for current execution and all variables
-                return evaluate(expression, simpleVariables);
+                return evaluate(simpleVariables);
             }
             // list of values in current execution
             List<MultiValue.ParamInfo> resultValueList = currentExecutionValueInfo.getComplexValueByParamName(paramBoundToMetric);
@@ -160,7 +179,7 @@ public class ConditionCheckerImpl implements ConditionChecker {
                         // check if this iteration exists
                         if (listOfvalues.size() >= i + 1) {
                             currentIterationVars.put(key, listOfvalues.get(i).getValue());
-                            if (!evaluate(expression, currentIterationVars)) {
+                            if (!evaluate(currentIterationVars)) {
                                 // condition was broken
                                 return false;
                             }
@@ -172,31 +191,29 @@ public class ConditionCheckerImpl implements ConditionChecker {
             return true;
 
         } else {
-            return evaluate(expression, simpleVariables);
+            return evaluate(simpleVariables);
         }
     }
 
     /**
-     * Evaluates the String expression with the given Map of variables. Used repeatedly for multivalue tests.
+     * Evaluates the compiled expression with the given Map of variables. Used repeatedly for multivalue tests.
      *
-     * @param expression String expression to be used
      * @param variables  map, where keys are variable names and values are actual variable values
      * @return evaluated condition, true if it holds, false otherwise
      */
-    private boolean evaluate(String expression, Map<String, Object> variables) {
-        ScriptEngine engine = new ScriptEngineManager().getEngineByName("JavaScript");
-        Object result;
-        try {
-            result = engine.eval(expression, new SimpleBindings(variables));
-        } catch (ScriptException e) {
-            throw new IllegalArgumentException("Error occurred while evaluating the expression.", e);
-        }
-
-        if (!(result instanceof Boolean)) {
-            throw new IllegalStateException("Result of the expression is not boolean.");
+    private boolean evaluate(Map<String, Object> variables) {
+        ConditionExpression compiledExpression = compiledCondition.getCompiledExpression();
+        boolean returnValue;
+        if (compiledExpression != null) {
+            try {
+                returnValue = compiledExpression.evaluate(variables);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Error occurred while evaluating the expression.", e);
+            }
+        } else {
+            returnValue = evaluateByScriptEngine(compiledCondition.getExpression(), variables);
         }
 
-        boolean returnValue = ((Boolean) result).booleanValue();
         if (!returnValue) {
             // here we can determine failed expression and store its' variables for reporting
             failedEvaluationVariables.putAll(variables);
@@ -205,96 +222,35 @@ public class ConditionCheckerImpl implements ConditionChecker {
     }
 
     /**
-     * Walks through the AST and extract condition expression and it's parameters
+     * Evaluates the expression that is not supported by {@link ConditionExpression} by JavaScript engine.
      *
-     * @param tree
+     * @param expression String expression to be used
+     * @param variables  map, where keys are variable names and values are actual variable values
+     * @return evaluated condition, true if it holds, false otherwise
      */
-    private void walkTree(CommonTree tree) {
-        if (tree == null) {
-            throw new IllegalArgumentException("Tree cannot be null.");
-        }
-        // due to grammar being very strict and throwing errors upon parsing problems, most checks below are just my paranoia
-
-        // tree has to start with MULTIVALUE or CONDITION
-        if (!tree.getChild(0).getText().equalsIgnoreCase("MULTIVALUE") && !tree.getChild(0).getText().equalsIgnoreCase("CONDITION")) {
-            throw new IllegalArgumentException("Tree has to start with either MULTIVALUE or CONDITION.");
-        }
-
-        // number of child node in a tree where the CONDITION keyword resides
-        int conditionKeywordIndex;
-
-        // determine multivalue condition
-        if (tree.getChild(0).getText().equalsIgnoreCase("MULTIVALUE")) {
-            this.isMultivalue = true;
-            String nextNode = tree.getChild(1).getText();
-            if (!(nextNode.equalsIgnoreCase("STRICT") || nextNode.equalsIgnoreCase("GROUPING") || nextNode.equalsIgnoreCase("CONDITION"))) {
-                throw new IllegalArgumentException("After MULTIVALUE there has to one of these: STRICT, GROUPING, CONDITION.");
-            }
-            if (tree.getChild(1).getText().equalsIgnoreCase("STRICT")) {
-                nextNode = tree.getChild(2).getText();
-                if (!nextNode.equalsIgnoreCase("CONDITION")) {
-                    throw new IllegalArgumentException("After MULTIVALUE STRICT there has to be CONDITION statement.");
-                }
-                // multivalue strict condition 
-                // MULTIVALUE STRICT CONDITION ...
-                conditionKeywordIndex = 2;
-                this.isStrict = true;
-            } else {
-                if (tree.getChild(1).getText().equalsIgnoreCase("GROUPING")) {
-                    nextNode = tree.getChild(2).getText();
-                    if (!nextNode.equalsIgnoreCase("CONDITION")) {
-                        throw new IllegalArgumentException("After MULTIVALUE GROUPING there has to be a CONDITION statement.");
-                    }
-                    // multivalue grouping condition
-                    // MULTIVALUE GROUPING CONDITION ... 
-                    conditionKeywordIndex = 2;
-                    isMultivalueGrouping = true;
-                } else {
-                    // plain multivalue condition
-                    // MULTIVALUE CONDITION ...
-                    conditionKeywordIndex = 1;
-                }
-            }
-
-        } else {
-            // single value test execution condition
-            // good old CONDITION ... DEFINE ...
-            conditionKeywordIndex = 0;
-        }
-
-        // there is always CONDITION ... DEFINE ... EOF
-        // their position in the tree depends on the expression structure we have
-        int defineKeywordIndex = conditionKeywordIndex + 1;
-        int eofIndex = conditionKeywordIndex + 2;
-
-        if (!tree.getChild(conditionKeywordIndex).getText().equalsIgnoreCase("CONDITION") || !tree.getChild(defineKeywordIndex).getText().equalsIgnoreCase("DEFINE")) {
-            throw new IllegalArgumentException("Doesn't have exactly 1 CONDITION and 1 DEFINE statements.");
+    private boolean evaluateByScriptEngine(String expression, Map<String, Object> variables) {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("JavaScript");
+        Object result;
+        try {
+            result = engine.eval(expression, new SimpleBindings(variables));
+        } catch (ScriptException e) {
+            throw new IllegalArgumentException("Error occurred while evaluating the expression.", e);
         }
 
-        //<missing EOF>. I haven't figured out any better way to recognize this error.
-        // TODO: figure something out
-        if (tree.getChild(eofIndex).getText().contains("missing")) {
-            throw new IllegalArgumentException("Unexpected end of condition.");
+        if (!(result instanceof Boolean)) {
+            throw new IllegalStateException("Result of the expression is not boolean.");
         }
 
-        String equation = tree.getChild(conditionKeywordIndex).getChild(0).getText(); //equation after condition
-        expression = equation;
-
-        //process variables
-        Tree defineNode = tree.getChild(defineKeywordIndex);
-
-        for (int i = 0; i < defineNode.getChildCount(); i++) {
-            Tree variableAssignment = defineNode.getChild(i);
-            processVariableAssignment(variableAssignment);
-        }
+        return (Boolean) result;
     }
 
     /**
      * Processes every single assignment, e.g. x = (SELECT WHERE id = 1) or x = AVG(SELECT LAST 10) etc.
      *
      * @param assignmentRoot subtree with '=' char as a root
+     * @param currentResult  test execution the condition is evaluated for
      */
-    private void processVariableAssignment(Tree assignmentRoot) {
+    private void processVariableAssignment(Tree assignmentRoot, TestExecution currentResult) {
         if (!assignmentRoot.getText().equalsIgnoreCase("=")) {
             throw new IllegalArgumentException("Wrong syntax, expected '='.");
         }
@@ -314,13 +270,35 @@ public class ConditionCheckerImpl implements ConditionChecker {
             DslGroupingFunctions groupingFunction = DslGroupingFunctions.parseString(groupFunctionOrSelect.getText());
             Tree select = groupFunctionOrSelect.getChild(0);
 
-            // retrieves list of test exections - possibly even multi valued!
-            testExecutions = handleSelect(select);
-            if (testExecutions == null) {
-                throw new IllegalArgumentException("Error occurred during getting test executions.");
+            // common single value windows are answered from rolling statistics without loading test executions
+            double[] windowValues = isMultivalue ? null : getValuesFromRollingStatistics(select, currentResult);
+            if (windowValues == null) {
+                // retrieves list of test exections - possibly even multi valued!
+                testExecutions = handleSelect(select, currentResult);
+                if (testExecutions == null) {
+                    throw new IllegalArgumentException("Error occurred during getting test executions.");
+                }
             }
 
-            if (isMultivalue) {
+            if (isMultivalue && groupingFunction == DslGroupingFunctions.MANNWHITNEY) {
+                // values of the selected test executions are pooled and tested against values of the current execution
+                List<Double> selectedValues = new ArrayList<>();
+                for (TestExecution execution : testExecutions) {
+                    MultiValue.ValueInfo valueInfo = MultiValue.find(MultiValue.createFrom(execution), this.metric.getName());
+                    for (MultiValue.ParamInfo paramInfo : valueInfo.getComplexValueByParamName(valueInfo.getComplexValueParams().get(0))) {
+                        selectedValues.add(paramInfo.getValue());
+                    }
+                }
+                List<Double> currentExecutionValues = new ArrayList<>();
+                for (MultiValue.ParamInfo oneParam : currentExecutionValueInfo.getComplexValueByParamName(paramBoundToMetric)) {
+                    currentExecutionValues.add(oneParam.getValue());
+                }
+
+                variableValue = DslGroupingFunctions.mannWhitney(Doubles.toArray(selectedValues), Doubles.toArray(currentExecutionValues));
+                if (simpleVariables.get("result") == null) {
+                    simpleVariables.put("result", groupingFunction.compute(currentExecutionValues));
+                }
+            } else if (isMultivalue) {
                 // this will contain results of grouping function applied to each test execution
                 List<Double> groupingResults = new ArrayList<Double>();
 
@@ -353,14 +331,18 @@ public class ConditionCheckerImpl implements ConditionChecker {
                 }
             } else {
                 // single value test
-                List<Double> values = getValuesFromTestExecutions(testExecutions);
-                variableValue = (values == null || values.isEmpty()) ? null : groupingFunction.compute(values);
+                if (windowValues != null) {
+                    variableValue = windowValues.length == 0 ? null : groupingFunction.compute(windowValues);
+                } else {
+                    List<Double> values = getValuesFromTestExecutions(testExecutions);
+                    variableValue = (values == null || values.isEmpty()) ? null : groupingFunction.compute(values);
+                }
                 simpleVariables.put("result", currentExecutionValueInfo.getSimpleValue());
             }
             simpleVariables.put(variableName, variableValue);
 
         } else { //select with no grouping function
-            testExecutions = handleSelect(groupFunctionOrSelect);
+            testExecutions = handleSelect(groupFunctionOrSelect, currentResult);
             if (isMultivalue) {
                 // each item in the list is a series of values from one execution
                 List<MultiValue.ValueInfo> seriesList = new ArrayList<>();
@@ -389,10 +371,11 @@ public class ConditionCheckerImpl implements ConditionChecker {
     /**
      * Handles SELECT clause
      *
-     * @param select root of the tree with SELECT as a root keyword
+     * @param select        root of the tree with SELECT as a root keyword
+     * @param currentResult test execution the condition is evaluated for, LAST counts only executions before it
      * @return list of test executions according to the SELECT query
      */
-    private List<TestExecution> handleSelect(Tree select) {
+    private List<TestExecution> handleSelect(Tree select, TestExecution currentResult) {
         if (!select.getText().equalsIgnoreCase("SELECT")) {
             throw new IllegalArgumentException("Wrong syntax, expected SELECT.");
         }
@@ -404,8 +387,7 @@ public class ConditionCheckerImpl implements ConditionChecker {
 
         if (select.getChildCount() == 1 && whereOrLast.getText().equalsIgnoreCase("LAST")) { //SELECT only with LAST
             parsedLast = processLast(whereOrLast);
-            searchCriteria.setLimitFrom(parsedLast.get("lastFrom"));
-            searchCriteria.setLimitHowMany(parsedLast.get("howMany"));
+            applyLast(searchCriteria, parsedLast, currentResult);
         } else if (select.getChildCount() == 2 && select.getChild(1).getText().equalsIgnoreCase("LAST")) { //SELECT with WHERE and LAST
             parsedLast = processLast(select.getChild(1));
             //this information about LAST will be used in retrieving of test executions
@@ -420,7 +402,10 @@ public class ConditionCheckerImpl implements ConditionChecker {
                     String property = simpleOrIn.getChild(0).getText();
                     String propertyValue = simpleOrIn.getChild(1).getText();
 
-                    addCriteriaByPropertyName(searchCriteria, property, propertyValue, parsedLast, simpleOrIn.getText());
+                    addCriteriaByPropertyName(searchCriteria, property, propertyValue, simpleOrIn.getText());
+                    if (property.equalsIgnoreCase("tags") && parsedLast != null) { //LAST is present
+                        applyLast(searchCriteria, parsedLast, currentResult);
+                    }
                 } else if (simpleOrIn.getText().equalsIgnoreCase("IN")) { //IN where
                     String propertyName = simpleOrIn.getChild(0).getText();
                     Collection<String> values = new ArrayList<>();
@@ -437,10 +422,52 @@ public class ConditionCheckerImpl implements ConditionChecker {
         }
 
         testExecutions = testExecutionDAO.searchTestExecutions(searchCriteria, userService.getLoggedUserGroupNames()).getResult();
+        if (searchCriteria.getOrderBy() == OrderBy.DATE_DESC) {
+            // LAST x, y selects the oldest y of the last x executions, the search returned the last x newest first
+            testExecutions = new ArrayList<>(testExecutions);
+            Collections.reverse(testExecutions);
+            testExecutions = testExecutions.subList(0, Math.min(parsedLast.get("howMany"), testExecutions.size()));
+        }
+        // search retrieves only the test executions themselves, values of all of them are retrieved at once
+        testExecutionDAO.fillValues(testExecutions);
 
         return testExecutions;
     }
 
+    /**
+     * Retrieves values for SELECT clause from {@link RollingStatisticsStore}. Only SELECT with LAST clause and
+     * optionally tags condition is supported, e.g. SELECT LAST 10 or SELECT WHERE tags = "stable" LAST 10, 5, the
+     * window is the same as the one selected by handleSelect().
+     *
+     * @param select        root of the tree with SELECT as a root keyword
+     * @param currentResult test execution the condition is evaluated for
+     * @return values of the metric from selected test executions or null if the select has to be executed in database
+     */
+    private double[] getValuesFromRollingStatistics(Tree select, TestExecution currentResult) {
+        if (rollingStatisticsStore == null || !select.getText().equalsIgnoreCase("SELECT")) {
+            return null;
+        }
+
+        Tree last;
+        String tags = null;
+        if (select.getChildCount() == 1 && select.getChild(0).getText().equalsIgnoreCase("LAST")) {
+            last = select.getChild(0);
+        } else if (select.getChildCount() == 2 && select.getChild(1).getText().equalsIgnoreCase("LAST")) {
+            Tree where = select.getChild(0);
+            if (!where.getText().equalsIgnoreCase("WHERE") || where.getChildCount() != 1
+                || !where.getChild(0).getText().equals("=") || !where.getChild(0).getChild(0).getText().equalsIgnoreCase("tags")) {
+                return null;
+            }
+            tags = where.getChild(0).getChild(1).getText();
+            last = select.getChild(1);
+        } else {
+            return null;
+        }
+
+        Map<String, Integer> parsedLast = processLast(last);
+        return rollingStatisticsStore.getWindow(metric.getName(), tags, currentResult, parsedLast.get("lastFrom"), parsedLast.get("howMany"));
+    }
+
     /**
      * Extracts actual double values directly from test executions
      *
@@ -476,56 +503,17 @@ public class ConditionCheckerImpl implements ConditionChecker {
         return null;
     }
 
-    /**
-     * Parses the string in our DSL into Abstract Syntax Tree
-     *
-     * @param string
-     * @return AST
-     */
-    private CommonTree parseTree(String string) {
-        //lexer splits input into tokens
-        ANTLRStringStream input = new ANTLRStringStream(string);
-        TokenStream tokens = new CommonTokenStream(new AlertingDSLLexer(input));
-
-        //parser generates abstract syntax tree
-        AlertingDSLParser parser = new AlertingDSLParser(tokens);
-
-        AlertingDSLParser.expression_return ret;
-        try {
-            ret = parser.expression();
-        } catch (RecognitionException ex) {
-            throw new IllegalStateException("Recognition exception is never thrown, only declared.");
-        }
-        // retieve stored parser errors and force exception if there are any, this will easily allow to verify condition input
-        // based solely on grammar.
-        List<String> parserErrors = parser.getErrors();
-        if (!parserErrors.isEmpty()) {
-            StringBuilder exceptionMsgBuilder = new StringBuilder(100);
-            for (String error : parserErrors) {
-                exceptionMsgBuilder.append(error + System.lineSeparator());
-            }
-            throw new IllegalArgumentException("Following errors were encountered during condition parsing process: " + exceptionMsgBuilder.toString());
-        }
-        return (CommonTree) ret.tree;
-    }
-
     /**
      * Helper method. Retrieves test executions according to the name of the property that is in the WHERE condition, e.g. there
      * is a different process of retrieving test execution by ID and with specific tags
      *
      * @param propertyName  name of the property
      * @param propertyValue value that is supplied for the property, might have different meaning with different property
-     * @param parsedLast    if there is also LAST clause, it's parsed in this Map. See processLast() method for details.
      * @param operator      operator of the condition, e.g. '=', '>=', '<=' ... @ return
      */
-    private void addCriteriaByPropertyName(TestExecutionSearchTO searchCriteria, String propertyName, String propertyValue, Map<String, Integer> parsedLast, String operator) {
+    private void addCriteriaByPropertyName(TestExecutionSearchTO searchCriteria, String propertyName, String propertyValue, String operator) {
         if (propertyName.equalsIgnoreCase("tags")) {
             searchCriteria.setTags(propertyValue);
-
-            if (parsedLast != null) { //LAST is present
-                searchCriteria.setLimitFrom(parsedLast.get("lastFrom"));
-                searchCriteria.setLimitHowMany(parsedLast.get("howMany"));
-            }
         } else if (propertyName.equalsIgnoreCase("id")) {
             List<Long> ids = Arrays.asList(Long.parseLong(propertyValue));
             searchCriteria.setIds(ids);
@@ -593,17 +581,29 @@ public class ConditionCheckerImpl implements ConditionChecker {
             throw new IllegalArgumentException("Wrong syntax, LAST has to have exactly one or two arguments.");
         }
 
-        /**
-         * -----IMPORTANT------ because we assume that we have already entered the test execution that we want to process alert
-         * with, we don't want to include it into the last X test executions, e.g. CONDITION result > x DEFINE x = (SELECT LAST
-         * 1) would always fail, since the last test execution is the currently entered one. As a solution we do lastFrom - 1
-         *
-         */
-        result.put("lastFrom", result.get("lastFrom") + 1);
-
         return result;
     }
 
+    /**
+     * Helper method. Restricts the search to the last "lastFrom" test executions, newest first.
+     *
+     * -----IMPORTANT------ the alerts are evaluated after the test execution was stored, possibly with other executions
+     * stored in the meantime, so the last X test executions are counted back from the evaluated one (by started date and id)
+     * and neither it nor any newer execution is included, e.g. CONDITION result > x DEFINE x = (SELECT LAST 1) compares
+     * with the execution that precedes the evaluated one.
+     *
+     * @param searchCriteria
+     * @param parsedLast     parsed LAST clause, see processLast()
+     * @param currentResult  test execution the condition is evaluated for
+     */
+    private void applyLast(TestExecutionSearchTO searchCriteria, Map<String, Integer> parsedLast, TestExecution currentResult) {
+        searchCriteria.setOrderBy(OrderBy.DATE_DESC);
+        searchCriteria.setLimitHowMany(parsedLast.get("lastFrom"));
+        if (currentResult.getId() != null && currentResult.getStarted() != null) {
+            searchCriteria.setCursor(SearchCursor.after(OrderBy.DATE_DESC, currentResult).encode());
+        }
+    }
+
     public void setTestExecutionDAO(TestExecutionDAO testExecutionDAO) {
         this.testExecutionDAO = testExecutionDAO;
     }
@@ -612,6 +612,14 @@ public class ConditionCheckerImpl implements ConditionChecker {
         this.userService = userService;
     }
 
+    public void setCompiledConditionCache(CompiledConditionCache compiledConditionCache) {
+        this.compiledConditionCache = compiledConditionCache;
+    }
+
+    public void setRollingStatisticsStore(RollingStatisticsStore rollingStatisticsStore) {
+        this.rollingStatisticsStore = rollingStatisticsStore;
+    }
+
     @Override
     public Map<String, Object> getEvaluatedVariables() {
         // within evaluate() method we detect failure and in such case store the variables for reporting
@@ -0,0 +1,406 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.alerting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled expression from the CONDITION part of alert condition, e.g. <code>result &gt;= 0.95 * x &amp;&amp; result
+ * &lt;= 1.05 * x</code>. The expression is parsed once into a tree of nodes, which is then evaluated against the
+ * variables of every check, so no script engine is involved.
+ *
+ * Supported is the subset of JavaScript that is used in conditions: numbers, variables, true, false, null,
+ * parentheses, unary operators ! - +, arithmetic operators * / % + -, comparisons &lt; &gt; &lt;= &gt;=, equality
+ * operators == != === !== and logical operators &amp;&amp; ||. Values follow JavaScript semantics, e.g. null is
+ * converted to 0 in arithmetic and comparisons. Any other syntax is rejected by {@link #compile(String)}.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class ConditionExpression {
+
+   private final String expression;
+   private final Node root;
+
+   private ConditionExpression(String expression, Node root) {
+      this.expression = expression;
+      this.root = root;
+   }
+
+   /**
+    * Parses the expression.
+    *
+    * @param expression
+    * @return compiled expression
+    * @throws IllegalArgumentException if the expression is not valid or uses unsupported syntax
+    */
+   public static ConditionExpression compile(String expression) {
+      if (expression == null) {
+         throw new IllegalArgumentException("Expression cannot be null.");
+      }
+
+      return new ConditionExpression(expression, new Parser(expression).parse());
+   }
+
+   /**
+    * Evaluates the expression with the given variables.
+    *
+    * @param variables map, where keys are variable names and values are actual variable values
+    * @return result of the expression
+    * @throws IllegalArgumentException if the expression uses a variable that isn't defined
+    * @throws IllegalStateException if the result of the expression is not boolean
+    */
+   public boolean evaluate(Map<String, Object> variables) {
+      Object result = root.evaluate(variables);
+      if (!(result instanceof Boolean)) {
+         throw new IllegalStateException("Result of the expression is not boolean.");
+      }
+
+      return (Boolean) result;
+   }
+
+   public String getExpression() {
+      return expression;
+   }
+
+   @Override
+   public String toString() {
+      return expression;
+   }
+
+   /**
+    * Node of the compiled expression, evaluates to Double, Boolean or null.
+    */
+   private interface Node {
+
+      Object evaluate(Map<String, Object> variables);
+   }
+
+   private static Node constant(Object value) {
+      return variables -> value;
+   }
+
+   private static Node variable(String name) {
+      return variables -> {
+         if (!variables.containsKey(name)) {
+            throw new IllegalArgumentException("Error occurred while evaluating the expression, variable " + name + " is not defined.");
+         }
+
+         Object value = variables.get(name);
+         if (value == null || value instanceof Boolean) {
+            return value;
+         } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+         }
+
+         throw new IllegalArgumentException("Error occurred while evaluating the expression, variable " + name + " is not a number.");
+      };
+   }
+
+   private static Node unary(String operator, Node operand) {
+      switch (operator) {
+         case "!":
+            return variables -> !toBoolean(operand.evaluate(variables));
+         case "-":
+            return variables -> -toNumber(operand.evaluate(variables));
+         case "+":
+            return variables -> toNumber(operand.evaluate(variables));
+      }
+
+      throw new IllegalStateException("Unknown unary operator " + operator);
+   }
+
+   private static Node binary(String operator, Node left, Node right) {
+      switch (operator) {
+         case "||":
+            return variables -> {
+               Object value = left.evaluate(variables);
+               return toBoolean(value) ? value : right.evaluate(variables);
+            };
+         case "&&":
+            return variables -> {
+               Object value = left.evaluate(variables);
+               return toBoolean(value) ? right.evaluate(variables) : value;
+            };
+         case "==":
+            return variables -> looseEquals(left.evaluate(variables), right.evaluate(variables));
+         case "!=":
+            return variables -> !looseEquals(left.evaluate(variables), right.evaluate(variables));
+         case "===":
+            return variables -> strictEquals(left.evaluate(variables), right.evaluate(variables));
+         case "!==":
+            return variables -> !strictEquals(left.evaluate(variables), right.evaluate(variables));
+         case "<":
+            return variables -> toNumber(left.evaluate(variables)) < toNumber(right.evaluate(variables));
+         case ">":
+            return variables -> toNumber(left.evaluate(variables)) > toNumber(right.evaluate(variables));
+         case "<=":
+            return variables -> toNumber(left.evaluate(variables)) <= toNumber(right.evaluate(variables));
+         case ">=":
+            return variables -> toNumber(left.evaluate(variables)) >= toNumber(right.evaluate(variables));
+         case "+":
+            return variables -> toNumber(left.evaluate(variables)) + toNumber(right.evaluate(variables));
+         case "-":
+            return variables -> toNumber(left.evaluate(variables)) - toNumber(right.evaluate(variables));
+         case "*":
+            return variables -> toNumber(left.evaluate(variables)) * toNumber(right.evaluate(variables));
+         case "/":
+            return variables -> toNumber(left.evaluate(variables)) / toNumber(right.evaluate(variables));
+         case "%":
+            return variables -> toNumber(left.evaluate(variables)) % toNumber(right.evaluate(variables));
+      }
+
+      throw new IllegalStateException("Unknown binary operator " + operator);
+   }
+
+   private static double toNumber(Object value) {
+      if (value == null) {
+         return 0d;
+      } else if (value instanceof Boolean) {
+         return ((Boolean) value) ? 1d : 0d;
+      }
+
+      return (Double) value;
+   }
+
+   private static boolean toBoolean(Object value) {
+      if (value == null) {
+         return false;
+      } else if (value instanceof Boolean) {
+         return (Boolean) value;
+      }
+
+      double number = (Double) value;
+      return number != 0d && !Double.isNaN(number);
+   }
+
+   private static boolean looseEquals(Object left, Object right) {
+      if (left == null || right == null) {
+         return left == right;
+      } else if (left instanceof Boolean && right instanceof Boolean) {
+         return left.equals(right);
+      }
+
+      return toNumber(left) == toNumber(right);
+   }
+
+   private static boolean strictEquals(Object left, Object right) {
+      if (left == null || right == null) {
+         return left == right;
+      } else if (left.getClass() != right.getClass()) {
+         return false;
+      } else if (left instanceof Boolean) {
+         return left.equals(right);
+      }
+
+      return toNumber(left) == toNumber(right);
+   }
+
+   /**
+    * Recursive descent parser, operator precedence is the same as in JavaScript.
+    */
+   private static class Parser {
+
+      private static final String[] OPERATORS = {"===", "!==", "==", "!=", "<=", ">=", "&&", "||", "<", ">", "+", "-", "*", "/", "%", "!", "(", ")"};
+
+      private final String expression;
+      private final List<String> tokens = new ArrayList<>();
+      private int position = 0;
+
+      Parser(String expression) {
+         this.expression = expression;
+         tokenize();
+      }
+
+      Node parse() {
+         if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Expression cannot be empty.");
+         }
+
+         Node node = parseOr();
+         if (position < tokens.size()) {
+            throw unexpected();
+         }
+
+         return node;
+      }
+
+      private Node parseOr() {
+         Node node = parseAnd();
+         while (accept("||")) {
+            node = binary("||", node, parseAnd());
+         }
+         return node;
+      }
+
+      private Node parseAnd() {
+         Node node = parseEquality();
+         while (accept("&&")) {
+            node = binary("&&", node, parseEquality());
+         }
+         return node;
+      }
+
+      private Node parseEquality() {
+         Node node = parseRelational();
+         String operator;
+         while ((operator = acceptAny("==", "!=", "===", "!==")) != null) {
+            node = binary(operator, node, parseRelational());
+         }
+         return node;
+      }
+
+      private Node parseRelational() {
+         Node node = parseAdditive();
+         String operator;
+         while ((operator = acceptAny("<", ">", "<=", ">=")) != null) {
+            node = binary(operator, node, parseAdditive());
+         }
+         return node;
+      }
+
+      private Node parseAdditive() {
+         Node node = parseMultiplicative();
+         String operator;
+         while ((operator = acceptAny("+", "-")) != null) {
+            node = binary(operator, node, parseMultiplicative());
+         }
+         return node;
+      }
+
+      private Node parseMultiplicative() {
+         Node node = parseUnary();
+         String operator;
+         while ((operator = acceptAny("*", "/", "%")) != null) {
+            node = binary(operator, node, parseUnary());
+         }
+         return node;
+      }
+
+      private Node parseUnary() {
+         String operator = acceptAny("!", "-", "+");
+         if (operator != null) {
+            return unary(operator, parseUnary());
+         }
+         return parsePrimary();
+      }
+
+      private Node parsePrimary() {
+         if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of expression: " + expression);
+         }
+
+         if (accept("(")) {
+            Node node = parseOr();
+            if (!accept(")")) {
+               throw unexpected();
+            }
+            return node;
+         }
+
+         String token = tokens.get(position);
+         char first = token.charAt(0);
+         if (Character.isDigit(first) || first == '.') {
+            position++;
+            try {
+               return constant(Double.valueOf(token));
+            } catch (NumberFormatException e) {
+               throw new IllegalArgumentException("Invalid number " + token + " in expression: " + expression);
+            }
+         } else if (Character.isJavaIdentifierStart(first)) {
+            position++;
+            switch (token) {
+               case "true":
+                  return constant(Boolean.TRUE);
+               case "false":
+                  return constant(Boolean.FALSE);
+               case "null":
+                  return constant(null);
+               default:
+                  return variable(token);
+            }
+         }
+
+         throw unexpected();
+      }
+
+      private boolean accept(String token) {
+         if (position < tokens.size() && tokens.get(position).equals(token)) {
+            position++;
+            return true;
+         }
+         return false;
+      }
+
+      private String acceptAny(String... candidates) {
+         for (String candidate : candidates) {
+            if (accept(candidate)) {
+               return candidate;
+            }
+         }
+         return null;
+      }
+
+      private IllegalArgumentException unexpected() {
+         String token = position < tokens.size() ? tokens.get(position) : "end of expression";
+         return new IllegalArgumentException("Unexpected " + token + " in expression: " + expression);
+      }
+
+      private void tokenize() {
+         int i = 0;
+         while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+               i++;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < expression.length() && Character.isDigit(expression.charAt(i + 1)))) {
+               int start = i;
+               while (i < expression.length() && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                  i++;
+               }
+               if (i < expression.length() && (expression.charAt(i) == 'e' || expression.charAt(i) == 'E')) {
+                  i++;
+                  if (i < expression.length() && (expression.charAt(i) == '+' || expression.charAt(i) == '-')) {
+                     i++;
+                  }
+                  while (i < expression.length() && Character.isDigit(expression.charAt(i))) {
+                     i++;
+                  }
+               }
+               tokens.add(expression.substring(start, i));
+            } else if (Character.isJavaIdentifierStart(c)) {
+               int start = i;
+               while (i < expression.length() && Character.isJavaIdentifierPart(expression.charAt(i))) {
+                  i++;
+               }
+               tokens.add(expression.substring(start, i));
+            } else {
+               String operator = null;
+               for (String candidate : OPERATORS) {
+                  if (expression.startsWith(candidate, i)) {
+                     operator = candidate;
+                     break;
+                  }
+               }
+               if (operator == null) {
+                  throw new IllegalArgumentException("Unsupported character '" + c + "' in expression: " + expression);
+               }
+               tokens.add(operator);
+               i += operator.length();
+            }
+         }
+      }
+   }
+}
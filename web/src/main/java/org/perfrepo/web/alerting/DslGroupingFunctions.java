@@ -1,18 +1,34 @@
 package org.perfrepo.web.alerting;
 
+import com.google.common.base.Preconditions;
 import com.google.common.math.DoubleMath;
 import com.google.common.primitives.Doubles;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Represent all available grouping function usable in alerting DSL.
  *
+ * Values are expected in the order of test executions (or iterations of multivalue test execution), from the oldest
+ * one, which matters for EWMA and MANNWHITNEY. Percentiles are interpolated linearly between the closest ranks, the
+ * order statistics are found by selection in linear time instead of sorting.
+ *
+ * <ul>
+ * <li>MEDIAN, P90, P95, P99 - 50th, 90th, 95th and 99th percentile</li>
+ * <li>STDDEV - sample standard deviation</li>
+ * <li>EWMA - exponentially weighted moving average with smoothing factor 2 / (n + 1), i.e. the latest value has
+ * the highest weight</li>
+ * <li>MANNWHITNEY - p-value of two-sided Mann-Whitney U test of the older half of the values against the newer half,
+ * i.e. low value means that the values have changed</li>
+ * </ul>
+ *
  * @author Jiri Holusa (jholusa@redhat.com)
  */
 public enum DslGroupingFunctions {
 
-   AVG("AVG"), MAX("MAX"), MIN("MIN");
+   AVG("AVG"), MAX("MAX"), MIN("MIN"), MEDIAN("MEDIAN"), P90("P90"), P95("P95"), P99("P99"), STDDEV("STDDEV"), EWMA("EWMA"),
+   MANNWHITNEY("MANNWHITNEY");
 
    private String stringRepresentation;
 
@@ -41,18 +57,228 @@ public enum DslGroupingFunctions {
     * @return
     */
    public double compute(List<Double> values) {
+      return compute(Doubles.toArray(values));
+   }
+
+   /**
+    * Applies grouping function to values
+    *
+    * @param values
+    * @return
+    */
+   public double compute(double[] values) {
       switch (this) {
          case AVG:
             return DoubleMath.mean(values);
          case MIN:
-            return Doubles.min(Doubles.toArray(values));
+            return Doubles.min(values);
          case MAX:
-            return Doubles.max(Doubles.toArray(values));
+            return Doubles.max(values);
+         case MEDIAN:
+            return percentile(values, 0.5);
+         case P90:
+            return percentile(values, 0.9);
+         case P95:
+            return percentile(values, 0.95);
+         case P99:
+            return percentile(values, 0.99);
+         case STDDEV:
+            return standardDeviation(values);
+         case EWMA:
+            return exponentiallyWeightedMean(values);
+         case MANNWHITNEY:
+            Preconditions.checkArgument(values.length > 0, "Cannot apply grouping function to empty values.");
+            int half = values.length / 2;
+            return mannWhitney(Arrays.copyOfRange(values, 0, half), Arrays.copyOfRange(values, half, values.length));
       }
 
       throw new IllegalStateException("There should be associated a group function with the enum.");
    }
 
+   /**
+    * Computes p-value of two-sided Mann-Whitney U test, i.e. the probability that the two samples come from the
+    * same distribution. Normal approximation with tie and continuity correction is used.
+    *
+    * @param first
+    * @param second
+    * @return p-value, 1 if any of the samples is empty
+    */
+   public static double mannWhitney(double[] first, double[] second) {
+      int n1 = first.length;
+      int n2 = second.length;
+      if (n1 == 0 || n2 == 0) {
+         return 1d;
+      }
+
+      int n = n1 + n2;
+      double[] combined = new double[n];
+      System.arraycopy(first, 0, combined, 0, n1);
+      System.arraycopy(second, 0, combined, n1, n2);
+      Arrays.sort(combined);
+
+      // sum of (average) ranks of the first sample, ties get the average of their ranks
+      double rankSum = 0d;
+      for (double value : first) {
+         int lower = lowerBound(combined, value);
+         int upper = upperBound(combined, value);
+         rankSum += (lower + 1 + upper) / 2d;
+      }
+
+      double tieCorrection = 0d;
+      for (int i = 0; i < n; ) {
+         int upper = upperBound(combined, combined[i]);
+         double ties = upper - i;
+         tieCorrection += ties * ties * ties - ties;
+         i = upper;
+      }
+
+      double u = rankSum - n1 * (n1 + 1) / 2d;
+      double mean = n1 * (double) n2 / 2d;
+      double variance = n1 * (double) n2 / 12d * ((n + 1) - tieCorrection / (n * (n - 1d)));
+      if (variance <= 0d) {
+         // all values are the same
+         return 1d;
+      }
+
+      double z = Math.max(Math.abs(u - mean) - 0.5d, 0d) / Math.sqrt(variance);
+      return Math.min(1d, 2d * (1d - normalCdf(z)));
+   }
+
+   private static double percentile(double[] values, double percentile) {
+      Preconditions.checkArgument(values.length > 0, "Cannot apply grouping function to empty values.");
+
+      double[] copy = values.clone();
+      double rank = percentile * (copy.length - 1);
+      int lower = (int) Math.floor(rank);
+      double lowerValue = select(copy, lower);
+      if (rank == lower) {
+         return lowerValue;
+      }
+
+      // after the selection, all the values behind the lower one are greater or equal, the next one is their minimum
+      double upperValue = Double.POSITIVE_INFINITY;
+      for (int i = lower + 1; i < copy.length; i++) {
+         upperValue = Math.min(upperValue, copy[i]);
+      }
+
+      return lowerValue + (rank - lower) * (upperValue - lowerValue);
+   }
+
+   /**
+    * Finds k-th smallest value (quickselect), the array is partially reordered.
+    */
+   private static double select(double[] values, int k) {
+      int left = 0;
+      int right = values.length - 1;
+      while (left < right) {
+         int[] equalRange = partition(values, left, right, values[left + (right - left) / 2]);
+         if (k < equalRange[0]) {
+            right = equalRange[0] - 1;
+         } else if (k > equalRange[1]) {
+            left = equalRange[1] + 1;
+         } else {
+            return values[k];
+         }
+      }
+
+      return values[k];
+   }
+
+   /**
+    * Three-way partition of the range, so that many equal values don't make the selection quadratic.
+    *
+    * @return first and last index of the values equal to the pivot
+    */
+   private static int[] partition(double[] values, int left, int right, double pivot) {
+      int lower = left;
+      int i = left;
+      int upper = right;
+      while (i <= upper) {
+         if (values[i] < pivot) {
+            swap(values, lower++, i++);
+         } else if (values[i] > pivot) {
+            swap(values, i, upper--);
+         } else {
+            i++;
+         }
+      }
+
+      return new int[] {lower, upper};
+   }
+
+   private static void swap(double[] values, int i, int j) {
+      double tmp = values[i];
+      values[i] = values[j];
+      values[j] = tmp;
+   }
+
+   private static double standardDeviation(double[] values) {
+      Preconditions.checkArgument(values.length > 0, "Cannot apply grouping function to empty values.");
+      if (values.length == 1) {
+         return 0d;
+      }
+
+      double mean = DoubleMath.mean(values);
+      double sumOfSquares = 0d;
+      for (double value : values) {
+         sumOfSquares += (value - mean) * (value - mean);
+      }
+
+      return Math.sqrt(sumOfSquares / (values.length - 1));
+   }
+
+   private static double exponentiallyWeightedMean(double[] values) {
+      Preconditions.checkArgument(values.length > 0, "Cannot apply grouping function to empty values.");
+
+      double alpha = 2d / (values.length + 1);
+      double result = values[0];
+      for (int i = 1; i < values.length; i++) {
+         result = alpha * values[i] + (1 - alpha) * result;
+      }
+
+      return result;
+   }
+
+   private static int lowerBound(double[] sorted, double value) {
+      int low = 0;
+      int high = sorted.length;
+      while (low < high) {
+         int middle = (low + high) >>> 1;
+         if (sorted[middle] < value) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   private static int upperBound(double[] sorted, double value) {
+      int low = 0;
+      int high = sorted.length;
+      while (low < high) {
+         int middle = (low + high) >>> 1;
+         if (sorted[middle] <= value) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   /**
+    * Standard normal cumulative distribution function, approximation of error function by Abramowitz and Stegun
+    * (formula 7.1.26) is used, maximal error is 1.5e-7.
+    */
+   private static double normalCdf(double z) {
+      double x = Math.abs(z) / Math.sqrt(2d);
+      double t = 1d / (1d + 0.3275911 * x);
+      double erf = 1d - ((((1.061405429 * t - 1.453152027) * t + 1.421413741) * t - 0.284496736) * t + 0.254829592) * t * Math.exp(-x * x);
+
+      return z >= 0 ? 0.5d * (1d + erf) : 0.5d * (1d - erf);
+   }
+
    /**
     * Decides if there is an enum with provided string representation.
     *
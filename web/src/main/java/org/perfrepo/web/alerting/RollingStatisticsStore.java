@@ -0,0 +1,338 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.model.Tag;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.Value;
+import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.web.dao.TestExecutionDAO;
+import org.perfrepo.web.util.TagUtils;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Globally scoped store of metric values of the latest test executions, used to answer alert conditions with
+ * SELECT LAST clause, e.g. <code>x = AVG(SELECT WHERE tags = "stable" LAST 10)</code>, without loading the test
+ * executions from database.
+ *
+ * There is one window for each combination of metric and tags that is used in alert conditions. The window holds the
+ * same test executions as the SELECT does in database, i.e. test executions of all tests having the tags, including
+ * the ones without a value of the metric. The window is loaded from database when it's used for the first time
+ * (e.g. after restart), then every new test execution is added to the matching windows after the creating transaction
+ * commits, see {@link #add(TestExecution)}. Whenever existing test executions are changed or removed,
+ * {@link #invalidate()} has to be called, the windows are loaded again on the next use.
+ */
+@ApplicationScoped
+public class RollingStatisticsStore {
+
+   /**
+    * Maximal number of test executions held in one window, windows of conditions reaching further to the past
+    * are always retrieved from database.
+    */
+   public static final int WINDOW_CAPACITY = 100;
+
+   private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+   // incremented with every change, windows loaded before the change are not stored
+   private final AtomicLong generation = new AtomicLong();
+
+   @Inject
+   private TestExecutionDAO testExecutionDAO;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   /**
+    * Retrieves values of the metric in the LAST window preceding the test execution, i.e. from the last
+    * <code>lastFrom</code> test executions started before the current one (by start and ID), the first
+    * <code>howMany</code> are taken. Test executions without the value of the metric are part of the window, but they
+    * have no value.
+    *
+    * @param metricName
+    * @param tags tags the test executions must have in the same format as in search, null if any
+    * @param current test execution the window precedes
+    * @param lastFrom
+    * @param howMany
+    * @return values from the oldest test execution to the latest one, null if the window can't be answered from
+    * the store and database has to be queried
+    */
+   public double[] getWindow(String metricName, String tags, TestExecution current, int lastFrom, int howMany) {
+      if (current.getId() == null || current.getStarted() == null || lastFrom < 0 || howMany < 0 || lastFrom > WINDOW_CAPACITY) {
+         return null;
+      }
+
+      String normalizedTags = normalizeTags(tags);
+      String key = metricName + "|" + normalizedTags;
+      Window window = windows.get(key);
+      if (window == null) {
+         long loadedGeneration = generation.get();
+         window = load(metricName, normalizedTags);
+         if (generation.get() == loadedGeneration) {
+            Window previous = windows.putIfAbsent(key, window);
+            if (previous != null) {
+               window = previous;
+            } else if (generation.get() != loadedGeneration) {
+               // test executions were changed while storing the window, it may be stale
+               windows.remove(key, window);
+            }
+         }
+      }
+
+      return window.getValues(current.getId(), current.getStarted().getTime(), lastFrom, howMany);
+   }
+
+   /**
+    * Adds new test execution to all windows whose tags it matches. If called in a transaction, the test execution is
+    * added after the transaction commits. Test execution has to have tags and values loaded.
+    *
+    * @param testExecution
+    */
+   public void add(TestExecution testExecution) {
+      if (testExecution.getId() == null || testExecution.getStarted() == null) {
+         return;
+      }
+
+      long id = testExecution.getId();
+      long started = testExecution.getStarted().getTime();
+      Set<String> executionTags = new HashSet<>();
+      if (testExecution.getTags() != null) {
+         for (Tag tag : testExecution.getTags()) {
+            executionTags.add(tag.getName().toLowerCase());
+         }
+      }
+      // the first value of the metric is taken, as in the database
+      Map<String, Double> valuesByMetric = new HashMap<>();
+      if (testExecution.getValues() != null) {
+         for (Value value : testExecution.getValues()) {
+            if (value.getMetricName() != null) {
+               valuesByMetric.putIfAbsent(value.getMetricName(), value.getResultValue() == null ? Double.NaN : value.getResultValue());
+            }
+         }
+      }
+
+      Runnable append = () -> {
+         generation.incrementAndGet();
+         for (Window window : windows.values()) {
+            if (window.matches(executionTags)) {
+               window.add(id, started, valuesByMetric.getOrDefault(window.metricName, Double.NaN));
+            }
+         }
+      };
+      if (inTransaction()) {
+         afterCompletion(append, true);
+      } else {
+         append.run();
+      }
+   }
+
+   /**
+    * Drops all windows, they're loaded from database again on the next use. If called in a transaction, the windows
+    * are dropped again after the transaction completes.
+    */
+   public void invalidate() {
+      Runnable invalidation = () -> {
+         generation.incrementAndGet();
+         windows.clear();
+      };
+      invalidation.run();
+      if (inTransaction()) {
+         afterCompletion(invalidation, false);
+      }
+   }
+
+   /**
+    * @return number of windows held in the store
+    */
+   public int size() {
+      return windows.size();
+   }
+
+   public void setTestExecutionDAO(TestExecutionDAO testExecutionDAO) {
+      this.testExecutionDAO = testExecutionDAO;
+   }
+
+   private Window load(String metricName, String normalizedTags) {
+      TestExecutionSearchTO search = new TestExecutionSearchTO();
+      search.setTags(normalizedTags);
+      search.setLimitHowMany(WINDOW_CAPACITY);
+
+      List<Object[]> rows = testExecutionDAO.getLatestMetricValues(search, metricName);
+      Window window = new Window(metricName, normalizedTags);
+      // rows are ordered from the latest test execution
+      for (int i = rows.size() - 1; i >= 0; i--) {
+         Object[] row = rows.get(i);
+         Double value = (Double) row[2];
+         window.add((Long) row[0], ((Date) row[1]).getTime(), value == null ? Double.NaN : value);
+      }
+      // if there are less test executions than the capacity, the window holds all of them
+      window.complete = rows.size() < WINDOW_CAPACITY;
+
+      return window;
+   }
+
+   private boolean inTransaction() {
+      return transactionSynchronizationRegistry != null && transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+   }
+
+   private void afterCompletion(Runnable action, boolean onlyIfCommitted) {
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            if (!onlyIfCommitted || status == Status.STATUS_COMMITTED) {
+               action.run();
+            }
+         }
+      });
+   }
+
+   private static String normalizeTags(String tags) {
+      List<String> parsed = new ArrayList<>(TagUtils.parseTags(tags == null ? null : tags.toLowerCase()));
+      parsed.removeIf(String::isEmpty);
+      Collections.sort(parsed);
+      return TagUtils.rawTags(parsed);
+   }
+
+   /**
+    * Ring buffer of the values ordered by start of the test execution (and ID if the starts are equal).
+    */
+   private static class Window {
+
+      private final String metricName;
+      private final Set<String> includedTags = new HashSet<>();
+      private final Set<String> excludedTags = new HashSet<>();
+
+      private final long[] ids = new long[WINDOW_CAPACITY];
+      private final long[] starts = new long[WINDOW_CAPACITY];
+      // NaN if the test execution has no value of the metric
+      private final double[] values = new double[WINDOW_CAPACITY];
+      private int head = 0;
+      private int size = 0;
+      // true if the window holds all test executions, i.e. no test execution was ever discarded
+      private boolean complete = true;
+
+      Window(String metricName, String normalizedTags) {
+         this.metricName = metricName;
+         for (String tag : TagUtils.parseTags(normalizedTags)) {
+            if (tag.startsWith("-")) {
+               excludedTags.add(tag.substring(1));
+            } else {
+               includedTags.add(tag);
+            }
+         }
+      }
+
+      boolean matches(Set<String> executionTags) {
+         return executionTags.containsAll(includedTags) && Collections.disjoint(executionTags, excludedTags);
+      }
+
+      synchronized void add(long id, long started, double value) {
+         for (int i = 0; i < size; i++) {
+            if (ids[index(i)] == id) {
+               // test execution is already present, e.g. it was loaded after it was committed
+               return;
+            }
+         }
+
+         int position = size;
+         while (position > 0 && isBefore(id, started, index(position - 1))) {
+            position--;
+         }
+
+         if (size == WINDOW_CAPACITY) {
+            complete = false;
+            if (position == 0) {
+               // older than everything in full window
+               return;
+            }
+            // discard the oldest one
+            head = index(1);
+            size--;
+            position--;
+         }
+
+         for (int i = size; i > position; i--) {
+            ids[index(i)] = ids[index(i - 1)];
+            starts[index(i)] = starts[index(i - 1)];
+            values[index(i)] = values[index(i - 1)];
+         }
+         ids[index(position)] = id;
+         starts[index(position)] = started;
+         values[index(position)] = value;
+         size++;
+      }
+
+      synchronized double[] getValues(long currentId, long currentStarted, int lastFrom, int howMany) {
+         int preceding = size;
+         while (preceding > 0 && !isBefore(ids[index(preceding - 1)], starts[index(preceding - 1)], currentId, currentStarted)) {
+            preceding--;
+         }
+
+         int from = preceding - lastFrom;
+         if (from < 0) {
+            if (!complete) {
+               // part of the window was discarded, database has to be queried
+               return null;
+            }
+            from = 0;
+         }
+         int to = Math.min(from + howMany, preceding);
+
+         double[] result = new double[Math.max(to - from, 0)];
+         int count = 0;
+         for (int i = from; i < to; i++) {
+            double value = values[index(i)];
+            if (!Double.isNaN(value)) {
+               result[count++] = value;
+            }
+         }
+
+         return count == result.length ? result : Arrays.copyOf(result, count);
+      }
+
+      private boolean isBefore(long id, long started, int index) {
+         return isBefore(id, started, ids[index], starts[index]);
+      }
+
+      private static boolean isBefore(long id, long started, long otherId, long otherStarted) {
+         return started < otherStarted || (started == otherStarted && id < otherId);
+      }
+
+      private int index(int i) {
+         return (head + i) % WINDOW_CAPACITY;
+      }
+   }
+}
@@ -42,10 +42,9 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -442,7 +441,7 @@ public class TestExecutionController extends BaseController {
 
          testExecution.getValues().add(freshValue);
 
-         alertingService.processAlerts(testExecution);
+         alertingService.enqueueAlerts(testExecution);
 
          editedValue = null;
 
@@ -483,7 +482,7 @@ public class TestExecutionController extends BaseController {
 
    /**
     * Produce download link for an attachment. It will be an URL for the
-    * {@link org.perfrepo.web.rest.TestExecutionREST#getAttachment(Long)} method.
+    * {@link org.perfrepo.web.rest.TestExecutionREST#getAttachment(Long, String)} method.
     *
     * @param attachment
     * @return The download link.
@@ -619,6 +618,7 @@ public class TestExecutionController extends BaseController {
       TestExecutionAttachment attachment = testService.getAttachment(attachmentId);
       if (attachment == null) {
          addMessage(ERROR, "Attachment not found.");
+         return;
       }
 
       HttpServletResponse response = (HttpServletResponse) FacesContext.getCurrentInstance().getExternalContext().getResponse();
@@ -627,15 +627,11 @@ public class TestExecutionController extends BaseController {
       response.setContentType(attachment.getMimetype());
       response.setHeader("Content-Disposition", "attachment; filename=" + attachment.getFilename());
 
-      try (BufferedInputStream input = new BufferedInputStream(new ByteArrayInputStream(attachment.getContent()));
-           BufferedOutputStream output = new BufferedOutputStream(response.getOutputStream())
-      ) {
-
-         byte[] buffer = new byte[10240];
-         for (int length = input.read(buffer); length > 0;) {
-            output.write(buffer, 0, length);
-            length = input.read(buffer);
-         }
+      // content is streamed from database, it's never held in memory as a whole
+      try (BufferedOutputStream output = new BufferedOutputStream(response.getOutputStream())) {
+         long size = testService.getAttachmentSize(attachmentId);
+         response.setHeader("Content-Length", String.valueOf(size));
+         testService.writeAttachmentContent(attachmentId, 0, size, output);
       } catch (IOException ex) {
          addMessage(ERROR, "Error occurred while downloading attachment.");
       }
@@ -648,11 +644,10 @@ public class TestExecutionController extends BaseController {
       TestExecutionAttachment attachment = new TestExecutionAttachment();
       attachment.setFilename(item.getName());
       attachment.setMimetype(item.getContentType());
-      attachment.setContent(item.getData());
       attachment.setTestExecution(new TestExecution());
       attachment.getTestExecution().setId(testExecutionId);
-      try {
-         testService.addAttachment(attachment);
+      try (InputStream content = item.getInputStream()) {
+         testService.addAttachment(attachment, content, item.getSize());
          testExecution = testService.getFullTestExecution(testExecutionId);
          showMultiValue(null);
       } catch (ServiceException e) {
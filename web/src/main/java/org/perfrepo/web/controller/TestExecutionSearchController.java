@@ -15,6 +15,7 @@
 package org.perfrepo.web.controller;
 
 import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.to.BulkOperationTO;
 import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.SearchResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
@@ -36,6 +37,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -212,27 +214,41 @@ public class TestExecutionSearchController extends BaseController {
 
    public void addTagsToFoundTestExecutions() {
       List<String> tags = TagUtils.parseTags(massOperationAddTags != null ? massOperationAddTags.toLowerCase() : "");
-
-      testService.addTagsToTestExecutions(tags, result);
-      search();
+      startMassOperation(criteria -> testService.startAddingTags(criteria, tags));
    }
 
    public void deleteTagsFromFoundTestExecutions() {
       List<String> tags = TagUtils.parseTags(massOperationDeleteTags != null ? massOperationDeleteTags.toLowerCase() : "");
-
-      testService.removeTagsFromTestExecutions(tags, result);
-      search();
+      startMassOperation(criteria -> testService.startRemovingTags(criteria, tags));
    }
 
    public void deleteFoundTestExecutions() {
-      for (TestExecution testExecution : result) {
-         try {
-            testService.removeTestExecution(testExecution);
-         } catch (ServiceException ex) {
-            addMessage(ex);
-         }
+      startMassOperation(testService::startRemovingTestExecutions);
+   }
+
+   /**
+    * Starts the mass operation on the found test executions, it runs in background. If the results are paginated,
+    * only test executions of the current page are processed.
+    *
+    * @param operation starts the operation on test executions matching given criteria
+    */
+   private void startMassOperation(Function<TestExecutionSearchTO, BulkOperationTO> operation) {
+      if (result == null || result.isEmpty()) {
+         return;
       }
 
+      TestExecutionSearchTO criteria = criteriaSession.getExecutionSearchCriteria();
+      if (criteria.getLimitHowMany() != null) {
+         criteria = new TestExecutionSearchTO();
+         criteria.setIds(EntityUtils.extractIds(result));
+      }
+
+      try {
+         BulkOperationTO started = operation.apply(criteria);
+         addMessage(INFO, "page.execSearch.massOperationStarted", started.getTotal());
+      } catch (org.perfrepo.web.security.SecurityException ex) {
+         addMessage(ex);
+      }
       search();
    }
 
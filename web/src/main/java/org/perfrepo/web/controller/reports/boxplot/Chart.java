@@ -2,6 +2,7 @@ package org.perfrepo.web.controller.reports.boxplot;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -24,6 +25,9 @@ public class Chart {
    private AxisOption xAxisSort;
    private String xAxisSortParameter;
 
+   private Date from;
+   private Date to;
+
    public Long getTestId() {
       return testId;
    }
@@ -88,6 +92,22 @@ public class Chart {
       this.xAxisSort = xAxisSort;
    }
 
+   public Date getFrom() {
+      return from;
+   }
+
+   public void setFrom(Date from) {
+      this.from = from;
+   }
+
+   public Date getTo() {
+      return to;
+   }
+
+   public void setTo(Date to) {
+      this.to = to;
+   }
+
    public void addSeries(Series series) {
       if (seriesList == null) {
          seriesList = new ArrayList<>();
@@ -144,6 +144,9 @@ public class TestGroupReportController extends BaseController {
 
    private List<TestExecution> missingTE = new ArrayList<TestExecution>();
 
+   // the sets of tags never change, so their normalized form can be kept for the whole life of the controller
+   private Map<Long, String> tagsKeysBySetId = new HashMap<Long, String>();
+
    public void processTestExecutions() {
       data.clear();
       reloadSessionMessages();
@@ -152,7 +155,7 @@ public class TestGroupReportController extends BaseController {
       //filter tags according to test execution result
       //tags.clear();
       for (TestExecution te : testExecutions) {
-         String tagsKey = normalizeTags(te.getTags());
+         String tagsKey = getTagsKey(te);
          if (!tags.contains(tagsKey)) {
             tags.add(tagsKey);
          }
@@ -203,13 +206,13 @@ public class TestGroupReportController extends BaseController {
                if (!tests.contains(te.getTestUid())) {
                   tests.add(te.getTestUid());
                }
-               String tagsKey = normalizeTags(te.getTags());
+               String tagsKey = getTagsKey(te);
                if (!tags.contains(tagsKey)) {
                   tags.add(tagsKey);
                }
                filtered.add(te);
             } else {
-               if (tests.contains(te.getTestUid()) && tags.contains(normalizeTags(te.getTags()))) {
+               if (tests.contains(te.getTestUid()) && tags.contains(getTagsKey(te))) {
                   filtered.add(te);
                } else {
                   testIds.remove(te.getId());
@@ -476,6 +479,18 @@ public class TestGroupReportController extends BaseController {
       return new ArrayList<String>(comparison.keySet());
    }
 
+   /**
+    * @param te
+    * @return tags of the test execution in normalized form, test executions with the same set of tags are grouped
+    * by ID of the set, so the tags are normalized only once per set
+    */
+   private String getTagsKey(TestExecution te) {
+      if (te.getTagSetId() == null) {
+         return normalizeTags(te.getTags());
+      }
+      return tagsKeysBySetId.computeIfAbsent(te.getTagSetId(), id -> normalizeTags(te.getTags()));
+   }
+
    private String normalizeTags(Collection<Tag> tagCollection) {
       List<String> tags = tagCollection.stream().map(Tag::getName).collect(Collectors.toList());
       Collections.sort(tags);
@@ -630,7 +645,7 @@ public class TestGroupReportController extends BaseController {
          List<TestExecution> tes = testService.getTestExecutions(Lists.newArrayList(currentTag), tests);
          newFoundTags = Lists.newArrayList();
          for (TestExecution te : tes) {
-            String t = normalizeTags(te.getTags());
+            String t = getTagsKey(te);
             if (!tagsCopy.contains(t)) {
                tagsCopy.add(t);
                newFoundTags.add(t);
@@ -753,7 +768,7 @@ public class TestGroupReportController extends BaseController {
             if (!testIds.contains(te.getId())) {
                testIds.add(te.getId());
             }
-            String tag = normalizeTags(te.getTags());
+            String tag = getTagsKey(te);
             if (!tags.contains(tag)) {
                tags.add(tag);
             }
@@ -766,7 +781,7 @@ public class TestGroupReportController extends BaseController {
    public void addMissingTestExecution(TestExecution te) {
       if (!testIds.contains(te.getId())) {
          testIds.add(te.getId());
-         String tag = normalizeTags(te.getTags());
+         String tag = getTagsKey(te);
          if (!tags.contains(tag)) {
             tags.add(tag);
          }
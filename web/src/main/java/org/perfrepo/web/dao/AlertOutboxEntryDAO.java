@@ -0,0 +1,88 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.perfrepo.model.AlertOutboxEntry;
+
+import javax.inject.Named;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * DAO for {@link org.perfrepo.model.AlertOutboxEntry}
+ */
+@Named
+public class AlertOutboxEntryDAO extends DAO<AlertOutboxEntry, Long> {
+
+   /**
+    * Retrieves the oldest entries that haven't exceeded the number of attempts, ordered by ID, i.e. in the order
+    * they were queued.
+    *
+    * @param maxAttempts
+    * @param limit maximal number of entries
+    * @return
+    */
+   public List<AlertOutboxEntry> getPending(int maxAttempts, int limit) {
+      return createNamedQuery(AlertOutboxEntry.FIND_PENDING, AlertOutboxEntry.class)
+          .setParameter("maxAttempts", maxAttempts)
+          .setMaxResults(limit)
+          .getResultList();
+   }
+
+   /**
+    * Retrieves the oldest pending entry of every test, ordered by ID. Tests which oldest pending entry is postponed
+    * after the given time are left out.
+    *
+    * @param maxAttempts
+    * @param now
+    * @param limit maximal number of entries
+    * @return
+    */
+   public List<AlertOutboxEntry> getPendingHeads(int maxAttempts, Date now, int limit) {
+      return createNamedQuery(AlertOutboxEntry.FIND_PENDING_HEADS, AlertOutboxEntry.class)
+          .setParameter("maxAttempts", maxAttempts)
+          .setParameter("now", now)
+          .setMaxResults(limit)
+          .getResultList();
+   }
+
+   /**
+    * Retrieves the oldest pending entries of the test, ordered by ID.
+    *
+    * @param testId
+    * @param maxAttempts
+    * @param limit maximal number of entries
+    * @return
+    */
+   public List<AlertOutboxEntry> getPendingByTest(Long testId, int maxAttempts, int limit) {
+      return createNamedQuery(AlertOutboxEntry.FIND_PENDING_BY_TEST, AlertOutboxEntry.class)
+          .setParameter("testId", testId)
+          .setParameter("maxAttempts", maxAttempts)
+          .setMaxResults(limit)
+          .getResultList();
+   }
+
+   /**
+    * Counts entries that haven't exceeded the number of attempts.
+    *
+    * @param maxAttempts
+    * @return
+    */
+   public long countPending(int maxAttempts) {
+      return createNamedQuery(AlertOutboxEntry.COUNT_PENDING, Long.class)
+          .setParameter("maxAttempts", maxAttempts)
+          .getSingleResult();
+   }
+}
@@ -0,0 +1,83 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Storage of content of test execution attachments outside of database. Implementations are CDI beans, the storage
+ * new content is stored to is selected by {@link org.perfrepo.web.service.ApplicationConfiguration#getAttachmentStorage()},
+ * see {@link TestExecutionAttachmentDAO}.
+ *
+ * Content is addressed by keys returned by {@link #store(InputStream, long)}. Stored content is never modified, the
+ * same content may be stored under the same key and shared by several attachments, so content isn't removed together
+ * with the attachment, unreferenced content is removed later instead.
+ */
+public interface AttachmentStorage {
+
+   /**
+    * @return name of the storage used in the configuration and as prefix of the storage keys of the attachments
+    */
+   String getName();
+
+   /**
+    * Stores the content read from the stream.
+    *
+    * @param content
+    * @param length number of bytes of the content
+    * @return key of the stored content
+    * @throws IOException if the content can't be stored or the stream doesn't contain exactly the given number of bytes
+    */
+   String store(InputStream content, long length) throws IOException;
+
+   /**
+    * @param key
+    * @return size of the content in bytes, -1 if there's no content stored under the key
+    * @throws IOException
+    */
+   long getSize(String key) throws IOException;
+
+   /**
+    * Copies part of the content to the stream.
+    *
+    * @param key
+    * @param offset first byte of the copied part, starting from 0
+    * @param length number of copied bytes
+    * @param output
+    * @throws IOException
+    */
+   void write(String key, long offset, long length, OutputStream output) throws IOException;
+
+   /**
+    * @param storedBefore
+    * @return keys of all content stored, or stored again, before the date
+    * @throws IOException
+    */
+   Collection<String> getKeys(Date storedBefore) throws IOException;
+
+   /**
+    * Removes the content unless it was stored again since the date, i.e. it may be referenced by a new attachment.
+    *
+    * @param key
+    * @param storedBefore
+    * @return true if the content was removed
+    * @throws IOException
+    */
+   boolean remove(String key, Date storedBefore) throws IOException;
+}
@@ -84,6 +84,32 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
       em.flush();
    }
 
+   /**
+    * Persists the entity without flushing, so inserts of many entities can be sent to the database
+    * in JDBC batches by single {@link #flush()}.
+    *
+    * @param entity
+    * @return persisted entity
+    */
+   public T persist(final T entity) {
+      em.persist(entity);
+      return entity;
+   }
+
+   /**
+    * Synchronizes the persistence context with the database.
+    */
+   public void flush() {
+      em.flush();
+   }
+
+   /**
+    * Detaches all managed entities, all pending changes have to be flushed before.
+    */
+   public void clear() {
+      em.clear();
+   }
+
    /**
     * Finds all entities of current type
     *
@@ -0,0 +1,130 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.apache.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Exposes statistics of the second level cache of entities and queries via JMX as {@link #OBJECT_NAME}. The cache
+ * itself is configured in <code>persistence.xml</code>, only entities annotated by {@link javax.persistence.Cacheable}
+ * are cached.
+ */
+@Singleton
+@Startup
+public class EntityCacheMonitor implements EntityCacheMonitorMXBean {
+
+   private static final Logger log = Logger.getLogger(EntityCacheMonitor.class);
+
+   public static final String OBJECT_NAME = "org.perfrepo:type=EntityCache";
+
+   @PersistenceUnit(unitName = "PerfRepoPU")
+   private EntityManagerFactory entityManagerFactory;
+
+   @PostConstruct
+   public void registerMBean() {
+      try {
+         ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to register entity cache MBean", e);
+      }
+   }
+
+   @PreDestroy
+   public void unregisterMBean() {
+      try {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to unregister entity cache MBean", e);
+      }
+   }
+
+   @Override
+   public long getHitCount() {
+      return statistics().getSecondLevelCacheHitCount();
+   }
+
+   @Override
+   public long getMissCount() {
+      return statistics().getSecondLevelCacheMissCount();
+   }
+
+   @Override
+   public long getPutCount() {
+      return statistics().getSecondLevelCachePutCount();
+   }
+
+   @Override
+   public double getHitRate() {
+      return hitRate(getHitCount(), getMissCount());
+   }
+
+   @Override
+   public long getQueryHitCount() {
+      return statistics().getQueryCacheHitCount();
+   }
+
+   @Override
+   public long getQueryMissCount() {
+      return statistics().getQueryCacheMissCount();
+   }
+
+   @Override
+   public double getQueryHitRate() {
+      return hitRate(getQueryHitCount(), getQueryMissCount());
+   }
+
+   @Override
+   public String[] getRegionNames() {
+      return statistics().getSecondLevelCacheRegionNames();
+   }
+
+   @Override
+   public void evictAll() {
+      org.hibernate.Cache cache = sessionFactory().getCache();
+      cache.evictEntityRegions();
+      cache.evictCollectionRegions();
+      cache.evictDefaultQueryRegion();
+      cache.evictQueryRegions();
+   }
+
+   @Override
+   public void clearStatistics() {
+      statistics().clear();
+   }
+
+   private static double hitRate(long hits, long misses) {
+      return hits + misses == 0 ? 1.0 : (double) hits / (hits + misses);
+   }
+
+   private SessionFactory sessionFactory() {
+      return entityManagerFactory.unwrap(SessionFactory.class);
+   }
+
+   private Statistics statistics() {
+      return sessionFactory().getStatistics();
+   }
+}
@@ -0,0 +1,71 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+/**
+ * JMX view of the second level cache of entities and queries.
+ */
+public interface EntityCacheMonitorMXBean {
+
+   /**
+    * @return number of entities and collections read from the cache
+    */
+   long getHitCount();
+
+   /**
+    * @return number of entities and collections that had to be loaded from database
+    */
+   long getMissCount();
+
+   /**
+    * @return number of entities and collections stored in the cache
+    */
+   long getPutCount();
+
+   /**
+    * @return ratio of entities and collections read from the cache, 1.0 if there were no reads yet
+    */
+   double getHitRate();
+
+   /**
+    * @return number of query results read from the cache
+    */
+   long getQueryHitCount();
+
+   /**
+    * @return number of queries that had to be sent to database
+    */
+   long getQueryMissCount();
+
+   /**
+    * @return ratio of query results read from the cache, 1.0 if there were no queries yet
+    */
+   double getQueryHitRate();
+
+   /**
+    * @return names of the cache regions, i.e. cached entities, collections and queries
+    */
+   String[] getRegionNames();
+
+   /**
+    * Drops all cached entities, collections and query results, e.g. after direct change in database.
+    */
+   void evictAll();
+
+   /**
+    * Resets all counters.
+    */
+   void clearStatistics();
+}
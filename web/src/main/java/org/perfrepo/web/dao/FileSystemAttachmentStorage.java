@@ -0,0 +1,234 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import org.perfrepo.web.service.ApplicationConfiguration;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link AttachmentStorage} keeping the content in files of a directory, addressed by SHA-256 checksum and length of
+ * the content, so the same content uploaded repeatedly is stored only once. File of the key
+ * <code>abcdef...-1234</code> is <code>ab/cd/abcdef...-1234</code>, with suffix <code>.gz</code> if it's compressed.
+ *
+ * Content is written to a temporary file first and moved to its place atomically once it's complete, so readers never
+ * see partially written content. Storing content which already exists only updates time of the last modification of
+ * the file, which is the time the content was stored for {@link #getKeys(Date)}.
+ */
+@ApplicationScoped
+public class FileSystemAttachmentStorage implements AttachmentStorage {
+
+   public static final String NAME = "filesystem";
+
+   private static final String COMPRESSED_SUFFIX = ".gz";
+   private static final String TEMPORARY_DIRECTORY = "tmp";
+   private static final Pattern KEY = Pattern.compile("([0-9a-f]{64})-([0-9]+)");
+
+   private Path directory;
+   private boolean compressed;
+
+   @Inject
+   private ApplicationConfiguration configuration;
+
+   public FileSystemAttachmentStorage() {
+   }
+
+   /**
+    * @param directory
+    * @param compressed true if new content is compressed by gzip
+    */
+   public FileSystemAttachmentStorage(Path directory, boolean compressed) {
+      this.directory = directory;
+      this.compressed = compressed;
+   }
+
+   @PostConstruct
+   public void init() {
+      if (configuration != null) {
+         directory = Paths.get(configuration.getAttachmentStorageDirectory());
+         compressed = configuration.isAttachmentStorageCompressed();
+      }
+   }
+
+   @Override
+   public String getName() {
+      return NAME;
+   }
+
+   @Override
+   public String store(InputStream content, long length) throws IOException {
+      Path temporaryDirectory = Files.createDirectories(directory.resolve(TEMPORARY_DIRECTORY));
+      Path temporary = Files.createTempFile(temporaryDirectory, "content", null);
+      try {
+         MessageDigest digest = sha256();
+         CountingInputStream input = new CountingInputStream(new DigestInputStream(content, digest));
+         try (OutputStream output = compressed ? new GZIPOutputStream(Files.newOutputStream(temporary)) : Files.newOutputStream(temporary)) {
+            ByteStreams.copy(ByteStreams.limit(input, length), output);
+         }
+         if (input.getCount() != length || input.read() != -1) {
+            throw new IOException("Content doesn't have expected length " + length);
+         }
+
+         String key = BaseEncoding.base16().lowerCase().encode(digest.digest()) + "-" + length;
+         Path stored = find(key);
+         if (stored != null) {
+            Files.setLastModifiedTime(stored, FileTime.fromMillis(System.currentTimeMillis()));
+            return key;
+         }
+         Path target = getPath(key, compressed);
+         Files.createDirectories(target.getParent());
+         try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+         } catch (FileAlreadyExistsException e) {
+            // the same content was stored concurrently
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+         }
+         return key;
+      } finally {
+         Files.deleteIfExists(temporary);
+      }
+   }
+
+   @Override
+   public long getSize(String key) throws IOException {
+      return find(key) == null ? -1 : Long.parseLong(parse(key).group(2));
+   }
+
+   @Override
+   public void write(String key, long offset, long length, OutputStream output) throws IOException {
+      Path stored = find(key);
+      if (stored == null) {
+         throw new IOException("No content stored under key " + key);
+      }
+      if (length == 0) {
+         return;
+      }
+
+      if (stored.getFileName().toString().endsWith(COMPRESSED_SUFFIX)) {
+         try (InputStream input = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(stored)))) {
+            ByteStreams.skipFully(input, offset);
+            ByteStreams.copy(ByteStreams.limit(input, length), output);
+         }
+         return;
+      }
+
+      // uncompressed content doesn't have to be read from the start
+      try (FileChannel channel = FileChannel.open(stored, StandardOpenOption.READ)) {
+         if (ByteStreams.copy(ByteStreams.limit(Channels.newInputStream(channel.position(offset)), length), output) < length) {
+            throw new EOFException("Content stored under key " + key + " is shorter than expected");
+         }
+      }
+   }
+
+   @Override
+   public Collection<String> getKeys(Date storedBefore) throws IOException {
+      if (!Files.isDirectory(directory)) {
+         return Collections.emptyList();
+      }
+      List<String> keys = new ArrayList<>();
+      try (Stream<Path> files = Files.walk(directory, 3)) {
+         for (Path file : (Iterable<Path>) files::iterator) {
+            if (Files.isRegularFile(file) && KEY.matcher(toKey(file)).matches()
+                && Files.getLastModifiedTime(file).toMillis() < storedBefore.getTime()) {
+               keys.add(toKey(file));
+            }
+         }
+      }
+      return keys;
+   }
+
+   @Override
+   public boolean remove(String key, Date storedBefore) throws IOException {
+      boolean removed = false;
+      for (Path file : new Path[] {getPath(key, false), getPath(key, true)}) {
+         // the content may have been stored again since it was found unreferenced
+         if (Files.exists(file) && Files.getLastModifiedTime(file).toMillis() < storedBefore.getTime()) {
+            removed |= Files.deleteIfExists(file);
+         }
+      }
+      return removed;
+   }
+
+   /**
+    * @param key
+    * @return file of the content, null if there's no content stored under the key
+    */
+   private Path find(String key) {
+      for (Path file : new Path[] {getPath(key, compressed), getPath(key, !compressed)}) {
+         if (Files.exists(file)) {
+            return file;
+         }
+      }
+      return null;
+   }
+
+   private Path getPath(String key, boolean compressed) {
+      String checksum = parse(key).group(1);
+      return directory.resolve(checksum.substring(0, 2)).resolve(checksum.substring(2, 4)).resolve(compressed ? key + COMPRESSED_SUFFIX : key);
+   }
+
+   private static Matcher parse(String key) {
+      Matcher matcher = KEY.matcher(key);
+      if (!matcher.matches()) {
+         throw new IllegalArgumentException("Invalid attachment storage key " + key);
+      }
+      return matcher;
+   }
+
+   private static String toKey(Path file) {
+      String name = file.getFileName().toString();
+      return name.endsWith(COMPRESSED_SUFFIX) ? name.substring(0, name.length() - COMPRESSED_SUFFIX.length()) : name;
+   }
+
+   private static MessageDigest sha256() {
+      try {
+         return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException("SHA-256 is not supported", e);
+      }
+   }
+}
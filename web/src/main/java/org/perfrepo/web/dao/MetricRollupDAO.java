@@ -0,0 +1,312 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import com.google.common.collect.Lists;
+import org.hibernate.SQLQuery;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.MetricRollup.Granularity;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.Value;
+import org.perfrepo.model.util.QuantileSketch;
+
+import javax.inject.Named;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DAO for {@link MetricRollup}
+ *
+ * Rollups are updated incrementally when test executions are created, see {@link #add(Collection)}, and recomputed
+ * from the values of their period when values, start or tags of a test execution change or the test execution is
+ * removed, see {@link #refresh(Long, Long, Date, Collection)}. Increments are added by single
+ * INSERT ... ON CONFLICT DO UPDATE statement, recomputed rollups are locked while their values are read. Rollups are
+ * always updated in the same order, so concurrent updates don't deadlock.
+ */
+@Named
+public class MetricRollupDAO extends DAO<MetricRollup, Long> {
+
+   /**
+    * Maximal number of rollups in one statement.
+    */
+   private static final int CHUNK_SIZE = 1000;
+
+   /**
+    * Size of the quantile sketch in bytes above which it's compacted, sketches grow by every increment.
+    */
+   private static final int MAX_SKETCH_SIZE = 16384;
+
+   private static final Comparator<MetricRollup> LOCK_ORDER = Comparator.comparing(MetricRollup::getTestId)
+       .thenComparing(MetricRollup::getMetricId)
+       .thenComparing(MetricRollup::getTagSetId)
+       .thenComparing(MetricRollup::getGranularity)
+       .thenComparing(MetricRollup::getPeriodStart);
+
+   /**
+    * Adds values of newly created test executions to the rollups.
+    *
+    * @param testExecutions persisted test executions with their values and metrics
+    */
+   public void add(Collection<TestExecution> testExecutions) {
+      // values are aggregated first, every rollup is then updated only once
+      Map<MetricRollup, MetricRollup> increments = new TreeMap<>(LOCK_ORDER);
+      for (TestExecution testExecution : testExecutions) {
+         if (testExecution.getValues() == null) {
+            continue;
+         }
+         for (Value value : testExecution.getValues()) {
+            if (value.getResultValue() == null) {
+               continue;
+            }
+            for (Granularity granularity : Granularity.values()) {
+               MetricRollup key = new MetricRollup(testExecution.getTest().getId(), value.getMetric().getId(), tagSetKey(testExecution.getTagSetId()),
+                                                   granularity, granularity.truncate(testExecution.getStarted()));
+               increments.computeIfAbsent(key, k -> k).add(value.getResultValue(), testExecution.getId());
+            }
+         }
+      }
+
+      for (List<MetricRollup> chunk : Lists.partition(new ArrayList<>(increments.values()), CHUNK_SIZE)) {
+         for (Object[] row : increment(chunk)) {
+            Long id = ((Number) row[0]).longValue();
+            if ((Boolean) row[1]) {
+               // created by the migration, the quantiles are known once the rollup is recomputed
+               recompute(get(id));
+            } else if (row[2] != null) {
+               compact(id, (byte[]) row[2]);
+            }
+         }
+      }
+   }
+
+   /**
+    * Recomputes rollups of the period containing the start of test execution from the values currently stored.
+    *
+    * @param testId
+    * @param tagSetId set of tags of the test execution, null if it has no tags
+    * @param started start of the test execution
+    * @param metricIds metrics of the values of the test execution
+    */
+   public void refresh(Long testId, Long tagSetId, Date started, Collection<Long> metricIds) {
+      List<MetricRollup> keys = new ArrayList<>();
+      for (Long metricId : metricIds) {
+         for (Granularity granularity : Granularity.values()) {
+            keys.add(new MetricRollup(testId, metricId, tagSetKey(tagSetId), granularity, granularity.truncate(started)));
+         }
+      }
+      keys.sort(LOCK_ORDER);
+
+      for (MetricRollup key : keys) {
+         MetricRollup rollup = getForUpdate(key);
+         recompute(rollup);
+         if (rollup.getCount() == 0) {
+            remove(rollup);
+         }
+      }
+   }
+
+   /**
+    * Retrieves rollups of the metric of test executions having all the tags, rollups of the same period are merged.
+    *
+    * @param testId
+    * @param metricId
+    * @param tags tags the test executions have, all test executions of the test if empty
+    * @param granularity
+    * @param from
+    * @param to
+    * @return detached rollups ordered by the start of the period, with tag set {@link MetricRollup#NO_TAGS}
+    */
+   public List<MetricRollup> find(Long testId, Long metricId, List<String> tags, Granularity granularity, Date from, Date to) {
+      boolean useTags = tags != null && !tags.isEmpty();
+      StringBuilder jpql = new StringBuilder("SELECT r FROM MetricRollup r WHERE r.testId = :testId AND r.metricId = :metricId AND r.granularity = :granularity "
+                                                 + "AND r.periodStart >= :from AND r.periodStart <= :to");
+      if (useTags) {
+         jpql.append(" AND r.tagSetId IN (SELECT s.id FROM TagSet s JOIN s.tagEntities t WHERE t.name IN :tags GROUP BY s.id HAVING count(DISTINCT t.id) >= :tagCount)");
+      }
+      jpql.append(" ORDER BY r.periodStart");
+
+      TypedQuery<MetricRollup> query = entityManager().createQuery(jpql.toString(), MetricRollup.class)
+          .setParameter("testId", testId)
+          .setParameter("metricId", metricId)
+          .setParameter("granularity", granularity)
+          .setParameter("from", granularity.truncate(from))
+          .setParameter("to", to);
+      if (useTags) {
+         query.setParameter("tags", tags);
+         query.setParameter("tagCount", (long) tags.size());
+      }
+
+      List<MetricRollup> result = new ArrayList<>();
+      for (MetricRollup rollup : query.getResultList()) {
+         MetricRollup last = result.isEmpty() ? null : result.get(result.size() - 1);
+         if (last == null || !last.getPeriodStart().equals(rollup.getPeriodStart())) {
+            last = new MetricRollup(testId, metricId, MetricRollup.NO_TAGS, granularity, rollup.getPeriodStart());
+            result.add(last);
+         }
+         last.merge(rollup);
+      }
+      return result;
+   }
+
+   /**
+    * Removes all rollups of the test.
+    *
+    * @param testId
+    */
+   public void removeByTest(Long testId) {
+      entityManager().createQuery("DELETE FROM MetricRollup r WHERE r.testId = :testId")
+          .setParameter("testId", testId)
+          .executeUpdate();
+   }
+
+   /**
+    * Removes all rollups of the metric of the test, e.g. when the metric is removed from the test.
+    *
+    * @param testId
+    * @param metricId
+    */
+   public void removeByTestAndMetric(Long testId, Long metricId) {
+      entityManager().createQuery("DELETE FROM MetricRollup r WHERE r.testId = :testId AND r.metricId = :metricId")
+          .setParameter("testId", testId)
+          .setParameter("metricId", metricId)
+          .executeUpdate();
+   }
+
+   /**
+    * Retrieves the rollup locked for update, empty rollup is created if it doesn't exist.
+    *
+    * @param key rollup with test, metric, tag set, granularity and start of the period set
+    * @return locked rollup
+    */
+   private MetricRollup getForUpdate(MetricRollup key) {
+      // concurrent transactions may create the same rollup, the insert is ignored then
+      Query insert = entityManager().createNativeQuery("INSERT INTO metric_rollup (id, test_id, metric_id, tag_set_id, granularity, period_start, count, sum, sum_of_squares) "
+                                                           + "VALUES (nextval('metric_rollup_sequence'), ?, ?, ?, ?, ?, 0, 0, 0) ON CONFLICT DO NOTHING");
+      // otherwise the whole second level cache would be invalidated
+      insert.unwrap(SQLQuery.class).addSynchronizedEntityClass(MetricRollup.class);
+      insert.setParameter(1, key.getTestId())
+          .setParameter(2, key.getMetricId())
+          .setParameter(3, key.getTagSetId())
+          .setParameter(4, key.getGranularity().name())
+          .setParameter(5, key.getPeriodStart())
+          .executeUpdate();
+
+      return entityManager().createQuery("SELECT r FROM MetricRollup r WHERE r.testId = :testId AND r.metricId = :metricId AND r.tagSetId = :tagSetId "
+                                             + "AND r.granularity = :granularity AND r.periodStart = :periodStart", MetricRollup.class)
+          .setParameter("testId", key.getTestId())
+          .setParameter("metricId", key.getMetricId())
+          .setParameter("tagSetId", key.getTagSetId())
+          .setParameter("granularity", key.getGranularity())
+          .setParameter("periodStart", key.getPeriodStart())
+          .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+          .getSingleResult();
+   }
+
+   /**
+    * Adds the increments to the rollups, rollups that don't exist are created. Sketches are merged by concatenation,
+    * see {@link QuantileSketch#fromBytes(byte[])}. Updated rows stay locked until the end of the transaction.
+    *
+    * @param increments rollups with the values to add, in lock order
+    * @return ID of the rollup, whether its quantiles are unknown and its sketch if it should be compacted, for every
+    * increment
+    */
+   @SuppressWarnings("unchecked")
+   private List<Object[]> increment(List<MetricRollup> increments) {
+      StringBuilder sql = new StringBuilder("INSERT INTO metric_rollup (id, test_id, metric_id, tag_set_id, granularity, period_start, count, min, max, sum, sum_of_squares, "
+                                                + "sketch, last_test_execution_id) SELECT nextval('metric_rollup_sequence'), input.* FROM (VALUES ");
+      for (int i = 0; i < increments.size(); i++) {
+         sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+      }
+      sql.append(") AS input(test_id, metric_id, tag_set_id, granularity, period_start, count, min, max, sum, sum_of_squares, sketch, last_test_execution_id) ")
+          .append("ORDER BY input.test_id, input.metric_id, input.tag_set_id, input.granularity, input.period_start ")
+          .append("ON CONFLICT (test_id, metric_id, tag_set_id, granularity, period_start) DO UPDATE SET ")
+          .append("count = metric_rollup.count + EXCLUDED.count, min = least(metric_rollup.min, EXCLUDED.min), max = greatest(metric_rollup.max, EXCLUDED.max), ")
+          .append("sum = metric_rollup.sum + EXCLUDED.sum, sum_of_squares = metric_rollup.sum_of_squares + EXCLUDED.sum_of_squares, ")
+          // rollups created by the migration have no sketch and stay without it
+          .append("sketch = CASE WHEN metric_rollup.count = 0 THEN EXCLUDED.sketch ELSE metric_rollup.sketch || EXCLUDED.sketch END, ")
+          .append("last_test_execution_id = greatest(metric_rollup.last_test_execution_id, EXCLUDED.last_test_execution_id) ")
+          .append("RETURNING id, sketch IS NULL, CASE WHEN octet_length(sketch) > ? THEN sketch END");
+
+      Query insert = entityManager().createNativeQuery(sql.toString());
+      // otherwise the whole second level cache would be invalidated
+      insert.unwrap(SQLQuery.class).addSynchronizedEntityClass(MetricRollup.class);
+      int parameter = 1;
+      for (MetricRollup increment : increments) {
+         insert.setParameter(parameter++, increment.getTestId())
+             .setParameter(parameter++, increment.getMetricId())
+             .setParameter(parameter++, increment.getTagSetId())
+             .setParameter(parameter++, increment.getGranularity().name())
+             .setParameter(parameter++, increment.getPeriodStart())
+             .setParameter(parameter++, increment.getCount())
+             .setParameter(parameter++, increment.getMin())
+             .setParameter(parameter++, increment.getMax())
+             .setParameter(parameter++, increment.getSum())
+             .setParameter(parameter++, increment.getSumOfSquares())
+             .setParameter(parameter++, increment.getSketch())
+             .setParameter(parameter++, increment.getLastTestExecutionId());
+      }
+      insert.setParameter(parameter, MAX_SKETCH_SIZE);
+      return insert.getResultList();
+   }
+
+   /**
+    * Replaces the sketch of the rollup by its compacted form. The rollup has to be locked.
+    *
+    * @param id
+    * @param sketch current sketch of the rollup
+    */
+   private void compact(Long id, byte[] sketch) {
+      Query update = entityManager().createNativeQuery("UPDATE metric_rollup SET sketch = ? WHERE id = ?");
+      update.unwrap(SQLQuery.class).addSynchronizedEntityClass(MetricRollup.class);
+      update.setParameter(1, QuantileSketch.fromBytes(sketch).toBytes())
+          .setParameter(2, id)
+          .executeUpdate();
+   }
+
+   /**
+    * Replaces content of the rollup by all values of its period.
+    *
+    * @param rollup
+    */
+   private void recompute(MetricRollup rollup) {
+      List<Object[]> values = entityManager().createQuery("SELECT v.resultValue, te.id FROM Value v JOIN v.testExecution te "
+                                                              + "WHERE te.test.id = :testId AND v.metric.id = :metricId AND coalesce(te.tagSetId, 0) = :tagSetId "
+                                                              + "AND te.started >= :from AND te.started < :to AND v.started >= :from AND v.started < :to "
+                                                              + "AND v.resultValue IS NOT NULL", Object[].class)
+          .setParameter("testId", rollup.getTestId())
+          .setParameter("metricId", rollup.getMetricId())
+          .setParameter("tagSetId", rollup.getTagSetId())
+          .setParameter("from", rollup.getPeriodStart())
+          .setParameter("to", rollup.getGranularity().next(rollup.getPeriodStart()))
+          .getResultList();
+
+      rollup.clear();
+      for (Object[] value : values) {
+         rollup.add((Double) value[0], (Long) value[1]);
+      }
+   }
+
+   private static Long tagSetKey(Long tagSetId) {
+      return tagSetId == null ? MetricRollup.NO_TAGS : tagSetId;
+   }
+}
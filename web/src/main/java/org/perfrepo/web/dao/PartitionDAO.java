@@ -0,0 +1,159 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DAO for monthly partitions of test executions and their values, see <code>partitioning_1_8.sql</code>. Used by
+ * the retention to remove test executions by whole months. Test executions of one month are stored in partitions
+ * <code>test_execution_YYYY_MM</code>, <code>value_YYYY_MM</code> and <code>value_parameter_YYYY_MM</code>.
+ *
+ * If the tables are not partitioned, the same is done by set based deletes by the start of the test executions.
+ */
+@Named
+public class PartitionDAO {
+
+   /**
+    * Schema the archived partitions are moved to.
+    */
+   public static final String ARCHIVE_SCHEMA = "perfrepo_archive";
+
+   /**
+    * Tables partitioned by the start of the test execution, in the order they can be removed.
+    */
+   private static final String[] PARTITIONED_TABLES = {"value_parameter", "value", "test_execution"};
+
+   /**
+    * Tables referencing test executions that are not partitioned.
+    */
+   private static final String[] REFERENCING_TABLES = {"test_execution_parameter", "test_execution_tag", "test_execution_attachment", "alert_outbox"};
+
+   private static final Pattern MONTHLY_PARTITION = Pattern.compile("test_execution_(\\d{4}_\\d{2})");
+
+   private static final String MONTH_FORMAT = "yyyy_MM";
+
+   @PersistenceContext(unitName = "PerfRepoPU")
+   private EntityManager em;
+
+   /**
+    * @return true if the test executions are stored in monthly partitions
+    */
+   public boolean isPartitioned() {
+      Number count = (Number) em.createNativeQuery("SELECT count(*) FROM pg_class c WHERE c.relname = 'test_execution' AND c.relkind = 'p' AND pg_table_is_visible(c.oid)")
+          .getSingleResult();
+      return count.intValue() > 0;
+   }
+
+   /**
+    * Creates the missing partitions of all months from now until the given date.
+    *
+    * @param until
+    */
+   public void createPartitions(Date until) {
+      for (String table : PARTITIONED_TABLES) {
+         em.createNativeQuery("SELECT perfrepo_create_monthly_partitions(CAST(? AS text), CAST(now() AS timestamp), CAST(? AS timestamp))")
+             .setParameter(1, table)
+             .setParameter(2, until)
+             .getResultList();
+      }
+   }
+
+   /**
+    * @return first days of the months that have a partition, ordered from the oldest
+    */
+   public List<Date> getPartitionedMonths() {
+      @SuppressWarnings("unchecked")
+      List<String> partitions = em.createNativeQuery("SELECT CAST(c.relname AS text) FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                                                         + "WHERE p.relname = 'test_execution' AND pg_table_is_visible(p.oid) ORDER BY c.relname")
+          .getResultList();
+
+      List<Date> months = new ArrayList<>();
+      for (String partition : partitions) {
+         Matcher matcher = MONTHLY_PARTITION.matcher(partition);
+         if (matcher.matches()) {
+            try {
+               months.add(new SimpleDateFormat(MONTH_FORMAT).parse(matcher.group(1)));
+            } catch (ParseException e) {
+               throw new IllegalStateException("Unexpected name of partition " + partition, e);
+            }
+         }
+      }
+      return months;
+   }
+
+   /**
+    * Removes the partitions of the month together with the rows referencing its test executions.
+    *
+    * @param month first day of the month
+    * @param archive whether the partitions and the referencing rows are moved to {@link #ARCHIVE_SCHEMA} instead of
+    * being dropped
+    * @return number of removed test executions
+    */
+   public int removeMonth(Date month, boolean archive) {
+      String suffix = new SimpleDateFormat(MONTH_FORMAT).format(month);
+      String executions = "SELECT id FROM test_execution_" + suffix;
+
+      int count = ((Number) em.createNativeQuery("SELECT count(*) FROM test_execution_" + suffix).getSingleResult()).intValue();
+      if (archive) {
+         // attachment content references the attachments, it's deleted together with them
+         em.createNativeQuery("CREATE TABLE " + ARCHIVE_SCHEMA + ".test_execution_attachment_content_" + suffix + " AS SELECT c.* FROM test_execution_attachment_content c "
+                                  + "JOIN test_execution_attachment a ON a.id = c.attachment_id WHERE a.test_execution_id IN (" + executions + ")")
+             .executeUpdate();
+      }
+      // archived attachment content still references the large objects, the trigger mustn't unlink them
+      em.createNativeQuery("SELECT set_config('perfrepo.keep_attachment_content', ?, true)").setParameter(1, archive ? "on" : "off").getSingleResult();
+      for (String table : REFERENCING_TABLES) {
+         if (archive) {
+            em.createNativeQuery("CREATE TABLE " + ARCHIVE_SCHEMA + "." + table + "_" + suffix + " AS SELECT * FROM " + table + " WHERE test_execution_id IN (" + executions + ")")
+                .executeUpdate();
+         }
+         em.createNativeQuery("DELETE FROM " + table + " WHERE test_execution_id IN (" + executions + ")").executeUpdate();
+      }
+      for (String table : PARTITIONED_TABLES) {
+         String partition = table + "_" + suffix;
+         em.createNativeQuery("ALTER TABLE " + table + " DETACH PARTITION " + partition).executeUpdate();
+         em.createNativeQuery(archive ? "ALTER TABLE " + partition + " SET SCHEMA " + ARCHIVE_SCHEMA : "DROP TABLE " + partition).executeUpdate();
+      }
+
+      return count;
+   }
+
+   /**
+    * Deletes test executions started before the given date together with all rows referencing them, by one
+    * statement per table. Used if the tables are not partitioned.
+    *
+    * @param before
+    * @return number of removed test executions
+    */
+   public int deleteStartedBefore(Date before) {
+      String executions = "SELECT id FROM test_execution WHERE started < ?";
+      for (String table : REFERENCING_TABLES) {
+         em.createNativeQuery("DELETE FROM " + table + " WHERE test_execution_id IN (" + executions + ")").setParameter(1, before).executeUpdate();
+      }
+      em.createNativeQuery("DELETE FROM value_parameter WHERE started < ?").setParameter(1, before).executeUpdate();
+      em.createNativeQuery("DELETE FROM value WHERE started < ?").setParameter(1, before).executeUpdate();
+      return em.createNativeQuery("DELETE FROM test_execution WHERE started < ?").setParameter(1, before).executeUpdate();
+   }
+}
@@ -0,0 +1,42 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.hibernate.dialect.PostgreSQL82Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * PostgreSQL dialect with few extra functions used by the DAOs, which cannot be expressed in JPQL/Criteria API.
+ *
+ * <ul>
+ * <li><code>total_count(x)</code> - window function <code>count(x) over ()</code>, i.e. number of rows of the whole
+ * result regardless of LIMIT/OFFSET. Used to retrieve total count of the search results in the same query as the
+ * page itself.</li>
+ * <li><code>version_key(x)</code> - converts version string (e.g. 6.4.0.GA) into numeric array of its numeric parts,
+ * so the versions can be ordered in the database.</li>
+ * </ul>
+ */
+public class PerfRepoPostgreSQLDialect extends PostgreSQL82Dialect {
+
+   public static final String TOTAL_COUNT = "total_count";
+   public static final String VERSION_KEY = "version_key";
+
+   public PerfRepoPostgreSQLDialect() {
+      super();
+      registerFunction(TOTAL_COUNT, new SQLFunctionTemplate(StandardBasicTypes.LONG, "count(?1) over ()"));
+      registerFunction(VERSION_KEY, new SQLFunctionTemplate(StandardBasicTypes.STRING, "cast(array_remove(regexp_split_to_array(?1, '[^0-9]+'), '') as numeric[])"));
+   }
+}
@@ -15,7 +15,6 @@
 package org.perfrepo.web.dao;
 
 import org.perfrepo.model.auth.Permission;
-import org.perfrepo.model.report.Report;
 
 import javax.inject.Named;
 import java.util.List;
@@ -35,8 +34,7 @@ public class PermissionDAO extends DAO<Permission, Long> {
     * @return
     */
    public List<Permission> getByReport(Long reportId) {
-      Report report = new Report(reportId);
-      return getAllByProperty("report", report);
+      return createNamedQuery(Permission.FIND_BY_REPORT, Permission.class).setParameter("reportId", reportId).getResultList();
    }
 
    /**
@@ -0,0 +1,138 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.apache.commons.codec.binary.Base64;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.to.OrderBy;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Position in the cursor-based (keyset) search of test executions. Holds the ordering key of the last
+ * returned test execution (started date or name, depending on ordering) together with its id, which breaks the ties.
+ *
+ * Cursor is passed to the clients as an opaque URL-safe token. Started date is encoded with the full precision of
+ * the database timestamp, milliseconds aren't enough to tell apart test executions started within the same millisecond.
+ */
+public class SearchCursor {
+
+   private static final String SEPARATOR = ":";
+   private static final String NANOS_SEPARATOR = ".";
+
+   private final OrderBy orderBy;
+   private final Long id;
+   private final String key;
+
+   private SearchCursor(OrderBy orderBy, Long id, String key) {
+      this.orderBy = orderBy;
+      this.id = id;
+      this.key = key;
+   }
+
+   /**
+    * Creates cursor pointing after the test execution.
+    *
+    * @param orderBy ordering of the search
+    * @param lastExecution last test execution of the page
+    * @return
+    */
+   public static SearchCursor after(OrderBy orderBy, TestExecution lastExecution) {
+      String key = isOrderedByDate(orderBy) ? encodeStarted(lastExecution.getStarted()) : lastExecution.getName();
+      return new SearchCursor(orderBy, lastExecution.getId(), key);
+   }
+
+   /**
+    * Decodes the token created by {@link #encode()}.
+    *
+    * @param token
+    * @param orderBy ordering of the search, must be the same as the ordering the cursor was created for
+    * @return cursor, null if the token is empty (i.e. first page is requested)
+    * @throws IllegalArgumentException if the token is malformed or ordering doesn't match
+    */
+   public static SearchCursor decode(String token, OrderBy orderBy) {
+      if (!isSupported(orderBy)) {
+         throw new IllegalArgumentException("Cursor-based search is supported only with DATE_* and NAME_* ordering.");
+      }
+      if (token == null || token.trim().isEmpty()) {
+         return null;
+      }
+
+      String[] parts = new String(Base64.decodeBase64(token), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+      if (parts.length != 3 || !orderBy.name().equals(parts[0])) {
+         throw new IllegalArgumentException("Invalid search cursor.");
+      }
+
+      try {
+         SearchCursor cursor = new SearchCursor(orderBy, Long.valueOf(parts[1]), parts[2]);
+         if (isOrderedByDate(orderBy)) {
+            cursor.getStarted();
+         }
+         return cursor;
+      } catch (NumberFormatException e) {
+         throw new IllegalArgumentException("Invalid search cursor.", e);
+      }
+   }
+
+   /**
+    * @return opaque token representing the cursor
+    */
+   public String encode() {
+      String plain = orderBy.name() + SEPARATOR + id + SEPARATOR + key;
+      return Base64.encodeBase64URLSafeString(plain.getBytes(StandardCharsets.UTF_8));
+   }
+
+   public static boolean isSupported(OrderBy orderBy) {
+      return isOrderedByDate(orderBy) || orderBy == OrderBy.NAME_ASC || orderBy == OrderBy.NAME_DESC;
+   }
+
+   public static boolean isOrderedByDate(OrderBy orderBy) {
+      return orderBy == OrderBy.DATE_ASC || orderBy == OrderBy.DATE_DESC;
+   }
+
+   public OrderBy getOrderBy() {
+      return orderBy;
+   }
+
+   public Long getId() {
+      return id;
+   }
+
+   public Date getStarted() {
+      // milliseconds since epoch followed by nanoseconds of the second
+      int separator = key.indexOf(NANOS_SEPARATOR);
+      if (separator < 0) {
+         return new Timestamp(Long.parseLong(key));
+      }
+      Timestamp started = new Timestamp(Long.parseLong(key.substring(0, separator)));
+      int nanos = Integer.parseInt(key.substring(separator + 1));
+      if (nanos < 0 || nanos > 999999999 || nanos / 1000000 != started.getNanos() / 1000000) {
+         throw new NumberFormatException("Nanoseconds don't match milliseconds: " + key);
+      }
+      started.setNanos(nanos);
+      return started;
+   }
+
+   public String getName() {
+      return key;
+   }
+
+   private static String encodeStarted(Date started) {
+      int nanos = started instanceof Timestamp ? ((Timestamp) started).getNanos() : (int) Math.floorMod(started.getTime(), 1000L) * 1000000;
+      return started.getTime() + NANOS_SEPARATOR + nanos;
+   }
+}
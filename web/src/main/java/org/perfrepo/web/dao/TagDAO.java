@@ -14,13 +14,21 @@
  */
 package org.perfrepo.web.dao;
 
+import com.google.common.collect.Lists;
+import org.hibernate.SQLQuery;
 import org.perfrepo.model.Tag;
 
 import javax.inject.Named;
+import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * DAO for {@link Tag}
@@ -31,14 +39,72 @@ import java.util.List;
 @Named
 public class TagDAO extends DAO<Tag, Long> {
 
+   /**
+    * Maximal number of tag names in one statement.
+    */
+   private static final int CHUNK_SIZE = 1000;
+
    public Tag findByName(String name) {
-      List<Tag> tags = getAllByProperty("name", name);
+      List<Tag> tags = createNamedQuery(Tag.FIND_BY_NAME, Tag.class).setParameter("name", name).getResultList();
       if (tags.size() > 0) {
          return tags.get(0);
       }
       return null;
    }
 
+   /**
+    * Retrieves all tags with given names in one query.
+    *
+    * @param names
+    * @return tags that exist, tags that don't exist are omitted
+    */
+   public List<Tag> findByNames(Collection<String> names) {
+      if (names.isEmpty()) {
+         return new ArrayList<>();
+      }
+      return getAllByPropertyIn("name", new ArrayList<Object>(names));
+   }
+
+   /**
+    * Retrieves IDs of the tags with given names, tags that don't exist are created. Missing tags are inserted by
+    * single INSERT ... ON CONFLICT DO NOTHING statement, so concurrent transactions creating the same tag don't fail
+    * on the unique name, the later one waits for the earlier one to commit and uses its tag. The tags are inserted
+    * in the order of their names, so such transactions don't deadlock.
+    *
+    * @param names distinct names of the tags
+    * @return IDs of the tags by their names
+    */
+   public Map<String, Long> getOrCreateIds(Collection<String> names) {
+      Map<String, Long> ids = findIds(names);
+      List<String> missing = names.stream().filter(name -> !ids.containsKey(name)).sorted().collect(Collectors.toList());
+      if (missing.isEmpty()) {
+         return ids;
+      }
+
+      for (List<String> chunk : Lists.partition(missing, CHUNK_SIZE)) {
+         StringBuilder sql = new StringBuilder("INSERT INTO tag (id, name) SELECT nextval('tag_sequence'), input.name FROM (VALUES ");
+         for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "(?)" : ", (?)");
+         }
+         sql.append(") AS input(name) ORDER BY input.name ON CONFLICT (name) DO NOTHING");
+
+         Query insert = entityManager().createNativeQuery(sql.toString());
+         // otherwise the whole second level cache would be invalidated
+         insert.unwrap(SQLQuery.class).addSynchronizedEntityClass(Tag.class);
+         for (int i = 0; i < chunk.size(); i++) {
+            insert.setParameter(i + 1, chunk.get(i));
+         }
+         insert.executeUpdate();
+      }
+
+      // tags inserted concurrently are committed once the insert returns, new query sees them
+      ids.putAll(findIds(missing));
+      if (ids.size() < names.size()) {
+         throw new IllegalStateException("Unable to create tags " + names.stream().filter(name -> !ids.containsKey(name)).collect(Collectors.toList()));
+      }
+      return ids;
+   }
+
    public List<Tag> findByPrefix(String prefix) {
       CriteriaQuery<Tag> criteria = createCriteria();
       Root<Tag> root = criteria.from(Tag.class);
@@ -47,4 +113,23 @@ public class TagDAO extends DAO<Tag, Long> {
       criteria.where(cb.like(cb.lower(root.<String>get("name")), prefix.toLowerCase() + "%"));
       return query(criteria).getResultList();
    }
-}
\ No newline at end of file
+
+   /**
+    * Helper method. Retrieves IDs of existing tags with given names.
+    *
+    * @param names
+    * @return IDs of the tags by their names
+    */
+   private Map<String, Long> findIds(Collection<String> names) {
+      Map<String, Long> ids = new HashMap<>();
+      for (List<String> chunk : Lists.partition(new ArrayList<>(names), CHUNK_SIZE)) {
+         List<Object[]> rows = entityManager().createQuery("SELECT tag.id, tag.name FROM Tag tag WHERE tag.name IN :names", Object[].class)
+             .setParameter("names", chunk)
+             .getResultList();
+         for (Object[] row : rows) {
+            ids.put((String) row[1], (Long) row[0]);
+         }
+      }
+      return ids;
+   }
+}
@@ -0,0 +1,369 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.perfrepo.web.util.CompressedBitmap;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Globally scoped in-memory index of tags, holds IDs of the test executions of every tag in a {@link CompressedBitmap}.
+ * It's used by {@link TestExecutionDAO} to resolve tag criteria of the searches by bitmap operations, instead of
+ * joining the tags in database.
+ *
+ * The index is loaded from database on the first use. Every change of tags of test executions has to be reported by
+ * {@link #addTags(Long, Collection)}, {@link #removeTags(Long, Collection)}, {@link #setTags(Long, Collection)} or
+ * {@link #removeTestExecution(Long)}. If called in a transaction, the change is applied after the transaction
+ * commits, the index never holds uncommitted tags.
+ *
+ * Tags of every test execution are kept as well, so a change of one test execution touches only bitmaps of its own
+ * tags. Test executions with the same tags share one immutable set of them.
+ */
+@ApplicationScoped
+public class TagIndex {
+
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+   // guarded by lock
+   private final Map<String, CompressedBitmap> executionsByTag = new HashMap<>();
+   private final Map<String, Set<String>> tagsByLowerCaseName = new HashMap<>();
+   private final Map<Integer, Set<String>> tagsByExecution = new HashMap<>();
+   // canonical instances of the sets in tagsByExecution, kept until the index is cleared, there are about as many of
+   // them as there are tag sets
+   private final Map<Set<String>, Set<String>> tagSets = new HashMap<>();
+   private boolean loaded = false;
+   // set if there is a test execution ID out of range of the bitmaps, the index can't be used then
+   private boolean overflow = false;
+   // changes committed while the index is being loaded, null if the index is not being loaded
+   private List<Consumer<TagIndex>> pendingChanges = null;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   /**
+    * @return true if the index is loaded and can be used
+    */
+   public boolean isLoaded() {
+      lock.readLock().lock();
+      try {
+         return loaded;
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Starts loading of the index, changes reported from now on are applied after the load.
+    *
+    * @return false if the index is already loaded or being loaded
+    */
+   public boolean beginLoad() {
+      lock.writeLock().lock();
+      try {
+         if (loaded || pendingChanges != null) {
+            return false;
+         }
+         pendingChanges = new ArrayList<>();
+         return true;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Finishes loading of the index started by {@link #beginLoad()}.
+    *
+    * @param rows [test execution ID, tag name] of all test executions, null if the loading failed
+    */
+   public void finishLoad(List<Object[]> rows) {
+      lock.writeLock().lock();
+      try {
+         if (rows != null) {
+            clear();
+            Map<Long, List<String>> tagsById = new LinkedHashMap<>();
+            for (Object[] row : rows) {
+               tagsById.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+            tagsById.forEach(this::add);
+            pendingChanges.forEach(change -> change.accept(this));
+            loaded = true;
+         }
+         pendingChanges = null;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Drops the index, it's loaded again on the next use.
+    */
+   public void invalidate() {
+      lock.writeLock().lock();
+      try {
+         loaded = false;
+         clear();
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Resolves tag criteria.
+    *
+    * @param includedTags tags the test execution must have all of
+    * @param excludedTags tags the test execution must not have any of
+    * @param ignoreCase whether the tag names are compared case insensitively, the names are expected in lower case then
+    * @return IDs of test executions having all included tags and none of the excluded ones, if there are no included
+    * tags, IDs of test executions having any of the excluded tags; null if the index is not loaded
+    */
+   public CompressedBitmap match(Collection<String> includedTags, Collection<String> excludedTags, boolean ignoreCase) {
+      lock.readLock().lock();
+      try {
+         if (!loaded || overflow) {
+            return null;
+         }
+
+         CompressedBitmap excluded = new CompressedBitmap();
+         for (String tag : excludedTags) {
+            excluded = excluded.or(lookup(tag, ignoreCase));
+         }
+         if (includedTags.isEmpty()) {
+            return excluded;
+         }
+
+         CompressedBitmap result = null;
+         for (String tag : includedTags) {
+            CompressedBitmap executions = lookup(tag, ignoreCase);
+            result = result == null ? executions : result.and(executions);
+         }
+         return result.andNot(excluded);
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * @return number of distinct tags in the index
+    */
+   public int size() {
+      lock.readLock().lock();
+      try {
+         return executionsByTag.size();
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   public void addTags(Long testExecutionId, Collection<String> tags) {
+      List<String> tagsCopy = new ArrayList<>(tags);
+      afterCommit(index -> index.add(testExecutionId, tagsCopy));
+   }
+
+   public void removeTags(Long testExecutionId, Collection<String> tags) {
+      List<String> tagsCopy = new ArrayList<>(tags);
+      afterCommit(index -> index.remove(testExecutionId, tagsCopy));
+   }
+
+   /**
+    * Replaces all tags of the test execution.
+    *
+    * @param testExecutionId
+    * @param tags
+    */
+   public void setTags(Long testExecutionId, Collection<String> tags) {
+      List<String> tagsCopy = new ArrayList<>(tags);
+      afterCommit(index -> {
+         index.removeAll(testExecutionId);
+         index.add(testExecutionId, tagsCopy);
+      });
+   }
+
+   public void removeTestExecution(Long testExecutionId) {
+      afterCommit(index -> index.removeAll(testExecutionId));
+   }
+
+   /**
+    * Adds the tags to all the test executions by one change of the index, used by bulk operations.
+    *
+    * @param testExecutionIds
+    * @param tags
+    */
+   public void addTags(Collection<Long> testExecutionIds, Collection<String> tags) {
+      List<Long> idsCopy = new ArrayList<>(testExecutionIds);
+      List<String> tagsCopy = new ArrayList<>(tags);
+      afterCommit(index -> idsCopy.forEach(id -> index.add(id, tagsCopy)));
+   }
+
+   /**
+    * Removes the tags from all the test executions by one change of the index, used by bulk operations.
+    *
+    * @param testExecutionIds
+    * @param tags
+    */
+   public void removeTags(Collection<Long> testExecutionIds, Collection<String> tags) {
+      List<Long> idsCopy = new ArrayList<>(testExecutionIds);
+      List<String> tagsCopy = new ArrayList<>(tags);
+      afterCommit(index -> idsCopy.forEach(id -> index.remove(id, tagsCopy)));
+   }
+
+   public void removeTestExecutions(Collection<Long> testExecutionIds) {
+      List<Long> idsCopy = new ArrayList<>(testExecutionIds);
+      afterCommit(index -> idsCopy.forEach(index::removeAll));
+   }
+
+   public void setTransactionSynchronizationRegistry(TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+      this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+   }
+
+   private void afterCommit(Consumer<TagIndex> change) {
+      if (transactionSynchronizationRegistry != null && transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+         transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+               if (status == Status.STATUS_COMMITTED) {
+                  apply(change);
+               }
+            }
+         });
+      } else {
+         apply(change);
+      }
+   }
+
+   private void apply(Consumer<TagIndex> change) {
+      lock.writeLock().lock();
+      try {
+         if (pendingChanges != null) {
+            pendingChanges.add(change);
+         }
+         if (loaded) {
+            change.accept(this);
+         }
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   private CompressedBitmap lookup(String tag, boolean ignoreCase) {
+      if (!ignoreCase) {
+         return executionsByTag.getOrDefault(tag, new CompressedBitmap());
+      }
+
+      CompressedBitmap result = new CompressedBitmap();
+      for (String name : tagsByLowerCaseName.getOrDefault(tag, new HashSet<>())) {
+         result = result.or(executionsByTag.get(name));
+      }
+      return result;
+   }
+
+   private void clear() {
+      overflow = false;
+      executionsByTag.clear();
+      tagsByLowerCaseName.clear();
+      tagsByExecution.clear();
+      tagSets.clear();
+   }
+
+   private void add(Long testExecutionId, Collection<String> tags) {
+      if (testExecutionId > Integer.MAX_VALUE) {
+         overflow = true;
+         return;
+      }
+      int id = testExecutionId.intValue();
+      Set<String> current = tagsByExecution.getOrDefault(id, Collections.emptySet());
+      Set<String> updated = new HashSet<>(current);
+      for (String tag : tags) {
+         if (updated.add(tag)) {
+            executionsByTag.computeIfAbsent(tag, name -> new CompressedBitmap()).add(id);
+            tagsByLowerCaseName.computeIfAbsent(tag.toLowerCase(), name -> new HashSet<>()).add(tag);
+         }
+      }
+      if (updated.size() > current.size()) {
+         tagsByExecution.put(id, canonical(updated));
+      }
+   }
+
+   private void remove(Long testExecutionId, Collection<String> tags) {
+      if (testExecutionId > Integer.MAX_VALUE) {
+         return;
+      }
+      int id = testExecutionId.intValue();
+      Set<String> current = tagsByExecution.get(id);
+      if (current == null) {
+         return;
+      }
+      Set<String> updated = new HashSet<>(current);
+      for (String tag : tags) {
+         if (updated.remove(tag)) {
+            removeFromBitmap(id, tag);
+         }
+      }
+      if (updated.isEmpty()) {
+         tagsByExecution.remove(id);
+      } else if (updated.size() < current.size()) {
+         tagsByExecution.put(id, canonical(updated));
+      }
+   }
+
+   private void removeAll(Long testExecutionId) {
+      if (testExecutionId > Integer.MAX_VALUE) {
+         return;
+      }
+      Set<String> tags = tagsByExecution.remove(testExecutionId.intValue());
+      if (tags != null) {
+         tags.forEach(tag -> removeFromBitmap(testExecutionId.intValue(), tag));
+      }
+   }
+
+   private void removeFromBitmap(int testExecutionId, String tag) {
+      CompressedBitmap executions = executionsByTag.get(tag);
+      if (executions != null && executions.remove(testExecutionId) && executions.isEmpty()) {
+         executionsByTag.remove(tag);
+         Set<String> names = tagsByLowerCaseName.get(tag.toLowerCase());
+         names.remove(tag);
+         if (names.isEmpty()) {
+            tagsByLowerCaseName.remove(tag.toLowerCase());
+         }
+      }
+   }
+
+   /**
+    * @param tags
+    * @return immutable set equal to the given one, the same instance for all equal sets
+    */
+   private Set<String> canonical(Set<String> tags) {
+      return tagSets.computeIfAbsent(tags, Collections::unmodifiableSet);
+   }
+}
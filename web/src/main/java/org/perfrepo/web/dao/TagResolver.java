@@ -0,0 +1,134 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.perfrepo.model.Tag;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Globally scoped resolver of tag names to tags, used when tags are assigned to test executions. IDs of the tags are
+ * cached by name, so tags that were already used are retrieved by ID, i.e. from the second level cache, and tags
+ * that are missing are created for the whole batch of names at once, see {@link TagDAO#getOrCreateIds(Collection)}.
+ * Resolution is safe to be called by concurrent transactions with the same new tags.
+ *
+ * If called in a transaction, IDs of the resolved tags are cached after the transaction commits, the cache never
+ * holds IDs of uncommitted tags.
+ */
+@ApplicationScoped
+public class TagResolver {
+
+   /**
+    * Maximal number of cached tag names.
+    */
+   public static final int MAXIMUM_SIZE = 100000;
+
+   private final Cache<String, Long> idsByName = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build();
+
+   @Inject
+   private TagDAO tagDAO;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   /**
+    * Retrieves tags with given names, tags that don't exist are created.
+    *
+    * @param names names of the tags, null names are ignored
+    * @return managed tags by their names
+    */
+   public Map<String, Tag> resolve(Collection<String> names) {
+      Set<String> distinctNames = names.stream().filter(Objects::nonNull).collect(Collectors.toCollection(TreeSet::new));
+      Map<String, Tag> result = new HashMap<>();
+      Set<String> missing = new TreeSet<>();
+      for (String name : distinctNames) {
+         Long id = idsByName.getIfPresent(name);
+         Tag tag = id == null ? null : tagDAO.get(id);
+         if (tag != null && name.equals(tag.getName())) {
+            result.put(name, tag);
+         } else {
+            idsByName.invalidate(name);
+            missing.add(name);
+         }
+      }
+      if (missing.isEmpty()) {
+         return result;
+      }
+
+      Map<String, Long> ids = tagDAO.getOrCreateIds(missing);
+      ids.forEach((name, id) -> result.put(name, tagDAO.get(id)));
+      if (inTransaction()) {
+         afterCommit(() -> idsByName.putAll(ids));
+      } else {
+         idsByName.putAll(ids);
+      }
+      return result;
+   }
+
+   /**
+    * Retrieves tag with given name, the tag is created if it doesn't exist.
+    *
+    * @param name
+    * @return managed tag
+    */
+   public Tag resolve(String name) {
+      return resolve(Collections.singleton(name)).get(name);
+   }
+
+   /**
+    * @return number of cached tag names
+    */
+   public long getSize() {
+      return idsByName.size();
+   }
+
+   public void setTagDAO(TagDAO tagDAO) {
+      this.tagDAO = tagDAO;
+   }
+
+   private boolean inTransaction() {
+      return transactionSynchronizationRegistry != null && transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+   }
+
+   private void afterCommit(Runnable action) {
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+               action.run();
+            }
+         }
+      });
+   }
+}
@@ -0,0 +1,176 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import com.google.common.collect.Lists;
+import org.hibernate.SQLQuery;
+import org.perfrepo.model.Tag;
+import org.perfrepo.model.TagSet;
+
+import javax.inject.Named;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * DAO for {@link TagSet}
+ */
+@Named
+public class TagSetDAO extends DAO<TagSet, Long> {
+
+   /**
+    * Maximal number of rows in one statement.
+    */
+   private static final int CHUNK_SIZE = 1000;
+
+   /**
+    * Retrieves the set consisting of exactly the given tags.
+    *
+    * @param tagNames
+    * @return the set, null if no test execution has ever had exactly these tags
+    */
+   public TagSet findByTagNames(Collection<String> tagNames) {
+      List<TagSet> result = createNamedQuery(TagSet.FIND_BY_HASH, TagSet.class)
+          .setParameter("hash", TagSet.hash(TagSet.canonicalize(tagNames)))
+          .getResultList();
+      return result.isEmpty() ? null : result.get(0);
+   }
+
+   /**
+    * Retrieves all sets with given hashes in one query.
+    *
+    * @param hashes
+    * @return sets by their hash, sets that don't exist are omitted
+    */
+   public Map<String, TagSet> findByHashes(Collection<String> hashes) {
+      Map<String, TagSet> result = new HashMap<>();
+      if (!hashes.isEmpty()) {
+         getAllByPropertyIn("hash", new ArrayList<Object>(hashes)).forEach(tagSet -> result.put(tagSet.getHash(), tagSet));
+      }
+      return result;
+   }
+
+   /**
+    * Retrieves names of tags of the sets in one query.
+    *
+    * @param ids
+    * @return tags in canonical form by ID of the set, sets that don't exist are omitted
+    */
+   public Map<Long, String> getTags(Collection<Long> ids) {
+      Map<Long, String> result = new HashMap<>();
+      if (!ids.isEmpty()) {
+         entityManager().createQuery("SELECT s.id, s.tags FROM TagSet s WHERE s.id IN :ids", Object[].class)
+             .setParameter("ids", ids)
+             .getResultList()
+             .forEach(row -> result.put((Long) row[0], (String) row[1]));
+      }
+      return result;
+   }
+
+   /**
+    * Retrieves the set consisting of exactly the given tags, the set is created if it doesn't exist yet.
+    *
+    * @param tags persisted tags
+    * @return the set, null if there are no tags
+    */
+   public TagSet getOrCreate(Collection<Tag> tags) {
+      if (tags == null || tags.isEmpty()) {
+         return null;
+      }
+      return getOrCreateAll(Collections.singletonList(tags)).values().iterator().next();
+   }
+
+   /**
+    * Retrieves the sets consisting of exactly the given tags, sets that don't exist are created. Like
+    * {@link TagDAO#getOrCreateIds(Collection)}, missing sets are inserted by INSERT ... ON CONFLICT DO NOTHING in the
+    * order of their hashes, so concurrent transactions creating the same set don't fail on the unique hash and don't
+    * deadlock. Tags of the set are inserted the same way, the set created by concurrent transaction already has them.
+    *
+    * @param tagSets persisted tags of the sets, empty sets are ignored
+    * @return the sets by their hash
+    */
+   public Map<String, TagSet> getOrCreateAll(Collection<? extends Collection<Tag>> tagSets) {
+      Map<String, TagSet> requested = new TreeMap<>();
+      for (Collection<Tag> tags : tagSets) {
+         if (tags != null && !tags.isEmpty()) {
+            Map<String, Tag> tagsByName = new TreeMap<>();
+            tags.forEach(tag -> tagsByName.put(tag.getName(), tag));
+            TagSet tagSet = new TagSet(new ArrayList<>(tagsByName.values()));
+            requested.putIfAbsent(tagSet.getHash(), tagSet);
+         }
+      }
+
+      Map<String, TagSet> result = findByHashes(requested.keySet());
+      List<TagSet> missing = requested.values().stream().filter(tagSet -> !result.containsKey(tagSet.getHash())).collect(Collectors.toList());
+      if (missing.isEmpty()) {
+         return result;
+      }
+
+      for (List<TagSet> chunk : Lists.partition(missing, CHUNK_SIZE)) {
+         StringBuilder sql = new StringBuilder("INSERT INTO tag_set (id, hash, tags, size) SELECT nextval('tag_set_sequence'), input.hash, input.tags, input.size FROM (VALUES ");
+         for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+         }
+         sql.append(") AS input(hash, tags, size) ORDER BY input.hash ON CONFLICT (hash) DO NOTHING");
+
+         Query insert = createNativeInsert(sql.toString());
+         for (int i = 0; i < chunk.size(); i++) {
+            insert.setParameter(3 * i + 1, chunk.get(i).getHash());
+            insert.setParameter(3 * i + 2, chunk.get(i).getTags());
+            insert.setParameter(3 * i + 3, chunk.get(i).getSize());
+         }
+         insert.executeUpdate();
+      }
+
+      // sets inserted concurrently are committed once the insert returns, new query sees them
+      Map<String, TagSet> created = findByHashes(missing.stream().map(TagSet::getHash).collect(Collectors.toList()));
+      if (created.size() < missing.size()) {
+         throw new IllegalStateException("Unable to create tag sets " + missing.stream().map(TagSet::getTags).filter(tags -> !created.containsKey(TagSet.hash(tags))).collect(Collectors.toList()));
+      }
+
+      List<Long[]> tagSetTags = new ArrayList<>();
+      missing.forEach(tagSet -> tagSet.getTagEntities().forEach(tag -> tagSetTags.add(new Long[]{created.get(tagSet.getHash()).getId(), tag.getId()})));
+      for (List<Long[]> chunk : Lists.partition(tagSetTags, CHUNK_SIZE)) {
+         StringBuilder sql = new StringBuilder("INSERT INTO tag_set_tag (tag_set_id, tag_id) VALUES ");
+         for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+         }
+         sql.append(" ON CONFLICT DO NOTHING");
+
+         Query insert = createNativeInsert(sql.toString());
+         for (int i = 0; i < chunk.size(); i++) {
+            insert.setParameter(2 * i + 1, chunk.get(i)[0]);
+            insert.setParameter(2 * i + 2, chunk.get(i)[1]);
+         }
+         insert.executeUpdate();
+      }
+
+      result.putAll(created);
+      return result;
+   }
+
+   private Query createNativeInsert(String sql) {
+      Query insert = entityManager().createNativeQuery(sql);
+      // otherwise the whole second level cache would be invalidated
+      insert.unwrap(SQLQuery.class).addSynchronizedEntityClass(TagSet.class);
+      return insert;
+   }
+}
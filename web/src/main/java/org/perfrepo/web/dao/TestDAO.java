@@ -14,18 +14,26 @@
  */
 package org.perfrepo.web.dao;
 
+import org.perfrepo.model.Alert;
 import org.perfrepo.model.Entity;
+import org.perfrepo.model.Metric;
+import org.perfrepo.model.MetricComparator;
+import org.perfrepo.model.Tag;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.SearchResultWrapper;
 import org.perfrepo.model.to.TestSearchTO;
+import org.perfrepo.model.user.User;
 import org.perfrepo.model.userproperty.GroupFilter;
 
 import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -115,6 +123,149 @@ public class TestDAO extends DAO<Test, Long> {
       return query(criteria).getResultList();
    }
 
+   /**
+    * Retrieves test with its metrics, subscribers and alerts, see {@link #getAllFullTests()}.
+    *
+    * @param id
+    * @return detached test, null if it doesn't exist
+    */
+   public Test getFullTest(Long id) {
+      List<Test> tests = fetchFullTests(Collections.singletonList(id));
+      return tests.isEmpty() ? null : tests.get(0);
+   }
+
+   /**
+    * Retrieves all tests with their metrics, subscribers (without credentials and associations) and alerts with
+    * metrics and tags. Only the needed columns are selected and the detached tests are built from them, one query
+    * is used for the tests and one for each association regardless of the number of tests.
+    *
+    * @return detached tests
+    */
+   public List<Test> getAllFullTests() {
+      return fetchFullTests(null);
+   }
+
+   /**
+    * Helper method. Retrieves tests with given ids together with the associations.
+    *
+    * @param ids IDs of the tests, all tests if null
+    * @return detached tests
+    */
+   private List<Test> fetchFullTests(List<Long> ids) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      CriteriaQuery<Tuple> testCriteria = cb.createTupleQuery();
+      Root<Test> rTest = testCriteria.from(Test.class);
+      testCriteria.multiselect(rTest.get("id").alias("id"), rTest.get("name").alias("name"), rTest.get("uid").alias("uid"),
+                               rTest.get("groupId").alias("groupId"), rTest.get("description").alias("description"));
+      Map<Long, Test> testsById = new LinkedHashMap<>();
+      for (Tuple row : restrictedQuery(testCriteria, rTest.get("id"), ids).getResultList()) {
+         Test test = new Test();
+         test.setId(row.get("id", Long.class));
+         test.setName(row.get("name", String.class));
+         test.setUid(row.get("uid", String.class));
+         test.setGroupId(row.get("groupId", String.class));
+         test.setDescription(row.get("description", String.class));
+         test.setMetrics(new ArrayList<>());
+         test.setSubscribers(new ArrayList<>());
+         test.setAlerts(new ArrayList<>());
+         testsById.put(test.getId(), test);
+      }
+      if (testsById.isEmpty()) {
+         return new ArrayList<>();
+      }
+
+      Map<Long, Metric> metricsById = new HashMap<>();
+      CriteriaQuery<Tuple> metricCriteria = cb.createTupleQuery();
+      rTest = metricCriteria.from(Test.class);
+      Join<Test, Metric> rMetric = rTest.join("metrics");
+      metricCriteria.multiselect(rTest.get("id").alias("testId"), rMetric.get("id").alias("metricId"), rMetric.get("name").alias("metricName"),
+                                 rMetric.get("comparator").alias("metricComparator"), rMetric.get("description").alias("metricDescription"));
+      for (Tuple row : restrictedQuery(metricCriteria, rTest.get("id"), ids).getResultList()) {
+         Metric metric = metricsById.computeIfAbsent(row.get("metricId", Long.class), id -> toMetric(row));
+         testsById.get(row.get("testId", Long.class)).getMetrics().add(metric);
+      }
+
+      CriteriaQuery<Tuple> subscriberCriteria = cb.createTupleQuery();
+      rTest = subscriberCriteria.from(Test.class);
+      Join<Test, User> rUser = rTest.join("subscribers");
+      subscriberCriteria.multiselect(rTest.get("id").alias("testId"), rUser.get("id").alias("id"), rUser.get("username").alias("username"),
+                                     rUser.get("firstName").alias("firstName"), rUser.get("lastName").alias("lastName"), rUser.get("email").alias("email"));
+      for (Tuple row : restrictedQuery(subscriberCriteria, rTest.get("id"), ids).getResultList()) {
+         User subscriber = new User();
+         subscriber.setId(row.get("id", Long.class));
+         subscriber.setUsername(row.get("username", String.class));
+         subscriber.setFirstName(row.get("firstName", String.class));
+         subscriber.setLastName(row.get("lastName", String.class));
+         subscriber.setEmail(row.get("email", String.class));
+         testsById.get(row.get("testId", Long.class)).getSubscribers().add(subscriber);
+      }
+
+      Map<Long, Alert> alertsById = new HashMap<>();
+      CriteriaQuery<Tuple> alertCriteria = cb.createTupleQuery();
+      Root<Alert> rAlert = alertCriteria.from(Alert.class);
+      rMetric = rAlert.join("metric");
+      alertCriteria.multiselect(rAlert.get("test").get("id").alias("testId"), rAlert.get("id").alias("id"), rAlert.get("name").alias("name"),
+                                rAlert.get("description").alias("description"), rAlert.get("condition").alias("condition"), rAlert.get("links").alias("links"),
+                                rMetric.get("id").alias("metricId"), rMetric.get("name").alias("metricName"), rMetric.get("comparator").alias("metricComparator"),
+                                rMetric.get("description").alias("metricDescription"));
+      for (Tuple row : restrictedQuery(alertCriteria, rAlert.get("test").get("id"), ids).getResultList()) {
+         Test test = testsById.get(row.get("testId", Long.class));
+         Alert alert = new Alert();
+         alert.setId(row.get("id", Long.class));
+         alert.setName(row.get("name", String.class));
+         alert.setDescription(row.get("description", String.class));
+         alert.setCondition(row.get("condition", String.class));
+         alert.setLinks(row.get("links", String.class));
+         alert.setMetric(metricsById.computeIfAbsent(row.get("metricId", Long.class), id -> toMetric(row)));
+         alert.setTags(new ArrayList<>());
+         alert.setTest(test);
+         test.getAlerts().add(alert);
+         alertsById.put(alert.getId(), alert);
+      }
+
+      if (!alertsById.isEmpty()) {
+         Map<Long, Tag> tagsById = new HashMap<>();
+         CriteriaQuery<Tuple> tagCriteria = cb.createTupleQuery();
+         rAlert = tagCriteria.from(Alert.class);
+         Join<Alert, Tag> rTag = rAlert.join("tags");
+         tagCriteria.multiselect(rAlert.get("id").alias("alertId"), rTag.get("id").alias("tagId"), rTag.get("name").alias("tagName"));
+         for (Tuple row : restrictedQuery(tagCriteria, rAlert.get("test").get("id"), ids).getResultList()) {
+            Tag tag = tagsById.computeIfAbsent(row.get("tagId", Long.class), id -> {
+               Tag newTag = new Tag();
+               newTag.setId(id);
+               newTag.setName(row.get("tagName", String.class));
+               return newTag;
+            });
+            alertsById.get(row.get("alertId", Long.class)).getTags().add(tag);
+         }
+      }
+
+      return new ArrayList<>(testsById.values());
+   }
+
+   /**
+    * Helper method. Creates query restricted to the tests with given ids.
+    *
+    * @param criteria
+    * @param testId path to the ID of the test in the criteria
+    * @param ids IDs of the tests, not restricted if null
+    * @return
+    */
+   private TypedQuery<Tuple> restrictedQuery(CriteriaQuery<Tuple> criteria, Path<Long> testId, List<Long> ids) {
+      if (ids == null) {
+         return query(criteria);
+      }
+      criteria.where(testId.in(criteriaBuilder().parameter(List.class, "ids")));
+      return query(criteria).setParameter("ids", ids);
+   }
+
+   private static Metric toMetric(Tuple row) {
+      Metric metric = new Metric(row.get("metricName", String.class), row.get("metricComparator", MetricComparator.class), row.get("metricDescription", String.class));
+      metric.setId(row.get("metricId", Long.class));
+      return metric;
+   }
+
    /**
     * Helper method. Retrieves total number of found tests according to specified
     * search criteria.
@@ -14,24 +14,279 @@
  */
 package org.perfrepo.web.dao;
 
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import org.apache.log4j.Logger;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.perfrepo.model.TestExecutionAttachment;
+import org.perfrepo.model.TestExecutionAttachmentContent;
+import org.perfrepo.web.service.ApplicationConfiguration;
 
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 /**
  * DAO for {@link TestExecutionAttachment}
  *
+ * Content of new attachments is stored to the {@link AttachmentStorage} configured by
+ * {@link ApplicationConfiguration#getAttachmentStorage()}, or as a large object in database if it's
+ * {@link #DATABASE_STORAGE}. Content stored externally has storage key <code>&lt;storage name&gt;:&lt;key&gt;</code>,
+ * content stored in database can be moved to the configured storage by {@link #moveToStorage(Long)}. Content is
+ * mapped by {@link TestExecutionAttachmentContent}, it's read only when it's downloaded. Large objects of removed
+ * attachments are unlinked by trigger on <code>test_execution_attachment_content</code>, whichever way the attachments
+ * are removed.
+ *
  * @author Michal Linhard (mlinhard@redhat.com)
  */
 @Named
 public class TestExecutionAttachmentDAO extends DAO<TestExecutionAttachment, Long> {
 
+   private static final Logger log = Logger.getLogger(TestExecutionAttachmentDAO.class);
+
+   public static final String DATABASE_STORAGE = "database";
+
+   private static final String KEY_SEPARATOR = ":";
+
+   // number of storage keys checked for references by one query
+   private static final int KEY_CHUNK_SIZE = 1000;
+
+   @Inject
+   @Any
+   private Instance<AttachmentStorage> storages;
+
+   @Inject
+   private ApplicationConfiguration configuration;
+
    public Collection<TestExecutionAttachment> findByExecution(Long testExecutionId) {
       Map<String, Object> params = new TreeMap<String, Object>();
       params.put("exec", testExecutionId);
       return findByNamedQuery(TestExecutionAttachment.FIND_BY_EXECUTION, params);
    }
-}
\ No newline at end of file
+
+   /**
+    * Creates the attachment with content read from the stream. The content is streamed to the configured storage, or to
+    * the large object in database, it's never held in memory as a whole. Size and checksum of the content are stored
+    * with the attachment.
+    *
+    * @param attachment attachment without content
+    * @param content
+    * @param length number of bytes of the content
+    * @return created attachment
+    * @throws IOException if the content can't be stored
+    */
+   public TestExecutionAttachment create(TestExecutionAttachment attachment, InputStream content, long length) throws IOException {
+      HashingInputStream hashingContent = new HashingInputStream(Hashing.sha256(), content);
+      AttachmentStorage storage = getConfiguredStorage();
+      TestExecutionAttachmentContent stored = new TestExecutionAttachmentContent();
+      if (storage == null) {
+         stored.setContent(Hibernate.getLobCreator(entityManager().unwrap(Session.class)).createBlob(hashingContent, length));
+      } else {
+         stored.setStorageKey(storage.getName() + KEY_SEPARATOR + storage.store(hashingContent, length));
+      }
+
+      attachment.setContentSize(length);
+      TestExecutionAttachment created = create(attachment);
+      stored.setAttachmentId(created.getId());
+      entityManager().persist(stored);
+      // the large object is written when the content is flushed
+      entityManager().flush();
+      created.setChecksum(hashingContent.hash().toString());
+      return created;
+   }
+
+   /**
+    * @param id
+    * @return size of the content in bytes, -1 if the attachment doesn't exist
+    * @throws IOException if the content can't be read
+    */
+   public long getContentLength(Long id) throws IOException {
+      TestExecutionAttachment attachment = get(id);
+      if (attachment == null) {
+         return -1;
+      }
+      if (attachment.getContentSize() != null) {
+         return attachment.getContentSize();
+      }
+      TestExecutionAttachmentContent content = getContent(id);
+      if (content.getStorageKey() != null) {
+         return getStorage(content).getSize(getKey(content));
+      }
+      try {
+         return content.getContent().length();
+      } catch (SQLException e) {
+         throw new IOException("Unable to read content of attachment " + id, e);
+      }
+   }
+
+   /**
+    * Copies part of the content of the attachment to the stream, the content is read from database by small blocks.
+    * Has to be called in a transaction.
+    *
+    * @param id
+    * @param offset first byte of the copied part, starting from 0
+    * @param length number of copied bytes
+    * @param output
+    * @return false if the attachment doesn't exist
+    * @throws IOException
+    */
+   public boolean writeContent(Long id, long offset, long length, OutputStream output) throws IOException {
+      TestExecutionAttachmentContent content = getContent(id);
+      if (content == null) {
+         return false;
+      }
+      if (length == 0) {
+         return true;
+      }
+      if (content.getStorageKey() != null) {
+         getStorage(content).write(getKey(content), offset, length, output);
+         return true;
+      }
+      try (InputStream input = content.getContent().getBinaryStream(offset + 1, length)) {
+         ByteStreams.copy(input, output);
+      } catch (SQLException e) {
+         throw new IOException("Unable to read content of attachment " + id, e);
+      }
+      return true;
+   }
+
+   /**
+    * Retrieves IDs of the attachments with content stored in database, ordered by ID.
+    *
+    * @param afterId only attachments with greater ID are returned, all if null
+    * @param limit maximal number of returned IDs
+    * @return the IDs, empty if content is configured to be stored in database
+    */
+   public List<Long> getIdsStoredInDatabase(Long afterId, int limit) {
+      if (getConfiguredStorage() == null) {
+         return new ArrayList<>();
+      }
+      return entityManager().createQuery("SELECT c.attachmentId FROM TestExecutionAttachmentContent c WHERE c.storageKey IS NULL AND c.attachmentId > :afterId "
+                                             + "ORDER BY c.attachmentId", Long.class)
+          .setParameter("afterId", afterId == null ? 0L : afterId)
+          .setMaxResults(limit)
+          .getResultList();
+   }
+
+   /**
+    * Moves content of the attachment stored in database to the configured storage, the large object is removed.
+    * Size and checksum of the moved content are stored with the attachment.
+    *
+    * @param id ID of the attachment
+    * @return true if the content was moved, false if it's not stored in database or content is configured to be stored
+    * in database
+    * @throws IOException if the content can't be stored
+    */
+   public boolean moveToStorage(Long id) throws IOException {
+      AttachmentStorage storage = getConfiguredStorage();
+      TestExecutionAttachmentContent content = getContent(id);
+      if (storage == null || content == null || content.getStorageKey() != null) {
+         return false;
+      }
+
+      Blob blob = content.getContent();
+      String key;
+      try (HashingInputStream input = new HashingInputStream(Hashing.sha256(), blob.getBinaryStream())) {
+         long length = blob.length();
+         key = storage.getName() + KEY_SEPARATOR + storage.store(input, length);
+         TestExecutionAttachment attachment = get(id);
+         attachment.setContentSize(length);
+         attachment.setChecksum(input.hash().toString());
+      } catch (SQLException e) {
+         throw new IOException("Unable to read content of attachment " + id, e);
+      }
+
+      // the large object is unlinked by trigger when the content is flushed
+      content.setContent(null);
+      content.setStorageKey(key);
+      return true;
+   }
+
+   /**
+    * Removes content which isn't referenced by any attachment from all storages. Content stored after the date is
+    * kept, it may belong to an attachment which isn't committed yet. Content which can't be removed is logged and
+    * skipped.
+    *
+    * @param storedBefore
+    * @return number of removed contents
+    * @throws IOException if the storage can't be read
+    */
+   public int removeUnreferencedContent(Date storedBefore) throws IOException {
+      int removed = 0;
+      for (AttachmentStorage storage : storages) {
+         for (List<String> keys : Lists.partition(new ArrayList<>(storage.getKeys(storedBefore)), KEY_CHUNK_SIZE)) {
+            List<String> storageKeys = keys.stream().map(key -> storage.getName() + KEY_SEPARATOR + key).collect(Collectors.toList());
+            Set<String> referenced = new HashSet<>(entityManager().createQuery("SELECT DISTINCT c.storageKey FROM TestExecutionAttachmentContent c WHERE c.storageKey IN :keys", String.class)
+                                                       .setParameter("keys", storageKeys)
+                                                       .getResultList());
+            for (int i = 0; i < keys.size(); i++) {
+               if (referenced.contains(storageKeys.get(i))) {
+                  continue;
+               }
+               try {
+                  if (storage.remove(keys.get(i), storedBefore)) {
+                     removed++;
+                  }
+               } catch (IOException e) {
+                  // the content is removed next time
+                  log.error("Unable to remove unreferenced attachment content " + storageKeys.get(i), e);
+               }
+            }
+         }
+      }
+      return removed;
+   }
+
+   /**
+    * @param id ID of the attachment
+    * @return content of the attachment, null if the attachment doesn't exist
+    */
+   private TestExecutionAttachmentContent getContent(Long id) {
+      return entityManager().find(TestExecutionAttachmentContent.class, id);
+   }
+
+   /**
+    * @return storage new content is stored to, null if it's stored in database
+    */
+   private AttachmentStorage getConfiguredStorage() {
+      String name = configuration.getAttachmentStorage();
+      return DATABASE_STORAGE.equals(name) ? null : getStorage(name);
+   }
+
+   private AttachmentStorage getStorage(TestExecutionAttachmentContent content) {
+      String storageKey = content.getStorageKey();
+      return getStorage(storageKey.substring(0, storageKey.indexOf(KEY_SEPARATOR)));
+   }
+
+   private AttachmentStorage getStorage(String name) {
+      for (AttachmentStorage storage : storages) {
+         if (storage.getName().equals(name)) {
+            return storage;
+         }
+      }
+      throw new IllegalStateException("Unknown attachment storage " + name);
+   }
+
+   private static String getKey(TestExecutionAttachmentContent content) {
+      String storageKey = content.getStorageKey();
+      return storageKey.substring(storageKey.indexOf(KEY_SEPARATOR) + 1);
+   }
+}
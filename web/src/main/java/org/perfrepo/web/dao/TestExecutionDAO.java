@@ -14,15 +14,18 @@
  */
 package org.perfrepo.web.dao;
 
-import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import com.google.common.collect.Lists;
+import org.hibernate.SQLQuery;
 import org.perfrepo.model.*;
 import org.perfrepo.model.to.*;
 import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
 import org.perfrepo.model.userproperty.GroupFilter;
 import org.perfrepo.model.util.EntityUtils;
+import org.perfrepo.web.util.CompressedBitmap;
 import org.perfrepo.web.util.TagUtils;
 
 import javax.inject.Inject;
+import javax.persistence.Query;
 import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
@@ -38,8 +41,19 @@ import java.util.stream.Collectors;
  */
 public class TestExecutionDAO extends DAO<TestExecution, Long> {
 
+   /**
+    * Maximal number of ids in one IN clause when retrieving test executions in bulk.
+    */
+   private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+   /**
+    * Maximal number of test executions matching tag criteria, which IDs are passed to the query instead of the tags.
+    * Less selective tag criteria are resolved in database.
+    */
+   private static final int MAX_TAG_MATCHING_IDS = 10000;
+
    @Inject
-   private TestExecutionParameterDAO testExecutionParameterDAO;
+   private TagIndex tagIndex;
 
    public List<TestExecution> getByTest(Long testId) {
       Test test = new Test();
@@ -68,7 +82,15 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
    }
 
    /**
-    * Allows to search test executions by many complex criterias.
+    * Allows to search test executions by many complex criterias. The page of test executions, total count
+    * of the matching test executions (via window function) and values of displayed and ordering parameters
+    * are retrieved by single query, tests and tags of the page are retrieved by two additional queries. Only the
+    * columns needed for the list of test executions are selected, no entity is loaded, values and attachments of
+    * the returned test executions aren't set, see {@link #fillValues(List)} and {@link #getFullTestExecutions(Collection)}.
+    *
+    * If the cursor is set in the search criteria, keyset pagination is used instead of offset, i.e. the page
+    * starts right after the test execution the cursor points to. In this mode the total count isn't computed
+    * and the result contains cursor of the next page.
     *
     * @param search
     * @param userGroups
@@ -77,34 +99,351 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
    public SearchResultWrapper<TestExecution> searchTestExecutions(TestExecutionSearchTO search, List<String> userGroups) {
       CriteriaBuilder cb = criteriaBuilder();
 
-      List<String> tags = TagUtils.parseTags(search.getTags() != null ? search.getTags().toLowerCase() : "");
-      List<String> excludedTags = new ArrayList<>();
-      List<String> includedTags = new ArrayList<>();
-      divideTags(tags, includedTags, excludedTags);
+      TagCriteria tagCriteria = createTagCriteria(search.getTags());
+
+      //if the parameter doesn't have the value, add % as the value,
+      //i.e. check if the test execution has this parameter
+      if (search.getParameters() != null) {
+         search.getParameters().stream()
+             .filter(pc -> pc.getValue() == null || "".equals(pc.getValue().trim()))
+             .forEach(pc -> pc.setValue("%"));
+      }
 
-      int lastQueryResultsCount = processSearchCountQuery(search, includedTags, excludedTags, userGroups);
+      boolean cursorMode = search.getCursor() != null;
+      SearchCursor cursor = cursorMode ? SearchCursor.decode(search.getCursor(), search.getOrderBy()) : null;
 
-      CriteriaQuery<TestExecution> criteria = (CriteriaQuery) createSearchSubquery(cb.createQuery(TestExecution.class), search, includedTags, excludedTags);
+      CriteriaQuery<Tuple> criteria = (CriteriaQuery) createSearchSubquery(cb.createTupleQuery(), search, tagCriteria);
       Root<TestExecution> root = (Root<TestExecution>) criteria.getRoots().toArray()[0];
-      criteria.select(root);
-      setOrderBy(criteria, search.getOrderBy(), root);
+      if (cursor != null) {
+         criteria.where(cb.and(criteria.getRestriction(), createCursorPredicate(cursor, root)));
+      }
 
-      TypedQuery<TestExecution> query = query(criteria);
-      fillParameterValues(query, search, includedTags, excludedTags, userGroups);
+      //displayed parameters and the parameter used for ordering are joined to the query, since the parameter
+      //name is unique for test execution, every such join adds at most one row and aggregate max() returns its value
+      List<String> joinedParams = getJoinedParameterNames(search);
+      List<Selection<?>> selections = executionSelections(root);
+      selections.add(root.get("test").get("id").alias("testId"));
+      if (!cursorMode) {
+         selections.add(cb.function(PerfRepoPostgreSQLDialect.TOTAL_COUNT, Long.class, root.get("id")).alias("totalCount"));
+      }
+      Expression<String> orderByParamValue = null;
+      for (int i = 0; i < joinedParams.size(); i++) {
+         Join<TestExecution, TestExecutionParameter> rParam = root.join("parameters", JoinType.LEFT);
+         rParam.on(cb.equal(rParam.get("name"), joinedParams.get(i)));
+         Expression<String> paramValue = cb.greatest(rParam.<String>get("value"));
+         selections.add(paramValue.alias("paramValue" + i));
+         selections.add(cb.max(rParam.<Long>get("id")).alias("paramId" + i));
+         if (joinedParams.get(i).equals(search.getOrderByParameter())) {
+            orderByParamValue = paramValue;
+         }
+      }
+      criteria.multiselect(selections);
+      setOrderBy(criteria, search.getOrderBy(), root, orderByParamValue);
+
+      TypedQuery<Tuple> query = query(criteria);
+      fillParameterValues(query, search, tagCriteria, userGroups);
+      if (cursor != null) {
+         query.setParameter("cursorKey", SearchCursor.isOrderedByDate(cursor.getOrderBy()) ? cursor.getStarted() : cursor.getName());
+         query.setParameter("cursorId", cursor.getId());
+      }
 
       //handle pagination
-      int firstResult = search.getLimitFrom() == null ? 0 : search.getLimitFrom();
+      int firstResult = search.getLimitFrom() == null || cursorMode ? 0 : search.getLimitFrom();
       query.setFirstResult(firstResult);
       if (search.getLimitHowMany() != null) {
          query.setMaxResults(search.getLimitHowMany());
       }
 
-      List<TestExecution> result = query.getResultList();
-      List<TestExecution> clonedResult = EntityUtils.clone(result);
-      filterResultByParameters(clonedResult, search);
-      orderResultsByParameters(clonedResult, search);
+      List<Tuple> rows = query.getResultList();
+      List<TestExecution> result = new ArrayList<>(rows.size());
+      Map<Long, Test> testsById = fetchTests(rows.stream().map(row -> row.get("testId", Long.class)).collect(Collectors.toSet()));
+      for (Tuple row : rows) {
+         TestExecution exec = toTestExecution(row);
+         exec.setTest(testsById.get(row.get("testId", Long.class)));
+         List<TestExecutionParameter> parameters = new ArrayList<>(joinedParams.size());
+         for (int i = 0; i < joinedParams.size(); i++) {
+            Long paramId = row.get("paramId" + i, Long.class);
+            if (paramId != null) {
+               TestExecutionParameter param = new TestExecutionParameter(joinedParams.get(i), row.get("paramValue" + i, String.class));
+               param.setId(paramId);
+               param.setTestExecution(exec);
+               parameters.add(param);
+            }
+         }
+         exec.setParameters(parameters);
+         result.add(exec);
+      }
+      fillTags(result);
+
+      if (cursorMode) {
+         boolean hasNextPage = search.getLimitHowMany() != null && !result.isEmpty() && result.size() == search.getLimitHowMany();
+         String nextCursor = hasNextPage ? SearchCursor.after(search.getOrderBy(), result.get(result.size() - 1)).encode() : null;
+         return new SearchResultWrapper<>(result, -1, nextCursor);
+      }
+
+      int totalCount;
+      if (!rows.isEmpty()) {
+         totalCount = rows.get(0).get("totalCount", Long.class).intValue();
+      } else if (firstResult > 0) {
+         //page behind the last result, window function has nothing to count over
+         totalCount = processSearchCountQuery(search, tagCriteria, userGroups);
+      } else {
+         totalCount = 0;
+      }
+
+      return new SearchResultWrapper<>(result, totalCount);
+   }
+
+   /**
+    * Retrieves test executions with all the details, i.e. test, parameters, tags, values with value parameters
+    * and attachments (without content). Fixed number of queries is used for every {@link #IN_CLAUSE_CHUNK_SIZE}
+    * ids - one for test executions with tests and one for each association - regardless of the number of
+    * test executions.
+    *
+    * @param ids
+    * @return detached test executions in the order of the passed ids, non-existing ids are skipped
+    */
+   public List<TestExecution> getFullTestExecutions(Collection<Long> ids) {
+      Map<Long, TestExecution> executionsById = new HashMap<>();
+      List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+      for (List<Long> chunk : Lists.partition(distinctIds, IN_CLAUSE_CHUNK_SIZE)) {
+         fetchFullTestExecutions(chunk).forEach(exec -> executionsById.put(exec.getId(), exec));
+      }
+
+      return ids.stream().map(executionsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+   }
+
+   /**
+    * Retrieves result values of the metric from the latest test executions matching the search criteria, without
+    * loading the test executions. One query is used for the test executions and one for every
+    * {@link #IN_CLAUSE_CHUNK_SIZE} values.
+    *
+    * @param search criteria of test executions, only the filters and {@link TestExecutionSearchTO#getLimitHowMany()} are used
+    * @param metricName
+    * @return rows [test execution ID, started, result value] ordered from the latest test execution, the result value
+    * is null if the test execution has no value of the metric
+    */
+   public List<Object[]> getLatestMetricValues(TestExecutionSearchTO search, String metricName) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      TagCriteria tagCriteria = createTagCriteria(search.getTags());
+
+      CriteriaQuery<Tuple> criteria = (CriteriaQuery) createSearchSubquery(cb.createTupleQuery(), search, tagCriteria);
+      Root<TestExecution> root = (Root<TestExecution>) criteria.getRoots().toArray()[0];
+      criteria.multiselect(root.get("id").alias("id"), root.get("started").alias("started"));
+      criteria.orderBy(cb.desc(root.get("started")), cb.desc(root.get("id")));
+
+      TypedQuery<Tuple> query = query(criteria);
+      fillParameterValues(query, search, tagCriteria, null);
+      if (search.getLimitHowMany() != null) {
+         query.setMaxResults(search.getLimitHowMany());
+      }
+      List<Tuple> executions = query.getResultList();
+
+      Map<Long, Double> valuesByExecutionId = new HashMap<>();
+      for (List<Tuple> chunk : Lists.partition(executions, IN_CLAUSE_CHUNK_SIZE)) {
+         List<Long> ids = chunk.stream().map(row -> row.get("id", Long.class)).collect(Collectors.toList());
+         List<Date> started = chunk.stream().map(row -> row.get("started", Date.class)).collect(Collectors.toList());
+         CriteriaQuery<Tuple> valueCriteria = cb.createTupleQuery();
+         Root<Value> rValue = valueCriteria.from(Value.class);
+         Path<Long> rExecutionId = rValue.get("testExecution").get("id");
+         valueCriteria.multiselect(rExecutionId.alias("id"), rValue.get("resultValue").alias("resultValue"));
+         valueCriteria.where(rExecutionId.in(ids), cb.equal(rValue.get("metric").get("name"), metricName), startedWithin(cb, rValue, started));
+         valueCriteria.orderBy(cb.asc(rValue.get("id")));
+
+         //single value test execution has one value per metric, the first one is taken otherwise
+         for (Tuple row : query(valueCriteria).getResultList()) {
+            valuesByExecutionId.putIfAbsent(row.get("id", Long.class), row.get("resultValue", Double.class));
+         }
+      }
+
+      List<Object[]> result = new ArrayList<>(executions.size());
+      for (Tuple row : executions) {
+         Long id = row.get("id", Long.class);
+         result.add(new Object[] {id, row.get("started", Date.class), valuesByExecutionId.get(id)});
+      }
+
+      return result;
+   }
+
+   /**
+    * Retrieves all values of the metric of test executions of the test in one projection query, without loading
+    * the test executions. Equal values of one test execution are returned once, like by
+    * {@link #searchValues(Long, String, List, Date, Date, int)}.
+    *
+    * @param testId
+    * @param metricId
+    * @return [start, test execution ID, value, tag set ID] ordered by start and ID of the test execution
+    */
+   public List<Object[]> getMetricSeries(Long testId, Long metricId) {
+      return entityManager().createQuery("SELECT te.started, te.id, v.resultValue, te.tagSetId FROM Value v JOIN v.testExecution te "
+                                             + "WHERE te.test.id = :testId AND v.metric.id = :metricId AND v.started = te.started "
+                                             + "AND v.resultValue IS NOT NULL GROUP BY v.resultValue, te.id, te.started, te.tagSetId "
+                                             + "ORDER BY te.started, te.id", Object[].class)
+          .setParameter("testId", testId)
+          .setParameter("metricId", metricId)
+          .getResultList();
+   }
+
+   /**
+    * @return ids of all test executions
+    */
+   public List<Long> getAllIds() {
+      CriteriaQuery<Long> criteria = criteriaBuilder().createQuery(Long.class);
+      Root<TestExecution> root = criteria.from(TestExecution.class);
+      criteria.select(root.<Long>get("id"));
+      criteria.orderBy(criteriaBuilder().asc(root.get("id")));
+
+      return query(criteria).getResultList();
+   }
+
+   /**
+    * Retrieves ids of all test executions matching the criteria of the search, used by bulk operations. Ordering and
+    * pagination of the search are ignored.
+    *
+    * @param search
+    * @param userGroups
+    * @return [test execution ID, test ID] ordered by test execution ID
+    */
+   public List<Object[]> searchTestExecutionIds(TestExecutionSearchTO search, List<String> userGroups) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      TagCriteria tagCriteria = createTagCriteria(search.getTags());
+      if (search.getParameters() != null) {
+         search.getParameters().stream()
+             .filter(pc -> pc.getValue() == null || "".equals(pc.getValue().trim()))
+             .forEach(pc -> pc.setValue("%"));
+      }
+
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+      Root<TestExecution> root = criteria.from(TestExecution.class);
+      Subquery<Long> subquery = (Subquery) createSearchSubquery(criteria.subquery(Long.class), search, tagCriteria);
+      Root<TestExecution> subqueryRoot = (Root<TestExecution>) subquery.getRoots().toArray()[0];
+      subquery.select(subqueryRoot.<Long>get("id"));
+
+      criteria.multiselect(root.get("id"), root.get("test").get("id"));
+      criteria.where(cb.in(root.get("id")).value(subquery));
+      criteria.orderBy(cb.asc(root.get("id")));
+
+      TypedQuery<Object[]> query = query(criteria);
+      fillParameterValues(query, search, tagCriteria, userGroups);
+      return query.getResultList();
+   }
+
+   /**
+    * Retrieves the columns of test executions bulk operations need to refresh rollups, without loading the test
+    * executions.
+    *
+    * @param ids
+    * @return [test execution ID, test ID, tag set ID, start], tag set ID is null for test executions without tags
+    */
+   public List<Object[]> getSummaries(Collection<Long> ids) {
+      List<Object[]> result = new ArrayList<>();
+      for (List<Long> chunk : Lists.partition(new ArrayList<>(ids), IN_CLAUSE_CHUNK_SIZE)) {
+         result.addAll(entityManager().createQuery("SELECT te.id, te.test.id, te.tagSetId, te.started FROM TestExecution te WHERE te.id IN :ids", Object[].class)
+                           .setParameter("ids", chunk)
+                           .getResultList());
+      }
+      return result;
+   }
+
+   /**
+    * Retrieves tags of the test executions by single query.
+    *
+    * @param ids
+    * @return tags by test execution ID, test executions without tags are omitted
+    */
+   public Map<Long, List<Tag>> getTags(Collection<Long> ids) {
+      Map<Long, List<Tag>> result = new HashMap<>();
+      for (List<Long> chunk : Lists.partition(new ArrayList<>(ids), IN_CLAUSE_CHUNK_SIZE)) {
+         entityManager().createQuery("SELECT te.id, tag FROM TestExecution te JOIN te.tags tag WHERE te.id IN :ids", Object[].class)
+             .setParameter("ids", chunk)
+             .getResultList()
+             .forEach(row -> result.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Tag) row[1]));
+      }
+      return result;
+   }
+
+   /**
+    * Adds the tags to all the test executions by one statement, tags the test execution already has are skipped.
+    * Set of tags of the test executions has to be updated afterwards, see {@link #setTagSet(Collection, TagSet)}.
+    *
+    * @param ids
+    * @param tagIds
+    * @return number of added tags
+    */
+   public int addTags(Collection<Long> ids, Collection<Long> tagIds) {
+      if (ids.isEmpty() || tagIds.isEmpty()) {
+         return 0;
+      }
+      Query insert = entityManager().createNativeQuery("INSERT INTO test_execution_tag (test_execution_id, tag_id) SELECT te.id, tag.id FROM test_execution te CROSS JOIN tag "
+                                                           + "WHERE te.id IN (:ids) AND tag.id IN (:tagIds) "
+                                                           + "AND NOT EXISTS (SELECT 1 FROM test_execution_tag tet WHERE tet.test_execution_id = te.id AND tet.tag_id = tag.id)");
+      // otherwise the whole second level cache would be invalidated
+      insert.unwrap(SQLQuery.class).addSynchronizedEntityClass(TestExecution.class);
+      return insert.setParameter("ids", ids)
+          .setParameter("tagIds", tagIds)
+          .executeUpdate();
+   }
 
-      return new SearchResultWrapper<>(clonedResult, lastQueryResultsCount);
+   /**
+    * Removes the tags from all the test executions by one statement. Set of tags of the test executions has to be
+    * updated afterwards, see {@link #setTagSet(Collection, TagSet)}.
+    *
+    * @param ids
+    * @param tagIds
+    * @return number of removed tags
+    */
+   public int removeTags(Collection<Long> ids, Collection<Long> tagIds) {
+      if (ids.isEmpty() || tagIds.isEmpty()) {
+         return 0;
+      }
+      Query delete = entityManager().createNativeQuery("DELETE FROM test_execution_tag WHERE test_execution_id IN (:ids) AND tag_id IN (:tagIds)");
+      delete.unwrap(SQLQuery.class).addSynchronizedEntityClass(TestExecution.class);
+      return delete.setParameter("ids", ids)
+          .setParameter("tagIds", tagIds)
+          .executeUpdate();
+   }
+
+   /**
+    * Assigns the set of tags to all the test executions by one statement.
+    *
+    * @param ids
+    * @param tagSet the set, null for test executions without tags
+    */
+   public void setTagSet(Collection<Long> ids, TagSet tagSet) {
+      for (List<Long> chunk : Lists.partition(new ArrayList<>(ids), IN_CLAUSE_CHUNK_SIZE)) {
+         entityManager().createQuery("UPDATE TestExecution te SET te.tagSet = :tagSet WHERE te.id IN :ids")
+             .setParameter("tagSet", tagSet)
+             .setParameter("ids", chunk)
+             .executeUpdate();
+      }
+   }
+
+   /**
+    * Removes the test executions together with all rows referencing them, by one statement per table.
+    *
+    * @param ids
+    * @return number of removed test executions
+    */
+   public int removeAll(Collection<Long> ids) {
+      if (ids.isEmpty()) {
+         return 0;
+      }
+      String values = "SELECT id FROM value WHERE test_execution_id IN (:ids)";
+      removeByIds("DELETE FROM value_parameter WHERE value_id IN (" + values + ")", ids, ValueParameter.class);
+      removeByIds("DELETE FROM value WHERE test_execution_id IN (:ids)", ids, Value.class);
+      removeByIds("DELETE FROM test_execution_parameter WHERE test_execution_id IN (:ids)", ids, TestExecutionParameter.class);
+      removeByIds("DELETE FROM test_execution_tag WHERE test_execution_id IN (:ids)", ids, TestExecution.class);
+      removeByIds("DELETE FROM test_execution_attachment WHERE test_execution_id IN (:ids)", ids, TestExecutionAttachment.class);
+      removeByIds("DELETE FROM alert_outbox WHERE test_execution_id IN (:ids)", ids, AlertOutboxEntry.class);
+      return removeByIds("DELETE FROM test_execution WHERE id IN (:ids)", ids, TestExecution.class);
+   }
+
+   private int removeByIds(String sql, Collection<Long> ids, Class<?> entityClass) {
+      Query delete = entityManager().createNativeQuery(sql);
+      delete.unwrap(SQLQuery.class).addSynchronizedEntityClass(entityClass);
+      return delete.setParameter("ids", ids).executeUpdate();
    }
 
    /**
@@ -134,6 +473,14 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
    public List<TestExecution> getTestExecutions(List<String> tags, List<String> testUIDs, Integer lastFrom, Integer howMany) {
       CriteriaBuilder cb = criteriaBuilder();
 
+      List<Long> tagMatchingIds = null;
+      if (tags != null && !tags.isEmpty()) {
+         CompressedBitmap matching = matchTags(tags, Collections.emptyList(), false);
+         if (matching != null && matching.cardinality() <= MAX_TAG_MATCHING_IDS) {
+            tagMatchingIds = matching.toLongList();
+         }
+      }
+
       Long count = null;
       //we want to use 'last' boundaries, we must compute the number of test executions that
       //match the requirements - have selected tags and belong to selected tests
@@ -142,22 +489,22 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
          Root<TestExecution> root = countQuery.from(TestExecution.class);
          countQuery.select(cb.countDistinct(root));
 
-         Subquery<Long> subquery = (Subquery) createSubqueryByTags(countQuery.subquery(Long.class));
+         Subquery<Long> subquery = (Subquery) createSubqueryByTags(countQuery.subquery(Long.class), tagMatchingIds);
          Root<TestExecution> subqueryRoot = (Root<TestExecution>) subquery.getRoots().toArray()[0];
          subquery.select(subqueryRoot.<Long>get("id"));
 
          countQuery.where(cb.in(root.get("id")).value(subquery));
-         TypedQuery<Long> typedCountQuery = createTypedQueryByTags(countQuery, testUIDs, tags);
+         TypedQuery<Long> typedCountQuery = createTypedQueryByTags(countQuery, testUIDs, tags, tagMatchingIds);
          count = typedCountQuery.getSingleResult();
       }
 
       //now we can retrieve the actual result
-      CriteriaQuery<TestExecution> criteriaQuery = (CriteriaQuery) createSubqueryByTags(cb.createQuery(TestExecution.class));
+      CriteriaQuery<TestExecution> criteriaQuery = (CriteriaQuery) createSubqueryByTags(cb.createQuery(TestExecution.class), tagMatchingIds);
       Root<TestExecution> root = (Root<TestExecution>) criteriaQuery.getRoots().toArray()[0];
       criteriaQuery.select(root);
       criteriaQuery.orderBy(cb.asc(root.get("started")));
 
-      TypedQuery<TestExecution> query = createTypedQueryByTags(criteriaQuery, testUIDs, tags);
+      TypedQuery<TestExecution> query = createTypedQueryByTags(criteriaQuery, testUIDs, tags, tagMatchingIds);
       //we're using 'last' parameters, set the paging
       //TODO: this might be broken, use search test execution instead
       if (count != null) {
@@ -168,15 +515,7 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
 
       List<TestExecution> result = query.getResultList();
 
-      List<TestExecution> resultClone = EntityUtils.clone(result);
-      for (TestExecution exec : resultClone) {
-         TestExecutionDAO.fetchTest(exec);
-         TestExecutionDAO.fetchParameters(exec);
-         TestExecutionDAO.fetchTags(exec);
-         TestExecutionDAO.fetchValues(exec);
-      }
-
-      return resultClone;
+      return getFullTestExecutions(EntityUtils.extractIds(result));
    }
 
    /**
@@ -201,9 +540,10 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
 
       Predicate selectedMetric = cb.equal(metricJoin.get("id"), metric.getId());
       Predicate selectedTestExecutions = testExecution.get("id").in(testExecutionIds);
+      Predicate selectedPartitions = startedWithin(cb, valueJoin, testExecutions.stream().map(TestExecution::getStarted).collect(Collectors.toList()));
 
       criteriaQuery.select(cb.construct(SingleValueResultWrapper.class, valueJoin.get("resultValue"), testExecution.get("id"), testExecution.get("started")));
-      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions));
+      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions, selectedPartitions));
       //TODO: this won't work correctly with ordering by parameter value, fix it according to searchMultiValues
       //TODO: this will be fixed when re-doing Metric history report
       criteriaQuery.orderBy(cb.asc(testExecution.get("started")));
@@ -238,6 +578,7 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
 
       Predicate selectedMetric = cb.equal(metricJoin.get("id"), metric.getId());
       Predicate selectedTestExecutions = testExecution.get("id").in(testExecutionIds);
+      Predicate selectedPartitions = startedWithin(cb, valueJoin, testExecutions.stream().map(TestExecution::getStarted).collect(Collectors.toList()));
       Predicate labelParameter = cb.and();
 
       Path<?> labelPath = testExecution.get("started");
@@ -259,7 +600,7 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
                                 labelPath.alias("label")
       );
 
-      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions, labelParameter));
+      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions, selectedPartitions, labelParameter));
       criteriaQuery.orderBy(cb.asc(testExecution.get("started")));
       criteriaQuery.groupBy(groupBy);
 
@@ -300,6 +641,21 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
     * @return List of SingleValueResultWrapper objects
     */
    public List<MetricReportTO.DataPoint> searchValues(Long testId, String metricName, List<String> tagList, int limitSize) {
+      return searchValues(testId, metricName, tagList, null, null, limitSize);
+   }
+
+   /**
+    * Finds all values used for computing MetricHistory report of test executions started in the range
+    *
+    * @param testId
+    * @param metricName
+    * @param tagList
+    * @param from start of the range, not restricted if null
+    * @param to end of the range, not restricted if null
+    * @param limitSize
+    * @return List of SingleValueResultWrapper objects
+    */
+   public List<MetricReportTO.DataPoint> searchValues(Long testId, String metricName, List<String> tagList, Date from, Date to, int limitSize) {
       boolean useTags = tagList != null && !tagList.isEmpty();
       CriteriaBuilder cb = criteriaBuilder();
       CriteriaQuery<MetricReportTO.DataPoint> criteria = cb.createQuery(MetricReportTO.DataPoint.class);
@@ -313,28 +669,31 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       Join<Value, Metric> rMetric = rValue.join("metric");
       // test joined via metric
       Join<Metric, Test> rTestMetric = rMetric.join("tests");
-      // tag
-      Join<TestExecution, Tag> rTag = null;
+      // tags
       Predicate pTagNameInFixedList = cb.and(); // default for this predicate is true
-      Predicate pHavingAllTagsPresent = cb.and();
       if (useTags) {
-         rTag = rExec.join("tags");
-         pTagNameInFixedList = rTag.get("name").in(cb.parameter(List.class, "tagList"));
-         pHavingAllTagsPresent = cb.ge(cb.count(rTag.get("id")), cb.parameter(Long.class, "tagListSize"));
+         pTagNameInFixedList = rExec.<Long>get("tagSetId").in(createTagSetSubquery(criteria, "tagList", "tagListSize", false));
       }
 
       Predicate pMetricNameFixed = cb.equal(rMetric.get("name"), cb.parameter(String.class, "metricName"));
       Predicate pTestFixed = cb.equal(rTestExec.get("id"), cb.parameter(Long.class, "testId"));
       Predicate pMetricFromSameTest = cb.equal(rTestMetric.get("id"), rTestExec.get("id"));
+      // values are stored in the same monthly partition as their test execution
+      Predicate pValueFromSamePartition = cb.equal(rValue.get("started"), rExec.get("started"));
+      Predicate pStartedInRange = cb.and();
+      if (from != null) {
+         pStartedInRange = cb.and(pStartedInRange, cb.greaterThanOrEqualTo(rExec.<Date>get("started"), from), cb.greaterThanOrEqualTo(rValue.<Date>get("started"), from));
+      }
+      if (to != null) {
+         pStartedInRange = cb.and(pStartedInRange, cb.lessThanOrEqualTo(rExec.<Date>get("started"), to), cb.lessThanOrEqualTo(rValue.<Date>get("started"), to));
+      }
 
       //sort by date
       criteria.select(cb.construct(MetricReportTO.DataPoint.class, rExec.get("started"), rValue.get("resultValue"), rExec.get("id")));
-      criteria.where(cb.and(pMetricNameFixed, pTagNameInFixedList, pTestFixed, pMetricFromSameTest));
+      criteria.where(cb.and(pMetricNameFixed, pTagNameInFixedList, pTestFixed, pMetricFromSameTest, pValueFromSamePartition, pStartedInRange));
       criteria.groupBy(rValue.get("resultValue"), rExec.get("id"), rExec.get("started"));
       criteria.orderBy(cb.desc(rExec.get("started")));
 
-      criteria.having(pHavingAllTagsPresent);
-
       TypedQuery<MetricReportTO.DataPoint> query = query(criteria);
       query.setParameter("testId", testId);
       query.setParameter("metricName", metricName);
@@ -347,6 +706,74 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       return query.getResultList();
    }
 
+   /**
+    * Counts test executions of the test having all the tags started in the range.
+    *
+    * @param testId
+    * @param tagList
+    * @param from
+    * @param to
+    * @return
+    */
+   public long countByTest(Long testId, List<String> tagList, Date from, Date to) {
+      boolean useTags = tagList != null && !tagList.isEmpty();
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Long> criteria = cb.createQuery(Long.class);
+      Root<TestExecution> rExec = criteria.from(TestExecution.class);
+
+      Predicate pTagNameInFixedList = cb.and();
+      if (useTags) {
+         pTagNameInFixedList = rExec.<Long>get("tagSetId").in(createTagSetSubquery(criteria, "tagList", "tagListSize", false));
+      }
+      Predicate pTestFixed = cb.equal(rExec.get("test").get("id"), cb.parameter(Long.class, "testId"));
+      Predicate pStartedInRange = cb.between(rExec.<Date>get("started"), cb.parameter(Date.class, "from"), cb.parameter(Date.class, "to"));
+
+      criteria.select(cb.count(rExec));
+      criteria.where(cb.and(pTagNameInFixedList, pTestFixed, pStartedInRange));
+
+      TypedQuery<Long> query = query(criteria);
+      query.setParameter("testId", testId);
+      query.setParameter("from", from);
+      query.setParameter("to", to);
+      if (useTags) {
+         query.setParameter("tagList", tagList);
+         query.setParameter("tagListSize", new Long(tagList.size()));
+      }
+      return query.getSingleResult();
+   }
+
+   /**
+    * Retrieves start of the first and the last test execution of the test having all the tags.
+    *
+    * @param testId
+    * @param tagList
+    * @return the first and the last start, null if there's no such test execution
+    */
+   public Date[] getStartedRange(Long testId, List<String> tagList) {
+      boolean useTags = tagList != null && !tagList.isEmpty();
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+      Root<TestExecution> rExec = criteria.from(TestExecution.class);
+
+      Predicate pTagNameInFixedList = cb.and();
+      if (useTags) {
+         pTagNameInFixedList = rExec.<Long>get("tagSetId").in(createTagSetSubquery(criteria, "tagList", "tagListSize", false));
+      }
+      Predicate pTestFixed = cb.equal(rExec.get("test").get("id"), cb.parameter(Long.class, "testId"));
+
+      criteria.multiselect(cb.least(rExec.<Date>get("started")), cb.greatest(rExec.<Date>get("started")));
+      criteria.where(cb.and(pTagNameInFixedList, pTestFixed));
+
+      TypedQuery<Object[]> query = query(criteria);
+      query.setParameter("testId", testId);
+      if (useTags) {
+         query.setParameter("tagList", tagList);
+         query.setParameter("tagListSize", new Long(tagList.size()));
+      }
+      Object[] range = query.getSingleResult();
+      return range[0] == null ? null : new Date[] {(Date) range[0], (Date) range[1]};
+   }
+
    public Double getValueForMetric(Long execId, String metricName) {
       CriteriaBuilder cb = criteriaBuilder();
       CriteriaQuery<Double> criteria = cb.createQuery(Double.class);
@@ -380,37 +807,58 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
    }
 
    /**
-    * Helper method. Adds ordering to the query depending on the criteria option.
+    * Helper method. Adds ordering to the query depending on the criteria option. Test execution id
+    * is always used as the last ordering criterion, so the order of the pages is stable.
     *
     * @param criteria
     * @param orderBy
     * @param root
+    * @param orderByParamValue value of the parameter used for PARAMETER and VERSION ordering, null if not selected
     */
-   private void setOrderBy(CriteriaQuery criteria, OrderBy orderBy, Root root) {
+   private void setOrderBy(CriteriaQuery criteria, OrderBy orderBy, Root root, Expression<String> orderByParamValue) {
       CriteriaBuilder cb = criteriaBuilder();
 
-      //ignoring other OrderBy options (like PARAMETER), because it's not possible to order
-      //by values for specific parameter name in SQL. Therefore if the the option is PARAMETER(ASC|DESC)
-      //it's ordered afterwards, just like filterResultByParameters, see orderResultsByParameters
-      Order order;
+      List<Order> orders = new ArrayList<>();
       switch (orderBy) {
          case DATE_ASC:
-            order = cb.asc(root.get("started"));
+            orders.add(cb.asc(root.get("started")));
             break;
          case DATE_DESC:
-            order = cb.desc(root.get("started"));
+            orders.add(cb.desc(root.get("started")));
             break;
          case NAME_ASC:
-            order = cb.asc(root.get("name"));
+            orders.add(cb.asc(root.get("name")));
             break;
          case NAME_DESC:
-            order = cb.desc(root.get("name"));
+            orders.add(cb.desc(root.get("name")));
+            break;
+         case PARAMETER_ASC:
+         case PARAMETER_DESC:
+            if (orderByParamValue == null) {
+               orders.add(cb.desc(root.get("started")));
+               break;
+            }
+            orders.add(orderBy == OrderBy.PARAMETER_ASC ? cb.asc(orderByParamValue) : cb.desc(orderByParamValue));
+            break;
+         case VERSION_ASC:
+         case VERSION_DESC:
+            if (orderByParamValue == null) {
+               orders.add(cb.desc(root.get("started")));
+               break;
+            }
+            //numeric parts of the version first, the whole string breaks the ties (e.g. qualifiers)
+            Expression<String> versionKey = cb.function(PerfRepoPostgreSQLDialect.VERSION_KEY, String.class, orderByParamValue);
+            boolean ascending = orderBy == OrderBy.VERSION_ASC;
+            orders.add(ascending ? cb.asc(versionKey) : cb.desc(versionKey));
+            orders.add(ascending ? cb.asc(orderByParamValue) : cb.desc(orderByParamValue));
             break;
          default:
-            order = cb.desc(root.get("started"));
+            orders.add(cb.desc(root.get("started")));
       }
+      //id breaks the ties in the same direction, so that (started, id) index can be used in both directions
+      orders.add(orders.get(0).isAscending() ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
 
-      criteria.orderBy(order);
+      criteria.orderBy(orders);
    }
 
    /**
@@ -420,8 +868,9 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
     * duplication. Also makes the code more readable.
     *
     * @param search
+    * @param tagCriteria
     */
-   private AbstractQuery createSearchSubquery(AbstractQuery criteriaQuery, TestExecutionSearchTO search, List<String> includedTags, List<String> excludedTags) {
+   private AbstractQuery createSearchSubquery(AbstractQuery criteriaQuery, TestExecutionSearchTO search, TagCriteria tagCriteria) {
       AbstractQuery criteria = criteriaQuery;
       CriteriaBuilder cb = criteriaBuilder();
 
@@ -435,7 +884,6 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       Predicate pTestUID = cb.and();
       Predicate pTestGroups = cb.and();
       Predicate pParamsMatch = cb.and();
-      Predicate pHavingAllTagsPresent = cb.and();
 
       Root<TestExecution> rExec = criteria.from(TestExecution.class);
 
@@ -449,21 +897,20 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       if (search.getStartedTo() != null) {
          pStartedTo = cb.lessThanOrEqualTo(rExec.<Date>get("started"), cb.parameter(Date.class, "startedTo"));
       }
-      if (!includedTags.isEmpty() || !excludedTags.isEmpty()) {
-         Join<TestExecution, Tag> rTag = rExec.join("tags");
-         if (!includedTags.isEmpty()) {
-            pTagNameInFixedList = cb.lower(rTag.<String>get("name")).in(cb.parameter(List.class, "tagList"));
-            pHavingAllTagsPresent = cb.ge(cb.count(rTag.get("id")), cb.parameter(Long.class, "tagListSize"));
+      if (tagCriteria.matchingIds != null) {
+         pTagNameInFixedList = createTagMatchingIdsPredicate(rExec, tagCriteria.matchingIds);
+      } else if (tagCriteria.excludedIds != null) {
+         if (!tagCriteria.excludedIds.isEmpty()) {
+            pExcludedTags = cb.not(rExec.<Long>get("id").in(cb.parameter(List.class, "tagExcludedIds")));
          }
-
-         if (!excludedTags.isEmpty()) {
-            Subquery<Long> sq = criteria.subquery(Long.class);
-            Root<TestExecution> sqRoot = sq.from(TestExecution.class);
-            Join<TestExecution, Tag> sqTag = sqRoot.join("tags");
-            sq.select(sqRoot.<Long>get("id"));
-            sq.where(cb.lower(sqTag.<String>get("name")).in(cb.parameter(List.class, "excludedTagList")));
-
-            pExcludedTags = cb.not(rExec.get("id").in(sq));
+      } else {
+         // tags are matched against the distinct sets of tags, not against the tags of every test execution
+         Path<Long> pTagSetId = rExec.get("tagSetId");
+         if (!tagCriteria.includedTags.isEmpty()) {
+            pTagNameInFixedList = pTagSetId.in(createTagSetSubquery(criteria, "tagList", "tagListSize", true));
+         }
+         if (!tagCriteria.excludedTags.isEmpty()) {
+            pExcludedTags = cb.or(cb.isNull(pTagSetId), cb.not(pTagSetId.in(createTagSetSubquery(criteria, "excludedTagList", null, true))));
          }
       }
       if (search.getTestName() != null && !"".equals(search.getTestName())) {
@@ -479,15 +926,15 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
          pTestGroups = cb.and(rTest.<String>get("groupId").in(cb.parameter(List.class, "groupNames")));
       }
       if (search.getParameters() != null && !search.getParameters().isEmpty()) {
-         for (int pCount = 1; pCount < search.getParameters().size() + 1; pCount++) {
-            Join<TestExecution, TestExecutionParameter> rParam = rExec.join("parameters");
-            pParamsMatch = cb.and(pParamsMatch, cb.equal(rParam.get("name"), cb.parameter(String.class, "paramName" + pCount)));
-            pParamsMatch = cb.and(pParamsMatch, cb.like(rParam.<String>get("value"), cb.parameter(String.class, "paramValue" + pCount)));
+         //every criterion selects its own set of test executions, instead of joining the parameters once per criterion
+         int pCount = 1;
+         for (ParamCriteria paramCriteria : search.getParameters()) {
+            pParamsMatch = cb.and(pParamsMatch, rExec.get("id").in(createParameterSubquery(criteria, paramCriteria, pCount)));
+            pCount++;
          }
       }
       // construct query
       criteria.where(cb.and(pIds, pStartedFrom, pStartedTo, pTagNameInFixedList, pExcludedTags, pTestName, pTestUID, pTestGroups, pParamsMatch));
-      criteria.having(pHavingAllTagsPresent);
       // this isn't very elegant, but Postgres 8.4 doesn't allow GROUP BY only with id
       // this feature is allowed only since Postgres 9.1+
       criteria.groupBy(rExec.get("test"), rExec.get("id"), rExec.get("name"), rExec.get("started"), rExec.get("comment"));
@@ -500,135 +947,317 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
     * the test executions suit the conditions.
     *
     * @param search
-    * @param includedTags
-    * @param excludedTags
+    * @param tagCriteria
     * @param userGroups
     * @return
     */
-   private Integer processSearchCountQuery(TestExecutionSearchTO search, List<String> includedTags, List<String> excludedTags, List<String> userGroups) {
+   private Integer processSearchCountQuery(TestExecutionSearchTO search, TagCriteria tagCriteria, List<String> userGroups) {
       CriteriaBuilder cb = criteriaBuilder();
 
       CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
       Root<TestExecution> root = countQuery.from(TestExecution.class);
       countQuery.select(cb.countDistinct(root));
 
-      Subquery<Long> subquery = (Subquery) createSearchSubquery(countQuery.subquery(Long.class), search, includedTags, excludedTags);
+      Subquery<Long> subquery = (Subquery) createSearchSubquery(countQuery.subquery(Long.class), search, tagCriteria);
       Root<TestExecution> subqueryRoot = (Root<TestExecution>) subquery.getRoots().toArray()[0];
       subquery.select(subqueryRoot.<Long>get("id"));
 
       countQuery.where(cb.in(root.get("id")).value(subquery));
       TypedQuery<Long> typedCountQuery = query(countQuery);
-      fillParameterValues(typedCountQuery, search, includedTags, excludedTags, userGroups);
+      fillParameterValues(typedCountQuery, search, tagCriteria, userGroups);
 
       Long count = typedCountQuery.getSingleResult();
       return count.intValue();
    }
 
    /**
-    * After search of test executions with various properties, now we want to filter them
-    * according to test execution parameters. This method does the filtering.
-    * TODO: change the description, it's not true! This method does something else, find out what exactly and document it
+    * Helper method. Creates predicate selecting test executions following the cursor position in the
+    * ordering of the search, see {@link #setOrderBy(CriteriaQuery, OrderBy, Root, Expression)}.
+    *
+    * @param cursor
+    * @param root
+    * @return
+    */
+   private Predicate createCursorPredicate(SearchCursor cursor, Root<TestExecution> root) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      Predicate sameKey;
+      Predicate followingKey;
+      boolean ascending = cursor.getOrderBy() == OrderBy.DATE_ASC || cursor.getOrderBy() == OrderBy.NAME_ASC;
+      if (SearchCursor.isOrderedByDate(cursor.getOrderBy())) {
+         Path<Date> started = root.get("started");
+         ParameterExpression<Date> cursorKey = cb.parameter(Date.class, "cursorKey");
+         sameKey = cb.equal(started, cursorKey);
+         followingKey = ascending ? cb.greaterThan(started, cursorKey) : cb.lessThan(started, cursorKey);
+      } else {
+         Path<String> name = root.get("name");
+         ParameterExpression<String> cursorKey = cb.parameter(String.class, "cursorKey");
+         sameKey = cb.equal(name, cursorKey);
+         followingKey = ascending ? cb.greaterThan(name, cursorKey) : cb.lessThan(name, cursorKey);
+      }
+
+      // id is ordered in the same direction as the key as the last ordering criterion
+      ParameterExpression<Long> cursorId = cb.parameter(Long.class, "cursorId");
+      Predicate followingId = ascending ? cb.greaterThan(root.<Long>get("id"), cursorId) : cb.lessThan(root.<Long>get("id"), cursorId);
+      return cb.or(followingKey, cb.and(sameKey, followingId));
+   }
+
+   /**
+    * Helper method. Returns names of the test execution parameters, which values are retrieved together
+    * with the search result, i.e. displayed parameters and parameter the result is ordered by.
     *
-    * @param result
     * @param search
+    * @return
     */
-   private void filterResultByParameters(List<TestExecution> result, TestExecutionSearchTO search) {
-      List<String> displayedParams = null;
-      //go through the entered test parameters
-      //if the parameter doesn't have the value, add % as the value,
-      //i.e. check if the test execution has this parameter
-      if (search.getParameters() != null && !search.getParameters().isEmpty()) {
-         displayedParams = new ArrayList<String>(search.getParameters().size());
-         for (ParamCriteria pc : search.getParameters()) {
-            if (pc.isDisplayed()) {
-               displayedParams.add(pc.getName());
-            }
-            if (pc.getValue() == null || "".equals(pc.getValue().trim())) {
-               pc.setValue("%");
-            }
-         }
+   private List<String> getJoinedParameterNames(TestExecutionSearchTO search) {
+      List<String> paramNames = new ArrayList<>();
+      if (search.getParameters() != null) {
+         search.getParameters().stream()
+             .filter(pc -> pc.isDisplayed() && !paramNames.contains(pc.getName()))
+             .forEach(pc -> paramNames.add(pc.getName()));
       }
 
-      List<Long> execIds = EntityUtils.extractIds(result);
-      if (displayedParams != null && !displayedParams.isEmpty() && !execIds.isEmpty()) {
-         List<TestExecutionParameter> allParams = testExecutionParameterDAO.find(execIds, displayedParams);
-         Map<Long, List<TestExecutionParameter>> paramsByExecId = new HashMap<Long, List<TestExecutionParameter>>();
+      if (search.getOrderByParameter() != null && !paramNames.contains(search.getOrderByParameter())
+          && Arrays.asList(OrderBy.PARAMETER_ASC, OrderBy.PARAMETER_DESC, OrderBy.VERSION_ASC, OrderBy.VERSION_DESC).contains(search.getOrderBy())) {
+         paramNames.add(search.getOrderByParameter());
+      }
 
-         for (TestExecutionParameter param : allParams) {
-            List<TestExecutionParameter> paramListForExec = paramsByExecId.get(param.getTestExecution().getId());
-            if (paramListForExec == null) {
-               paramListForExec = new ArrayList<TestExecutionParameter>(displayedParams.size());
-               paramsByExecId.put(param.getTestExecution().getId(), paramListForExec);
-            }
+      return paramNames;
+   }
 
-            paramListForExec.add(param);
-         }
+   /**
+    * Helper method. Retrieves test executions with given ids together with all the details. Only the needed columns
+    * are selected, the test executions, tests and the associations are built from them, so no entity is loaded
+    * into the persistence context and nothing has to be cloned. The associations are retrieved by separate queries
+    * for all test executions at once.
+    *
+    * @param ids
+    * @return detached test executions in no particular order
+    */
+   private List<TestExecution> fetchFullTestExecutions(List<Long> ids) {
+      CriteriaBuilder cb = criteriaBuilder();
 
-         for (TestExecution exec : result) {
-            List<TestExecutionParameter> paramListForExec = paramsByExecId.get(exec.getId());
-            exec.setParameters(paramListForExec == null ? Collections.<TestExecutionParameter>emptyList() : paramListForExec);
-            exec.setTags(EntityUtils.clone(exec.getTags()));
-         }
-      } else {
-         for (TestExecution exec : result) {
-            if (exec.getTags() == null) {
-               continue;
-            }
+      CriteriaQuery<Tuple> execCriteria = cb.createTupleQuery();
+      Root<TestExecution> rExec = execCriteria.from(TestExecution.class);
+      List<Selection<?>> selections = executionSelections(rExec);
+      selections.addAll(testSelections(rExec.join("test")));
+      execCriteria.multiselect(selections);
+      execCriteria.where(rExec.get("id").in(cb.parameter(List.class, "ids")));
+      List<TestExecution> result = new ArrayList<>(ids.size());
+      Map<Long, Test> testsById = new HashMap<>();
+      for (Tuple row : query(execCriteria).setParameter("ids", ids).getResultList()) {
+         TestExecution exec = toTestExecution(row);
+         exec.setTest(testsById.computeIfAbsent(row.get("testId", Long.class), id -> toTest(row)));
+         result.add(exec);
+      }
+      if (result.isEmpty()) {
+         return result;
+      }
 
-            exec.setParameters(Collections.<TestExecutionParameter>emptyList());
-            exec.setTags(EntityUtils.clone(exec.getTags()));
-         }
+      CriteriaQuery<Tuple> paramCriteria = cb.createTupleQuery();
+      Root<TestExecutionParameter> rParam = paramCriteria.from(TestExecutionParameter.class);
+      paramCriteria.multiselect(rParam.get("id").alias("id"), rParam.get("name").alias("name"), rParam.get("value").alias("value"),
+                                rParam.get("testExecution").get("id").alias("execId"));
+      paramCriteria.where(rParam.get("testExecution").get("id").in(cb.parameter(List.class, "ids")));
+      Map<Long, List<TestExecutionParameter>> paramsByExecId = new HashMap<>();
+      for (Tuple row : query(paramCriteria).setParameter("ids", ids).getResultList()) {
+         TestExecutionParameter param = new TestExecutionParameter(row.get("name", String.class), row.get("value", String.class));
+         param.setId(row.get("id", Long.class));
+         paramsByExecId.computeIfAbsent(row.get("execId", Long.class), id -> new ArrayList<>()).add(param);
+      }
+
+      // content of attachments is mapped separately, it's retrieved only on download
+      CriteriaQuery<Tuple> attachmentCriteria = cb.createTupleQuery();
+      Root<TestExecutionAttachment> rAttachment = attachmentCriteria.from(TestExecutionAttachment.class);
+      attachmentCriteria.multiselect(rAttachment.get("id").alias("id"), rAttachment.get("filename").alias("filename"),
+                                     rAttachment.get("mimetype").alias("mimetype"), rAttachment.get("contentSize").alias("contentSize"),
+                                     rAttachment.get("checksum").alias("checksum"), rAttachment.get("testExecution").get("id").alias("execId"));
+      attachmentCriteria.where(rAttachment.get("testExecution").get("id").in(cb.parameter(List.class, "ids")));
+      Map<Long, List<TestExecutionAttachment>> attachmentsByExecId = new HashMap<>();
+      for (Tuple row : query(attachmentCriteria).setParameter("ids", ids).getResultList()) {
+         TestExecutionAttachment attachment = new TestExecutionAttachment(row.get("id", Long.class), row.get("filename", String.class), row.get("mimetype", String.class),
+                                                                          row.get("contentSize", Long.class), row.get("checksum", String.class));
+         attachmentsByExecId.computeIfAbsent(row.get("execId", Long.class), id -> new ArrayList<>()).add(attachment);
       }
+
+      for (TestExecution exec : result) {
+         List<TestExecutionParameter> parameters = paramsByExecId.getOrDefault(exec.getId(), new ArrayList<>());
+         parameters.forEach(param -> param.setTestExecution(exec));
+         exec.setParameters(parameters);
+         List<TestExecutionAttachment> attachments = attachmentsByExecId.getOrDefault(exec.getId(), new ArrayList<>());
+         attachments.forEach(attachment -> attachment.setTestExecution(exec));
+         exec.setAttachments(attachments);
+      }
+      fillValues(result);
+      fillTags(result);
+
+      return result;
    }
 
    /**
-    * Performs ordering on test executions by values of specified parameter.
+    * Retrieves values of all passed (detached) test executions together with their metrics and value parameters
+    * and sets them to the test executions. One query is used for every {@link #IN_CLAUSE_CHUNK_SIZE} test executions,
+    * values of the same metric share one detached metric.
     *
     * @param testExecutions
-    * @param search
     */
-   private void orderResultsByParameters(List<TestExecution> testExecutions, TestExecutionSearchTO search) {
-      if (!Arrays.asList(OrderBy.PARAMETER_ASC,
-                         OrderBy.PARAMETER_DESC,
-                         OrderBy.VERSION_ASC,
-                         OrderBy.VERSION_DESC).contains(search.getOrderBy())) {
+   public void fillValues(List<TestExecution> testExecutions) {
+      if (testExecutions.isEmpty()) {
          return;
       }
 
-      List<Long> executionIds = testExecutions.stream().map(TestExecution::getId).collect(Collectors.toList());
-      List<TestExecutionParameter> parameters = testExecutionParameterDAO.find(executionIds, Arrays.asList(search.getOrderByParameter()));
-      Map<Long, List<TestExecutionParameter>> parametersByExecution = parameters.stream().collect(Collectors.groupingBy(parameter -> parameter.getTestExecution().getId()));
-      testExecutions.stream().forEach(execution -> execution.setParameters(parametersByExecution.get(execution.getId())));
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Tuple> criteria = cb.createTupleQuery();
+      Root<Value> rValue = criteria.from(Value.class);
+      Join<Value, Metric> rMetric = rValue.join("metric");
+      Join<Value, ValueParameter> rValueParam = rValue.join("parameters", JoinType.LEFT);
+      criteria.multiselect(rValue.get("id").alias("id"), rValue.get("resultValue").alias("resultValue"), rValue.get("testExecution").get("id").alias("execId"),
+                           rMetric.get("id").alias("metricId"), rMetric.get("name").alias("metricName"), rMetric.get("comparator").alias("metricComparator"),
+                           rMetric.get("description").alias("metricDescription"), rValueParam.get("id").alias("paramId"),
+                           rValueParam.get("name").alias("paramName"), rValueParam.get("paramValue").alias("paramValue"));
+      criteria.where(rValue.get("testExecution").get("id").in(cb.parameter(List.class, "ids")));
+      criteria.orderBy(cb.asc(rValue.get("id")), cb.asc(rValueParam.get("id")));
+
+      Map<Long, Metric> metricsById = new HashMap<>();
+      Map<Long, Value> valuesById = new HashMap<>();
+      Map<Long, List<Value>> valuesByExecId = new HashMap<>();
+      for (List<Long> chunk : Lists.partition(EntityUtils.extractIds(testExecutions), IN_CLAUSE_CHUNK_SIZE)) {
+         // every value is repeated for each of its parameters
+         for (Tuple row : query(criteria).setParameter("ids", chunk).getResultList()) {
+            Value value = valuesById.computeIfAbsent(row.get("id", Long.class), id -> {
+               Value newValue = new Value();
+               newValue.setId(id);
+               newValue.setResultValue(row.get("resultValue", Double.class));
+               newValue.setMetric(metricsById.computeIfAbsent(row.get("metricId", Long.class), metricId -> toMetric(row)));
+               newValue.setParameters(new ArrayList<>());
+               valuesByExecId.computeIfAbsent(row.get("execId", Long.class), execId -> new ArrayList<>()).add(newValue);
+               return newValue;
+            });
+
+            Long paramId = row.get("paramId", Long.class);
+            if (paramId != null) {
+               ValueParameter param = new ValueParameter(row.get("paramName", String.class), row.get("paramValue", String.class));
+               param.setId(paramId);
+               param.setValue(value);
+               value.getParameters().add(param);
+            }
+         }
+      }
+
+      for (TestExecution exec : testExecutions) {
+         List<Value> values = valuesByExecId.getOrDefault(exec.getId(), new ArrayList<>());
+         values.forEach(value -> value.setTestExecution(exec));
+         exec.setValues(values);
+      }
+   }
 
-      Collections.sort(testExecutions,
-                       (o1, o2) -> {
-                          String o1paramValue = o1.getParametersAsMap().get(search.getOrderByParameter());
-                          int orderCoefficient = search.getOrderBy() == OrderBy.PARAMETER_ASC || search.getOrderBy() == OrderBy.VERSION_ASC ? 1 : -1;
-                          if (o1paramValue == null) {
-                             return orderCoefficient * 1;
-                          }
+   /**
+    * Helper method. Retrieves tags of all passed (detached) test executions by single query and sets them to the
+    * test executions, test executions with the same tag share one detached tag.
+    *
+    * @param testExecutions
+    */
+   private void fillTags(List<TestExecution> testExecutions) {
+      if (testExecutions.isEmpty()) {
+         return;
+      }
+
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Tuple> criteria = cb.createTupleQuery();
+      Root<TestExecution> rExec = criteria.from(TestExecution.class);
+      Join<TestExecution, Tag> rTag = rExec.join("tags");
+      criteria.multiselect(rExec.get("id").alias("execId"), rTag.get("id").alias("tagId"), rTag.get("name").alias("tagName"));
+      criteria.where(rExec.get("id").in(cb.parameter(List.class, "ids")));
+
+      TypedQuery<Tuple> query = query(criteria);
+      query.setParameter("ids", EntityUtils.extractIds(testExecutions));
+
+      Map<Long, Tag> tagsById = new HashMap<>();
+      Map<Long, List<Tag>> tagsByExecId = new HashMap<>();
+      for (Tuple row : query.getResultList()) {
+         Tag tag = tagsById.computeIfAbsent(row.get("tagId", Long.class), id -> {
+            Tag newTag = new Tag();
+            newTag.setId(id);
+            newTag.setName(row.get("tagName", String.class));
+            return newTag;
+         });
+         tagsByExecId.computeIfAbsent(row.get("execId", Long.class), id -> new ArrayList<>()).add(tag);
+      }
 
-                          return orderCoefficient * performCompare(o1paramValue, o2.getParametersAsMap().get(search.getOrderByParameter()), search);
-                       });
+      for (TestExecution exec : testExecutions) {
+         exec.setTags(tagsByExecId.getOrDefault(exec.getId(), new ArrayList<>()));
+      }
    }
 
    /**
-    * According to selected ordering mechanism, this method performs the comparison.
+    * Helper method. Retrieves tests with given ids by single query, only the columns of the tests themselves are
+    * selected.
     *
-    * @param value1
-    * @param value2
-    * @param search
-    * @return
+    * @param ids
+    * @return detached tests by their ids
     */
-   private int performCompare(String value1, String value2, TestExecutionSearchTO search) {
-      if (search.getOrderBy() == OrderBy.VERSION_ASC || search.getOrderBy() == OrderBy.VERSION_DESC) {
-         DefaultArtifactVersion version1 = new DefaultArtifactVersion(value1);
-         DefaultArtifactVersion version2 = new DefaultArtifactVersion(value2);
+   private Map<Long, Test> fetchTests(Collection<Long> ids) {
+      Map<Long, Test> testsById = new HashMap<>();
+      if (ids.isEmpty()) {
+         return testsById;
+      }
 
-         return version1.compareTo(version2);
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Tuple> criteria = cb.createTupleQuery();
+      Root<Test> rTest = criteria.from(Test.class);
+      criteria.multiselect(testSelections(rTest));
+      criteria.where(rTest.get("id").in(cb.parameter(List.class, "ids")));
+      for (Tuple row : query(criteria).setParameter("ids", new ArrayList<>(ids)).getResultList()) {
+         testsById.put(row.get("testId", Long.class), toTest(row));
       }
+      return testsById;
+   }
+
+   /**
+    * Helper method. Selects the columns of the test execution read by {@link #toTestExecution(Tuple)}.
+    *
+    * @param rExec
+    * @return modifiable list of the selections
+    */
+   private static List<Selection<?>> executionSelections(From<?, TestExecution> rExec) {
+      return new ArrayList<>(Arrays.asList(rExec.get("id").alias("id"), rExec.get("name").alias("name"),
+                                           rExec.get("started").alias("started"), rExec.get("comment").alias("comment")));
+   }
+
+   /**
+    * Helper method. Selects the columns of the test read by {@link #toTest(Tuple)}.
+    *
+    * @param rTest
+    * @return modifiable list of the selections
+    */
+   private static List<Selection<?>> testSelections(From<?, Test> rTest) {
+      return new ArrayList<>(Arrays.asList(rTest.get("id").alias("testId"), rTest.get("name").alias("testName"), rTest.get("uid").alias("testUid"),
+                                           rTest.get("groupId").alias("testGroupId"), rTest.get("description").alias("testDescription")));
+   }
+
+   private static TestExecution toTestExecution(Tuple row) {
+      TestExecution exec = new TestExecution();
+      exec.setId(row.get("id", Long.class));
+      exec.setName(row.get("name", String.class));
+      exec.setStarted(row.get("started", Date.class));
+      exec.setComment(row.get("comment", String.class));
+      return exec;
+   }
+
+   private static Test toTest(Tuple row) {
+      Test test = new Test();
+      test.setId(row.get("testId", Long.class));
+      test.setName(row.get("testName", String.class));
+      test.setUid(row.get("testUid", String.class));
+      test.setGroupId(row.get("testGroupId", String.class));
+      test.setDescription(row.get("testDescription", String.class));
+      return test;
+   }
 
-      return value1.compareTo(value2);
+   private static Metric toMetric(Tuple row) {
+      Metric metric = new Metric(row.get("metricName", String.class), row.get("metricComparator", MetricComparator.class), row.get("metricDescription", String.class));
+      metric.setId(row.get("metricId", Long.class));
+      return metric;
    }
 
    /**
@@ -639,37 +1268,132 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
     * Hence, the basics of the query are extracted to this method to avoid code duplication.
     *
     * @param criteriaQuery
+    * @param tagMatchingIds IDs of test executions having the tags resolved by {@link TagIndex}, null if the tags are
+    * resolved by database
     * @return
     */
-   private AbstractQuery createSubqueryByTags(AbstractQuery criteriaQuery) {
+   private AbstractQuery createSubqueryByTags(AbstractQuery criteriaQuery, List<Long> tagMatchingIds) {
       CriteriaBuilder cb = criteriaBuilder();
 
       AbstractQuery query = criteriaQuery;
       Root<TestExecution> rExec = query.from(TestExecution.class);
       Join<TestExecution, Test> rTest = rExec.join("test");
       Predicate pTestUID = rTest.<String>get("uid").in(cb.parameter(List.class, "testUID"));
-      Join<TestExecution, Tag> rTag = rExec.join("tags");
-      Predicate pTagNameInFixedList = rTag.get("name").in(cb.parameter(List.class, "tagList"));
-      Predicate pHavingAllTagsPresent = cb.ge(cb.count(rTag.get("id")), cb.parameter(Long.class, "tagListSize"));
+      if (tagMatchingIds != null) {
+         query.where(cb.and(createTagMatchingIdsPredicate(rExec, tagMatchingIds), pTestUID));
+         return query;
+      }
 
+      Predicate pTagNameInFixedList = rExec.<Long>get("tagSetId").in(createTagSetSubquery(query, "tagList", "tagListSize", false));
       query.where(cb.and(pTagNameInFixedList, pTestUID));
-      query.having(pHavingAllTagsPresent);
-      query.groupBy(rExec.get("test"), rExec.get("id"), rExec.get("name"), rExec.get("started"), rExec.get("comment"));
 
       return query;
    }
 
+   /**
+    * Helper method. Creates subquery selecting IDs of the sets of tags (see {@link TagSet}) containing all the tags
+    * from the list parameter, i.e. sets of the test executions having at least these tags. Matching the few distinct
+    * sets is much cheaper than grouping tags of all the test executions.
+    *
+    * @param query
+    * @param tagListParameter name of the parameter with list of the tags
+    * @param sizeParameter name of the parameter with size of the list, null if the set has to contain any of the tags
+    * @param ignoreCase whether the tag names are compared case insensitively, the names are expected in lower case then
+    * @return
+    */
+   private Subquery<Long> createTagSetSubquery(AbstractQuery<?> query, String tagListParameter, String sizeParameter, boolean ignoreCase) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      Subquery<Long> subquery = query.subquery(Long.class);
+      Root<TagSet> rTagSet = subquery.from(TagSet.class);
+      Join<TagSet, Tag> rTag = rTagSet.join("tagEntities");
+      Expression<String> tagName = ignoreCase ? cb.lower(rTag.<String>get("name")) : rTag.<String>get("name");
+      subquery.select(rTagSet.<Long>get("id"));
+      subquery.where(tagName.in(cb.parameter(List.class, tagListParameter)));
+      if (sizeParameter != null) {
+         subquery.groupBy(rTagSet.get("id"));
+         subquery.having(cb.ge(cb.countDistinct(rTag.get("id")), cb.parameter(Long.class, sizeParameter)));
+      }
+
+      return subquery;
+   }
+
+   /**
+    * Helper method. Creates subquery selecting IDs of test executions having the parameter matching the criterion.
+    * Exact value is looked up by the encoded (name, value) pair, see {@link TestExecutionParameter#pairKey(String, String)},
+    * which is indexed together with the test execution ID, LIKE is used only if the value contains wildcards.
+    *
+    * @param query
+    * @param paramCriteria
+    * @param pCount number of the criterion, used in names of the parameters
+    * @return
+    */
+   private Subquery<Long> createParameterSubquery(AbstractQuery<?> query, ParamCriteria paramCriteria, int pCount) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      Subquery<Long> subquery = query.subquery(Long.class);
+      Root<TestExecutionParameter> rParam = subquery.from(TestExecutionParameter.class);
+      subquery.select(rParam.get("testExecution").<Long>get("id"));
+
+      Predicate pName = cb.equal(rParam.get("name"), cb.parameter(String.class, "paramName" + pCount));
+      if (isParameterPattern(paramCriteria.getValue())) {
+         if (isAnyParameterValue(paramCriteria.getValue())) {
+            subquery.where(pName);
+         } else {
+            subquery.where(cb.and(pName, cb.like(rParam.<String>get("value"), cb.parameter(String.class, "paramValue" + pCount))));
+         }
+      } else {
+         Predicate pPairKey = cb.equal(rParam.get("pairKey"), cb.parameter(Long.class, "paramKey" + pCount));
+         //different pairs may have the same key
+         Predicate pValue = cb.equal(rParam.get("value"), cb.parameter(String.class, "paramValue" + pCount));
+         subquery.where(cb.and(pPairKey, pName, pValue));
+      }
+
+      return subquery;
+   }
+
+   /**
+    * @param value
+    * @return true if the parameter value criterion has to be evaluated by LIKE, i.e. contains wildcards or is not set
+    */
+   private static boolean isParameterPattern(String value) {
+      return value == null || value.contains("%") || value.contains("_");
+   }
+
+   /**
+    * @param value
+    * @return true if the parameter value criterion matches any value, i.e. only presence of the parameter is checked
+    */
+   private static boolean isAnyParameterValue(String value) {
+      return value == null || value.matches("%+");
+   }
+
+   /**
+    * Restricts the values to the range of start dates of their test executions, so only the monthly partitions
+    * of the test executions are scanned, see <code>partitioning_1_8.sql</code>.
+    *
+    * @param cb
+    * @param value
+    * @param started start dates of the test executions the values belong to
+    * @return
+    */
+   private static Predicate startedWithin(CriteriaBuilder cb, From<?, Value> value, Collection<Date> started) {
+      if (started.isEmpty()) {
+         return cb.and();
+      }
+      return cb.between(value.<Date>get("started"), Collections.min(started), Collections.max(started));
+   }
+
    /**
     * Helper method. Search query is quite complicated and has a lot of parameters. This method
     * assigns the value to every predefined parameter.
     *
     * @param query
     * @param search
-    * @param includedTags
-    * @param excludedTags
+    * @param tagCriteria
     * @param userGroups
     */
-   private void fillParameterValues(TypedQuery query, TestExecutionSearchTO search, List<String> includedTags, List<String> excludedTags, List<String> userGroups) {
+   private void fillParameterValues(TypedQuery query, TestExecutionSearchTO search, TagCriteria tagCriteria, List<String> userGroups) {
       if (search.getIds() != null) {
          query.setParameter("ids", search.getIds());
       }
@@ -679,12 +1403,22 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       if (search.getStartedTo() != null) {
          query.setParameter("startedTo", search.getStartedTo());
       }
-      if (!includedTags.isEmpty()) {
-         query.setParameter("tagList", includedTags);
-         query.setParameter("tagListSize", new Long(includedTags.size()));
-      }
-      if (!excludedTags.isEmpty()) {
-         query.setParameter("excludedTagList", excludedTags);
+      if (tagCriteria.matchingIds != null) {
+         if (!tagCriteria.matchingIds.isEmpty()) {
+            query.setParameter("tagMatchingIds", tagCriteria.matchingIds);
+         }
+      } else if (tagCriteria.excludedIds != null) {
+         if (!tagCriteria.excludedIds.isEmpty()) {
+            query.setParameter("tagExcludedIds", tagCriteria.excludedIds);
+         }
+      } else {
+         if (!tagCriteria.includedTags.isEmpty()) {
+            query.setParameter("tagList", tagCriteria.includedTags);
+            query.setParameter("tagListSize", new Long(tagCriteria.includedTags.size()));
+         }
+         if (!tagCriteria.excludedTags.isEmpty()) {
+            query.setParameter("excludedTagList", tagCriteria.excludedTags);
+         }
       }
       if (search.getTestName() != null && !"".equals(search.getTestName())) {
          if (search.getTestName().endsWith("*")) {
@@ -709,7 +1443,14 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
          int pCount = 1;
          for (ParamCriteria paramCriteria : search.getParameters()) {
             query.setParameter("paramName" + pCount, paramCriteria.getName());
-            query.setParameter("paramValue" + pCount, paramCriteria.getValue());
+            if (isParameterPattern(paramCriteria.getValue())) {
+               if (!isAnyParameterValue(paramCriteria.getValue())) {
+                  query.setParameter("paramValue" + pCount, paramCriteria.getValue());
+               }
+            } else {
+               query.setParameter("paramKey" + pCount, TestExecutionParameter.pairKey(paramCriteria.getName(), paramCriteria.getValue()));
+               query.setParameter("paramValue" + pCount, paramCriteria.getValue());
+            }
             pCount++;
          }
       }
@@ -725,17 +1466,89 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
     * @param criteriaQuery
     * @param testUIDs
     * @param tags
+    * @param tagMatchingIds
     * @return
     */
-   private TypedQuery createTypedQueryByTags(CriteriaQuery criteriaQuery, List<String> testUIDs, List<String> tags) {
+   private TypedQuery createTypedQueryByTags(CriteriaQuery criteriaQuery, List<String> testUIDs, List<String> tags, List<Long> tagMatchingIds) {
       TypedQuery<TestExecution> query = query(criteriaQuery);
       query.setParameter("testUID", testUIDs);
-      query.setParameter("tagList", tags);
-      query.setParameter("tagListSize", new Long(tags.size()));
+      if (tagMatchingIds != null) {
+         if (!tagMatchingIds.isEmpty()) {
+            query.setParameter("tagMatchingIds", tagMatchingIds);
+         }
+      } else {
+         query.setParameter("tagList", tags);
+         query.setParameter("tagListSize", new Long(tags.size()));
+      }
 
       return query;
    }
 
+   /**
+    * Helper method. Parses tag criteria of the search and resolves them by {@link TagIndex}, if they're selective
+    * enough.
+    *
+    * @param tags tags in the search format, i.e. separated by space, excluded tags with prefix '-'
+    * @return
+    */
+   private TagCriteria createTagCriteria(String tags) {
+      TagCriteria tagCriteria = new TagCriteria();
+      divideTags(TagUtils.parseTags(tags != null ? tags.toLowerCase() : ""), tagCriteria.includedTags, tagCriteria.excludedTags);
+      if (tagCriteria.includedTags.isEmpty() && tagCriteria.excludedTags.isEmpty()) {
+         return tagCriteria;
+      }
+
+      CompressedBitmap matching = matchTags(tagCriteria.includedTags, tagCriteria.excludedTags, true);
+      if (matching != null && matching.cardinality() <= MAX_TAG_MATCHING_IDS) {
+         if (tagCriteria.includedTags.isEmpty()) {
+            tagCriteria.excludedIds = matching.toLongList();
+         } else {
+            tagCriteria.matchingIds = matching.toLongList();
+         }
+      }
+
+      return tagCriteria;
+   }
+
+   /**
+    * Helper method. Resolves the tags by {@link TagIndex}, loads the index first if needed.
+    *
+    * @param includedTags
+    * @param excludedTags
+    * @param ignoreCase
+    * @return see {@link TagIndex#match(Collection, Collection, boolean)}
+    */
+   private CompressedBitmap matchTags(List<String> includedTags, List<String> excludedTags, boolean ignoreCase) {
+      if (!tagIndex.isLoaded() && tagIndex.beginLoad()) {
+         List<Object[]> rows = null;
+         try {
+            CriteriaBuilder cb = criteriaBuilder();
+            CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+            Root<TestExecution> rExec = criteria.from(TestExecution.class);
+            Join<TestExecution, Tag> rTag = rExec.join("tags");
+            criteria.multiselect(rExec.get("id"), rTag.get("name"));
+            rows = query(criteria).getResultList();
+         } finally {
+            tagIndex.finishLoad(rows);
+         }
+      }
+
+      return tagIndex.match(includedTags, excludedTags, ignoreCase);
+   }
+
+   /**
+    * Helper method. Creates predicate selecting test executions which IDs were resolved by {@link TagIndex}.
+    *
+    * @param root
+    * @param ids
+    * @return
+    */
+   private Predicate createTagMatchingIdsPredicate(Root<TestExecution> root, List<Long> ids) {
+      CriteriaBuilder cb = criteriaBuilder();
+      //IN with empty list is not valid SQL, nothing matches
+      return ids.isEmpty() ? cb.disjunction() : root.<Long>get("id").in(cb.parameter(List.class, "tagMatchingIds"));
+   }
+
    /**
     * Helper method. Divides the list of tags to two groups - included and excluded tags. Excluded tags have
     * prefix '-'. Divides and stores it into the parameters.
@@ -820,4 +1633,18 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       }
       return testExecution;
    }
+
+   /**
+    * Tag criteria of the search, either resolved by {@link TagIndex} to IDs of test executions, or to be resolved
+    * by database.
+    */
+   private static class TagCriteria {
+
+      private final List<String> includedTags = new ArrayList<>();
+      private final List<String> excludedTags = new ArrayList<>();
+      // test executions having all included tags and no excluded tag, null if not resolved by the index
+      private List<Long> matchingIds;
+      // test executions having any excluded tag if there are no included tags, null if not resolved by the index
+      private List<Long> excludedIds;
+   }
 }
\ No newline at end of file
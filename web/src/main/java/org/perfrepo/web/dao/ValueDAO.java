@@ -25,6 +25,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -58,4 +59,22 @@ public class ValueDAO extends DAO<Value, Long> {
       query.setParameter("execId", execId);
       return query.getResultList();
    }
-}
\ No newline at end of file
+
+   /**
+    * Sets the start of the test execution copied into its values and value parameters, so they stay in the same
+    * monthly partition as the test execution. Bulk update, values loaded in the persistence context are not changed.
+    *
+    * @param execId
+    * @param started
+    */
+   public void updateStarted(Long execId, Date started) {
+      entityManager().createQuery("UPDATE ValueParameter vp SET vp.started = :started WHERE vp.value.id IN (SELECT v.id FROM Value v WHERE v.testExecution.id = :execId)")
+          .setParameter("started", started)
+          .setParameter("execId", execId)
+          .executeUpdate();
+      entityManager().createQuery("UPDATE Value v SET v.started = :started WHERE v.testExecution.id = :execId")
+          .setParameter("started", started)
+          .setParameter("execId", execId)
+          .executeUpdate();
+   }
+}
@@ -34,7 +34,7 @@ public class MetricREST {
    private TestService testService;
 
    @GET
-   @Produces(MediaType.TEXT_XML)
+   @Produces({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Path("/{metricId}")
    @Logged
    public Response get(@PathParam("metricId") Long metricId) {
@@ -14,6 +14,9 @@
  */
 package org.perfrepo.web.rest;
 
+import org.perfrepo.web.rest.json.JacksonContextResolver;
+import org.perfrepo.web.rest.json.JaxbContextResolver;
+
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
 import java.util.HashSet;
@@ -30,6 +33,8 @@ public class PerfRepoRESTApplication extends Application {
       classes.add(TestREST.class);
       classes.add(ReportREST.class);
       classes.add(InfoREST.class);
+      classes.add(JaxbContextResolver.class);
+      classes.add(JacksonContextResolver.class);
    }
 
    @Override
@@ -64,7 +64,7 @@ public class ReportREST {
    }
 
    @GET
-   @Produces(MediaType.TEXT_XML)
+   @Produces({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Path("/id/{reportId}")
    @Logged
    public Response get(@PathParam("reportId") Long reportId) {
@@ -73,7 +73,7 @@ public class ReportREST {
 
    @POST
    @Path("/create")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response create(Report report, @Context UriInfo uriInfo) throws Exception {
@@ -122,7 +122,7 @@ public class ReportREST {
 
    @POST
    @Path("/id/{reportId}/addPermission")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response addPermission(Permission permission, @Context UriInfo uriInfo) throws ServiceException {
@@ -133,7 +133,7 @@ public class ReportREST {
 
    @POST
    @Path("/id/{reportId}/updatePermission")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response updatePermission(Permission permission, @Context UriInfo uriInfo) throws ServiceException {
@@ -144,7 +144,7 @@ public class ReportREST {
 
    @POST
    @Path("/id/{reportId}/deletePermission")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response deletePermission(Permission permission, @Context UriInfo uriInfo) throws ServiceException {
@@ -19,11 +19,16 @@ import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.TestExecutionAttachment;
 import org.perfrepo.model.Value;
+import org.perfrepo.model.to.AttachmentUploadTO;
+import org.perfrepo.model.to.BulkCreateResultTO;
+import org.perfrepo.model.to.BulkOperationTO;
 import org.perfrepo.model.to.SearchResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.web.dao.SearchCursor;
 import org.perfrepo.web.rest.logging.Logged;
 import org.perfrepo.web.service.TestService;
 import org.perfrepo.web.service.exceptions.ServiceException;
+import org.perfrepo.web.util.ByteRange;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -31,7 +36,16 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -47,13 +61,27 @@ import java.util.stream.Collectors;
 @RequestScoped
 public class TestExecutionREST {
 
+   /**
+    * Response header of the search, which contains cursor of the next page of cursor-based search.
+    */
+   public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+   /**
+    * Media type of newline-delimited JSON.
+    */
+   public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
    private static Method GET_TEST_EXECUTION_METHOD;
    private static Method GET_ATTACHMENT_METHOD;
+   private static Method GET_BULK_OPERATION_METHOD;
+   private static Method GET_ATTACHMENT_UPLOAD_METHOD;
 
    static {
       try {
          GET_TEST_EXECUTION_METHOD = TestExecutionREST.class.getMethod("get", Long.class);
-         GET_ATTACHMENT_METHOD = TestExecutionREST.class.getMethod("getAttachment", Long.class);
+         GET_ATTACHMENT_METHOD = TestExecutionREST.class.getMethod("getAttachment", Long.class, String.class);
+         GET_BULK_OPERATION_METHOD = TestExecutionREST.class.getMethod("getBulkOperation", Long.class);
+         GET_ATTACHMENT_UPLOAD_METHOD = TestExecutionREST.class.getMethod("getAttachmentUpload", String.class);
       } catch (Exception e) {
          e.printStackTrace(System.err);
       }
@@ -63,7 +91,7 @@ public class TestExecutionREST {
    private TestService testService;
 
    @GET
-   @Produces(MediaType.TEXT_XML)
+   @Produces({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Path("/{testExecutionId}")
    @Logged
    public Response get(@PathParam("testExecutionId") Long testExecutionId) {
@@ -72,7 +100,7 @@ public class TestExecutionREST {
 
    @POST()
    @Path("/create")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response create(TestExecution testExecution, @Context UriInfo uriInfo) throws ServiceException {
@@ -92,6 +120,23 @@ public class TestExecutionREST {
       return Response.created(uriInfo.getBaseUriBuilder().path(TestExecutionREST.class).path(GET_TEST_EXECUTION_METHOD).build(id)).entity(id).build();
    }
 
+   @POST
+   @Path("/bulkCreate")
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+   @Logged
+   public Response bulkCreate(@Wrapped(element = "testExecutions", namespace = "", prefix = "") List<TestExecution> testExecutions) {
+      Date now = new Date();
+      for (TestExecution testExecution : testExecutions) {
+         if (testExecution.getStarted() == null) {
+            testExecution.setStarted(now);
+         }
+      }
+
+      BulkCreateResultTO result = testService.createTestExecutions(testExecutions);
+      return Response.ok(result).build();
+   }
+
    @POST
    @Path("/update/{testExecutionId}")
    @Produces(MediaType.TEXT_PLAIN)
@@ -112,20 +157,94 @@ public class TestExecutionREST {
 
    @POST
    @Path("/search")
-   @Consumes(MediaType.TEXT_XML)
-   @Produces(MediaType.APPLICATION_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
    @Wrapped(element = "testExecutions")
    @Logged
    public Response search(TestExecutionSearchTO criteria) {
+      if (criteria.getCursor() != null) {
+         try {
+            SearchCursor.decode(criteria.getCursor(), criteria.getOrderBy());
+         } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST).entity(e.getMessage()).build();
+         }
+      }
+
       SearchResultWrapper<TestExecution> searchResultWrapper = testService.searchTestExecutions(criteria);
       List<TestExecution> result = testService.getFullTestExecutions(searchResultWrapper.getResult().stream().map(TestExecution::getId).collect(Collectors.toList()));
       GenericEntity<List<TestExecution>> entity = new GenericEntity<List<TestExecution>>(result) { };
-      return Response.ok(entity).build();
+      ResponseBuilder response = Response.ok(entity);
+      if (searchResultWrapper.getNextCursor() != null) {
+         response.header(NEXT_CURSOR_HEADER, searchResultWrapper.getNextCursor());
+      }
+      return response.build();
+   }
+
+   @POST
+   @Path("/export")
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
+   @Produces({MediaType.APPLICATION_XML, APPLICATION_NDJSON})
+   @Logged
+   public Response export(TestExecutionSearchTO criteria, @Context HttpHeaders headers, @Context Providers providers) {
+      if (!SearchCursor.isSupported(criteria.getOrderBy())) {
+         return Response.status(Status.BAD_REQUEST).entity("Export supports only DATE_* and NAME_* ordering.").build();
+      }
+
+      boolean json = headers.getAcceptableMediaTypes().stream()
+          .anyMatch(type -> !type.isWildcardType() && !type.isWildcardSubtype() && type.isCompatible(MediaType.valueOf(APPLICATION_NDJSON)));
+      MessageBodyWriter<TestExecution> jsonWriter = null;
+      if (json) {
+         jsonWriter = providers.getMessageBodyWriter(TestExecution.class, TestExecution.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE);
+         if (jsonWriter == null) {
+            return Response.status(Status.NOT_ACCEPTABLE).entity("JSON provider is not available.").build();
+         }
+      }
+      StreamingOutput output = new TestExecutionStreamingOutput(testService, criteria, jsonWriter);
+      return Response.ok(output, json ? APPLICATION_NDJSON : MediaType.APPLICATION_XML).build();
+   }
+
+   @POST
+   @Path("/bulk/addTags")
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+   @Logged
+   public Response bulkAddTags(TestExecutionSearchTO criteria, @QueryParam("tag") List<String> tags, @Context UriInfo uriInfo) {
+      return bulkOperationAccepted(testService.startAddingTags(criteria, tags), uriInfo);
+   }
+
+   @POST
+   @Path("/bulk/removeTags")
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+   @Logged
+   public Response bulkRemoveTags(TestExecutionSearchTO criteria, @QueryParam("tag") List<String> tags, @Context UriInfo uriInfo) {
+      return bulkOperationAccepted(testService.startRemovingTags(criteria, tags), uriInfo);
+   }
+
+   @POST
+   @Path("/bulk/remove")
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+   @Logged
+   public Response bulkRemove(TestExecutionSearchTO criteria, @Context UriInfo uriInfo) {
+      return bulkOperationAccepted(testService.startRemovingTestExecutions(criteria), uriInfo);
+   }
+
+   @GET
+   @Path("/bulk/{operationId}")
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+   @Logged
+   public Response getBulkOperation(@PathParam("operationId") Long operationId) {
+      BulkOperationTO operation = testService.getBulkOperation(operationId);
+      if (operation == null) {
+         return Response.status(Status.NOT_FOUND).build();
+      }
+      return Response.ok(operation).build();
    }
 
    @POST()
    @Path("/addValue")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response addValue(TestExecution te, @Context UriInfo uriInfo) throws Exception {
@@ -152,29 +271,118 @@ public class TestExecutionREST {
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response addAttachment(@PathParam("testExecutionId") Long testExecutionId, @HeaderParam("Content-type") String mimeType,
-                                 @HeaderParam("filename") String fileName, byte[] requestBody, @Context UriInfo uriInfo) throws Exception {
+                                 @HeaderParam("filename") String fileName, @HeaderParam(HttpHeaders.CONTENT_LENGTH) Long contentLength,
+                                 InputStream requestBody, @Context UriInfo uriInfo) throws Exception {
       TestExecutionAttachment attachment = new TestExecutionAttachment();
       attachment.setFilename(fileName);
       attachment.setMimetype(mimeType);
-      attachment.setContent(requestBody);
       TestExecution testExec = new TestExecution();
       testExec.setId(testExecutionId);
       attachment.setTestExecution(testExec);
-      Long id = testService.addAttachment(attachment);
+
+      Long id;
+      if (contentLength != null && contentLength >= 0) {
+         id = testService.addAttachment(attachment, requestBody, contentLength);
+      } else {
+         // chunked request, the content is spooled to disk since its size has to be known before it's stored
+         File spooled = File.createTempFile("perfrepo-attachment", null);
+         try {
+            Files.copy(requestBody, spooled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try (InputStream content = new FileInputStream(spooled)) {
+               id = testService.addAttachment(attachment, content, spooled.length());
+            }
+         } finally {
+            spooled.delete();
+         }
+      }
       return Response.created(uriInfo.getBaseUriBuilder().path(TestExecutionREST.class).path(GET_ATTACHMENT_METHOD).build(id)).entity(id).build();
    }
 
    @GET
    @Path("/attachment/{attachmentId}")
    @Logged
-   public Response getAttachment(@PathParam("attachmentId") Long attachmentId) {
+   public Response getAttachment(@PathParam("attachmentId") Long attachmentId, @HeaderParam("Range") String range) throws IOException {
       TestExecutionAttachment attachment = testService.getAttachment(attachmentId);
       if (attachment == null) {
          return Response.status(Status.NOT_FOUND).build();
       }
-      ResponseBuilder response = Response.ok(attachment.getContent());
+
+      ByteRange byteRange = ByteRange.parse(range, testService.getAttachmentSize(attachmentId));
+      if (!byteRange.isSatisfiable()) {
+         return Response.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE).header("Content-Range", byteRange.getContentRange()).build();
+      }
+
+      // content is streamed from database while the response is written
+      StreamingOutput content = output -> testService.writeAttachmentContent(attachmentId, byteRange.getOffset(), byteRange.getLength(), output);
+      ResponseBuilder response = Response.status(byteRange.isPartial() ? Status.PARTIAL_CONTENT : Status.OK).entity(content);
       response.header("Content-type", attachment.getMimetype());
       response.header("Content-Disposition", "attachment; filename=" + attachment.getFilename());
+      response.header(HttpHeaders.CONTENT_LENGTH, byteRange.getLength());
+      response.header("Accept-Ranges", "bytes");
+      if (byteRange.isPartial()) {
+         response.header("Content-Range", byteRange.getContentRange());
+      }
       return response.build();
    }
-}
\ No newline at end of file
+
+   @POST
+   @Path("/{testExecutionId}/attachmentUpload")
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+   @Logged
+   public Response startAttachmentUpload(@PathParam("testExecutionId") Long testExecutionId, @QueryParam("filename") String fileName,
+                                         @QueryParam("mimetype") String mimeType, @QueryParam("size") long size,
+                                         @QueryParam("chunkSize") int chunkSize, @Context UriInfo uriInfo) throws Exception {
+      TestExecutionAttachment attachment = new TestExecutionAttachment();
+      attachment.setFilename(fileName);
+      attachment.setMimetype(mimeType);
+      TestExecution testExec = new TestExecution();
+      testExec.setId(testExecutionId);
+      attachment.setTestExecution(testExec);
+
+      AttachmentUploadTO upload = testService.startAttachmentUpload(attachment, size, chunkSize);
+      return Response.created(uriInfo.getBaseUriBuilder().path(TestExecutionREST.class).path(GET_ATTACHMENT_UPLOAD_METHOD).build(upload.getId())).entity(upload).build();
+   }
+
+   @GET
+   @Path("/attachmentUpload/{uploadId}")
+   @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+   @Logged
+   public Response getAttachmentUpload(@PathParam("uploadId") String uploadId) throws Exception {
+      AttachmentUploadTO upload = testService.getAttachmentUpload(uploadId);
+      if (upload == null) {
+         return Response.status(Status.NOT_FOUND).build();
+      }
+      return Response.ok(upload).build();
+   }
+
+   @PUT
+   @Path("/attachmentUpload/{uploadId}/{chunk}")
+   @Logged
+   public Response storeAttachmentChunk(@PathParam("uploadId") String uploadId, @PathParam("chunk") int chunk, InputStream requestBody) throws Exception {
+      testService.storeAttachmentChunk(uploadId, chunk, requestBody);
+      return Response.noContent().build();
+   }
+
+   @POST
+   @Path("/attachmentUpload/{uploadId}/complete")
+   @Produces(MediaType.TEXT_PLAIN)
+   @Logged
+   public Response completeAttachmentUpload(@PathParam("uploadId") String uploadId, @QueryParam("checksum") String checksum, @Context UriInfo uriInfo) throws Exception {
+      Long id = testService.completeAttachmentUpload(uploadId, checksum);
+      return Response.created(uriInfo.getBaseUriBuilder().path(TestExecutionREST.class).path(GET_ATTACHMENT_METHOD).build(id)).entity(id).build();
+   }
+
+   @DELETE
+   @Path("/attachmentUpload/{uploadId}")
+   @Logged
+   public Response cancelAttachmentUpload(@PathParam("uploadId") String uploadId) throws Exception {
+      testService.cancelAttachmentUpload(uploadId);
+      return Response.noContent().build();
+   }
+
+   private Response bulkOperationAccepted(BulkOperationTO operation, UriInfo uriInfo) {
+      return Response.accepted(operation)
+          .location(uriInfo.getBaseUriBuilder().path(TestExecutionREST.class).path(GET_BULK_OPERATION_METHOD).build(operation.getId()))
+          .build();
+   }
+}
@@ -0,0 +1,130 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.rest;
+
+import org.apache.log4j.Logger;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.to.SearchResultWrapper;
+import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.web.service.TestService;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes all test executions matching the search criteria incrementally, either as XML (in the same format
+ * as the search endpoint) or as newline-delimited JSON written by the JSON provider of the application. Test
+ * executions are retrieved page by page using cursor-based search, every page is fully loaded, written and flushed
+ * before the next one is retrieved, so the memory consumption doesn't depend on the number of exported test executions.
+ */
+public class TestExecutionStreamingOutput implements StreamingOutput {
+
+   private static final Logger log = Logger.getLogger(TestExecutionStreamingOutput.class);
+
+   public static final int PAGE_SIZE = 200;
+
+   private static final JAXBContext JAXB_CONTEXT;
+
+   static {
+      try {
+         JAXB_CONTEXT = JAXBContext.newInstance(TestExecution.class);
+      } catch (JAXBException e) {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   private final TestService testService;
+   private final TestExecutionSearchTO criteria;
+   private final MessageBodyWriter<TestExecution> jsonWriter;
+
+   /**
+    * @param testService
+    * @param criteria search criteria, limitHowMany limits the total number of exported test executions
+    * @param jsonWriter writer of one test execution as JSON for newline-delimited JSON, null for XML
+    */
+   public TestExecutionStreamingOutput(TestService testService, TestExecutionSearchTO criteria, MessageBodyWriter<TestExecution> jsonWriter) {
+      this.testService = testService;
+      this.criteria = criteria;
+      this.jsonWriter = jsonWriter;
+   }
+
+   @Override
+   public void write(OutputStream output) throws IOException, WebApplicationException {
+      // the JSON writer may close the stream it writes to, it has to stay open for the next test execution
+      OutputStream stream = new BufferedOutputStream(output) {
+         @Override
+         public void close() throws IOException {
+            flush();
+         }
+      };
+      Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+      boolean json = jsonWriter != null;
+      try {
+         Marshaller marshaller = JAXB_CONTEXT.createMarshaller();
+         marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+
+         if (!json) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><testExecutions>");
+         }
+
+         Integer remaining = criteria.getLimitHowMany();
+         criteria.setCursor("");
+         while (criteria.getCursor() != null && (remaining == null || remaining > 0)) {
+            criteria.setLimitHowMany(remaining == null ? PAGE_SIZE : Math.min(PAGE_SIZE, remaining));
+            SearchResultWrapper<TestExecution> page = testService.searchTestExecutions(criteria);
+            List<Long> ids = page.getResult().stream().map(TestExecution::getId).collect(Collectors.toList());
+
+            for (TestExecution testExecution : testService.getFullTestExecutions(ids)) {
+               if (json) {
+                  jsonWriter.writeTo(testExecution, TestExecution.class, TestExecution.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE,
+                                     new MultivaluedHashMap<>(), stream);
+                  stream.write('\n');
+               } else {
+                  marshaller.marshal(testExecution, writer);
+               }
+            }
+            writer.flush();
+
+            if (remaining != null) {
+               remaining -= ids.size();
+            }
+            criteria.setCursor(page.getNextCursor());
+         }
+
+         if (!json) {
+            writer.write("</testExecutions>");
+         }
+         writer.flush();
+      } catch (JAXBException e) {
+         log.error("Error while exporting test executions", e);
+         throw new WebApplicationException(e);
+      }
+   }
+}
@@ -61,7 +61,7 @@ public class TestREST {
    private TestService testService;
 
    @GET
-   @Produces(MediaType.TEXT_XML)
+   @Produces({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Path("/id/{testId}")
    @Logged
    public Response get(@PathParam("testId") Long testId) {
@@ -69,7 +69,7 @@ public class TestREST {
    }
 
    @GET
-   @Produces(MediaType.TEXT_XML)
+   @Produces({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Path("/uid/{testUid}")
    @Logged
    public Response getByUid(@PathParam("testUid") String testUid) {
@@ -79,7 +79,7 @@ public class TestREST {
 
    @POST
    @Path("/create")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response create(Test test, @Context UriInfo uriInfo) throws Exception {
@@ -98,7 +98,7 @@ public class TestREST {
 
    @POST
    @Path("/id/{testId}/addMetric")
-   @Consumes(MediaType.TEXT_XML)
+   @Consumes({MediaType.TEXT_XML, MediaType.APPLICATION_JSON})
    @Produces(MediaType.TEXT_PLAIN)
    @Logged
    public Response addMetric(@PathParam("testId") Long testId, Metric metric, @Context UriInfo uriInfo) throws Exception {
@@ -0,0 +1,68 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.rest.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.introspect.ObjectIdInfo;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Provides the object mapper of the Jackson provider. Entities are mapped by their JAXB annotations, so JSON has the
+ * same shape as XML, but {@link javax.xml.bind.annotation.XmlID} is not treated as a Jackson object id. The ids are
+ * plain values in our payloads, and with object id handling the provider refused to read an entity whose id it had
+ * already seen in an earlier request.
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class JacksonContextResolver implements ContextResolver<ObjectMapper> {
+
+   private final ObjectMapper mapper = createMapper();
+
+   @Override
+   public ObjectMapper getContext(Class<?> type) {
+      return mapper;
+   }
+
+   /**
+    * Creates the object mapper used for JSON payloads of the REST API.
+    *
+    * @return configured object mapper
+    */
+   public static ObjectMapper createMapper() {
+      ObjectMapper mapper = new ObjectMapper();
+      AnnotationIntrospector jaxb = new JaxbAnnotationIntrospector(TypeFactory.defaultInstance()) {
+         @Override
+         public ObjectIdInfo findObjectIdInfo(Annotated annotated) {
+            return null;
+         }
+      };
+      mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(jaxb, new JacksonAnnotationIntrospector()));
+      // JAXB leaves out null values in XML as well
+      mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+      return mapper;
+   }
+}
@@ -0,0 +1,59 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.rest.json;
+
+import org.apache.log4j.Logger;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provides JAXB contexts to XML providers. Creating JAXB context is expensive, so one context is created per class
+ * and reused by all requests. JSON is handled by the Jackson provider of RESTEasy, which reads the JAXB annotations
+ * itself.
+ */
+@Provider
+@Produces({MediaType.TEXT_XML, MediaType.APPLICATION_XML})
+public class JaxbContextResolver implements ContextResolver<JAXBContext> {
+
+   private static final Logger log = Logger.getLogger(JaxbContextResolver.class);
+
+   private final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+
+   @Override
+   public JAXBContext getContext(Class<?> type) {
+      JAXBContext context = contexts.get(type);
+      if (context == null) {
+         try {
+            context = JAXBContext.newInstance(type);
+         } catch (JAXBException e) {
+            log.warn("Unable to create JAXB context of " + type.getName(), e);
+            // default context of the provider is used
+            return null;
+         }
+         JAXBContext existing = contexts.putIfAbsent(type, context);
+         if (existing != null) {
+            context = existing;
+         }
+      }
+      return context;
+   }
+}
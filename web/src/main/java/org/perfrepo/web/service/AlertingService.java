@@ -1,6 +1,7 @@
 package org.perfrepo.web.service;
 
 import org.perfrepo.model.Alert;
+import org.perfrepo.model.AlertOutboxEntry;
 import org.perfrepo.model.Metric;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
@@ -61,6 +62,64 @@ public interface AlertingService {
     */
    public void processAlerts(TestExecution testExecution);
 
+   /**
+    * Queues the test execution for asynchronous evaluation of alerts (see {@link #processAlerts(TestExecution)}).
+    * The queue entry is stored in the current transaction, so the alerts are evaluated only if the test execution
+    * is committed.
+    *
+    * @param testExecution
+    */
+   public void enqueueAlerts(TestExecution testExecution);
+
+   /**
+    * Retrieves the oldest queued test executions waiting for evaluation of alerts, in the order they were queued.
+    * Entries that exceeded the number of attempts are not included.
+    *
+    * @param limit maximal number of entries
+    * @return
+    */
+   public List<AlertOutboxEntry> getQueuedAlerts(int limit);
+
+   /**
+    * Retrieves the oldest queued test execution of every test, in the order they were queued. Tests which oldest
+    * entry is postponed to a later attempt are not included.
+    *
+    * @param limit maximal number of entries
+    * @return
+    */
+   public List<AlertOutboxEntry> getQueuedAlertHeads(int limit);
+
+   /**
+    * Retrieves the oldest queued test executions of the test, in the order they were queued.
+    *
+    * @param testId
+    * @param limit maximal number of entries
+    * @return
+    */
+   public List<AlertOutboxEntry> getQueuedAlerts(Long testId, int limit);
+
+   /**
+    * Evaluates alerts of queued test execution and removes it from the queue.
+    *
+    * @param entryId
+    */
+   public void processQueuedAlerts(Long entryId);
+
+   /**
+    * Postpones next attempt of evaluation of queued test execution, after failed evaluation.
+    *
+    * @param entryId
+    * @param error description of the failure
+    */
+   public void postponeQueuedAlerts(Long entryId, String error);
+
+   /**
+    * Returns number of test executions waiting for evaluation of alerts.
+    *
+    * @return
+    */
+   public long getAlertQueueDepth();
+
    /**
     * Parses the condition string and checks for all the syntax errors.
     *
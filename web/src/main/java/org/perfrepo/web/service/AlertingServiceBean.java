@@ -1,16 +1,21 @@
 package org.perfrepo.web.service;
 
+import org.apache.log4j.Logger;
 import org.perfrepo.model.Alert;
+import org.perfrepo.model.AlertOutboxEntry;
 import org.perfrepo.model.Metric;
 import org.perfrepo.model.Tag;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.Value;
+import org.perfrepo.web.alerting.CompiledConditionCache;
 import org.perfrepo.web.alerting.ConditionChecker;
 import org.perfrepo.web.dao.AlertDAO;
+import org.perfrepo.web.dao.AlertOutboxEntryDAO;
 import org.perfrepo.web.dao.MetricDAO;
 import org.perfrepo.web.dao.TagDAO;
 import org.perfrepo.web.dao.TestDAO;
+import org.perfrepo.web.dao.TestExecutionDAO;
 
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
@@ -32,9 +37,29 @@ import java.util.*;
 @TransactionAttribute(TransactionAttributeType.REQUIRED)
 public class AlertingServiceBean implements AlertingService {
 
+   private static final Logger log = Logger.getLogger(AlertingServiceBean.class);
+
+   /**
+    * Maximal number of attempts to evaluate alerts of queued test execution.
+    */
+   public static final int MAX_QUEUED_ALERTS_ATTEMPTS = 5;
+
+   /**
+    * Delay after the first failed attempt, it doubles with every other failed attempt.
+    */
+   private static final long QUEUED_ALERTS_RETRY_DELAY = 60 * 1000;
+
+   private static final int MAX_ERROR_LENGTH = 2097;
+
    @Inject
    private AlertDAO alertDAO;
 
+   @Inject
+   private AlertOutboxEntryDAO alertOutboxEntryDAO;
+
+   @Inject
+   private TestExecutionDAO testExecutionDAO;
+
    @Inject
    private TestDAO testDAO;
 
@@ -50,6 +75,9 @@ public class AlertingServiceBean implements AlertingService {
    @Inject
    private ConditionChecker conditionChecker;
 
+   @Inject
+   private CompiledConditionCache compiledConditionCache;
+
    @Inject
    private AlertingReporterService alertingReporterService;
 
@@ -70,19 +98,25 @@ public class AlertingServiceBean implements AlertingService {
    @Override
    public Alert createAlert(Alert alert) {
       makeManaged(alert);
-      return alertDAO.create(alert);
+      Alert createdAlert = alertDAO.create(alert);
+      compiledConditionCache.get(createdAlert);
+      return createdAlert;
    }
 
    @Override
    public Alert updateAlert(Alert alert) {
       makeManaged(alert);
-      return alertDAO.update(alert);
+      Alert updatedAlert = alertDAO.update(alert);
+      compiledConditionCache.invalidate(updatedAlert.getId());
+      compiledConditionCache.get(updatedAlert);
+      return updatedAlert;
    }
 
    @Override
    public void removeAlert(Alert alert) {
       Alert freshAlert = alertDAO.get(alert.getId());
       alertDAO.remove(freshAlert);
+      compiledConditionCache.invalidate(alert.getId());
    }
 
    @Override
@@ -119,7 +153,7 @@ public class AlertingServiceBean implements AlertingService {
                continue;
             }
 
-            if (!conditionChecker.checkCondition(alert.getCondition(), testExecution, metric)) {
+            if (!conditionChecker.checkCondition(alert, testExecution, metric)) {
                failedAlerts.add(alert);
                failedAlertsVariables.put(alert, conditionChecker.getEvaluatedVariables());
             }
@@ -130,6 +164,62 @@ public class AlertingServiceBean implements AlertingService {
       alertingReporterService.reportAlert(failedAlerts, testExecution);
    }
 
+   @Override
+   public void enqueueAlerts(TestExecution testExecution) {
+      alertOutboxEntryDAO.persist(new AlertOutboxEntry(testExecution.getId(), testExecution.getTest().getId()));
+   }
+
+   @Override
+   public List<AlertOutboxEntry> getQueuedAlerts(int limit) {
+      return alertOutboxEntryDAO.getPending(MAX_QUEUED_ALERTS_ATTEMPTS, limit);
+   }
+
+   @Override
+   public List<AlertOutboxEntry> getQueuedAlertHeads(int limit) {
+      return alertOutboxEntryDAO.getPendingHeads(MAX_QUEUED_ALERTS_ATTEMPTS, new Date(), limit);
+   }
+
+   @Override
+   public List<AlertOutboxEntry> getQueuedAlerts(Long testId, int limit) {
+      return alertOutboxEntryDAO.getPendingByTest(testId, MAX_QUEUED_ALERTS_ATTEMPTS, limit);
+   }
+
+   @Override
+   public void processQueuedAlerts(Long entryId) {
+      AlertOutboxEntry entry = alertOutboxEntryDAO.get(entryId);
+      if (entry == null) {
+         // the test execution was removed in the meantime
+         return;
+      }
+
+      List<TestExecution> testExecutions = testExecutionDAO.getFullTestExecutions(Collections.singletonList(entry.getTestExecutionId()));
+      if (!testExecutions.isEmpty()) {
+         processAlerts(testExecutions.get(0));
+      }
+      alertOutboxEntryDAO.remove(entry);
+   }
+
+   @Override
+   public void postponeQueuedAlerts(Long entryId, String error) {
+      AlertOutboxEntry entry = alertOutboxEntryDAO.get(entryId);
+      if (entry == null) {
+         return;
+      }
+
+      entry.setAttempts(entry.getAttempts() + 1);
+      entry.setNextAttempt(new Date(System.currentTimeMillis() + (QUEUED_ALERTS_RETRY_DELAY << (entry.getAttempts() - 1))));
+      entry.setLastError(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+      if (entry.getAttempts() >= MAX_QUEUED_ALERTS_ATTEMPTS) {
+         log.error("Giving up evaluation of alerts of test execution " + entry.getTestExecutionId() + " after " + entry.getAttempts() + " attempts: " + error);
+      }
+      alertOutboxEntryDAO.update(entry);
+   }
+
+   @Override
+   public long getAlertQueueDepth() {
+      return alertOutboxEntryDAO.countPending(MAX_QUEUED_ALERTS_ATTEMPTS);
+   }
+
    @Override
    public void checkConditionSyntax(String condition, Metric metric) {
        conditionChecker.checkConditionSyntax(condition, metric);
@@ -3,6 +3,7 @@ package org.perfrepo.web.service;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 /**
@@ -18,6 +19,12 @@ public class ApplicationConfiguration {
    private String url;
    private String version;
    private String helloString;
+   private int retentionMonths;
+   private boolean retentionArchive;
+   private int seriesCacheMegabytes;
+   private String attachmentStorage;
+   private String attachmentStorageDirectory;
+   private boolean attachmentStorageCompressed;
 
    @PostConstruct
    public void init() {
@@ -32,6 +39,15 @@ public class ApplicationConfiguration {
       url = properties.getProperty("application.url");
       helloString = properties.getProperty("login.string");
       version = properties.getProperty("project.version");
+      retentionMonths = Integer.parseInt(properties.getProperty("retention.months", "0").trim());
+      retentionArchive = "archive".equalsIgnoreCase(properties.getProperty("retention.action", "drop").trim());
+      seriesCacheMegabytes = Integer.parseInt(properties.getProperty("series.cache.megabytes", "64").trim());
+      attachmentStorage = properties.getProperty("attachment.storage", "database").trim();
+      attachmentStorageDirectory = properties.getProperty("attachment.storage.directory", "").trim();
+      if (attachmentStorageDirectory.isEmpty()) {
+         attachmentStorageDirectory = Paths.get(System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")), "perfrepo", "attachments").toString();
+      }
+      attachmentStorageCompressed = "gzip".equalsIgnoreCase(properties.getProperty("attachment.storage.compression", "none").trim());
    }
 
    public String getUrl() {
@@ -50,4 +66,58 @@ public class ApplicationConfiguration {
    public String getPerfRepoVersion() {
       return version;
    }
+
+   /**
+    * Returns number of months the test executions are kept for, 0 if they're kept forever
+    *
+    * @return
+    */
+   public int getRetentionMonths() {
+      return retentionMonths;
+   }
+
+   /**
+    * Returns true if test executions removed by the retention are archived instead of dropped
+    *
+    * @return
+    */
+   public boolean isRetentionArchive() {
+      return retentionArchive;
+   }
+
+   /**
+    * Returns limit of memory taken by cached metric series in megabytes
+    *
+    * @return
+    */
+   public int getSeriesCacheMegabytes() {
+      return seriesCacheMegabytes;
+   }
+
+   /**
+    * Returns name of the storage new attachment content is stored to, database if it's stored as large objects
+    *
+    * @return
+    */
+   public String getAttachmentStorage() {
+      return attachmentStorage;
+   }
+
+   /**
+    * Returns directory of the filesystem attachment storage
+    *
+    * @return
+    */
+   public String getAttachmentStorageDirectory() {
+      return attachmentStorageDirectory;
+   }
+
+   /**
+    * Returns true if attachment content stored in the directory is compressed by gzip
+    *
+    * @return
+    */
+   public boolean isAttachmentStorageCompressed() {
+      return attachmentStorageCompressed;
+   }
 }
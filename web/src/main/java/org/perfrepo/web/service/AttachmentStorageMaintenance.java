@@ -0,0 +1,88 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.apache.log4j.Logger;
+import org.perfrepo.web.service.exceptions.ServiceException;
+
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nightly maintenance of attachment content. Content stored in database is moved to the attachment storage configured
+ * by {@link ApplicationConfiguration#getAttachmentStorage()}, every attachment in its own transaction, and content no
+ * longer referenced by any attachment is removed from the storages. Attachment uploads which weren't continued for
+ * {@link #ABANDONED_UPLOAD_DAYS} days are removed too. Attachments whose content can't be moved are logged and
+ * skipped, they're tried again the next night.
+ */
+@Singleton
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class AttachmentStorageMaintenance {
+
+   private static final Logger log = Logger.getLogger(AttachmentStorageMaintenance.class);
+
+   /**
+    * Number of attachments to move retrieved by one query.
+    */
+   public static final int BATCH_SIZE = 100;
+
+   /**
+    * Unreferenced content is removed only if it was stored at least this long ago, so content of attachments being
+    * created is never removed.
+    */
+   private static final long GRACE_PERIOD_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+   /**
+    * Number of days after which unfinished attachment uploads are removed.
+    */
+   public static final int ABANDONED_UPLOAD_DAYS = 7;
+
+   @Inject
+   private TestService testService;
+
+   @Schedule(hour = "3", minute = "30", persistent = false)
+   public void maintain() {
+      int moved = 0;
+      int failed = 0;
+      try {
+         Long lastId = null;
+         for (List<Long> batch = testService.getAttachmentsToMove(null, BATCH_SIZE); !batch.isEmpty(); batch = testService.getAttachmentsToMove(lastId, BATCH_SIZE)) {
+            for (Long attachmentId : batch) {
+               try {
+                  if (testService.moveAttachmentToStorage(attachmentId)) {
+                     moved++;
+                  }
+               } catch (ServiceException | RuntimeException e) {
+                  failed++;
+                  log.error(String.format("Unable to move content of attachment %d to attachment storage, it's skipped.", attachmentId), e);
+               }
+            }
+            lastId = batch.get(batch.size() - 1);
+         }
+         int removed = testService.removeUnreferencedAttachmentContent(new Date(System.currentTimeMillis() - GRACE_PERIOD_MILLIS));
+         int abandoned = testService.removeAbandonedAttachmentUploads(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ABANDONED_UPLOAD_DAYS)));
+         log.info(String.format("Attachment storage maintenance moved %d and removed %d attachment contents, %d attachment contents couldn't be moved, "
+                                    + "%d abandoned uploads were removed.", moved, removed, failed, abandoned));
+      } catch (ServiceException e) {
+         log.error(String.format("Attachment storage maintenance failed after moving %d attachment contents.", moved), e);
+      }
+   }
+}
@@ -0,0 +1,252 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import org.perfrepo.model.to.AttachmentUploadTO;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Keeps chunks of resumable attachment uploads on disk until the upload is completed, see
+ * {@link TestService#startAttachmentUpload(org.perfrepo.model.TestExecutionAttachment, long, int)}. Every upload has
+ * its own directory in <code>uploads</code> of {@link ApplicationConfiguration#getAttachmentStorageDirectory()}
+ * with the description of the upload and one file per stored chunk, so uploads survive restart of the server.
+ *
+ * Chunk is written to a temporary file and moved to its place once it's complete, so chunks of the same upload can
+ * be stored in parallel and a chunk interrupted by network failure is never considered stored.
+ */
+@ApplicationScoped
+public class AttachmentUploadStore {
+
+   private static final String UPLOADS_DIRECTORY = "uploads";
+   private static final String DESCRIPTION_FILE = "upload.properties";
+   private static final String CHUNK_SUFFIX = ".chunk";
+   private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+   private Path directory;
+
+   @Inject
+   private ApplicationConfiguration configuration;
+
+   public AttachmentUploadStore() {
+   }
+
+   /**
+    * @param directory directory the uploads are kept in
+    */
+   public AttachmentUploadStore(Path directory) {
+      this.directory = directory;
+   }
+
+   @PostConstruct
+   public void init() {
+      if (configuration != null) {
+         directory = Paths.get(configuration.getAttachmentStorageDirectory(), UPLOADS_DIRECTORY);
+      }
+   }
+
+   /**
+    * Creates new upload without any chunks stored.
+    *
+    * @param upload description of the upload, ID is assigned
+    * @param owner name of the user the upload belongs to
+    * @return the upload
+    * @throws IOException
+    */
+   public AttachmentUploadTO create(AttachmentUploadTO upload, String owner) throws IOException {
+      upload.setId(UUID.randomUUID().toString());
+      upload.setStoredChunks(new ArrayList<>());
+      Path uploadDirectory = Files.createDirectories(directory.resolve(upload.getId()));
+
+      Properties description = new Properties();
+      description.setProperty("owner", owner);
+      description.setProperty("testExecutionId", upload.getTestExecutionId().toString());
+      description.setProperty("filename", upload.getFilename());
+      description.setProperty("mimetype", upload.getMimetype());
+      description.setProperty("size", String.valueOf(upload.getSize()));
+      description.setProperty("chunkSize", String.valueOf(upload.getChunkSize()));
+      try (OutputStream output = Files.newOutputStream(uploadDirectory.resolve(DESCRIPTION_FILE))) {
+         description.store(output, null);
+      }
+      return upload;
+   }
+
+   /**
+    * @param id
+    * @param owner name of the user the upload has to belong to
+    * @return the upload with numbers of the stored chunks, null if there's no such upload of the user
+    * @throws IOException
+    */
+   public AttachmentUploadTO get(String id, String owner) throws IOException {
+      if (id == null || !UPLOAD_ID.matcher(id).matches()) {
+         return null;
+      }
+      Path uploadDirectory = directory.resolve(id);
+      Properties description = new Properties();
+      try (InputStream input = Files.newInputStream(uploadDirectory.resolve(DESCRIPTION_FILE))) {
+         description.load(input);
+      } catch (NoSuchFileException e) {
+         return null;
+      }
+      if (!description.getProperty("owner").equals(owner)) {
+         return null;
+      }
+
+      AttachmentUploadTO upload = new AttachmentUploadTO();
+      upload.setId(id);
+      upload.setTestExecutionId(Long.valueOf(description.getProperty("testExecutionId")));
+      upload.setFilename(description.getProperty("filename"));
+      upload.setMimetype(description.getProperty("mimetype"));
+      upload.setSize(Long.parseLong(description.getProperty("size")));
+      upload.setChunkSize(Integer.parseInt(description.getProperty("chunkSize")));
+
+      List<Integer> chunks = new ArrayList<>();
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadDirectory, "*" + CHUNK_SUFFIX)) {
+         for (Path file : files) {
+            String name = file.getFileName().toString();
+            chunks.add(Integer.valueOf(name.substring(0, name.length() - CHUNK_SUFFIX.length())));
+         }
+      }
+      Collections.sort(chunks);
+      upload.setStoredChunks(chunks);
+      return upload;
+   }
+
+   /**
+    * Stores the chunk, chunk stored before is replaced.
+    *
+    * @param upload
+    * @param chunk number of the chunk, it has to be one of the chunks of the upload
+    * @param content
+    * @throws IOException if the content doesn't have exactly the length of the chunk
+    */
+   public void storeChunk(AttachmentUploadTO upload, int chunk, InputStream content) throws IOException {
+      Path uploadDirectory = directory.resolve(upload.getId());
+      Path temporary = Files.createTempFile(uploadDirectory, String.valueOf(chunk), ".tmp");
+      try {
+         int length = upload.getChunkLength(chunk);
+         CountingInputStream input = new CountingInputStream(content);
+         try (OutputStream output = Files.newOutputStream(temporary)) {
+            ByteStreams.copy(ByteStreams.limit(input, length), output);
+         }
+         if (input.getCount() != length || input.read() != -1) {
+            throw new IOException("Chunk " + chunk + " doesn't have expected length " + length);
+         }
+         Files.move(temporary, uploadDirectory.resolve(chunk + CHUNK_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+         Files.deleteIfExists(temporary);
+      }
+   }
+
+   /**
+    * Opens the content of the complete upload, the chunks are read one after another.
+    *
+    * @param upload upload with all chunks stored
+    * @return the content
+    */
+   public InputStream openContent(AttachmentUploadTO upload) {
+      Path uploadDirectory = directory.resolve(upload.getId());
+      Enumeration<InputStream> chunks = new Enumeration<InputStream>() {
+         private int next = 0;
+
+         @Override
+         public boolean hasMoreElements() {
+            return next < upload.getChunkCount();
+         }
+
+         @Override
+         public InputStream nextElement() {
+            try {
+               return new BufferedInputStream(Files.newInputStream(uploadDirectory.resolve(next++ + CHUNK_SUFFIX)));
+            } catch (IOException e) {
+               throw new UncheckedIOException(e);
+            }
+         }
+      };
+      return new SequenceInputStream(chunks);
+   }
+
+   /**
+    * Removes the upload with all its chunks.
+    *
+    * @param id
+    * @throws IOException
+    */
+   public void remove(String id) throws IOException {
+      if (UPLOAD_ID.matcher(id).matches()) {
+         removeDirectory(directory.resolve(id));
+      }
+   }
+
+   /**
+    * Removes uploads which weren't changed since the date, i.e. abandoned by the clients.
+    *
+    * @param changedBefore
+    * @return number of removed uploads
+    * @throws IOException
+    */
+   public int removeAbandoned(Date changedBefore) throws IOException {
+      if (!Files.isDirectory(directory)) {
+         return 0;
+      }
+      int removed = 0;
+      try (DirectoryStream<Path> uploads = Files.newDirectoryStream(directory)) {
+         for (Path upload : uploads) {
+            if (Files.getLastModifiedTime(upload).toMillis() < changedBefore.getTime()) {
+               removeDirectory(upload);
+               removed++;
+            }
+         }
+      }
+      return removed;
+   }
+
+   private static void removeDirectory(Path directory) throws IOException {
+      if (!Files.exists(directory)) {
+         return;
+      }
+      try (Stream<Path> files = Files.walk(directory)) {
+         for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+            Files.deleteIfExists(file);
+         }
+      }
+   }
+}
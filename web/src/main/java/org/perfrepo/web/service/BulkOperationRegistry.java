@@ -0,0 +1,116 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.perfrepo.model.to.BulkOperationTO;
+import org.perfrepo.model.to.BulkOperationTO.State;
+import org.perfrepo.model.to.BulkOperationTO.Type;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps state of bulk operations on test executions, see {@link BulkOperationWorker}. Only the last
+ * {@link #MAX_FINISHED} finished operations are kept, running ones are never dropped. State is held in memory only,
+ * operations interrupted by restart of the server are lost.
+ */
+@ApplicationScoped
+public class BulkOperationRegistry {
+
+   /**
+    * Maximal number of finished operations kept for reading their result.
+    */
+   public static final int MAX_FINISHED = 100;
+
+   // guarded by this, in the order the operations were started
+   private final Map<Long, BulkOperationTO> operations = new LinkedHashMap<>();
+   private long lastId;
+
+   /**
+    * Registers new running operation.
+    *
+    * @param type
+    * @param tags tags added or removed, empty when removing test executions
+    * @param total number of test executions the operation processes
+    * @return copy of the operation with assigned ID
+    */
+   public synchronized BulkOperationTO start(Type type, Collection<String> tags, int total) {
+      BulkOperationTO operation = new BulkOperationTO();
+      operation.setId(++lastId);
+      operation.setType(type);
+      operation.setState(total == 0 ? State.FINISHED : State.RUNNING);
+      operation.setTags(new ArrayList<>(tags));
+      operation.setTotal(total);
+      operation.setStarted(new Date());
+      if (total == 0) {
+         operation.setFinished(operation.getStarted());
+      }
+      operations.put(operation.getId(), operation);
+      dropFinished();
+      return new BulkOperationTO(operation);
+   }
+
+   /**
+    * @param id
+    * @param count number of newly processed test executions
+    */
+   public synchronized void progress(Long id, int count) {
+      BulkOperationTO operation = operations.get(id);
+      if (operation != null) {
+         operation.setProcessed(operation.getProcessed() + count);
+      }
+   }
+
+   /**
+    * Marks the operation as finished.
+    *
+    * @param id
+    * @param error reason of failure, null if the operation succeeded
+    */
+   public synchronized void finish(Long id, String error) {
+      BulkOperationTO operation = operations.get(id);
+      if (operation != null) {
+         operation.setState(error == null ? State.FINISHED : State.FAILED);
+         operation.setError(error);
+         operation.setFinished(new Date());
+         dropFinished();
+      }
+   }
+
+   /**
+    * @param id
+    * @return copy of current state of the operation, null if it doesn't exist or was already dropped
+    */
+   public synchronized BulkOperationTO get(Long id) {
+      BulkOperationTO operation = operations.get(id);
+      return operation == null ? null : new BulkOperationTO(operation);
+   }
+
+   private void dropFinished() {
+      long finished = operations.values().stream().filter(BulkOperationTO::isDone).count();
+      Iterator<BulkOperationTO> iterator = operations.values().iterator();
+      while (finished > MAX_FINISHED && iterator.hasNext()) {
+         if (iterator.next().isDone()) {
+            iterator.remove();
+            finished--;
+         }
+      }
+   }
+}
@@ -0,0 +1,72 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import org.apache.log4j.Logger;
+import org.perfrepo.model.to.BulkOperationTO;
+
+import javax.ejb.Asynchronous;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Processes bulk operations on test executions asynchronously, in chunks of {@link #CHUNK_SIZE} test executions.
+ * Every chunk is processed in its own transaction, so the operation doesn't hold locks of all the test executions
+ * and its progress is visible while it runs. When a chunk fails, the operation stops, the chunks processed before stay
+ * committed.
+ */
+@Stateless
+@TransactionManagement(TransactionManagementType.CONTAINER)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class BulkOperationWorker {
+
+   private static final Logger log = Logger.getLogger(BulkOperationWorker.class);
+
+   /**
+    * Number of test executions processed in one transaction.
+    */
+   public static final int CHUNK_SIZE = 500;
+
+   @Inject
+   private TestService testService;
+
+   @Inject
+   private BulkOperationRegistry registry;
+
+   /**
+    * @param operation registered operation
+    * @param testExecutionIds IDs of all test executions the operation processes
+    */
+   @Asynchronous
+   public void process(BulkOperationTO operation, List<Long> testExecutionIds) {
+      try {
+         for (List<Long> chunk : Lists.partition(testExecutionIds, CHUNK_SIZE)) {
+            testService.processBulkOperation(operation, chunk);
+            registry.progress(operation.getId(), chunk.size());
+         }
+         registry.finish(operation.getId(), null);
+      } catch (Exception e) {
+         log.error("Bulk operation " + operation.getId() + " failed", e);
+         registry.finish(operation.getId(), Throwables.getRootCause(e).toString());
+      }
+   }
+}
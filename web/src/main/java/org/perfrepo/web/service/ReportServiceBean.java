@@ -15,6 +15,8 @@
 package org.perfrepo.web.service;
 
 import org.perfrepo.model.Metric;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.MetricRollup.Granularity;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.auth.AccessLevel;
 import org.perfrepo.model.auth.AccessType;
@@ -26,6 +28,8 @@ import org.perfrepo.model.user.Group;
 import org.perfrepo.model.user.User;
 import org.perfrepo.web.dao.*;
 import org.perfrepo.web.security.Secured;
+import org.perfrepo.web.service.reports.MetricReportCache;
+import org.perfrepo.web.service.reports.MetricSeriesCache;
 import org.perfrepo.web.service.exceptions.ServiceException;
 
 import javax.ejb.*;
@@ -65,6 +69,15 @@ public class ReportServiceBean implements ReportService {
    @Inject
    private ReportPropertyDAO reportPropertyDAO;
 
+   @Inject
+   private MetricReportCache metricReportCache;
+
+   @Inject
+   private MetricSeriesCache metricSeriesCache;
+
+   @Inject
+   private MetricRollupDAO metricRollupDAO;
+
    @Override
    public List<Report> getAllUsersReports() {
       return getAllReports(userService.getLoggedUser().getUsername());
@@ -190,8 +203,13 @@ public class ReportServiceBean implements ReportService {
                   metric = metric.clone();
                   metric.setValues(null);
                   seriesResponse.setSelectedMetric(metric);
-                  List<MetricReportTO.DataPoint> datapoints = testExecutionDAO.searchValues(freshTest.getId(), seriesRequest.getMetricName(),
-                                                                                            seriesRequest.getTags(), request.getLimitSize());
+                  Long testId = freshTest.getId();
+                  List<MetricReportTO.DataPoint> datapoints;
+                  if (request.getFrom() != null && request.getTo() != null) {
+                     datapoints = getDataPointsInRange(testId, metric, seriesRequest.getTags(), request.getFrom(), request.getTo(), request.getLimitSize());
+                  } else {
+                     datapoints = metricSeriesCache.getDataPoints(testId, metric.getId(), seriesRequest.getTags(), null, null, request.getLimitSize());
+                  }
                   if (datapoints.isEmpty()) {
                      continue;
                   }
@@ -217,7 +235,8 @@ public class ReportServiceBean implements ReportService {
                   metric.setValues(null);
                   baselineResponse.setSelectedMetric(metric);
                   baselineResponse.setExecId(baselineRequest.getExecId());
-                  baselineResponse.setValue(testExecutionDAO.getValueForMetric(baselineRequest.getExecId(), baselineRequest.getMetricName()));
+                  baselineResponse.setValue(metricReportCache.getBaselineValue(baselineRequest.getExecId(), baselineRequest.getMetricName(),
+                                                                               () -> testExecutionDAO.getValueForMetric(baselineRequest.getExecId(), baselineRequest.getMetricName())));
                }
             }
          }
@@ -225,6 +244,33 @@ public class ReportServiceBean implements ReportService {
       return response;
    }
 
+   /**
+    * Retrieves data points of the metric of test executions started in the range from {@link MetricSeriesCache}, all
+    * values of the test executions are returned. If there are more test executions than the limit, the points are
+    * daily or weekly means of the values read from {@link MetricRollup}s, the coarser rollup is used only if the
+    * range has more days than the limit.
+    *
+    * @param testId
+    * @param metric
+    * @param tags
+    * @param from
+    * @param to
+    * @param limitSize
+    * @return data points ordered from the latest
+    */
+   private List<MetricReportTO.DataPoint> getDataPointsInRange(Long testId, Metric metric, List<String> tags, Date from, Date to, int limitSize) {
+      if (metricSeriesCache.countExecutions(testId, metric.getId(), tags, from, to) <= limitSize) {
+         return metricSeriesCache.getDataPoints(testId, metric.getId(), tags, from, to, Integer.MAX_VALUE);
+      }
+
+      List<MetricReportTO.DataPoint> datapoints = new ArrayList<>();
+      for (MetricRollup rollup : metricRollupDAO.find(testId, metric.getId(), tags, Granularity.forRange(from, to, limitSize), from, to)) {
+         datapoints.add(new MetricReportTO.DataPoint(rollup.getPeriodStart(), rollup.getMean(), rollup.getLastTestExecutionId()));
+      }
+      Collections.reverse(datapoints);
+      return datapoints;
+   }
+
    @Override
    public void addPermission(Permission permission) throws ServiceException {
       if (permission.getReportId() == null) {
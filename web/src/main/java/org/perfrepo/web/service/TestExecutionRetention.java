@@ -0,0 +1,152 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.apache.log4j.Logger;
+import org.perfrepo.web.alerting.RollingStatisticsStore;
+import org.perfrepo.web.dao.PartitionDAO;
+import org.perfrepo.web.dao.TagIndex;
+import org.perfrepo.web.service.reports.MetricReportCache;
+import org.perfrepo.web.service.reports.MetricSeriesCache;
+
+import javax.annotation.Resource;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Nightly maintenance of test executions according to the retention configured in
+ * {@link ApplicationConfiguration#getRetentionMonths()}.
+ *
+ * If the test executions are partitioned by months (see <code>partitioning_1_8.sql</code>), partitions of the
+ * following months are created in advance and expired months are dropped, or archived, as a whole. Otherwise
+ * the expired test executions are deleted by set based deletes.
+ */
+@Singleton
+public class TestExecutionRetention {
+
+   private static final Logger log = Logger.getLogger(TestExecutionRetention.class);
+
+   /**
+    * Number of months partitions are created in advance for.
+    */
+   private static final int PARTITIONS_AHEAD_MONTHS = 3;
+
+   @Inject
+   private ApplicationConfiguration configuration;
+
+   @Inject
+   private PartitionDAO partitionDAO;
+
+   @Inject
+   private TagIndex tagIndex;
+
+   @Inject
+   private MetricReportCache metricReportCache;
+
+   @Inject
+   private MetricSeriesCache metricSeriesCache;
+
+   @Inject
+   private RollingStatisticsStore rollingStatisticsStore;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   @Schedule(hour = "2", minute = "30", persistent = false)
+   public void maintain() {
+      Date now = new Date();
+      boolean partitioned = partitionDAO.isPartitioned();
+      if (partitioned) {
+         partitionDAO.createPartitions(addMonths(now, PARTITIONS_AHEAD_MONTHS));
+      }
+
+      int months = configuration.getRetentionMonths();
+      if (months <= 0) {
+         return;
+      }
+
+      Date cutoff = getCutoff(now, months);
+      boolean archive = configuration.isRetentionArchive();
+      int removed = 0;
+      if (partitioned) {
+         for (Date month : partitionDAO.getPartitionedMonths()) {
+            if (month.before(cutoff)) {
+               removed += partitionDAO.removeMonth(month, archive);
+            }
+         }
+      } else if (archive) {
+         log.warn("Test executions can be archived only if they're partitioned, see partitioning_1_8.sql. Nothing is removed.");
+         return;
+      }
+      // rows out of range of the monthly partitions
+      if (!archive) {
+         removed += partitionDAO.deleteStartedBefore(cutoff);
+      }
+
+      log.info(String.format("Retention of %d months %s %d test executions started before %tF.", months, archive ? "archived" : "removed", removed, cutoff));
+      if (removed > 0) {
+         invalidateCachesAfterCommit();
+      }
+   }
+
+   /**
+    * Computes the date test executions started before are removed.
+    *
+    * @param now
+    * @param months retention in months
+    * @return first day of the month which is the given number of months before now
+    */
+   public static Date getCutoff(Date now, int months) {
+      Calendar calendar = Calendar.getInstance();
+      calendar.setTime(addMonths(now, -months));
+      calendar.set(Calendar.DAY_OF_MONTH, 1);
+      calendar.set(Calendar.HOUR_OF_DAY, 0);
+      calendar.set(Calendar.MINUTE, 0);
+      calendar.set(Calendar.SECOND, 0);
+      calendar.set(Calendar.MILLISECOND, 0);
+      return calendar.getTime();
+   }
+
+   private static Date addMonths(Date date, int months) {
+      Calendar calendar = Calendar.getInstance();
+      calendar.setTime(date);
+      calendar.add(Calendar.MONTH, months);
+      return calendar.getTime();
+   }
+
+   private void invalidateCachesAfterCommit() {
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+               tagIndex.invalidate();
+               metricReportCache.invalidateAll();
+               metricSeriesCache.invalidateAll();
+               rollingStatisticsStore.invalidate();
+            }
+         }
+      });
+   }
+}
@@ -20,13 +20,20 @@ import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.TestExecutionAttachment;
 import org.perfrepo.model.TestExecutionParameter;
 import org.perfrepo.model.Value;
+import org.perfrepo.model.to.AttachmentUploadTO;
+import org.perfrepo.model.to.BulkCreateResultTO;
+import org.perfrepo.model.to.BulkOperationTO;
 import org.perfrepo.model.to.SearchResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.to.TestSearchTO;
 import org.perfrepo.model.user.User;
 import org.perfrepo.web.service.exceptions.ServiceException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -48,6 +55,19 @@ public interface TestService {
     */
    public TestExecution createTestExecution(TestExecution testExecution) throws ServiceException;
 
+   /**
+    * Stores many new test executions in one transaction. The inserts are batched and tags are resolved
+    * once for the whole batch, so it's considerably faster than calling {@link #createTestExecution(TestExecution)}
+    * repeatedly.
+    * <p/>
+    * Each test execution needs to refer an existing test by ID or UID. Test executions that are not valid or
+    * the user isn't allowed to create are skipped, the reason is reported in the result.
+    *
+    * @param testExecutions New test executions.
+    * @return ID or error for every test execution, in the order of the input list.
+    */
+   public BulkCreateResultTO createTestExecutions(List<TestExecution> testExecutions);
+
    /**
     * Returns list of TestExecutions according to criteria defined by TestExecutionSearchTO
     *
@@ -82,12 +102,15 @@ public interface TestService {
 
    /**
     * Add attachment to the test execution. The {@link TestExecution} object referred by attachment
-    * needs to be an empty object with only id set.
+    * needs to be an empty object with only id set. The content is streamed to the configured attachment storage, it's
+    * never held in memory as a whole.
     *
     * @param attachment
+    * @param content
+    * @param length number of bytes of the content
     * @return id of newly created attachment
     */
-   public Long addAttachment(TestExecutionAttachment attachment) throws ServiceException;
+   public Long addAttachment(TestExecutionAttachment attachment, InputStream content, long length) throws ServiceException;
 
    /**
     * Delete attachment.
@@ -105,6 +128,114 @@ public interface TestService {
     */
    public TestExecutionAttachment getAttachment(Long id);
 
+   /**
+    * @param id
+    * @return size of the content of the attachment in bytes, -1 if the attachment doesn't exist
+    * @throws IOException
+    */
+   public long getAttachmentSize(Long id) throws IOException;
+
+   /**
+    * Streams part of the content of the attachment to the output, the content is never held in memory as a whole.
+    *
+    * @param id
+    * @param offset first byte of the part, starting from 0
+    * @param length number of bytes of the part
+    * @param output
+    * @return false if the attachment doesn't exist
+    * @throws IOException
+    */
+   public boolean writeAttachmentContent(Long id, long offset, long length, OutputStream output) throws IOException;
+
+   /**
+    * Starts resumable upload of attachment content. The {@link TestExecution} object referred by attachment needs to be
+    * an empty object with only id set. The content is then uploaded in chunks by
+    * {@link #storeAttachmentChunk(String, int, InputStream)} and the attachment is created by
+    * {@link #completeAttachmentUpload(String, String)}.
+    *
+    * @param attachment attachment without content
+    * @param size number of bytes of the content
+    * @param chunkSize requested size of the chunks, default size is used if it's not positive, it's limited by
+    * {@link TestServiceBean#MAX_CHUNK_SIZE}
+    * @return the upload
+    * @throws ServiceException
+    */
+   public AttachmentUploadTO startAttachmentUpload(TestExecutionAttachment attachment, long size, int chunkSize) throws ServiceException;
+
+   /**
+    * @param uploadId
+    * @return upload of the logged user with numbers of the chunks already stored, null if it doesn't exist
+    * @throws ServiceException
+    */
+   public AttachmentUploadTO getAttachmentUpload(String uploadId) throws ServiceException;
+
+   /**
+    * Stores chunk of the upload of the logged user, the chunk stored before is replaced. Chunks of the same upload can be
+    * stored in parallel.
+    *
+    * @param uploadId
+    * @param chunk number of the chunk
+    * @param content content of the chunk, it has to have exactly the length of the chunk
+    * @throws ServiceException
+    */
+   public void storeAttachmentChunk(String uploadId, int chunk, InputStream content) throws ServiceException;
+
+   /**
+    * Creates the attachment from all chunks of the upload of the logged user, the upload is removed afterwards.
+    *
+    * @param uploadId
+    * @param checksum hex encoded SHA-256 checksum of the whole content, not verified if null
+    * @return id of newly created attachment
+    * @throws ServiceException if some chunks are missing or the checksum doesn't match
+    */
+   public Long completeAttachmentUpload(String uploadId, String checksum) throws ServiceException;
+
+   /**
+    * Removes the upload of the logged user with all its chunks.
+    *
+    * @param uploadId
+    * @throws ServiceException
+    */
+   public void cancelAttachmentUpload(String uploadId) throws ServiceException;
+
+   /**
+    * Retrieves IDs of a batch of attachments with content stored in database, which should be moved to the configured
+    * attachment storage by {@link #moveAttachmentToStorage(Long)}. Called by {@link AttachmentStorageMaintenance}.
+    *
+    * @param afterAttachmentId only attachments with greater ID are returned, all if null
+    * @param batchSize maximal number of returned IDs
+    * @return IDs ordered by ID, empty if there are no more attachments to move
+    */
+   public List<Long> getAttachmentsToMove(Long afterAttachmentId, int batchSize);
+
+   /**
+    * Moves content of the attachment stored in database to the configured attachment storage. Called by
+    * {@link AttachmentStorageMaintenance}, every attachment is moved in its own transaction.
+    *
+    * @param attachmentId
+    * @return true if the content was moved, false if there's nothing to move
+    * @throws ServiceException if the content can't be moved
+    */
+   public boolean moveAttachmentToStorage(Long attachmentId) throws ServiceException;
+
+   /**
+    * Removes content of attachments which isn't referenced by any attachment from the attachment storages.
+    *
+    * @param storedBefore content stored after the date is kept
+    * @return number of removed contents
+    * @throws ServiceException if the storage can't be read
+    */
+   public int removeUnreferencedAttachmentContent(Date storedBefore) throws ServiceException;
+
+   /**
+    * Removes attachment uploads which weren't changed since the date.
+    *
+    * @param changedBefore
+    * @return number of removed uploads
+    * @throws ServiceException
+    */
+   public int removeAbandonedAttachmentUploads(Date changedBefore) throws ServiceException;
+
    /**
     * Create a new test with collection of metrics.Group id of the new test needs to be one
     * of the current user's roles.
@@ -354,6 +485,54 @@ public interface TestService {
     */
    public void removeTagsFromTestExecutions(Collection<String> tags, Collection<TestExecution> testExecutions);
 
+   /**
+    * Starts mass operation adding tags to all test executions matching the search criteria, regardless of the
+    * pagination of the search. The operation runs in background, see {@link #getBulkOperation(Long)}.
+    *
+    * @param search
+    * @param tags
+    * @return the started operation
+    * @throws org.perfrepo.web.security.SecurityException if the user isn't allowed to modify any of the tests
+    */
+   public BulkOperationTO startAddingTags(TestExecutionSearchTO search, Collection<String> tags);
+
+   /**
+    * Starts mass operation removing tags from all test executions matching the search criteria, regardless of the
+    * pagination of the search. The operation runs in background, see {@link #getBulkOperation(Long)}.
+    *
+    * @param search
+    * @param tags
+    * @return the started operation
+    * @throws org.perfrepo.web.security.SecurityException if the user isn't allowed to modify any of the tests
+    */
+   public BulkOperationTO startRemovingTags(TestExecutionSearchTO search, Collection<String> tags);
+
+   /**
+    * Starts mass operation removing all test executions matching the search criteria, regardless of the pagination
+    * of the search. The operation runs in background, see {@link #getBulkOperation(Long)}.
+    *
+    * @param search
+    * @return the started operation
+    * @throws org.perfrepo.web.security.SecurityException if the user isn't allowed to modify any of the tests
+    */
+   public BulkOperationTO startRemovingTestExecutions(TestExecutionSearchTO search);
+
+   /**
+    * @param id
+    * @return current state of the mass operation, null if it doesn't exist
+    */
+   public BulkOperationTO getBulkOperation(Long id);
+
+   /**
+    * Applies mass operation to one chunk of test executions, by a few set based statements. Called by
+    * {@link BulkOperationWorker}, permissions are checked when the operation is started and again for every chunk.
+    *
+    * @param operation
+    * @param testExecutionIds
+    * @throws org.perfrepo.web.security.SecurityException if the user isn't allowed to modify any of the tests
+    */
+   public void processBulkOperation(BulkOperationTO operation, List<Long> testExecutionIds);
+
    /**
     * Retrieves test by id
     *
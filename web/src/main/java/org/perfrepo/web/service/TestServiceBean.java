@@ -14,8 +14,15 @@
  */
 package org.perfrepo.web.service;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 import org.apache.log4j.Logger;
 import org.perfrepo.model.*;
+import org.perfrepo.model.auth.AccessType;
+import org.perfrepo.model.MetricRollup.Granularity;
+import org.perfrepo.model.to.AttachmentUploadTO;
+import org.perfrepo.model.to.BulkCreateResultTO;
+import org.perfrepo.model.to.BulkOperationTO;
 import org.perfrepo.model.to.SearchResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
@@ -24,13 +31,26 @@ import org.perfrepo.model.user.User;
 import org.perfrepo.model.userproperty.GroupFilter;
 import org.perfrepo.model.util.EntityUtils;
 import org.perfrepo.model.util.EntityUtils.UpdateSet;
+import org.perfrepo.web.alerting.RollingStatisticsStore;
 import org.perfrepo.web.dao.*;
+import org.perfrepo.web.security.AuthorizationService;
 import org.perfrepo.web.security.Secured;
 import org.perfrepo.web.service.exceptions.ServiceException;
+import org.perfrepo.web.service.reports.MetricReportCache;
+import org.perfrepo.web.service.reports.MetricSeriesCache;
+import org.perfrepo.web.util.MessageUtils;
 import org.perfrepo.web.util.MultiValue;
 
+import javax.annotation.Resource;
 import javax.ejb.*;
 import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -48,6 +68,16 @@ public class TestServiceBean implements TestService {
 
    private static final Logger log = Logger.getLogger(TestService.class);
 
+   /**
+    * Size of the chunks of attachment uploads used if the client doesn't request any.
+    */
+   public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+   /**
+    * Maximal size of the chunks of attachment uploads.
+    */
+   public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
    @Inject
    private TestDAO testDAO;
 
@@ -63,6 +93,12 @@ public class TestServiceBean implements TestService {
    @Inject
    private TagDAO tagDAO;
 
+   @Inject
+   private TagSetDAO tagSetDAO;
+
+   @Inject
+   private TagResolver tagResolver;
+
    @Inject
    private ValueDAO valueDAO;
 
@@ -81,6 +117,36 @@ public class TestServiceBean implements TestService {
    @Inject
    private AlertingService alertingService;
 
+   @Inject
+   private AuthorizationService authorizationService;
+
+   @Inject
+   private MetricReportCache metricReportCache;
+
+   @Inject
+   private MetricSeriesCache metricSeriesCache;
+
+   @Inject
+   private RollingStatisticsStore rollingStatisticsStore;
+
+   @Inject
+   private TagIndex tagIndex;
+
+   @Inject
+   private MetricRollupDAO metricRollupDAO;
+
+   @Inject
+   private BulkOperationRegistry bulkOperationRegistry;
+
+   @Inject
+   private AttachmentUploadStore attachmentUploadStore;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   @Inject
+   private BulkOperationWorker bulkOperationWorker;
+
    @Override
    @Secured
    public TestExecution createTestExecution(TestExecution testExecution) throws ServiceException {
@@ -101,22 +167,9 @@ public class TestServiceBean implements TestService {
       }
       // tags
       if (detachedTags != null && detachedTags.size() > 0) {
-         for (Tag teg : detachedTags) {
-            Tag tag = tagDAO.findByName(teg.getName());
-            if (tag == null) {
-               tag = tagDAO.create(teg);
-            }
-
-            Collection<TestExecution> tagTestExecutions = tag.getTestExecutions();
-            if (tagTestExecutions == null) {
-               tag.setTestExecutions(new ArrayList<>());
-            }
-
-            storedTestExecution.getTags().add(tag);
-            tag.getTestExecutions().add(storedTestExecution);
-
-         }
+         storedTestExecution.getTags().addAll(tagResolver.resolve(detachedTags.stream().map(Tag::getName).collect(Collectors.toList())).values());
       }
+      updateTagSet(storedTestExecution);
       // values
       if (testExecution.getValues() != null && !testExecution.getValues().isEmpty()) {
          for (Value value : testExecution.getValues()) {
@@ -139,28 +192,119 @@ public class TestServiceBean implements TestService {
          }
       }
 
+      metricRollupDAO.add(Collections.singletonList(storedTestExecution));
+
       storedTestExecution = testExecutionDAO.update(storedTestExecution);
+      alertingService.enqueueAlerts(storedTestExecution);
+      tagIndex.setTags(storedTestExecution.getId(), getTagNames(storedTestExecution));
+      metricSeriesCache.add(storedTestExecution);
+      rollingStatisticsStore.add(storedTestExecution);
 
       TestExecution clone = cloneAndFetch(storedTestExecution, true, true, true, true, true);
       log.debug("Created new test execution " + clone.getId());
 
-      alertingService.processAlerts(clone);
-
       return clone;
    }
 
    @Override
-   public List<TestExecution> getFullTestExecutions(Collection<Long> ids) {
-      List<TestExecution> result = new ArrayList<TestExecution>();
-      for (Long id : ids) {
-         TestExecution testExecution = getFullTestExecution(id);
-         if (testExecution != null) {
-            result.add(testExecution);
+   public BulkCreateResultTO createTestExecutions(List<TestExecution> testExecutions) {
+      String[] errors = new String[testExecutions.size()];
+      Map<String, Test> testsByReference = new HashMap<>();
+      Map<Long, Boolean> authorizedTests = new HashMap<>();
+      for (int i = 0; i < testExecutions.size(); i++) {
+         try {
+            prepareNewTestExecution(testExecutions.get(i), testsByReference, authorizedTests);
+         } catch (ServiceException e) {
+            errors[i] = MessageUtils.getMessage(e);
+         }
+      }
+
+      // tags are resolved once for the whole batch
+      Set<String> tagNames = new HashSet<>();
+      for (int i = 0; i < testExecutions.size(); i++) {
+         if (errors[i] == null && testExecutions.get(i).getTags() != null) {
+            testExecutions.get(i).getTags().stream().map(Tag::getName).filter(Objects::nonNull).forEach(tagNames::add);
+         }
+      }
+      Map<String, Tag> tagsByName = tagResolver.resolve(tagNames);
+
+      // so are the sets of tags
+      List<List<Tag>> tagSets = new ArrayList<>();
+      for (int i = 0; i < testExecutions.size(); i++) {
+         if (errors[i] == null && testExecutions.get(i).getTags() != null) {
+            tagSets.add(testExecutions.get(i).getTags().stream().map(Tag::getName).filter(Objects::nonNull).distinct().map(tagsByName::get).collect(Collectors.toList()));
+         }
+      }
+      Map<String, TagSet> tagSetsByHash = tagSetDAO.getOrCreateAll(tagSets);
+
+      List<TestExecution> createdTestExecutions = new ArrayList<>();
+      for (int i = 0; i < testExecutions.size(); i++) {
+         if (errors[i] != null) {
+            continue;
+         }
+
+         TestExecution testExecution = testExecutions.get(i);
+         Collection<Tag> detachedTags = testExecution.getTags();
+         testExecution.setTags(new HashSet<>());
+         if (detachedTags != null) {
+            detachedTags.stream().filter(tag -> tag.getName() != null).forEach(tag -> testExecution.getTags().add(tagsByName.get(tag.getName())));
+         }
+         if (!testExecution.getTags().isEmpty()) {
+            Set<String> names = testExecution.getTags().stream().map(Tag::getName).collect(Collectors.toSet());
+            testExecution.setTagSet(tagSetsByHash.get(TagSet.hash(TagSet.canonicalize(names))));
+         }
+         testExecutionDAO.persist(testExecution);
+
+         if (testExecution.getParameters() != null) {
+            for (TestExecutionParameter param : testExecution.getParameters()) {
+               param.setTestExecution(testExecution);
+               testExecutionParameterDAO.persist(param);
+            }
+         }
+         if (testExecution.getValues() != null) {
+            for (Value value : testExecution.getValues()) {
+               value.setTestExecution(testExecution);
+               valueDAO.persist(value);
+               if (value.getParameters() != null) {
+                  for (ValueParameter valueParameter : value.getParameters()) {
+                     valueParameter.setValue(value);
+                     valueParameterDAO.persist(valueParameter);
+                  }
+               }
+            }
+         }
+         alertingService.enqueueAlerts(testExecution);
+         metricSeriesCache.add(testExecution);
+         rollingStatisticsStore.add(testExecution);
+         createdTestExecutions.add(testExecution);
+      }
+      metricRollupDAO.add(createdTestExecutions);
+
+      // single flush, the inserts are sent in JDBC batches
+      testExecutionDAO.flush();
+
+      BulkCreateResultTO result = new BulkCreateResultTO();
+      for (int i = 0; i < testExecutions.size(); i++) {
+         if (errors[i] != null) {
+            result.addError(i, errors[i]);
+         } else {
+            result.addCreated(i, testExecutions.get(i).getId());
+            tagIndex.setTags(testExecutions.get(i).getId(), getTagNames(testExecutions.get(i)));
          }
       }
+      log.debug("Created " + result.getCreatedIds().size() + " of " + testExecutions.size() + " test executions in bulk");
+
+      // the persistence context is not needed anymore, no reason to keep dirty checking all the created entities
+      testExecutionDAO.clear();
+
       return result;
    }
 
+   @Override
+   public List<TestExecution> getFullTestExecutions(Collection<Long> ids) {
+      return testExecutionDAO.getFullTestExecutions(ids);
+   }
+
    @Override
    public SearchResultWrapper<Test> searchTest(TestSearchTO search) {
       return testDAO.searchTests(search, userService.getLoggedUserGroupNames());
@@ -197,14 +341,17 @@ public class TestServiceBean implements TestService {
 
    @Override
    @Secured
-   public Long addAttachment(TestExecutionAttachment attachment) throws ServiceException {
+   public Long addAttachment(TestExecutionAttachment attachment, InputStream content, long length) throws ServiceException {
       TestExecution exec = testExecutionDAO.get(attachment.getTestExecution().getId());
       if (exec == null) {
          throw new ServiceException("serviceException.addAttachment.testExecutionNotFound", attachment.getTestExecution().getName());
       }
       attachment.setTestExecution(exec);
-      TestExecutionAttachment newAttachment = testExecutionAttachmentDAO.create(attachment);
-      return newAttachment.getId();
+      try {
+         return testExecutionAttachmentDAO.create(attachment, content, length).getId();
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
    }
 
    @Override
@@ -225,6 +372,153 @@ public class TestServiceBean implements TestService {
       return testExecutionAttachmentDAO.get(id);
    }
 
+   @Override
+   public long getAttachmentSize(Long id) throws IOException {
+      return testExecutionAttachmentDAO.getContentLength(id);
+   }
+
+   @Override
+   public boolean writeAttachmentContent(Long id, long offset, long length, OutputStream output) throws IOException {
+      return testExecutionAttachmentDAO.writeContent(id, offset, length, output);
+   }
+
+   @Override
+   @Secured
+   public AttachmentUploadTO startAttachmentUpload(TestExecutionAttachment attachment, long size, int chunkSize) throws ServiceException {
+      TestExecution exec = testExecutionDAO.get(attachment.getTestExecution().getId());
+      if (exec == null) {
+         throw new ServiceException("serviceException.addAttachment.testExecutionNotFound", attachment.getTestExecution().getName());
+      }
+      AttachmentUploadTO upload = new AttachmentUploadTO();
+      upload.setTestExecutionId(exec.getId());
+      upload.setFilename(attachment.getFilename());
+      upload.setMimetype(attachment.getMimetype());
+      upload.setSize(Math.max(size, 0));
+      upload.setChunkSize(chunkSize <= 0 ? DEFAULT_CHUNK_SIZE : Math.min(chunkSize, MAX_CHUNK_SIZE));
+      try {
+         return attachmentUploadStore.create(upload, userService.getLoggedUser().getUsername());
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+   }
+
+   @Override
+   @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+   public AttachmentUploadTO getAttachmentUpload(String uploadId) throws ServiceException {
+      try {
+         return attachmentUploadStore.get(uploadId, userService.getLoggedUser().getUsername());
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+   }
+
+   @Override
+   @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+   public void storeAttachmentChunk(String uploadId, int chunk, InputStream content) throws ServiceException {
+      AttachmentUploadTO upload = getExistingAttachmentUpload(uploadId);
+      if (chunk < 0 || chunk >= upload.getChunkCount()) {
+         throw new ServiceException("serviceException.attachmentUpload.invalidChunk", String.valueOf(chunk), uploadId);
+      }
+      try {
+         attachmentUploadStore.storeChunk(upload, chunk, content);
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+   }
+
+   @Override
+   public Long completeAttachmentUpload(String uploadId, String checksum) throws ServiceException {
+      AttachmentUploadTO upload = getExistingAttachmentUpload(uploadId);
+      if (!upload.isComplete()) {
+         throw new ServiceException("serviceException.attachmentUpload.incomplete", uploadId, String.valueOf(upload.getStoredChunks().size()), String.valueOf(upload.getChunkCount()));
+      }
+      TestExecution exec = testExecutionDAO.get(upload.getTestExecutionId());
+      if (exec == null) {
+         throw new ServiceException("serviceException.addAttachment.testExecutionNotFound", upload.getTestExecutionId().toString());
+      }
+      if (!authorizationService.isUserAuthorizedFor(AccessType.WRITE, exec.getTest())) {
+         throw new org.perfrepo.web.security.SecurityException("securityException.permissionDenied", "completeAttachmentUpload", "Test", exec.getTest().getId().toString());
+      }
+
+      TestExecutionAttachment attachment = new TestExecutionAttachment();
+      attachment.setFilename(upload.getFilename());
+      attachment.setMimetype(upload.getMimetype());
+      attachment.setTestExecution(exec);
+      String computed;
+      try (HashingInputStream content = new HashingInputStream(Hashing.sha256(), attachmentUploadStore.openContent(upload))) {
+         testExecutionAttachmentDAO.create(attachment, content, upload.getSize());
+         computed = content.hash().toString();
+      } catch (IOException | UncheckedIOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+      if (checksum != null && !checksum.equalsIgnoreCase(computed)) {
+         // rolls back the attachment, chunks are kept so the wrong ones can be uploaded again
+         throw new ServiceException("serviceException.attachmentUpload.checksumMismatch", uploadId, computed);
+      }
+
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+               try {
+                  attachmentUploadStore.remove(uploadId);
+               } catch (IOException e) {
+                  log.warn("Unable to remove completed attachment upload " + uploadId, e);
+               }
+            }
+         }
+      });
+      return attachment.getId();
+   }
+
+   @Override
+   @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+   public void cancelAttachmentUpload(String uploadId) throws ServiceException {
+      getExistingAttachmentUpload(uploadId);
+      try {
+         attachmentUploadStore.remove(uploadId);
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+   }
+
+   @Override
+   public List<Long> getAttachmentsToMove(Long afterAttachmentId, int batchSize) {
+      return testExecutionAttachmentDAO.getIdsStoredInDatabase(afterAttachmentId, batchSize);
+   }
+
+   @Override
+   public boolean moveAttachmentToStorage(Long attachmentId) throws ServiceException {
+      try {
+         return testExecutionAttachmentDAO.moveToStorage(attachmentId);
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+   }
+
+   @Override
+   public int removeUnreferencedAttachmentContent(Date storedBefore) throws ServiceException {
+      try {
+         return testExecutionAttachmentDAO.removeUnreferencedContent(storedBefore);
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+   }
+
+   @Override
+   @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+   public int removeAbandonedAttachmentUploads(Date changedBefore) throws ServiceException {
+      try {
+         return attachmentUploadStore.removeAbandoned(changedBefore);
+      } catch (IOException e) {
+         throw new ServiceException("serviceException.attachmentStorage", e, e.getMessage());
+      }
+   }
+
    @Override
    public Test createTest(Test test) throws ServiceException {
       if (!userService.isLoggedUserInGroup(test.getGroupId())) {
@@ -247,56 +541,12 @@ public class TestServiceBean implements TestService {
 
    @Override
    public Test getFullTest(Long id) {
-      Test test = testDAO.get(id);
-      if (test == null) {
-         return null;
-      }
-      test = test.clone();
-      // TODO: return by named query, with optimized fetching
-      Collection<Metric> metrics = test.getMetrics();
-      if (metrics != null) {
-         List<Metric> clonedMetrics = new ArrayList<Metric>();
-         for (Metric metric: metrics) {
-            clonedMetrics.add(metric);
-         }
-         test.setMetrics(clonedMetrics);
-      }
-
-      Collection<User> subscribers = test.getSubscribers();
-      if (subscribers != null) {
-         List<User> subscribersClone = new ArrayList<>();
-         for (User subscriber : subscribers) {
-            subscribersClone.add(subscriber.clone());
-         }
-         test.setSubscribers(subscribersClone);
-      }
-
-      Collection<Alert> alerts = test.getAlerts();
-      if (alerts != null) {
-         List<Alert> alertsClone = new ArrayList<>();
-         for (Alert alert : alerts) {
-            List<Tag> tagsClone = new ArrayList<>();
-            for (Tag tag : alert.getTags()) {
-               tagsClone.add(tag.clone());
-            }
-            Alert alertClone = alert.clone();
-            alertClone.setTags(tagsClone);
-            alertsClone.add(alertClone);
-         }
-         test.setAlerts(alertsClone);
-      }
-
-      return test;
+      return testDAO.getFullTest(id);
    }
 
    @Override
    public List<Test> getAllFullTests() {
-      List<Test> r = testDAO.getAll();
-      List<Test> rcopy = new ArrayList<Test>(r.size());
-      for (Test t : r) {
-         rcopy.add(getFullTest(t.getId()));
-      }
-      return rcopy;
+      return testDAO.getAllFullTests();
    }
 
    @Secured
@@ -317,6 +567,7 @@ public class TestServiceBean implements TestService {
          throw new ServiceException("serviceException.removeTest.cannotRemoveAllTestExecutions", ex);
       }
 
+      metricRollupDAO.removeByTest(freshTest.getId());
       testDAO.remove(freshTest);
    }
 
@@ -343,6 +594,11 @@ public class TestServiceBean implements TestService {
          allTestExecutionAttachments.remove();
       }
       testExecutionDAO.remove(freshTestExecution);
+      refreshRollups(freshTestExecution, freshTestExecution.getTagSetId(), freshTestExecution.getStarted());
+      tagIndex.removeTestExecution(freshTestExecution.getId());
+      metricSeriesCache.invalidate(freshTestExecution.getTest().getId());
+      rollingStatisticsStore.invalidate();
+      metricReportCache.invalidateExecution(freshTestExecution.getId());
    }
 
    @Override
@@ -419,6 +675,8 @@ public class TestServiceBean implements TestService {
    @Override
    @Secured
    public Metric updateMetric(Metric metric) throws ServiceException {
+      // metric may be shared by more tests and the cached results are held by metric name
+      metricReportCache.invalidateAll();
       return metricDAO.update(metric);
    }
 
@@ -445,10 +703,15 @@ public class TestServiceBean implements TestService {
 
       metricDAO.update(freshMetric);
       testDAO.update(freshTest);
+      metricRollupDAO.removeByTestAndMetric(freshTest.getId(), freshMetric.getId());
 
       if (freshMetric.getTests() == null || freshMetric.getTests().isEmpty()) {
          metricDAO.remove(freshMetric);
       }
+      // cached baseline values are held by metric name, the values of the metric may be gone
+      metricReportCache.invalidateAll();
+      metricSeriesCache.invalidate(freshTest.getId());
+      rollingStatisticsStore.invalidate();
    }
 
    @Override
@@ -469,17 +732,13 @@ public class TestServiceBean implements TestService {
 
    @Override
    public TestExecution getFullTestExecution(Long id) {
-      return cloneAndFetch(testExecutionDAO.get(id), true, true, true, true, true);
+      List<TestExecution> testExecutions = testExecutionDAO.getFullTestExecutions(Collections.singletonList(id));
+      return testExecutions.isEmpty() ? null : testExecutions.get(0);
    }
 
    @Override
    public List<TestExecution> getAllFullTestExecutions() {
-      List<TestExecution> r = testExecutionDAO.getAll();
-      List<TestExecution> rcopy = new ArrayList<TestExecution>(r.size());
-      for (TestExecution exec : r) {
-         rcopy.add(getFullTestExecution(exec.getId()));
-      }
-      return rcopy;
+      return testExecutionDAO.getFullTestExecutions(testExecutionDAO.getAllIds());
    }
 
    @Override
@@ -497,6 +756,8 @@ public class TestServiceBean implements TestService {
          throw new ServiceException("serviceException.testExecutionNotFound", updatedTestExecution.getName());
       }
 
+      Date previousStarted = freshTestExecution.getStarted();
+      Long previousTagSetId = freshTestExecution.getTagSetId();
       freshTestExecution.setName(updatedTestExecution.getName());
       freshTestExecution.setStarted(updatedTestExecution.getStarted());
       freshTestExecution.setComment(updatedTestExecution.getComment());
@@ -504,10 +765,23 @@ public class TestServiceBean implements TestService {
       testExecutionDAO.update(freshTestExecution);
 
       updateTags(freshTestExecution, updatedTestExecution);
+      updateTagSet(freshTestExecution);
+      tagIndex.setTags(freshTestExecution.getId(), getTagNames(freshTestExecution));
       updateValues(freshTestExecution, updatedTestExecution);
       updateParameters(freshTestExecution, updatedTestExecution);
 
       testExecutionDAO.update(freshTestExecution);
+      if (previousStarted.getTime() != freshTestExecution.getStarted().getTime()) {
+         valueDAO.updateStarted(freshTestExecution.getId(), freshTestExecution.getStarted());
+      }
+      if (!Objects.equals(previousTagSetId, freshTestExecution.getTagSetId()) || previousStarted.getTime() != freshTestExecution.getStarted().getTime()) {
+         refreshRollups(freshTestExecution, previousTagSetId, previousStarted);
+      }
+      refreshRollups(freshTestExecution, freshTestExecution.getTagSetId(), freshTestExecution.getStarted());
+
+      metricSeriesCache.invalidate(freshTestExecution.getTest().getId());
+      rollingStatisticsStore.invalidate();
+      metricReportCache.invalidateExecution(freshTestExecution.getId());
 
       TestExecution execClone = cloneAndFetch(freshTestExecution, true, true, true, true, true);
       return execClone;
@@ -586,6 +860,10 @@ public class TestServiceBean implements TestService {
          }
       }
       Value freshValue = valueDAO.create(value);
+      metricRollupDAO.refresh(exec.getTest().getId(), exec.getTagSetId(), exec.getStarted(), Collections.singletonList(metric.getId()));
+      metricSeriesCache.invalidate(exec.getTest().getId());
+      rollingStatisticsStore.invalidate();
+      metricReportCache.invalidateExecution(exec.getId());
       Value freshValueClone = freshValue.clone();
       List<ValueParameter> newParams = new ArrayList<ValueParameter>();
       if (value.hasParameters()) {
@@ -612,6 +890,10 @@ public class TestServiceBean implements TestService {
          throw new ServiceException("serviceException.valueNotFound");
       }
       Value freshValue = valueDAO.update(value);
+      metricRollupDAO.refresh(exec.getTest().getId(), exec.getTagSetId(), exec.getStarted(), Collections.singletonList(freshValue.getMetric().getId()));
+      metricSeriesCache.invalidate(exec.getTest().getId());
+      rollingStatisticsStore.invalidate();
+      metricReportCache.invalidateExecution(exec.getId());
       Value freshValueClone = freshValue.clone();
       freshValueClone.setMetric(freshValue.getMetric().clone());
       freshValueClone.getMetric().setValues(null);
@@ -648,6 +930,10 @@ public class TestServiceBean implements TestService {
          valueParameterDAO.remove(vp);
       }
       valueDAO.remove(v);
+      metricRollupDAO.refresh(exec.getTest().getId(), exec.getTagSetId(), exec.getStarted(), Collections.singletonList(v.getMetric().getId()));
+      metricSeriesCache.invalidate(exec.getTest().getId());
+      rollingStatisticsStore.invalidate();
+      metricReportCache.invalidateExecution(exec.getId());
    }
 
    @Override
@@ -708,37 +994,38 @@ public class TestServiceBean implements TestService {
 
    @Override
    public void addTagsToTestExecutions(Collection<String> tags, Collection<TestExecution> testExecutions) {
+      Collection<Tag> resolvedTags = tagResolver.resolve(tags).values();
+      Set<Long> testIds = new HashSet<>();
       for (TestExecution testExecutionItem : testExecutions) {
          TestExecution testExecution = testExecutionDAO.get(testExecutionItem.getId());
          if (testExecution == null) {
             continue;
          }
 
-         for (String tagName : tags) {
-            if (!testExecution.getTags().contains(tagName)) {
-               Tag tag = tagDAO.findByName(tagName);
-               if (tag == null) {
-                  Tag newTag = new Tag();
-                  newTag.setName(tagName);
-                  tag = tagDAO.create(newTag);
-               }
-
-               Collection<TestExecution> tagTestExecutions = tag.getTestExecutions();
-               if (tagTestExecutions == null) {
-                  tag.setTestExecutions(new ArrayList<>());
-               }
-
-               tag.getTestExecutions().add(testExecution);
+         for (Tag tag : resolvedTags) {
+            if (!testExecution.getTags().contains(tag)) {
                testExecution.getTags().add(tag);
             }
          }
+         Long previousTagSetId = testExecution.getTagSetId();
+         updateTagSet(testExecution);
 
          testExecutionDAO.update(testExecution);
+         if (!Objects.equals(previousTagSetId, testExecution.getTagSetId())) {
+            refreshRollups(testExecution, previousTagSetId, testExecution.getStarted());
+            refreshRollups(testExecution, testExecution.getTagSetId(), testExecution.getStarted());
+         }
+         tagIndex.addTags(testExecution.getId(), tags);
+         testIds.add(testExecution.getTest().getId());
       }
+
+      testIds.forEach(metricSeriesCache::invalidate);
+      rollingStatisticsStore.invalidate();
    }
 
    @Override
    public void removeTagsFromTestExecutions(Collection<String> tags, Collection<TestExecution> testExecutions) {
+      Set<Long> testIds = new HashSet<>();
       for (TestExecution testExecutionItem : testExecutions) {
          TestExecution testExecution = testExecutionDAO.get(testExecutionItem.getId());
          if (testExecution == null) {
@@ -751,9 +1038,92 @@ public class TestServiceBean implements TestService {
                testExecution.getTags().remove(tag);
             }
          }
+         Long previousTagSetId = testExecution.getTagSetId();
+         updateTagSet(testExecution);
 
          testExecutionDAO.update(testExecution);
+         if (!Objects.equals(previousTagSetId, testExecution.getTagSetId())) {
+            refreshRollups(testExecution, previousTagSetId, testExecution.getStarted());
+            refreshRollups(testExecution, testExecution.getTagSetId(), testExecution.getStarted());
+         }
+         tagIndex.removeTags(testExecution.getId(), tags);
+         testIds.add(testExecution.getTest().getId());
       }
+
+      testIds.forEach(metricSeriesCache::invalidate);
+      rollingStatisticsStore.invalidate();
+   }
+
+   @Override
+   public BulkOperationTO startAddingTags(TestExecutionSearchTO search, Collection<String> tags) {
+      return startBulkOperation(BulkOperationTO.Type.ADD_TAGS, search, tags);
+   }
+
+   @Override
+   public BulkOperationTO startRemovingTags(TestExecutionSearchTO search, Collection<String> tags) {
+      return startBulkOperation(BulkOperationTO.Type.REMOVE_TAGS, search, tags);
+   }
+
+   @Override
+   public BulkOperationTO startRemovingTestExecutions(TestExecutionSearchTO search) {
+      return startBulkOperation(BulkOperationTO.Type.REMOVE, search, Collections.emptyList());
+   }
+
+   @Override
+   public BulkOperationTO getBulkOperation(Long id) {
+      return bulkOperationRegistry.get(id);
+   }
+
+   @Override
+   public void processBulkOperation(BulkOperationTO operation, List<Long> testExecutionIds) {
+      List<Object[]> summaries = testExecutionDAO.getSummaries(testExecutionIds);
+      if (summaries.isEmpty()) {
+         return;
+      }
+      List<Long> ids = summaries.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+      Set<Long> testIds = summaries.stream().map(row -> (Long) row[1]).collect(Collectors.toSet());
+      // the method is part of the service interface, so it doesn't rely on the check done when the operation started
+      checkBulkOperationAllowed(operation.getType(), testIds);
+
+      switch (operation.getType()) {
+         case ADD_TAGS:
+            testExecutionDAO.addTags(ids, EntityUtils.extractIds(tagResolver.resolve(operation.getTags()).values()));
+            tagIndex.addTags(ids, operation.getTags());
+            break;
+         case REMOVE_TAGS:
+            testExecutionDAO.removeTags(ids, EntityUtils.extractIds(tagDAO.findByNames(operation.getTags())));
+            tagIndex.removeTags(ids, operation.getTags());
+            break;
+         case REMOVE:
+            testExecutionDAO.removeAll(ids);
+            tagIndex.removeTestExecutions(ids);
+            metricReportCache.invalidateExecutions(ids);
+            break;
+      }
+
+      // rollups of the periods are refreshed only if the test execution was removed or its set of tags changed
+      Set<List<Object>> periods = new LinkedHashSet<>();
+      if (operation.getType() == BulkOperationTO.Type.REMOVE) {
+         summaries.forEach(row -> periods.add(rollupPeriod((Long) row[1], (Long) row[2], (Date) row[3])));
+      } else {
+         Map<Long, Long> newTagSetIds = updateTagSets(ids);
+         for (Object[] row : summaries) {
+            Long newTagSetId = newTagSetIds.get((Long) row[0]);
+            if (!Objects.equals(row[2], newTagSetId)) {
+               periods.add(rollupPeriod((Long) row[1], (Long) row[2], (Date) row[3]));
+               periods.add(rollupPeriod((Long) row[1], newTagSetId, (Date) row[3]));
+            }
+         }
+      }
+      Map<Long, List<Long>> metricIdsByTest = new HashMap<>();
+      for (List<Object> period : periods) {
+         Long testId = (Long) period.get(0);
+         List<Long> metricIds = metricIdsByTest.computeIfAbsent(testId, id -> EntityUtils.extractIds(testDAO.get(id).getMetrics()));
+         metricRollupDAO.refresh(testId, (Long) period.get(1), (Date) period.get(2), metricIds);
+      }
+
+      testIds.forEach(metricSeriesCache::invalidate);
+      rollingStatisticsStore.invalidate();
    }
 
    @Override
@@ -838,6 +1208,59 @@ public class TestServiceBean implements TestService {
       return clone;
    }
 
+   /**
+    * Helper method for bulk creation, checks that the new test execution can be stored. Resolves its test and metrics
+    * of its values, tests and user's permissions are cached in provided maps for the whole batch.
+    *
+    * @param testExecution
+    * @param testsByReference tests by ID or UID they were referred by
+    * @param authorizedTests whether the user is allowed to write to the test, by test ID
+    * @throws ServiceException
+    */
+   private void prepareNewTestExecution(TestExecution testExecution, Map<String, Test> testsByReference, Map<Long, Boolean> authorizedTests) throws ServiceException {
+      Test testReference = testExecution.getTest();
+      if (testReference == null || (testReference.getId() == null && testReference.getUid() == null)) {
+         throw new ServiceException("serviceException.101");
+      }
+
+      String reference = testReference.getId() != null ? testReference.getId().toString() : testReference.getUid();
+      if (!testsByReference.containsKey(reference)) {
+         testsByReference.put(reference, testReference.getId() != null ? testDAO.get(testReference.getId()) : testDAO.findByUid(testReference.getUid()));
+      }
+      Test test = testsByReference.get(reference);
+      if (test == null) {
+         throw new ServiceException("serviceException.testNotFound", reference);
+      }
+      if (!authorizedTests.computeIfAbsent(test.getId(), id -> authorizationService.isUserAuthorizedFor(AccessType.WRITE, test))) {
+         throw new ServiceException("serviceException.bulkCreate.permissionDenied", test.getName());
+      }
+      testExecution.setTest(test);
+
+      validateTestExecution(testExecution);
+
+      if (testExecution.getParameters() != null) {
+         Set<String> parameterNames = new HashSet<>();
+         for (TestExecutionParameter param : testExecution.getParameters()) {
+            if (!parameterNames.add(param.getName())) {
+               throw new ServiceException("serviceException.parameterExists", param.getName());
+            }
+         }
+      }
+
+      if (testExecution.getValues() != null) {
+         for (Value value : testExecution.getValues()) {
+            if (value.getMetricName() == null) {
+               throw new ServiceException("serviceException.metricNameMissing");
+            }
+            Metric metric = test.getMetrics().stream().filter(m -> m.getName().equals(value.getMetricName())).findFirst().orElse(null);
+            if (metric == null) {
+               throw new ServiceException("serviceException.metricNotInTest", test.getName(), test.getId().toString(), value.getMetricName());
+            }
+            value.setMetric(metric);
+         }
+      }
+   }
+
    /**
     * Validates correct format of test execution.
     *
@@ -897,23 +1320,121 @@ public class TestServiceBean implements TestService {
     * @throws ServiceException
     */
    private void updateTags(TestExecution freshTestExecution, TestExecution updatedTestExecution) {
-      freshTestExecution.setTags(new ArrayList<>());
+      List<String> tagNames = updatedTestExecution.getTags().stream().map(Tag::getName).collect(Collectors.toList());
+      freshTestExecution.setTags(new ArrayList<>(tagResolver.resolve(tagNames).values()));
+   }
+
+   /**
+    * Helper method returning names of tags of the test execution, used to update the tag index.
+    *
+    * @param testExecution
+    * @return
+    */
+   private static List<String> getTagNames(TestExecution testExecution) {
+      return testExecution.getTags().stream().map(Tag::getName).collect(Collectors.toList());
+   }
+
+   /**
+    * Helper method assigning the canonical set of tags to the test execution, must be called whenever its tags change.
+    *
+    * @param testExecution
+    */
+   private void updateTagSet(TestExecution testExecution) {
+      testExecution.setTagSet(tagSetDAO.getOrCreate(testExecution.getTags()));
+   }
+
+   /**
+    * @param uploadId
+    * @return upload of the logged user
+    * @throws ServiceException if the user doesn't have such upload
+    */
+   private AttachmentUploadTO getExistingAttachmentUpload(String uploadId) throws ServiceException {
+      AttachmentUploadTO upload = getAttachmentUpload(uploadId);
+      if (upload == null) {
+         throw new ServiceException("serviceException.attachmentUpload.notFound", uploadId);
+      }
+      return upload;
+   }
 
-      for (Tag tag : updatedTestExecution.getTags()) {
-         Tag tagEntity = tagDAO.findByName(tag.getName());
-         if (tagEntity == null) {
-            Tag newTag = new Tag();
-            newTag.setName(tag.getName());
-            tagEntity = tagDAO.create(newTag);
+   /**
+    * Registers the bulk operation and submits all test executions matching the search to {@link BulkOperationWorker}.
+    * User has to be allowed to modify tests of all the test executions.
+    *
+    * @param type
+    * @param search
+    * @param tags
+    * @return the registered operation
+    */
+   private BulkOperationTO startBulkOperation(BulkOperationTO.Type type, TestExecutionSearchTO search, Collection<String> tags) {
+      List<Object[]> rows = testExecutionDAO.searchTestExecutionIds(search, userService.getLoggedUserGroupNames());
+      checkBulkOperationAllowed(type, rows.stream().map(row -> (Long) row[1]).collect(Collectors.toSet()));
+
+      List<Long> ids = rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+      BulkOperationTO operation = bulkOperationRegistry.start(type, new TreeSet<>(tags), ids.size());
+      if (!ids.isEmpty()) {
+         bulkOperationWorker.process(operation, ids);
+      }
+      return operation;
+   }
+
+   /**
+    * Checks the logged user is allowed to modify test executions of all the tests.
+    *
+    * @param type type of the bulk operation
+    * @param testIds
+    * @throws org.perfrepo.web.security.SecurityException if the user isn't allowed to modify any of the tests
+    */
+   private void checkBulkOperationAllowed(BulkOperationTO.Type type, Collection<Long> testIds) {
+      for (Long testId : new TreeSet<>(testIds)) {
+         if (!authorizationService.isUserAuthorizedFor(AccessType.WRITE, testDAO.get(testId))) {
+            throw new org.perfrepo.web.security.SecurityException("securityException.permissionDenied", type.name(), "Test", testId.toString());
          }
+      }
+   }
 
-         Collection<TestExecution> tagTestExecutions = tagEntity.getTestExecutions();
-         if (tagTestExecutions == null) {
-            tagEntity.setTestExecutions(new ArrayList<>());
+   /**
+    * Assigns canonical sets of tags to the test executions after their tags were changed by a set based statement.
+    * Test executions with the same tags are updated together.
+    *
+    * @param testExecutionIds
+    * @return new tag set ID by test execution ID, test executions without tags are omitted
+    */
+   private Map<Long, Long> updateTagSets(List<Long> testExecutionIds) {
+      Map<Long, List<Tag>> tagsByExecution = testExecutionDAO.getTags(testExecutionIds);
+      Map<String, List<Long>> executionsByTags = new HashMap<>();
+      Map<String, List<Tag>> tagsByCanonicalForm = new HashMap<>();
+      for (Long id : testExecutionIds) {
+         List<Tag> tags = tagsByExecution.getOrDefault(id, Collections.emptyList());
+         String canonicalForm = TagSet.canonicalize(tags.stream().map(Tag::getName).collect(Collectors.toList()));
+         executionsByTags.computeIfAbsent(canonicalForm, key -> new ArrayList<>()).add(id);
+         tagsByCanonicalForm.putIfAbsent(canonicalForm, tags);
+      }
+
+      Map<Long, Long> result = new HashMap<>();
+      executionsByTags.forEach((canonicalForm, ids) -> {
+         TagSet tagSet = tagSetDAO.getOrCreate(tagsByCanonicalForm.get(canonicalForm));
+         testExecutionDAO.setTagSet(ids, tagSet);
+         if (tagSet != null) {
+            ids.forEach(id -> result.put(id, tagSet.getId()));
          }
+      });
+      return result;
+   }
 
-         tagEntity.getTestExecutions().add(freshTestExecution);
-         freshTestExecution.getTags().add(tagEntity);
-      }
+   private static List<Object> rollupPeriod(Long testId, Long tagSetId, Date started) {
+      return Arrays.asList(testId, tagSetId, Granularity.DAY.truncate(started));
+   }
+
+   /**
+    * Recomputes rollups of all metrics of the test of the test execution in the period of the start, see
+    * {@link MetricRollupDAO#refresh(Long, Long, Date, Collection)}.
+    *
+    * @param testExecution
+    * @param tagSetId set of tags the rollups belong to
+    * @param started start the period is given by
+    */
+   private void refreshRollups(TestExecution testExecution, Long tagSetId, Date started) {
+      List<Long> metricIds = testExecution.getTest().getMetrics().stream().map(Metric::getId).collect(Collectors.toList());
+      metricRollupDAO.refresh(testExecution.getTest().getId(), tagSetId, started, metricIds);
    }
 }
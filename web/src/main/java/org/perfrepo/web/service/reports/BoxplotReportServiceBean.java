@@ -1,6 +1,8 @@
 package org.perfrepo.web.service.reports;
 
 import org.perfrepo.model.Metric;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.MetricRollup.Granularity;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.auth.Permission;
 import org.perfrepo.model.report.Report;
@@ -11,11 +13,13 @@ import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.user.User;
 import org.perfrepo.web.controller.reports.boxplot.Chart;
 import org.perfrepo.web.dao.MetricDAO;
+import org.perfrepo.web.dao.MetricRollupDAO;
 import org.perfrepo.web.dao.TestDAO;
 import org.perfrepo.web.dao.TestExecutionDAO;
 import org.perfrepo.web.service.ReportService;
 import org.perfrepo.web.service.UserService;
 import org.perfrepo.web.util.ReportUtils;
+import org.perfrepo.web.util.TagUtils;
 
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
@@ -24,6 +28,8 @@ import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +47,12 @@ public class BoxplotReportServiceBean {
 
    public static final String BOXPLOT_REPORT_TYPE = "Boxplot";
 
+   /**
+    * Maximal number of boxplots of test executions in a series of chart restricted to a range of dates, if there are
+    * more test executions, boxplots of days or weeks are displayed instead.
+    */
+   public static final int MAX_EXECUTION_BOXPLOTS = 100;
+
    @Inject
    private MetricDAO metricDAO;
 
@@ -50,6 +62,9 @@ public class BoxplotReportServiceBean {
    @Inject
    private TestExecutionDAO testExecutionDAO;
 
+   @Inject
+   private MetricRollupDAO metricRollupDAO;
+
    @Inject
    private UserService userService;
 
@@ -138,9 +153,20 @@ public class BoxplotReportServiceBean {
          }
 
          for (Chart.Series series : chart.getSeriesList()) {
+            Metric metric = metricDAO.get(series.getMetricId());
+            Date[] rollupRange = getRollupRange(chart, test, series);
+            if (rollupRange != null) {
+               series.setDataPoints(assembleRollups(metricRollupDAO.find(test.getId(), metric.getId(), TagUtils.parseTags(series.getTags()),
+                                                                         Granularity.forRange(rollupRange[0], rollupRange[1], MAX_EXECUTION_BOXPLOTS),
+                                                                         rollupRange[0], rollupRange[1])));
+               continue;
+            }
+
             TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
             searchCriteria.setTestUID(test.getUid());
             searchCriteria.setTags(series.getTags());
+            searchCriteria.setStartedFrom(chart.getFrom());
+            searchCriteria.setStartedTo(chart.getTo());
 
             switch (chart.getxAxisSort()) {
                case DATE:
@@ -156,7 +182,6 @@ public class BoxplotReportServiceBean {
             searchCriteria.setOrderByParameter(chart.getxAxisSortParameter());
             searchCriteria.setLabelParameter(chart.getxAxisLabel() == Chart.AxisOption.PARAMETER ? chart.getxAxisLabelParameter() : null);
 
-            Metric metric = metricDAO.get(series.getMetricId());
             List<MultiValueResultWrapper> resultWrappers = testExecutionDAO.searchMultiValues(searchCriteria, metric, userService.getLoggedUserGroupNames());
 
             List<Chart.Series.DataPoint> dataPoints = assembleResults(resultWrappers);
@@ -176,6 +201,39 @@ public class BoxplotReportServiceBean {
       }
    }
 
+   /**
+    * Series of a chart ordered by date are displayed as boxplots of days or weeks, see {@link MetricRollup}, if
+    * there are too many test executions in the range of the chart. Chart without range covers all test executions
+    * of the series.
+    *
+    * @param chart
+    * @param test
+    * @param series
+    * @return range of the rollups, null if the series is computed from the values
+    */
+   private Date[] getRollupRange(Chart chart, Test test, Chart.Series series) {
+      if (chart.getxAxisSort() != Chart.AxisOption.DATE || chart.getxAxisLabel() != Chart.AxisOption.DATE) {
+         return null;
+      }
+      List<String> tags = TagUtils.parseTags(series.getTags());
+      // rollups can't exclude test executions with a tag
+      if (tags.stream().anyMatch(tag -> tag.startsWith("-"))) {
+         return null;
+      }
+
+      Date from = chart.getFrom();
+      Date to = chart.getTo();
+      if (from == null || to == null) {
+         Date[] started = testExecutionDAO.getStartedRange(test.getId(), tags);
+         if (started == null) {
+            return null;
+         }
+         from = from == null ? started[0] : from;
+         to = to == null ? started[1] : to;
+      }
+      return testExecutionDAO.countByTest(test.getId(), tags, from, to) > MAX_EXECUTION_BOXPLOTS ? new Date[] {from, to} : null;
+   }
+
    /**
     * Denormalizes all chart transfer objects of single report into report properties.
     *
@@ -212,6 +270,8 @@ public class BoxplotReportServiceBean {
       ReportUtils.createOrUpdateReportPropertyInMap(properties, chartPrefix + "xAxisLabelParameter", chart.getxAxisLabelParameter(), report);
       ReportUtils.createOrUpdateReportPropertyInMap(properties, chartPrefix + "xAxisSortType", chart.getxAxisSort().toString(), report);
       ReportUtils.createOrUpdateReportPropertyInMap(properties, chartPrefix + "xAxisSortParameter", chart.getxAxisSortParameter(), report);
+      ReportUtils.createOrUpdateReportPropertyInMap(properties, chartPrefix + "from", chart.getFrom() == null ? null : Long.toString(chart.getFrom().getTime()), report);
+      ReportUtils.createOrUpdateReportPropertyInMap(properties, chartPrefix + "to", chart.getTo() == null ? null : Long.toString(chart.getTo().getTime()), report);
    }
 
    /**
@@ -303,6 +363,14 @@ public class BoxplotReportServiceBean {
       if (properties.containsKey("chart" + chartIndex + ".xAxisLabelParameter")) {
          chart.setxAxisLabelParameter(properties.get("chart" + chartIndex + ".xAxisLabelParameter").getValue());
       }
+
+      if (properties.containsKey("chart" + chartIndex + ".from")) {
+         chart.setFrom(new Date(Long.parseLong(properties.get("chart" + chartIndex + ".from").getValue())));
+      }
+
+      if (properties.containsKey("chart" + chartIndex + ".to")) {
+         chart.setTo(new Date(Long.parseLong(properties.get("chart" + chartIndex + ".to").getValue())));
+      }
    }
 
    /**
@@ -357,6 +425,26 @@ public class BoxplotReportServiceBean {
       }
    }
 
+   /**
+    * Constructs DataPoint objects of rollups, the boxplot of a rollup is computed from its minimum, quartiles and
+    * maximum, or from minimum, mean and maximum if the quartiles are not known.
+    *
+    * @param rollups
+    * @return list of datapoints ready to be printed in the chart
+    */
+   private List<Chart.Series.DataPoint> assembleRollups(List<MetricRollup> rollups) {
+      List<Chart.Series.DataPoint> seriesResults = new ArrayList<>();
+
+      for (MetricRollup rollup : rollups) {
+         List<Double> values = rollup.hasQuantiles()
+             ? Arrays.asList(rollup.getMin(), rollup.getQuantile(0.25), rollup.getQuantile(0.5), rollup.getQuantile(0.75), rollup.getMax())
+             : Arrays.asList(rollup.getMin(), rollup.getMean(), rollup.getMax());
+         seriesResults.add(new Chart.Series.DataPoint(rollup.getLastTestExecutionId(), rollup.getPeriodStart(), values));
+      }
+
+      return seriesResults;
+   }
+
    /**
     * Constructs simple DataPoint objects which represents a single boxplot in the chart. Therefore it gathers all
     * values of one test executions and group them together in a single object.
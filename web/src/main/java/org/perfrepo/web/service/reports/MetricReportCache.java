@@ -0,0 +1,251 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service.reports;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Globally scoped cache of the values of baselines of metric history report, data points of the series are read
+ * from {@link MetricSeriesCache}. Rendering a report whose baseline test executions haven't changed doesn't query
+ * the database.
+ *
+ * Values are held under the ID of the baseline test execution. Whenever values of test executions are changed or
+ * the test executions are removed, {@link #invalidateExecution(Long)} has to be called. It drops the values
+ * immediately and again after the modifying transaction completes, so a value read by a concurrent request before
+ * the commit is never kept.
+ * The cache is bounded by {@link #MAX_SIZE} and {@link #EXPIRE_AFTER_MINUTES}, so even a missed invalidation
+ * (e.g. direct change in database) is reflected eventually.
+ *
+ * Statistics of the cache are exposed via JMX as {@link #OBJECT_NAME}.
+ */
+@ApplicationScoped
+public class MetricReportCache implements MetricReportCacheMXBean {
+
+   private static final Logger log = Logger.getLogger(MetricReportCache.class);
+
+   public static final String OBJECT_NAME = "org.perfrepo:type=MetricReportCache";
+
+   /**
+    * Maximal number of cached query results.
+    */
+   public static final int MAX_SIZE = 2000;
+
+   /**
+    * Time after which the cached query result is dropped.
+    */
+   public static final int EXPIRE_AFTER_MINUTES = 30;
+
+   private final Cache<Key, Object> cache = CacheBuilder.newBuilder()
+       .maximumSize(MAX_SIZE)
+       .expireAfterWrite(EXPIRE_AFTER_MINUTES, TimeUnit.MINUTES)
+       .recordStats()
+       .build();
+
+   // incremented with every invalidation of the owner, results loaded before the invalidation are not stored; only
+   // generations held by loads in progress matter, so the others are left to the garbage collector
+   private final ConcurrentMap<Long, AtomicLong> generations = CacheBuilder.newBuilder().weakValues().<Long, AtomicLong>build().asMap();
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   @PostConstruct
+   public void registerMBean() {
+      try {
+         ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to register metric report cache MBean", e);
+      }
+   }
+
+   @PreDestroy
+   public void unregisterMBean() {
+      try {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to unregister metric report cache MBean", e);
+      }
+   }
+
+   /**
+    * Retrieves value of the metric in the baseline test execution.
+    *
+    * @param execId
+    * @param metricName
+    * @param loader queries the value from database if it's not cached
+    * @return value, null if the test execution doesn't have value of the metric
+    */
+   public Double getBaselineValue(Long execId, String metricName, Supplier<Double> loader) {
+      @SuppressWarnings("unchecked")
+      Optional<Double> value = (Optional<Double>) get(new Key(execId, metricName), () -> Optional.ofNullable(loader.get()));
+      return value.orElse(null);
+   }
+
+   /**
+    * Drops all cached baseline values of the test execution. If called in a transaction, the values are dropped
+    * again after the transaction completes.
+    *
+    * @param execId
+    */
+   public void invalidateExecution(Long execId) {
+      invalidateExecutions(Collections.singleton(execId));
+   }
+
+   /**
+    * Drops all cached baseline values of the test executions at once, see {@link #invalidateExecution(Long)}.
+    *
+    * @param execIds
+    */
+   public void invalidateExecutions(Collection<Long> execIds) {
+      invalidateOwners(execIds.stream().filter(id -> id != null).collect(Collectors.toSet()));
+   }
+
+   @Override
+   public void invalidateAll() {
+      generations.values().forEach(AtomicLong::incrementAndGet);
+      cache.invalidateAll();
+   }
+
+   @Override
+   public long getSize() {
+      return cache.size();
+   }
+
+   @Override
+   public long getHitCount() {
+      return cache.stats().hitCount();
+   }
+
+   @Override
+   public long getMissCount() {
+      return cache.stats().missCount();
+   }
+
+   @Override
+   public double getHitRate() {
+      return cache.stats().hitRate();
+   }
+
+   @Override
+   public long getEvictionCount() {
+      return cache.stats().evictionCount();
+   }
+
+   /**
+    * @return snapshot of all statistics of the cache
+    */
+   public CacheStats getStats() {
+      return cache.stats();
+   }
+
+   private Object get(Key key, Supplier<Object> loader) {
+      Object cached = cache.getIfPresent(key);
+      if (cached != null) {
+         return cached;
+      }
+
+      AtomicLong generation = generations.computeIfAbsent(key.owner, owner -> new AtomicLong());
+      long loadedGeneration = generation.get();
+      Object loaded = loader.get();
+      if (generation.get() == loadedGeneration) {
+         cache.put(key, loaded);
+         // owner was invalidated while storing the result, it may be stale
+         if (generation.get() != loadedGeneration) {
+            cache.invalidate(key);
+         }
+      }
+
+      return loaded;
+   }
+
+   private void invalidateOwners(Set<Long> owners) {
+      if (owners.isEmpty()) {
+         return;
+      }
+      doInvalidate(owners);
+      if (transactionSynchronizationRegistry != null && transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+         transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+               doInvalidate(owners);
+            }
+         });
+      }
+   }
+
+   private void doInvalidate(Set<Long> owners) {
+      owners.forEach(owner -> generations.computeIfAbsent(owner, id -> new AtomicLong()).incrementAndGet());
+      cache.asMap().keySet().removeIf(key -> owners.contains(key.owner));
+   }
+
+   /**
+    * Key of the cached result, owner is the test execution whose change invalidates the result.
+    */
+   private static class Key {
+
+      private final Long owner;
+      private final List<Object> parts;
+
+      Key(Long owner, Object... parts) {
+         this.owner = owner;
+         this.parts = Arrays.asList(parts);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) o;
+         return owner.equals(other.owner) && parts.equals(other.parts);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * owner.hashCode() + parts.hashCode();
+      }
+   }
+}
@@ -0,0 +1,51 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service.reports;
+
+/**
+ * JMX view of the cache of baseline values of metric history report.
+ */
+public interface MetricReportCacheMXBean {
+
+   /**
+    * @return number of cached query results
+    */
+   long getSize();
+
+   /**
+    * @return number of queries answered from the cache
+    */
+   long getHitCount();
+
+   /**
+    * @return number of queries that had to be sent to database
+    */
+   long getMissCount();
+
+   /**
+    * @return ratio of queries answered from the cache, 1.0 if there were no queries yet
+    */
+   double getHitRate();
+
+   /**
+    * @return number of results dropped because of the size limit or expiration, invalidations are not counted
+    */
+   long getEvictionCount();
+
+   /**
+    * Drops all cached results.
+    */
+   void invalidateAll();
+}
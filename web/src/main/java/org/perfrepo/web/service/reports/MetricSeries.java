@@ -0,0 +1,206 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service.reports;
+
+import org.perfrepo.model.to.MetricReportTO;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Values of one metric of all test executions of one test, held column-wise in parallel primitive arrays ordered by
+ * start and ID of the test execution. Test executions with multiple values of the metric have one entry per distinct
+ * value.
+ *
+ * The series is thread safe, it's modified only by {@link #add(long, long, double[], long)} when new test executions
+ * are created.
+ */
+public class MetricSeries {
+
+   private static final int INITIAL_CAPACITY = 16;
+
+   // approximate size of the object headers and fields of the series
+   private static final long OVERHEAD_BYTES = 128;
+
+   // guarded by this
+   private long[] started;
+   private long[] execIds;
+   private double[] values;
+   private long[] tagSetIds;
+   private int size;
+   private final Set<Long> distinctTagSetIds = new HashSet<>();
+
+   public MetricSeries() {
+      this(INITIAL_CAPACITY);
+   }
+
+   public MetricSeries(int capacity) {
+      capacity = Math.max(capacity, 1);
+      started = new long[capacity];
+      execIds = new long[capacity];
+      values = new double[capacity];
+      tagSetIds = new long[capacity];
+   }
+
+   /**
+    * Adds values of the test execution, nothing is added if the series already contains the test execution.
+    *
+    * @param started start of the test execution in milliseconds
+    * @param execId
+    * @param executionValues values of the metric, equal values are added once
+    * @param tagSetId set of tags of the test execution, 0 if it has no tags
+    * @return true if the values were added
+    */
+   public synchronized boolean add(long started, long execId, double[] executionValues, long tagSetId) {
+      int index = lowerBound(started, execId);
+      if (index < size && this.started[index] == started && execIds[index] == execId) {
+         return false;
+      }
+
+      executionValues = Arrays.stream(executionValues).distinct().toArray();
+
+      ensureCapacity(size + executionValues.length);
+      int tail = size - index;
+      System.arraycopy(this.started, index, this.started, index + executionValues.length, tail);
+      System.arraycopy(execIds, index, execIds, index + executionValues.length, tail);
+      System.arraycopy(values, index, values, index + executionValues.length, tail);
+      System.arraycopy(tagSetIds, index, tagSetIds, index + executionValues.length, tail);
+      for (double value : executionValues) {
+         this.started[index] = started;
+         execIds[index] = execId;
+         values[index] = value;
+         tagSetIds[index] = tagSetId;
+         index++;
+      }
+      size += executionValues.length;
+      distinctTagSetIds.add(tagSetId);
+      return true;
+   }
+
+   /**
+    * Creates series of values loaded from database.
+    *
+    * @param rows distinct [start, test execution ID, value, tag set ID] ordered by start and ID of the test execution,
+    * tag set ID is null for test executions without tags
+    * @return the series
+    */
+   public static MetricSeries fromRows(List<Object[]> rows) {
+      MetricSeries series = new MetricSeries(rows.size());
+      for (Object[] row : rows) {
+         int i = series.size++;
+         series.started[i] = ((Date) row[0]).getTime();
+         series.execIds[i] = (Long) row[1];
+         series.values[i] = (Double) row[2];
+         series.tagSetIds[i] = row[3] == null ? 0 : (Long) row[3];
+         series.distinctTagSetIds.add(series.tagSetIds[i]);
+      }
+      return series;
+   }
+
+   /**
+    * Retrieves the latest values in the range as data points of metric history report.
+    *
+    * @param tagSets accepts sets of tags the test executions must have
+    * @param from start of the range in milliseconds, inclusive
+    * @param to end of the range in milliseconds, inclusive
+    * @param limit maximal number of returned data points
+    * @return data points, newest first
+    */
+   public synchronized List<MetricReportTO.DataPoint> getLatest(LongPredicate tagSets, long from, long to, int limit) {
+      int first = lowerBound(from, Long.MIN_VALUE);
+      List<MetricReportTO.DataPoint> result = new ArrayList<>(Math.min(limit, size));
+      for (int i = upperBound(to) - 1; i >= first && result.size() < limit; i--) {
+         if (tagSets.test(tagSetIds[i])) {
+            result.add(new MetricReportTO.DataPoint(new Timestamp(started[i]), values[i], execIds[i]));
+         }
+      }
+      return result;
+   }
+
+   /**
+    * @param tagSets accepts sets of tags the test executions must have
+    * @param from start of the range in milliseconds, inclusive
+    * @param to end of the range in milliseconds, inclusive
+    * @return number of test executions in the range
+    */
+   public synchronized int countExecutions(LongPredicate tagSets, long from, long to) {
+      int count = 0;
+      for (int i = lowerBound(from, Long.MIN_VALUE), last = upperBound(to); i < last; i++) {
+         // values of a test execution are next to each other
+         if (tagSets.test(tagSetIds[i]) && (i == 0 || execIds[i - 1] != execIds[i])) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   /**
+    * @return IDs of all sets of tags of the test executions in the series
+    */
+   public synchronized Set<Long> getTagSetIds() {
+      return new HashSet<>(distinctTagSetIds);
+   }
+
+   /**
+    * @return number of values
+    */
+   public synchronized int size() {
+      return size;
+   }
+
+   /**
+    * @return approximate memory taken by the series in bytes
+    */
+   public synchronized long getFootprint() {
+      return OVERHEAD_BYTES + (long) started.length * (Long.BYTES * 3 + Double.BYTES);
+   }
+
+   // index of the first value at or after the given start and ID
+   private int lowerBound(long started, long execId) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+         int middle = (low + high) >>> 1;
+         if (this.started[middle] < started || (this.started[middle] == started && execIds[middle] < execId)) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   // index of the first value started after the given start
+   private int upperBound(long started) {
+      return started == Long.MAX_VALUE ? size : lowerBound(started + 1, Long.MIN_VALUE);
+   }
+
+   private void ensureCapacity(int capacity) {
+      if (capacity <= started.length) {
+         return;
+      }
+      int newCapacity = Math.max(capacity, started.length + (started.length >> 1));
+      started = Arrays.copyOf(started, newCapacity);
+      execIds = Arrays.copyOf(execIds, newCapacity);
+      values = Arrays.copyOf(values, newCapacity);
+      tagSetIds = Arrays.copyOf(tagSetIds, newCapacity);
+   }
+}
@@ -0,0 +1,378 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service.reports;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.log4j.Logger;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.Value;
+import org.perfrepo.model.to.MetricReportTO;
+import org.perfrepo.web.dao.TagSetDAO;
+import org.perfrepo.web.dao.TestExecutionDAO;
+import org.perfrepo.web.service.ApplicationConfiguration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+/**
+ * Globally scoped cache of {@link MetricSeries}, i.e. all values of one metric of one test held in primitive arrays.
+ * Metric history report reads the latest values or values in a range by binary search in the series instead of
+ * querying database.
+ *
+ * Series is loaded by one projection query on the first use, then values of new test executions of the test are
+ * appended to it after the creating transaction commits, see {@link #add(TestExecution)}. Whenever test executions
+ * of the test are changed or removed, {@link #invalidate(Long)} has to be called. Memory taken by the series is
+ * limited by {@link ApplicationConfiguration#getSeriesCacheMegabytes()}, the least recently used series are evicted.
+ *
+ * Statistics of the cache are exposed via JMX as {@link #OBJECT_NAME}.
+ */
+@ApplicationScoped
+public class MetricSeriesCache implements MetricSeriesCacheMXBean {
+
+   private static final Logger log = Logger.getLogger(MetricSeriesCache.class);
+
+   public static final String OBJECT_NAME = "org.perfrepo:type=MetricSeriesCache";
+
+   /**
+    * Memory limit used if it's not configured.
+    */
+   public static final int DEFAULT_MEGABYTES = 64;
+
+   private Cache<Key, MetricSeries> cache;
+   private long maximumFootprint;
+
+   // incremented with every change of the test, series loaded before the change are not stored
+   private final ConcurrentMap<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+   // names of tags of the sets, the sets never change
+   private final ConcurrentMap<Long, Set<String>> tagSets = new ConcurrentHashMap<>();
+
+   @Inject
+   private TestExecutionDAO testExecutionDAO;
+
+   @Inject
+   private TagSetDAO tagSetDAO;
+
+   @Inject
+   private ApplicationConfiguration configuration;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   public MetricSeriesCache() {
+      setMaximumFootprint(DEFAULT_MEGABYTES * 1024L * 1024L);
+   }
+
+   @PostConstruct
+   public void init() {
+      if (configuration != null) {
+         setMaximumFootprint(configuration.getSeriesCacheMegabytes() * 1024L * 1024L);
+      }
+      try {
+         ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to register metric series cache MBean", e);
+      }
+   }
+
+   @PreDestroy
+   public void unregisterMBean() {
+      try {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+      } catch (JMException e) {
+         log.warn("Unable to unregister metric series cache MBean", e);
+      }
+   }
+
+   /**
+    * Retrieves data points of the metric history series, newest first.
+    *
+    * @param testId
+    * @param metricId
+    * @param tags tags the test executions must have, null or empty if any
+    * @param from start of the range, not restricted if null
+    * @param to end of the range, not restricted if null
+    * @param limitSize maximal number of data points
+    * @return data points, the list can be modified by the caller
+    */
+   public List<MetricReportTO.DataPoint> getDataPoints(Long testId, Long metricId, List<String> tags, Date from, Date to, int limitSize) {
+      MetricSeries series = getSeries(testId, metricId);
+      return series.getLatest(matching(series, tags), from == null ? Long.MIN_VALUE : from.getTime(), to == null ? Long.MAX_VALUE : to.getTime(), limitSize);
+   }
+
+   /**
+    * Counts test executions started in the range having a value of the metric.
+    *
+    * @param testId
+    * @param metricId
+    * @param tags tags the test executions must have, null or empty if any
+    * @param from start of the range, inclusive
+    * @param to end of the range, inclusive
+    * @return number of test executions
+    */
+   public int countExecutions(Long testId, Long metricId, List<String> tags, Date from, Date to) {
+      MetricSeries series = getSeries(testId, metricId);
+      return series.countExecutions(matching(series, tags), from.getTime(), to.getTime());
+   }
+
+   /**
+    * Appends values of new test execution to the cached series of its test. If called in a transaction, values are
+    * appended after the transaction commits. Test execution has to have test and values with metrics loaded.
+    *
+    * @param testExecution
+    */
+   public void add(TestExecution testExecution) {
+      if (testExecution.getId() == null || testExecution.getStarted() == null || testExecution.getTest() == null || testExecution.getValues() == null) {
+         return;
+      }
+
+      Long testId = testExecution.getTest().getId();
+      long tagSetId = testExecution.getTagSetId() == null ? 0 : testExecution.getTagSetId();
+      Map<Long, double[]> valuesByMetric = new HashMap<>();
+      for (Value value : testExecution.getValues()) {
+         if (value.getResultValue() != null && value.getMetric() != null) {
+            double[] values = valuesByMetric.getOrDefault(value.getMetric().getId(), new double[0]);
+            values = Arrays.copyOf(values, values.length + 1);
+            values[values.length - 1] = value.getResultValue();
+            valuesByMetric.put(value.getMetric().getId(), values);
+         }
+      }
+
+      Runnable append = () -> {
+         generation(testId).incrementAndGet();
+         valuesByMetric.forEach((metricId, values) -> {
+            Key key = new Key(testId, metricId);
+            // doesn't count as a read of the series
+            MetricSeries series = cache.asMap().get(key);
+            if (series != null && series.add(testExecution.getStarted().getTime(), testExecution.getId(), values, tagSetId)) {
+               // weight of the series is updated
+               cache.asMap().replace(key, series, series);
+            }
+         });
+      };
+      if (inTransaction()) {
+         afterCompletion(append, true);
+      } else {
+         append.run();
+      }
+   }
+
+   /**
+    * Drops all series of the test. If called in a transaction, the series are dropped again after the transaction
+    * completes.
+    *
+    * @param testId
+    */
+   public void invalidate(Long testId) {
+      if (testId == null) {
+         return;
+      }
+      Runnable invalidation = () -> {
+         generation(testId).incrementAndGet();
+         cache.asMap().keySet().removeIf(key -> key.testId.equals(testId));
+      };
+      invalidation.run();
+      if (inTransaction()) {
+         afterCompletion(invalidation, false);
+      }
+   }
+
+   @Override
+   public void invalidateAll() {
+      generations.values().forEach(AtomicLong::incrementAndGet);
+      cache.invalidateAll();
+   }
+
+   @Override
+   public long getSize() {
+      return cache.size();
+   }
+
+   @Override
+   public long getFootprint() {
+      return cache.asMap().values().stream().mapToLong(MetricSeries::getFootprint).sum();
+   }
+
+   @Override
+   public long getMaximumFootprint() {
+      return maximumFootprint;
+   }
+
+   @Override
+   public long getHitCount() {
+      return cache.stats().hitCount();
+   }
+
+   @Override
+   public long getMissCount() {
+      return cache.stats().missCount();
+   }
+
+   @Override
+   public double getHitRate() {
+      return cache.stats().hitRate();
+   }
+
+   @Override
+   public long getEvictionCount() {
+      return cache.stats().evictionCount();
+   }
+
+   /**
+    * Replaces the cache by an empty one with given memory limit.
+    *
+    * @param bytes
+    */
+   public void setMaximumFootprint(long bytes) {
+      maximumFootprint = bytes;
+      cache = CacheBuilder.newBuilder()
+          .maximumWeight(bytes)
+          .weigher((Key key, MetricSeries series) -> (int) Math.min(Integer.MAX_VALUE, series.getFootprint()))
+          .recordStats()
+          .build();
+   }
+
+   public void setTestExecutionDAO(TestExecutionDAO testExecutionDAO) {
+      this.testExecutionDAO = testExecutionDAO;
+   }
+
+   public void setTagSetDAO(TagSetDAO tagSetDAO) {
+      this.tagSetDAO = tagSetDAO;
+   }
+
+   private MetricSeries getSeries(Long testId, Long metricId) {
+      Key key = new Key(testId, metricId);
+      MetricSeries cached = cache.getIfPresent(key);
+      if (cached != null) {
+         return cached;
+      }
+
+      AtomicLong generation = generation(testId);
+      long loadedGeneration = generation.get();
+      MetricSeries loaded = MetricSeries.fromRows(testExecutionDAO.getMetricSeries(testId, metricId));
+      if (generation.get() == loadedGeneration) {
+         cache.put(key, loaded);
+         // test was changed while storing the series, it may be stale
+         if (generation.get() != loadedGeneration) {
+            cache.invalidate(key);
+         }
+      }
+      return loaded;
+   }
+
+   /**
+    * @param series
+    * @param tags
+    * @return predicate accepting IDs of the sets of tags of the series containing all the tags
+    */
+   private LongPredicate matching(MetricSeries series, List<String> tags) {
+      if (tags == null || tags.isEmpty()) {
+         return tagSetId -> true;
+      }
+
+      Set<Long> tagSetIds = series.getTagSetIds();
+      Set<Long> unknown = new HashSet<>(tagSetIds);
+      unknown.removeAll(tagSets.keySet());
+      unknown.remove(0L);
+      if (!unknown.isEmpty()) {
+         tagSetDAO.getTags(unknown).forEach((id, names) -> tagSets.put(id, new HashSet<>(Arrays.asList(names.split(" ")))));
+      }
+
+      Set<Long> matching = new HashSet<>();
+      for (Long tagSetId : tagSetIds) {
+         if (tagSets.getOrDefault(tagSetId, Collections.emptySet()).containsAll(tags)) {
+            matching.add(tagSetId);
+         }
+      }
+      return matching::contains;
+   }
+
+   private AtomicLong generation(Long testId) {
+      return generations.computeIfAbsent(testId, id -> new AtomicLong());
+   }
+
+   private boolean inTransaction() {
+      return transactionSynchronizationRegistry != null && transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+   }
+
+   private void afterCompletion(Runnable action, boolean onlyIfCommitted) {
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            if (!onlyIfCommitted || status == Status.STATUS_COMMITTED) {
+               action.run();
+            }
+         }
+      });
+   }
+
+   /**
+    * Key of the cached series.
+    */
+   private static class Key {
+
+      private final Long testId;
+      private final Long metricId;
+
+      Key(Long testId, Long metricId) {
+         this.testId = testId;
+         this.metricId = metricId;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) o;
+         return testId.equals(other.testId) && metricId.equals(other.metricId);
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hash(testId, metricId);
+      }
+   }
+}
@@ -0,0 +1,61 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service.reports;
+
+/**
+ * JMX view of the cache of metric series.
+ */
+public interface MetricSeriesCacheMXBean {
+
+   /**
+    * @return number of cached series
+    */
+   long getSize();
+
+   /**
+    * @return approximate memory taken by the cached series in bytes
+    */
+   long getFootprint();
+
+   /**
+    * @return limit of the memory taken by the cached series in bytes
+    */
+   long getMaximumFootprint();
+
+   /**
+    * @return number of series read from the cache
+    */
+   long getHitCount();
+
+   /**
+    * @return number of series that had to be loaded from database
+    */
+   long getMissCount();
+
+   /**
+    * @return ratio of series read from the cache, 1.0 if there were no reads yet
+    */
+   double getHitRate();
+
+   /**
+    * @return number of series dropped because of the memory limit, invalidations are not counted
+    */
+   long getEvictionCount();
+
+   /**
+    * Drops all cached series.
+    */
+   void invalidateAll();
+}
@@ -0,0 +1,123 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Range of bytes requested by HTTP <code>Range</code> header, see RFC 7233. Only a single range in bytes is supported,
+ * the header is ignored in any other form and the whole content is served.
+ */
+public class ByteRange {
+
+   private static final Pattern SINGLE_BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+   private final long offset;
+   private final long length;
+   private final long total;
+
+   private ByteRange(long offset, long length, long total) {
+      this.offset = offset;
+      this.length = length;
+      this.total = total;
+   }
+
+   /**
+    * @param header value of <code>Range</code> header, null if there's none
+    * @param total size of the whole content in bytes
+    * @return the requested range, the whole content if the header is missing, malformed or not supported
+    */
+   public static ByteRange parse(String header, long total) {
+      ByteRange whole = new ByteRange(0, total, total);
+      if (header == null) {
+         return whole;
+      }
+      Matcher matcher = SINGLE_BYTE_RANGE.matcher(header.trim());
+      if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+         return whole;
+      }
+
+      long first;
+      long last;
+      try {
+         if (matcher.group(1).isEmpty()) {
+            // suffix range, i.e. the last N bytes
+            long suffixLength = Long.parseLong(matcher.group(2));
+            if (suffixLength == 0) {
+               return new ByteRange(0, -1, total);
+            }
+            first = Math.max(0, total - suffixLength);
+            last = total - 1;
+         } else {
+            first = Long.parseLong(matcher.group(1));
+            last = matcher.group(2).isEmpty() ? Long.MAX_VALUE : Long.parseLong(matcher.group(2));
+            if (last < first) {
+               return whole;
+            }
+            last = Math.min(last, total - 1);
+         }
+      } catch (NumberFormatException e) {
+         return whole;
+      }
+
+      if (first >= total) {
+         return new ByteRange(0, -1, total);
+      }
+      return new ByteRange(first, last - first + 1, total);
+   }
+
+   /**
+    * @return first byte of the range, starting from 0
+    */
+   public long getOffset() {
+      return offset;
+   }
+
+   /**
+    * @return number of bytes in the range
+    */
+   public long getLength() {
+      return length;
+   }
+
+   /**
+    * @return size of the whole content
+    */
+   public long getTotal() {
+      return total;
+   }
+
+   /**
+    * @return false if no byte of the content is in the range, the response status should be 416 then
+    */
+   public boolean isSatisfiable() {
+      return length >= 0;
+   }
+
+   /**
+    * @return true if the range doesn't cover the whole content, the response status should be 206 then
+    */
+   public boolean isPartial() {
+      return !isSatisfiable() || length < total;
+   }
+
+   /**
+    * @return value of <code>Content-Range</code> header of the response
+    */
+   public String getContentRange() {
+      return isSatisfiable() ? "bytes " + offset + "-" + (offset + length - 1) + "/" + total : "bytes */" + total;
+   }
+}
@@ -0,0 +1,537 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressed set of non-negative integers in the fashion of Roaring bitmaps. The integers are split into chunks
+ * by their upper 16 bits, each chunk holds the lower 16 bits either in a sorted array (sparse chunks) or in
+ * a plain bitmap (dense chunks, more than {@link #ARRAY_MAX_SIZE} integers). Set operations work chunk by chunk,
+ * so the cost depends on the number of integers present, not on their range.
+ *
+ * The class is not thread safe.
+ */
+public final class CompressedBitmap {
+
+   /**
+    * Maximal number of integers in array chunk, denser chunks are stored as bitmaps. Both take 8 kB at this size.
+    */
+   static final int ARRAY_MAX_SIZE = 4096;
+
+   private static final int BITMAP_WORDS = 1024;
+
+   private char[] keys = new char[0];
+   private Chunk[] chunks = new Chunk[0];
+   private int chunkCount = 0;
+
+   public CompressedBitmap() {
+   }
+
+   /**
+    * @param values
+    * @return bitmap holding the values
+    */
+   public static CompressedBitmap of(int... values) {
+      CompressedBitmap bitmap = new CompressedBitmap();
+      for (int value : values) {
+         bitmap.add(value);
+      }
+      return bitmap;
+   }
+
+   /**
+    * Adds the value.
+    *
+    * @param value non-negative integer
+    * @return true if the value was not present
+    */
+   public boolean add(int value) {
+      checkValue(value);
+      char key = (char) (value >>> 16);
+      int index = findChunk(key);
+      if (index < 0) {
+         index = -index - 1;
+         insertChunk(index, key, new ArrayChunk());
+      }
+
+      Chunk chunk = chunks[index];
+      boolean added = chunk.add((char) value);
+      if (chunk.cardinality() > ARRAY_MAX_SIZE && chunk instanceof ArrayChunk) {
+         chunks[index] = ((ArrayChunk) chunk).toBitmap();
+      }
+      return added;
+   }
+
+   /**
+    * Removes the value.
+    *
+    * @param value
+    * @return true if the value was present
+    */
+   public boolean remove(int value) {
+      if (value < 0) {
+         return false;
+      }
+      int index = findChunk((char) (value >>> 16));
+      if (index < 0) {
+         return false;
+      }
+
+      boolean removed = chunks[index].remove((char) value);
+      if (removed) {
+         setChunk(index, chunks[index]);
+      }
+      return removed;
+   }
+
+   public boolean contains(int value) {
+      if (value < 0) {
+         return false;
+      }
+      int index = findChunk((char) (value >>> 16));
+      return index >= 0 && chunks[index].contains((char) value);
+   }
+
+   /**
+    * @return number of values in the bitmap
+    */
+   public int cardinality() {
+      int cardinality = 0;
+      for (int i = 0; i < chunkCount; i++) {
+         cardinality += chunks[i].cardinality();
+      }
+      return cardinality;
+   }
+
+   public boolean isEmpty() {
+      return chunkCount == 0;
+   }
+
+   /**
+    * @param other
+    * @return new bitmap holding values present in both bitmaps
+    */
+   public CompressedBitmap and(CompressedBitmap other) {
+      CompressedBitmap result = new CompressedBitmap();
+      int i = 0;
+      int j = 0;
+      while (i < chunkCount && j < other.chunkCount) {
+         if (keys[i] < other.keys[j]) {
+            i++;
+         } else if (keys[i] > other.keys[j]) {
+            j++;
+         } else {
+            result.appendChunk(keys[i], chunks[i].and(other.chunks[j]));
+            i++;
+            j++;
+         }
+      }
+      return result;
+   }
+
+   /**
+    * @param other
+    * @return new bitmap holding values present in this bitmap, but not in the other one
+    */
+   public CompressedBitmap andNot(CompressedBitmap other) {
+      CompressedBitmap result = new CompressedBitmap();
+      int j = 0;
+      for (int i = 0; i < chunkCount; i++) {
+         while (j < other.chunkCount && other.keys[j] < keys[i]) {
+            j++;
+         }
+         if (j < other.chunkCount && other.keys[j] == keys[i]) {
+            result.appendChunk(keys[i], chunks[i].andNot(other.chunks[j]));
+         } else {
+            result.appendChunk(keys[i], chunks[i].copy());
+         }
+      }
+      return result;
+   }
+
+   /**
+    * @param other
+    * @return new bitmap holding values present in any of the bitmaps
+    */
+   public CompressedBitmap or(CompressedBitmap other) {
+      CompressedBitmap result = new CompressedBitmap();
+      int i = 0;
+      int j = 0;
+      while (i < chunkCount || j < other.chunkCount) {
+         if (j >= other.chunkCount || (i < chunkCount && keys[i] < other.keys[j])) {
+            result.appendChunk(keys[i], chunks[i].copy());
+            i++;
+         } else if (i >= chunkCount || keys[i] > other.keys[j]) {
+            result.appendChunk(other.keys[j], other.chunks[j].copy());
+            j++;
+         } else {
+            result.appendChunk(keys[i], chunks[i].or(other.chunks[j]));
+            i++;
+            j++;
+         }
+      }
+      return result;
+   }
+
+   /**
+    * @return values in ascending order
+    */
+   public int[] toArray() {
+      int[] result = new int[cardinality()];
+      int position = 0;
+      for (int i = 0; i < chunkCount; i++) {
+         int high = keys[i] << 16;
+         for (char low : chunks[i].values()) {
+            result[position++] = high | low;
+         }
+      }
+      return result;
+   }
+
+   /**
+    * @return values in ascending order as longs, i.e. in the form of entity IDs
+    */
+   public List<Long> toLongList() {
+      int[] values = toArray();
+      List<Long> result = new ArrayList<>(values.length);
+      for (int value : values) {
+         result.add((long) value);
+      }
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      return o instanceof CompressedBitmap && Arrays.equals(toArray(), ((CompressedBitmap) o).toArray());
+   }
+
+   @Override
+   public int hashCode() {
+      return Arrays.hashCode(toArray());
+   }
+
+   private static void checkValue(int value) {
+      if (value < 0) {
+         throw new IllegalArgumentException("Only non-negative values can be stored in the bitmap.");
+      }
+   }
+
+   private int findChunk(char key) {
+      return Arrays.binarySearch(keys, 0, chunkCount, key);
+   }
+
+   private void insertChunk(int index, char key, Chunk chunk) {
+      if (chunkCount == keys.length) {
+         int capacity = Math.max(4, chunkCount * 2);
+         keys = Arrays.copyOf(keys, capacity);
+         chunks = Arrays.copyOf(chunks, capacity);
+      }
+      System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+      System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+      keys[index] = key;
+      chunks[index] = chunk;
+      chunkCount++;
+   }
+
+   /**
+    * Replaces the chunk, converts it to the proper representation or drops it if it's empty.
+    */
+   private void setChunk(int index, Chunk chunk) {
+      if (chunk.cardinality() == 0) {
+         System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+         System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+         chunkCount--;
+         chunks[chunkCount] = null;
+      } else {
+         chunks[index] = normalize(chunk);
+      }
+   }
+
+   private void appendChunk(char key, Chunk chunk) {
+      if (chunk.cardinality() > 0) {
+         insertChunk(chunkCount, key, normalize(chunk));
+      }
+   }
+
+   private static Chunk normalize(Chunk chunk) {
+      if (chunk instanceof BitmapChunk && chunk.cardinality() <= ARRAY_MAX_SIZE) {
+         return new ArrayChunk(chunk.values());
+      }
+      if (chunk instanceof ArrayChunk && chunk.cardinality() > ARRAY_MAX_SIZE) {
+         return ((ArrayChunk) chunk).toBitmap();
+      }
+      return chunk;
+   }
+
+   /**
+    * Lower 16 bits of the values sharing the same upper 16 bits.
+    */
+   private interface Chunk {
+
+      boolean add(char value);
+
+      boolean remove(char value);
+
+      boolean contains(char value);
+
+      int cardinality();
+
+      /**
+       * @return values in ascending order
+       */
+      char[] values();
+
+      Chunk copy();
+
+      Chunk and(Chunk other);
+
+      Chunk andNot(Chunk other);
+
+      Chunk or(Chunk other);
+   }
+
+   private static final class ArrayChunk implements Chunk {
+
+      private char[] values;
+      private int size;
+
+      ArrayChunk() {
+         this.values = new char[4];
+      }
+
+      ArrayChunk(char[] sortedValues) {
+         this.values = sortedValues;
+         this.size = sortedValues.length;
+      }
+
+      @Override
+      public boolean add(char value) {
+         int index = Arrays.binarySearch(values, 0, size, value);
+         if (index >= 0) {
+            return false;
+         }
+         index = -index - 1;
+         if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(Math.max(4, size * 2), ARRAY_MAX_SIZE + 1));
+         }
+         System.arraycopy(values, index, values, index + 1, size - index);
+         values[index] = value;
+         size++;
+         return true;
+      }
+
+      @Override
+      public boolean remove(char value) {
+         int index = Arrays.binarySearch(values, 0, size, value);
+         if (index < 0) {
+            return false;
+         }
+         System.arraycopy(values, index + 1, values, index, size - index - 1);
+         size--;
+         return true;
+      }
+
+      @Override
+      public boolean contains(char value) {
+         return Arrays.binarySearch(values, 0, size, value) >= 0;
+      }
+
+      @Override
+      public int cardinality() {
+         return size;
+      }
+
+      @Override
+      public char[] values() {
+         return Arrays.copyOf(values, size);
+      }
+
+      @Override
+      public Chunk copy() {
+         return new ArrayChunk(values());
+      }
+
+      @Override
+      public Chunk and(Chunk other) {
+         char[] result = new char[size];
+         int count = 0;
+         for (int i = 0; i < size; i++) {
+            if (other.contains(values[i])) {
+               result[count++] = values[i];
+            }
+         }
+         return new ArrayChunk(Arrays.copyOf(result, count));
+      }
+
+      @Override
+      public Chunk andNot(Chunk other) {
+         char[] result = new char[size];
+         int count = 0;
+         for (int i = 0; i < size; i++) {
+            if (!other.contains(values[i])) {
+               result[count++] = values[i];
+            }
+         }
+         return new ArrayChunk(Arrays.copyOf(result, count));
+      }
+
+      @Override
+      public Chunk or(Chunk other) {
+         if (other instanceof BitmapChunk) {
+            return other.or(this);
+         }
+         ArrayChunk otherArray = (ArrayChunk) other;
+         char[] result = new char[size + otherArray.size];
+         int i = 0;
+         int j = 0;
+         int count = 0;
+         while (i < size || j < otherArray.size) {
+            if (j >= otherArray.size || (i < size && values[i] < otherArray.values[j])) {
+               result[count++] = values[i++];
+            } else if (i >= size || values[i] > otherArray.values[j]) {
+               result[count++] = otherArray.values[j++];
+            } else {
+               result[count++] = values[i++];
+               j++;
+            }
+         }
+         return new ArrayChunk(Arrays.copyOf(result, count));
+      }
+
+      BitmapChunk toBitmap() {
+         BitmapChunk bitmap = new BitmapChunk();
+         for (int i = 0; i < size; i++) {
+            bitmap.add(values[i]);
+         }
+         return bitmap;
+      }
+   }
+
+   private static final class BitmapChunk implements Chunk {
+
+      private final long[] words;
+      private int cardinality;
+
+      BitmapChunk() {
+         this.words = new long[BITMAP_WORDS];
+      }
+
+      BitmapChunk(long[] words) {
+         this.words = words;
+         for (long word : words) {
+            cardinality += Long.bitCount(word);
+         }
+      }
+
+      @Override
+      public boolean add(char value) {
+         long mask = 1L << value;
+         if ((words[value >>> 6] & mask) != 0) {
+            return false;
+         }
+         words[value >>> 6] |= mask;
+         cardinality++;
+         return true;
+      }
+
+      @Override
+      public boolean remove(char value) {
+         long mask = 1L << value;
+         if ((words[value >>> 6] & mask) == 0) {
+            return false;
+         }
+         words[value >>> 6] &= ~mask;
+         cardinality--;
+         return true;
+      }
+
+      @Override
+      public boolean contains(char value) {
+         return (words[value >>> 6] & (1L << value)) != 0;
+      }
+
+      @Override
+      public int cardinality() {
+         return cardinality;
+      }
+
+      @Override
+      public char[] values() {
+         char[] result = new char[cardinality];
+         int count = 0;
+         for (int i = 0; i < BITMAP_WORDS; i++) {
+            long word = words[i];
+            while (word != 0) {
+               result[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+               word &= word - 1;
+            }
+         }
+         return result;
+      }
+
+      @Override
+      public Chunk copy() {
+         return new BitmapChunk(words.clone());
+      }
+
+      @Override
+      public Chunk and(Chunk other) {
+         if (other instanceof ArrayChunk) {
+            return other.and(this);
+         }
+         long[] otherWords = ((BitmapChunk) other).words;
+         long[] result = new long[BITMAP_WORDS];
+         for (int i = 0; i < BITMAP_WORDS; i++) {
+            result[i] = words[i] & otherWords[i];
+         }
+         return new BitmapChunk(result);
+      }
+
+      @Override
+      public Chunk andNot(Chunk other) {
+         long[] result = words.clone();
+         if (other instanceof ArrayChunk) {
+            for (char value : other.values()) {
+               result[value >>> 6] &= ~(1L << value);
+            }
+         } else {
+            long[] otherWords = ((BitmapChunk) other).words;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+               result[i] &= ~otherWords[i];
+            }
+         }
+         return new BitmapChunk(result);
+      }
+
+      @Override
+      public Chunk or(Chunk other) {
+         long[] result = words.clone();
+         if (other instanceof ArrayChunk) {
+            for (char value : other.values()) {
+               result[value >>> 6] |= 1L << value;
+            }
+         } else {
+            long[] otherWords = ((BitmapChunk) other).words;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+               result[i] |= otherWords[i];
+            }
+         }
+         return new BitmapChunk(result);
+      }
+   }
+}
@@ -13,11 +13,14 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.perfrepo.model.*;
+import org.perfrepo.model.to.MetricReportTO;
 import org.perfrepo.model.to.MultiValueResultWrapper;
 import org.perfrepo.model.to.OrderBy;
+import org.perfrepo.model.to.SearchResultWrapper;
 import org.perfrepo.model.to.SingleValueResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.web.dao.*;
+import org.perfrepo.web.util.CompressedBitmap;
 import org.perfrepo.web.util.TagUtils;
 
 import javax.inject.Inject;
@@ -25,9 +28,12 @@ import javax.transaction.Status;
 import javax.transaction.UserTransaction;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -47,6 +53,12 @@ public class TestExecutionDAOTest {
    @Inject
    private TagDAO tagDAO;
 
+   @Inject
+   private TagSetDAO tagSetDAO;
+
+   @Inject
+   private TagIndex tagIndex;
+
    @Inject
    private MetricDAO metricDAO;
 
@@ -77,6 +89,7 @@ public class TestExecutionDAOTest {
       war.addPackages(true, DefaultArtifactVersion.class.getPackage());
       war.addPackages(true, ArtifactResolutionException.class.getPackage());
       war.addClass(TagUtils.class);
+      war.addClass(CompressedBitmap.class);
       war.addAsResource("test-persistence.xml", "META-INF/persistence.xml");
       war.addAsWebInfResource(EmptyAsset.INSTANCE, ArchivePaths.create("beans.xml"));
       return war;
@@ -119,6 +132,8 @@ public class TestExecutionDAOTest {
       createTag("tag4", testExecutions[3]);
 
       userTransaction.commit();
+      //tags were stored directly by DAO, the index has to be loaded again
+      tagIndex.invalidate();
       userTransaction.begin();
    }
 
@@ -132,6 +147,8 @@ public class TestExecutionDAOTest {
 
       userTransaction.begin();
 
+      testExecutionDAO.getAll().forEach(testExecution -> testExecution.setTagSet(null));
+      tagSetDAO.getAll().forEach(tagSetDAO::remove);
       tagDAO.getAll().forEach(tagDAO::remove);
       valueParameterDAO.getAll().forEach(valueParameterDAO::remove);
       valueDAO.getAll().forEach(valueDAO::remove);
@@ -203,6 +220,27 @@ public class TestExecutionDAOTest {
           allMatch(expected -> result.stream().anyMatch(actual -> expected.equals(actual.getId()))));
    }
 
+   @org.junit.Test
+   public void testTagSets() {
+      TagSet tagSet = tagSetDAO.findByTagNames(Arrays.asList("tag3", "tag1", "tag2"));
+      assertNotNull(tagSet);
+      assertEquals("tag1 tag2 tag3", tagSet.getTags());
+      assertEquals(3, tagSet.getSize());
+
+      TestExecution testExecution = testExecutionDAO.get(testExecutions[0].getId());
+      assertEquals(tagSet.getId(), testExecution.getTagSetId());
+      assertNull(testExecutionDAO.get(testExecutions[4].getId()).getTagSetId());
+      assertNull(tagSetDAO.findByTagNames(Arrays.asList("tag1", "tag4")));
+   }
+
+   @org.junit.Test
+   public void testSearchMetricHistoryValuesByTags() {
+      List<MetricReportTO.DataPoint> result = testExecutionDAO.searchValues(tests[0].getId(), metrics[0].getName(), Arrays.asList("tag1", "tag2"), 10);
+      assertEquals(2, result.size());
+      assertEquals(testExecutions[1].getId(), result.get(0).getExecId());
+      assertEquals(testExecutions[0].getId(), result.get(1).getExecId());
+   }
+
    @org.junit.Test
    public void testGetTestExecutionsByTagsWithLast1() {
       List<String> tags = new ArrayList<>();
@@ -283,6 +321,38 @@ public class TestExecutionDAOTest {
           allMatch(expected -> result.stream().anyMatch(actual -> expected.equals(actual.getId()))));
    }
 
+   @org.junit.Test
+   public void testSearchByExcludedTags() {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setTags("TAG1 -tag3");
+
+      List<TestExecution> result = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId())).getResult();
+      assertEquals(1, result.size());
+      assertEquals(testExecutions[1].getId(), result.get(0).getId());
+
+      searchCriteria.setTags("-tag1 -tag4");
+      List<TestExecution> excludedResult = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId())).getResult();
+      List<Long> resultIds = excludedResult.stream().map(TestExecution::getId).collect(Collectors.toList());
+      assertEquals(2, resultIds.size());
+      assertTrue(resultIds.containsAll(Arrays.asList(testExecutions[4].getId(), testExecutions[5].getId())));
+
+      searchCriteria.setTags("tag2 tag4");
+      assertEquals(0, testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId())).getResult().size());
+   }
+
+   @org.junit.Test
+   public void testSearchByParameters() {
+      createTestExecutionParameter("param2", "a_b", testExecutions[0]);
+      createTestExecutionParameter("param2", "axb", testExecutions[1]);
+      createTestExecutionParameter("param2", "ab", testExecutions[2]);
+
+      assertEquals(Arrays.asList(testExecutions[0].getId()), searchByParameters("param", "3", "param2", "a_b"));
+      assertEquals(Arrays.asList(testExecutions[1].getId()), searchByParameters("param2", "axb"));
+      assertEquals(Arrays.asList(testExecutions[0].getId(), testExecutions[1].getId()), searchByParameters("param2", "a_b%"));
+      assertEquals(Arrays.asList(testExecutions[0].getId(), testExecutions[1].getId(), testExecutions[2].getId()), searchByParameters("param2", ""));
+      assertEquals(0, searchByParameters("param", "3", "param2", "axb").size());
+   }
+
    @org.junit.Test
    public void testSearchByTagsWithLimit() {
       TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
@@ -424,6 +494,68 @@ public class TestExecutionDAOTest {
           .forEach(index -> assertEquals(expectedResultIds.get(index), result.get(index).getId()));
    }
 
+   @org.junit.Test
+   public void testSearchWithParameterOrderingAndPaging() {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setTestUID(tests[0].getUid());
+      searchCriteria.setOrderBy(OrderBy.PARAMETER_ASC);
+      searchCriteria.setOrderByParameter("param");
+      searchCriteria.setLimitFrom(2);
+      searchCriteria.setLimitHowMany(2);
+
+      SearchResultWrapper<TestExecution> searchResult = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      List<TestExecution> result = searchResult.getResult();
+      assertEquals(4, searchResult.getTotalSearchResultsCount());
+      assertEquals(2, result.size());
+
+      // ordering must be applied on the whole result, not only on the retrieved page
+      assertEquals(testExecutions[0].getId(), result.get(0).getId());
+      assertEquals(testExecutions[2].getId(), result.get(1).getId());
+      assertEquals("3", result.get(0).getParametersAsMap().get("param"));
+   }
+
+   @org.junit.Test
+   public void testGetFullTestExecutions() {
+      List<Long> ids = Arrays.asList(testExecutions[5].getId(), testExecutions[0].getId(), -1L);
+
+      List<TestExecution> result = testExecutionDAO.getFullTestExecutions(ids);
+      assertEquals(2, result.size());
+      assertEquals(testExecutions[5].getId(), result.get(0).getId());
+      assertEquals(testExecutions[0].getId(), result.get(1).getId());
+
+      TestExecution multiValueExecution = result.get(0);
+      assertEquals(tests[1].getId(), multiValueExecution.getTest().getId());
+      assertEquals(2, multiValueExecution.getValues().size());
+      assertTrue(multiValueExecution.getValues().stream().allMatch(value -> value.getParameters().size() == 2));
+
+      TestExecution execution = result.get(1);
+      assertEquals(3, execution.getTags().size());
+      assertEquals("3", execution.getParametersAsMap().get("param"));
+      assertEquals(1, execution.getValues().size());
+      assertEquals(0, execution.getAttachments().size());
+   }
+
+   @org.junit.Test
+   public void testSearchWithCursor() {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setTestUID(tests[0].getUid());
+      searchCriteria.setOrderBy(OrderBy.DATE_ASC);
+      searchCriteria.setLimitHowMany(3);
+      searchCriteria.setCursor("");
+
+      SearchResultWrapper<TestExecution> firstPage = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(3, firstPage.getResult().size());
+      assertEquals(testExecutions[0].getId(), firstPage.getResult().get(0).getId());
+      assertEquals(testExecutions[2].getId(), firstPage.getResult().get(2).getId());
+      assertTrue(firstPage.getNextCursor() != null);
+
+      searchCriteria.setCursor(firstPage.getNextCursor());
+      SearchResultWrapper<TestExecution> secondPage = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(1, secondPage.getResult().size());
+      assertEquals(testExecutions[3].getId(), secondPage.getResult().get(0).getId());
+      assertEquals(null, secondPage.getNextCursor());
+   }
+
    @org.junit.Test
    public void testSearchValuesWithEmptyCriteria() {
       TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
@@ -528,6 +660,7 @@ public class TestExecutionDAOTest {
       }
       tags.add(storedTag);
       storedTestExecution.setTags(tags);
+      storedTestExecution.setTagSet(tagSetDAO.getOrCreate(tags));
 
       return storedTag;
    }
@@ -550,6 +683,20 @@ public class TestExecutionDAOTest {
       return storedValue;
    }
 
+   private List<Long> searchByParameters(String... namesAndValues) {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      for (int i = 0; i < namesAndValues.length; i += 2) {
+         TestExecutionSearchTO.ParamCriteria paramCriteria = new TestExecutionSearchTO.ParamCriteria();
+         paramCriteria.setName(namesAndValues[i]);
+         paramCriteria.setValue(namesAndValues[i + 1]);
+         searchCriteria.getParameters().add(paramCriteria);
+      }
+      searchCriteria.setOrderBy(OrderBy.DATE_ASC);
+
+      List<TestExecution> result = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId())).getResult();
+      return result.stream().map(TestExecution::getId).collect(Collectors.toList());
+   }
+
    private TestExecutionParameter createTestExecutionParameter(String key, String value, TestExecution testExecution) {
       TestExecutionParameter parameter = new TestExecutionParameter();
       parameter.setName(key);
@@ -15,22 +15,36 @@
 package org.perfrepo.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.security.PrivilegedAction;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 import javax.ejb.EJBException;
 import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
 import javax.security.auth.Subject;
 import javax.security.auth.login.LoginContext;
 
 import org.apache.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.shrinkwrap.api.Archive;
@@ -41,17 +55,27 @@ import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.junit.After;
 import org.junit.runner.RunWith;
 import org.perfrepo.model.Alert;
+import org.perfrepo.model.AlertOutboxEntry;
 import org.perfrepo.model.Metric;
 import org.perfrepo.model.MetricComparator;
+import org.perfrepo.model.Tag;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.TestExecutionAttachment;
+import org.perfrepo.model.TestExecutionAttachmentContent;
 import org.perfrepo.model.Value;
 import org.perfrepo.model.builder.TestBuilder;
 import org.perfrepo.model.builder.TestExecutionBuilder;
+import org.perfrepo.model.to.BulkOperationTO;
+import org.perfrepo.model.to.MetricReportTO;
+import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.web.alerting.AlertQueueDispatcher;
 import org.perfrepo.web.alerting.ConditionChecker;
 import org.perfrepo.web.controller.TestController;
 import org.perfrepo.web.dao.DAO;
 import org.perfrepo.web.security.Secured;
+import org.perfrepo.web.service.AlertingService;
+import org.perfrepo.web.service.ReportService;
 import org.perfrepo.web.service.TestService;
 import org.perfrepo.web.service.TestServiceBean;
 import org.perfrepo.web.service.exceptions.ServiceException;
@@ -95,6 +119,21 @@ public class TestServiceBeanTest {
    @Inject
    TestService testService;
 
+   @Inject
+   AlertingService alertingService;
+
+   @Inject
+   ReportService reportService;
+
+   @Inject
+   AlertQueueDispatcher alertQueueDispatcher;
+
+   @Inject
+   ConditionChecker conditionChecker;
+
+   @PersistenceUnit(unitName = "PerfRepoPU")
+   EntityManagerFactory entityManagerFactory;
+
    @After
    public void removeTests() throws Exception {
       for (final Test test : testService.getAllFullTests()) {
@@ -143,6 +182,18 @@ public class TestServiceBeanTest {
       }
    }
 
+   /**
+    * @param testExecutionId
+    * @return the only queued entry of the test execution, null if there's none
+    */
+   private AlertOutboxEntry getQueuedEntry(Long testExecutionId) {
+      List<AlertOutboxEntry> entries = alertingService.getQueuedAlerts(Integer.MAX_VALUE).stream()
+          .filter(entry -> entry.getTestExecutionId().equals(testExecutionId))
+          .collect(Collectors.toList());
+      assertTrue(entries.size() <= 1);
+      return entries.isEmpty() ? null : entries.get(0);
+   }
+
    protected TestBuilder test(String nameAndUid) {
       return Test.builder().name(nameAndUid).groupId(testUserRole).uid(nameAndUid).description("description for " + nameAndUid);
    }
@@ -311,4 +362,335 @@ public class TestServiceBeanTest {
          }
       });
    }
+
+   @org.junit.Test
+   public void testProcessQueuedAlerts() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            // otherwise the dispatcher may process the entry in the meantime
+            alertQueueDispatcher.setPaused(true);
+            try {
+               while (alertQueueDispatcher.getTestsInProgress() > 0) {
+                  Thread.sleep(100);
+               }
+               long depth = alertingService.getAlertQueueDepth();
+
+               TestExecutionBuilder builder = testExec("test1", true).value("metric1", 100.0);
+               Test test = testService.getFullTest(testService.getTestByUID("test1").getId());
+               Alert alert = new Alert();
+               alert.setName("alert1");
+               alert.setCondition("CONDITION x > 1000 DEFINE x = (SELECT LAST 1)");
+               alert.setTest(test);
+               alert.setMetric(test.getMetrics().iterator().next());
+               alert.setTags(Collections.emptyList());
+               Long alertId = alertingService.createAlert(alert).getId();
+               TestExecution te = testService.createTestExecution(builder.build());
+
+               AlertOutboxEntry entry = getQueuedEntry(te.getId());
+               assertEquals(depth + 1, alertingService.getAlertQueueDepth());
+               assertEquals(test.getId(), entry.getTestId());
+               assertEquals(0, entry.getAttempts());
+               assertNull(entry.getLastError());
+               assertEquals(entry.getCreated(), entry.getNextAttempt());
+
+               alertingService.postponeQueuedAlerts(entry.getId(), "failure");
+               AlertOutboxEntry postponed = getQueuedEntry(te.getId());
+               assertEquals(entry.getId(), postponed.getId());
+               assertEquals(1, postponed.getAttempts());
+               assertEquals("failure", postponed.getLastError());
+               assertTrue(postponed.getNextAttempt().after(entry.getNextAttempt()));
+
+               alertingService.processQueuedAlerts(entry.getId());
+               assertNull(getQueuedEntry(te.getId()));
+               assertEquals(depth, alertingService.getAlertQueueDepth());
+               // repeated processing of the same entry does nothing
+               alertingService.processQueuedAlerts(entry.getId());
+
+               // evaluation doesn't change the alert
+               Alert processedAlert = alertingService.getAlert(alertId);
+               assertEquals("alert1", processedAlert.getName());
+               assertEquals("CONDITION x > 1000 DEFINE x = (SELECT LAST 1)", processedAlert.getCondition());
+               assertEquals(test.getId(), processedAlert.getTest().getId());
+               assertTrue(processedAlert.getTags().isEmpty());
+               assertEquals(1, alertingService.getAlertsList(testService.getFullTest(test.getId())).size());
+            } finally {
+               alertQueueDispatcher.setPaused(false);
+            }
+            return null;
+         }
+      });
+   }
+
+   @org.junit.Test
+   public void testQueuedAlertHeads() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            alertQueueDispatcher.setPaused(true);
+            try {
+               while (alertQueueDispatcher.getTestsInProgress() > 0) {
+                  Thread.sleep(100);
+               }
+               TestExecution first = testService.createTestExecution(testExec("test1", true).value("metric1", 100.0).build());
+               TestExecution second = testService.createTestExecution(testExec("test1", false).value("metric1", 200.0).build());
+               TestExecution other = testService.createTestExecution(testExec("test2", true).value("metric1", 300.0).build());
+               AlertOutboxEntry firstEntry = getQueuedEntry(first.getId());
+               AlertOutboxEntry secondEntry = getQueuedEntry(second.getId());
+               AlertOutboxEntry otherEntry = getQueuedEntry(other.getId());
+
+               // only the oldest entry of every test is a head
+               List<Long> heads = alertingService.getQueuedAlertHeads(Integer.MAX_VALUE).stream().map(AlertOutboxEntry::getId).collect(Collectors.toList());
+               assertTrue(heads.contains(firstEntry.getId()));
+               assertFalse(heads.contains(secondEntry.getId()));
+               assertTrue(heads.contains(otherEntry.getId()));
+               List<Long> testEntries = alertingService.getQueuedAlerts(firstEntry.getTestId(), Integer.MAX_VALUE).stream().map(AlertOutboxEntry::getId).collect(Collectors.toList());
+               assertEquals(Arrays.asList(firstEntry.getId(), secondEntry.getId()), testEntries);
+
+               // postponed head blocks its test, the other test is still dispatched
+               alertingService.postponeQueuedAlerts(firstEntry.getId(), "failure");
+               heads = alertingService.getQueuedAlertHeads(Integer.MAX_VALUE).stream().map(AlertOutboxEntry::getId).collect(Collectors.toList());
+               assertFalse(heads.contains(firstEntry.getId()));
+               assertFalse(heads.contains(secondEntry.getId()));
+               assertTrue(heads.contains(otherEntry.getId()));
+
+               alertingService.processQueuedAlerts(firstEntry.getId());
+               alertingService.processQueuedAlerts(secondEntry.getId());
+               alertingService.processQueuedAlerts(otherEntry.getId());
+            } finally {
+               alertQueueDispatcher.setPaused(false);
+            }
+            return null;
+         }
+      });
+   }
+
+   @org.junit.Test
+   public void testQueuedAlertsLastWindow() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            alertQueueDispatcher.setPaused(true);
+            try {
+               while (alertQueueDispatcher.getTestsInProgress() > 0) {
+                  Thread.sleep(100);
+               }
+               long now = System.currentTimeMillis();
+               testService.createTestExecution(testExec("test1", true).started(new Date(now - 3000)).value("metric1", 50.0).build());
+               TestExecution first = testService.createTestExecution(testExec("test1", false).started(new Date(now - 2000)).value("metric1", 100.0).build());
+               TestExecution second = testService.createTestExecution(testExec("test1", false).started(new Date(now - 1000)).value("metric1", 200.0).build());
+               AlertOutboxEntry firstEntry = getQueuedEntry(first.getId());
+               AlertOutboxEntry secondEntry = getQueuedEntry(second.getId());
+
+               // both executions are still queued, the window of the first one mustn't contain the second one
+               Metric metric = testService.getFullTest(testService.getTestByUID("test1").getId()).getMetrics().iterator().next();
+               String condition = "CONDITION x == %s DEFINE x = (SELECT WHERE tags = \"tag\" LAST 1)";
+               assertTrue(conditionChecker.checkCondition(String.format(condition, "50"), testService.getFullTestExecution(first.getId()), metric));
+               assertTrue(conditionChecker.checkCondition(String.format(condition, "100"), testService.getFullTestExecution(second.getId()), metric));
+
+               alertingService.processQueuedAlerts(firstEntry.getId());
+               alertingService.processQueuedAlerts(secondEntry.getId());
+            } finally {
+               alertQueueDispatcher.setPaused(false);
+            }
+            return null;
+         }
+      });
+   }
+
+   @org.junit.Test
+   public void testCachedTestLookupReflectsChanges() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            Test createdTest = testService.createTest(test("test1").metric("metric1", MetricComparator.HB, "").build());
+            assertEquals("description for test1", testService.getTestByUID("test1").getDescription());
+
+            // second lookup is answered from the cache, it has to see the update
+            Test test = testService.getTestByUID("test1");
+            test.setDescription("changed");
+            testService.updateTest(test);
+            assertEquals("changed", testService.getTestByUID("test1").getDescription());
+
+            testService.removeTest(createdTest);
+            assertNull(testService.getTestByUID("test1"));
+            return null;
+         }
+      });
+   }
+
+   @org.junit.Test
+   public void testFullTestExecutionProjection() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            TestExecution created = testService.createTestExecution(testExec("test1", true).comment("projected").parameter("param1", "value1")
+                                                                        .value("metric1", 10.0, "iteration", "1").value("metric1", 20.0, "iteration", "2").build());
+
+            TestExecution exec = testService.getFullTestExecution(created.getId());
+            assertEquals("projected", exec.getComment());
+            assertEquals("test1", exec.getTestUid());
+            assertEquals("test test", exec.getTest().getDescription());
+            assertEquals(1, exec.getParameters().size());
+            assertEquals("value1", exec.getParameters().iterator().next().getValue());
+            assertEquals(Arrays.asList("tag"), exec.getTags().stream().map(Tag::getName).collect(Collectors.toList()));
+            assertEquals(2, exec.getValues().size());
+            for (Value value : exec.getValues()) {
+               assertEquals("metric1", value.getMetricName());
+               assertEquals(1, value.getParameters().size());
+               assertEquals(value.getResultValue() > 15 ? "2" : "1", value.getParameters().iterator().next().getParamValue());
+            }
+            // values of the same metric share the metric
+            Iterator<Value> values = exec.getValues().iterator();
+            assertSame(values.next().getMetric(), values.next().getMetric());
+            assertNull(testService.getFullTestExecution(-1L));
+
+            TestExecutionSearchTO search = new TestExecutionSearchTO();
+            search.setTestUID("test1");
+            TestExecution found = testService.searchTestExecutions(search).getResult().get(0);
+            assertEquals(created.getId(), found.getId());
+            assertEquals("test1", found.getTestUid());
+            assertEquals(1, found.getTags().size());
+
+            Test test = testService.getAllFullTests().get(0);
+            assertEquals(Arrays.asList("metric1"), test.getMetrics().stream().map(Metric::getName).collect(Collectors.toList()));
+            assertTrue(test.getSubscribers().isEmpty());
+            assertTrue(test.getAlerts().isEmpty());
+            assertEquals(test, testService.getFullTest(test.getId()));
+            return null;
+         }
+      });
+   }
+
+   @org.junit.Test
+   public void testMetricReportFromRollups() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            Date day = Date.from(Instant.parse("2016-03-15T12:00:00Z"));
+            TestExecution first = testService.createTestExecution(testExec("test1", true).started(day).value("metric1", 100.0).build());
+            testService.createTestExecution(testExec("test1", false).started(day).value("metric1", 200.0).build());
+            testService.createTestExecution(testExec("test1", false).started(day).value("metric1", 600.0).build());
+
+            // more test executions than the limit, daily means are returned
+            assertEquals(Arrays.asList(300.0), getMetricHistory("test1", day, 2));
+            List<Double> values = getMetricHistory("test1", day, 3);
+            values.sort(null);
+            assertEquals(Arrays.asList(100.0, 200.0, 600.0), values);
+
+            testService.removeTestExecution(first);
+            assertEquals(Arrays.asList(400.0), getMetricHistory("test1", day, 1));
+            return null;
+         }
+      });
+   }
+
+   @org.junit.Test
+   public void testBulkOperationsBySearchCriteria() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            for (int i = 0; i < 3; i++) {
+               testService.createTestExecution(testExec("test1", i > 0).value("metric1", 10.0 * i).build());
+            }
+            TestExecutionSearchTO search = new TestExecutionSearchTO();
+            search.setTestUID("test1");
+
+            BulkOperationTO added = waitFor(testService.startAddingTags(search, Arrays.asList("bulk", "tag")));
+            assertEquals(BulkOperationTO.State.FINISHED, added.getState());
+            assertEquals(3, added.getProcessed());
+            assertEquals(3, countTestExecutions("bulk"));
+            assertEquals(3, countTestExecutions("tag"));
+
+            TestExecutionSearchTO tagged = new TestExecutionSearchTO();
+            tagged.setTags("bulk");
+            tagged.setLimitHowMany(1);
+            waitFor(testService.startRemovingTags(tagged, Arrays.asList("tag")));
+            assertEquals(0, countTestExecutions("tag"));
+            assertEquals(3, countTestExecutions("bulk"));
+
+            BulkOperationTO removed = waitFor(testService.startRemovingTestExecutions(search));
+            assertEquals(3, removed.getTotal());
+            assertEquals(0, testService.searchTestExecutions(search).getResult().size());
+            return null;
+         }
+      });
+   }
+
+   @org.junit.Test
+   public void testAttachmentContentLoadedOnlyOnDownload() throws Exception {
+      asUser(testUserRole, new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            TestExecution exec = testService.createTestExecution(testExec("test1", true).value("metric1", 10.0).build());
+            byte[] content = "attachment content".getBytes(StandardCharsets.UTF_8);
+            TestExecutionAttachment attachment = new TestExecutionAttachment();
+            attachment.setFilename("log.txt");
+            attachment.setMimetype("text/plain");
+            attachment.setTestExecution(exec);
+            Long attachmentId = testService.addAttachment(attachment, new ByteArrayInputStream(content), content.length);
+
+            long loaded = getContentLoadCount();
+            TestExecutionAttachment listed = testService.getFullTestExecution(exec.getId()).getAttachments().iterator().next();
+            assertEquals(attachmentId, listed.getId());
+            assertEquals("log.txt", listed.getFilename());
+            assertEquals(Long.valueOf(content.length), listed.getContentSize());
+            assertEquals(64, listed.getChecksum().length());
+            assertEquals("text/plain", testService.getAttachment(attachmentId).getMimetype());
+            assertEquals(content.length, testService.getAttachmentSize(attachmentId));
+            assertEquals(loaded, getContentLoadCount());
+
+            ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+            assertTrue(testService.writeAttachmentContent(attachmentId, 0, content.length, downloaded));
+            assertEquals("attachment content", new String(downloaded.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(loaded + 1, getContentLoadCount());
+
+            testService.removeAttachment(listed);
+            assertEquals(-1, testService.getAttachmentSize(attachmentId));
+            assertFalse(testService.writeAttachmentContent(attachmentId, 0, content.length, new ByteArrayOutputStream()));
+            return null;
+         }
+      });
+   }
+
+   /**
+    * @return number of times attachment content was loaded from database
+    */
+   private long getContentLoadCount() {
+      EntityStatistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+          .getEntityStatistics(TestExecutionAttachmentContent.class.getName());
+      return statistics.getLoadCount() + statistics.getFetchCount();
+   }
+
+   private BulkOperationTO waitFor(BulkOperationTO operation) throws InterruptedException {
+      for (int i = 0; i < 100 && !operation.isDone(); i++) {
+         Thread.sleep(100);
+         operation = testService.getBulkOperation(operation.getId());
+      }
+      assertEquals(BulkOperationTO.State.FINISHED, operation.getState());
+      return operation;
+   }
+
+   private int countTestExecutions(String tags) {
+      TestExecutionSearchTO search = new TestExecutionSearchTO();
+      search.setTags(tags);
+      return testService.searchTestExecutions(search).getResult().size();
+   }
+
+   private List<Double> getMetricHistory(String testUid, Date day, int limitSize) {
+      MetricReportTO.SeriesRequest series = new MetricReportTO.SeriesRequest("series");
+      series.setMetricName("metric1");
+      series.addTag("tag");
+      MetricReportTO.ChartRequest chart = new MetricReportTO.ChartRequest();
+      chart.setTestUid(testUid);
+      chart.addSeries(series);
+      MetricReportTO.Request request = new MetricReportTO.Request();
+      request.addChart(chart);
+      request.setLimitSize(limitSize);
+      request.setRange(new Date(day.getTime() - 3600000), new Date(day.getTime() + 3600000));
+
+      return reportService.computeMetricReport(request).getCharts().get(0).getSeries().get(0).getDatapoints().stream()
+          .map(MetricReportTO.DataPoint::getValue)
+          .collect(Collectors.toList());
+   }
 }
@@ -2,10 +2,15 @@ package org.perfrepo.test.alerting;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.perfrepo.model.Alert;
 import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.SearchResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.web.alerting.CompiledConditionCache;
 import org.perfrepo.web.alerting.ConditionCheckerImpl;
+import org.perfrepo.web.alerting.RollingStatisticsStore;
+import org.perfrepo.web.dao.SearchCursor;
 import org.perfrepo.web.dao.TestExecutionDAO;
 import org.perfrepo.web.service.UserService;
 
@@ -50,22 +55,20 @@ public class ConditionCheckerTest {
         TestExecutionSearchTO searchTe2 = createSearchCriteria(Arrays.asList(2L), null, null, null, null, null);
         TestExecutionSearchTO searchTe1And2 = createSearchCriteria(Arrays.asList(1L, 2L), null, null, null, null, null);
 
-        TestExecutionSearchTO searchLast1 = createSearchCriteria(null, null, 2, 1, null, null);
-        TestExecutionSearchTO searchLast10 = createSearchCriteria(null, null, 11, 10, null, null);
-        TestExecutionSearchTO search5FromLast10 = createSearchCriteria(null, null, 11, 5, null, null);
+        TestExecutionSearchTO searchLast1 = createLastSearchCriteria(null, 1);
+        TestExecutionSearchTO searchLast10 = createLastSearchCriteria(null, 10);
 
         when(mockedTestExecutionDAO.searchTestExecutions(searchTe1, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(te1, te1.size()));
         when(mockedTestExecutionDAO.searchTestExecutions(searchTe2, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(te2, te2.size()));
         when(mockedTestExecutionDAO.searchTestExecutions(searchLast1, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(te2, te2.size()));
         when(mockedTestExecutionDAO.searchTestExecutions(searchLast10, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(te1And2, te1And2.size()));
-        when(mockedTestExecutionDAO.searchTestExecutions(search5FromLast10, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(te1And2, te1And2.size()));
         when(mockedTestExecutionDAO.searchTestExecutions(searchTe1And2, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(te1And2, te1And2.size()));
 
         List<TestExecution> tesWithTags = Arrays.asList(createTestExecution3(), createTestExecution4());
 
         TestExecutionSearchTO searchTesWithTags = createSearchCriteria(null, "firstTag secondTag", null, null, null, null);
-        TestExecutionSearchTO searchTesWithTagsAndLast1 = createSearchCriteria(null, "firstTag secondTag", 2, 1, null, null);
-        TestExecutionSearchTO searchTesWithTagsAnd2FromLast3 = createSearchCriteria(null, "firstTag secondTag", 4, 2, null, null);
+        TestExecutionSearchTO searchTesWithTagsAndLast1 = createLastSearchCriteria("firstTag secondTag", 1);
+        TestExecutionSearchTO searchTesWithTagsAnd2FromLast3 = createLastSearchCriteria("firstTag secondTag", 3);
 
         when(mockedTestExecutionDAO.searchTestExecutions(searchTesWithTags, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(tesWithTags, tesWithTags.size()));
         when(mockedTestExecutionDAO.searchTestExecutions(searchTesWithTagsAndLast1, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(te1, te1.size()));
@@ -100,7 +103,7 @@ public class ConditionCheckerTest {
         TestExecutionSearchTO multivalueMoreExecInVariableTO = createSearchCriteria(Arrays.asList(100L, 101L), null, null, null, null, null);
         TestExecutionSearchTO multivalueComplexTO = createSearchCriteria(Arrays.asList(110L, 111L), null, null, null, null, null);
         TestExecutionSearchTO groupingSimpleTO = createSearchCriteria(Arrays.asList(112L, 113L), null, null, null, null, null);
-        TestExecutionSearchTO multiTasAndLastOneTO = createSearchCriteria(null, "epicTag legendaryTag", 2, 1, null, null);
+        TestExecutionSearchTO multiTasAndLastOneTO = createLastSearchCriteria("epicTag legendaryTag", 1);
 
         when(mockedTestExecutionDAO.searchTestExecutions(multivalueSimpleTO, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(multivalueSimple, multivalueSimple.size()));
         when(mockedTestExecutionDAO.searchTestExecutions(multivalueMoreExecInVariableTO, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(multivalueMoreExecInVariable, multivalueMoreExecInVariable.size()));
@@ -113,6 +116,7 @@ public class ConditionCheckerTest {
 
         conditionChecker.setTestExecutionDAO(mockedTestExecutionDAO);
         conditionChecker.setUserService(mockedUserService);
+        conditionChecker.setCompiledConditionCache(new CompiledConditionCache());
     }
 
     @Test
@@ -224,6 +228,19 @@ public class ConditionCheckerTest {
         assertFalse(conditionChecker.checkCondition(condition, createTestExecutionWithProvidedResult(0d), createMetric()));
     }
 
+    @Test
+    public void testAlertConditionChange() {
+        Alert alert = new Alert();
+        alert.setId(1L);
+        alert.setCondition("CONDITION x > 10 DEFINE x = (SELECT WHERE id = 1)");
+        assertTrue(conditionChecker.checkCondition(alert, createTestExecutionWithProvidedResult(0d), createMetric()));
+        assertTrue(conditionChecker.checkCondition(alert, createTestExecutionWithProvidedResult(0d), createMetric()));
+
+        // compiled condition of the alert mustn't be used once the condition is changed
+        alert.setCondition("CONDITION x < 10 DEFINE x = (SELECT WHERE id = 1)");
+        assertFalse(conditionChecker.checkCondition(alert, createTestExecutionWithProvidedResult(0d), createMetric()));
+    }
+
     @Test
     public void testSimpleSelectSimpleLast() {
         String condition = "CONDITION x > 10 DEFINE x = (SELECT LAST 1)";
@@ -263,6 +280,38 @@ public class ConditionCheckerTest {
         assertTrue(conditionChecker.checkCondition(condition, createTestExecutionWithProvidedResult(56d), createMetric()));
     }
 
+    @Test
+    public void testLastCountsBackFromEvaluatedExecution() {
+        TestExecution current = createTestExecutionWithProvidedResult(12d);
+        current.setId(5L);
+        current.setStarted(new Date());
+
+        // the search is bounded by the evaluated execution and returns the preceding executions newest first
+        TestExecutionSearchTO expectedSearch = createLastSearchCriteria(null, 3);
+        expectedSearch.setCursor(SearchCursor.after(OrderBy.DATE_DESC, current).encode());
+        List<TestExecution> preceding = Arrays.asList(createTestExecution2(), createTestExecution1());
+        TestExecutionDAO mockedTestExecutionDAO = mock(TestExecutionDAO.class);
+        when(mockedTestExecutionDAO.searchTestExecutions(expectedSearch, Arrays.asList("testuser"))).thenReturn(new SearchResultWrapper<>(preceding, -1));
+        conditionChecker.setTestExecutionDAO(mockedTestExecutionDAO);
+
+        // LAST 3, 1 takes the oldest one of them
+        String condition = "CONDITION x == result DEFINE x = MAX(SELECT LAST 3, 1)";
+        assertTrue(conditionChecker.checkCondition(condition, current, createMetric()));
+    }
+
+    @Test
+    public void testLastWindowFromRollingStatistics() {
+        TestExecution current = createTestExecutionWithProvidedResult(2d);
+        current.setId(5L);
+        current.setStarted(new Date());
+        RollingStatisticsStore mockedStore = mock(RollingStatisticsStore.class);
+        when(mockedStore.getWindow("metric1", null, current, 10, 10)).thenReturn(new double[] {1d, 3d});
+        conditionChecker.setRollingStatisticsStore(mockedStore);
+
+        String condition = "CONDITION x == result DEFINE x = AVG(SELECT LAST 10)";
+        assertTrue(conditionChecker.checkCondition(condition, current, createMetric()));
+    }
+
     @Test
     public void testMultiSelectInWhere() {
         String condition = "CONDITION x == result DEFINE x = AVG(SELECT WHERE id IN (1,2))";
@@ -281,6 +330,35 @@ public class ConditionCheckerTest {
         assertTrue(conditionChecker.checkCondition(condition, createTestExecutionWithProvidedResult(100d), createMetric()));
     }
 
+    @Test
+    public void testStatisticalGroupFunctions() {
+        String condition = "CONDITION x == result DEFINE x = MEDIAN(SELECT WHERE id IN (1,2))";
+        assertTrue(conditionChecker.checkCondition(condition, createTestExecutionWithProvidedResult(56d), createMetric()));
+
+        condition = "CONDITION result > x - 0.001 && result < x + 0.001 DEFINE x = P90(SELECT WHERE id IN (1,2))";
+        assertTrue(conditionChecker.checkCondition(condition, createTestExecutionWithProvidedResult(91.2d), createMetric()));
+
+        condition = "CONDITION x > 62.2 && x < 62.3 DEFINE x = STDDEV(SELECT WHERE id IN (1,2))";
+        assertTrue(conditionChecker.checkCondition(condition, createTestExecutionWithProvidedResult(0d), createMetric()));
+
+        // the newer value has weight 2/3
+        condition = "CONDITION x > 70.6 && x < 70.7 DEFINE x = EWMA(SELECT WHERE id IN (1,2))";
+        assertTrue(conditionChecker.checkCondition(condition, createTestExecutionWithProvidedResult(0d), createMetric()));
+    }
+
+    @Test
+    public void testMultiValueGroupingStatisticalFunctions() {
+        String condition = "MULTIVALUE GROUPING CONDITION result == x DEFINE x = MEDIAN(SELECT WHERE id IN (112, 113))";
+        assertTrue(conditionChecker.checkCondition(condition, createMultivalueTestExecutionWithConstantGivenValue(100d), createMetric()));
+
+        // current values are between the selected ones
+        condition = "MULTIVALUE GROUPING CONDITION x > 0.05 DEFINE x = MANNWHITNEY(SELECT WHERE id IN (112, 113))";
+        assertTrue(conditionChecker.checkCondition(condition, createMultivalueTestExecutionWithConstantGivenValue(100d), createMetric()));
+
+        // current values are all higher than the selected ones
+        assertFalse(conditionChecker.checkCondition(condition, createMultivalueTestExecutionWithConstantGivenValue(150d), createMetric()));
+    }
+
     @Test
     public void testSelectWithTags() {
         String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE tags = \"firstTag secondTag\")";
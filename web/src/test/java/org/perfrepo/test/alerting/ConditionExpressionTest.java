@@ -0,0 +1,105 @@
+package org.perfrepo.test.alerting;
+
+import org.junit.Test;
+import org.perfrepo.web.alerting.ConditionExpression;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.alerting.ConditionExpression}
+ */
+public class ConditionExpressionTest {
+
+    @Test
+    public void testOperatorPrecedence() {
+        Map<String, Object> variables = variables(100d, 50d, 20d);
+
+        assertTrue(evaluate("x > 10 && result > (0.95*y)+10", variables));
+        assertTrue(evaluate("result >= (0.95 * 2 * x) && result <= (1.05 * 2 * x)", variables));
+        assertTrue(evaluate("result == 5 * y", variables));
+        assertTrue(evaluate("result - y - x == 30", variables));
+        assertTrue(evaluate("result / x / 2 == 1", variables));
+        assertTrue(evaluate("result % 30 == 10", variables));
+        assertTrue(evaluate("x < 10 || y < 60 && result > 90", variables));
+        assertFalse(evaluate("(x < 10 || y < 60) && result < 90", variables));
+        assertTrue(evaluate("!(result < x) && -x < +y", variables));
+        assertTrue(evaluate("1e2 === result && .5 * x == 25", variables));
+    }
+
+    @Test
+    public void testNullValues() {
+        Map<String, Object> variables = variables(10d, null, 5d);
+
+        // null behaves like in JavaScript, i.e. as zero in comparisons and arithmetic, but it's equal only to null
+        assertTrue(evaluate("result > x", variables));
+        assertTrue(evaluate("x >= 0 && x <= 0", variables));
+        assertFalse(evaluate("x == 0", variables));
+        assertTrue(evaluate("x == null && x === null", variables));
+        assertTrue(evaluate("x + y == 5", variables));
+    }
+
+    @Test
+    public void testInvalidExpressions() {
+        assertInvalid("x <!= 10");
+        assertInvalid("x = 10");
+        assertInvalid("Math.max(x, 10) > 5");
+        assertInvalid("(x > 10");
+        assertInvalid("x > 10)");
+        assertInvalid("x >");
+        assertInvalid("");
+    }
+
+    @Test
+    public void testEvaluationErrors() {
+        Map<String, Object> variables = variables(10d, 5d, 1d);
+
+        try {
+            evaluate("z > 10", variables);
+            fail("Undefined variable should fail.");
+        } catch (IllegalArgumentException ex) {
+        } //expected
+
+        try {
+            evaluate("result + x", variables);
+            fail("Expression with non boolean result should fail.");
+        } catch (IllegalStateException ex) {
+        } //expected
+
+        try {
+            evaluate("x > 1 && result", variables);
+            fail("Expression with non boolean result should fail.");
+        } catch (IllegalStateException ex) {
+        } //expected
+    }
+
+    @Test
+    public void testReuse() {
+        ConditionExpression expression = ConditionExpression.compile("result < x");
+        assertTrue(expression.evaluate(variables(1d, 2d, null)));
+        assertFalse(expression.evaluate(variables(3d, 2d, null)));
+        assertTrue(expression.evaluate(variables(1d, 2d, null)));
+    }
+
+    private boolean evaluate(String expression, Map<String, Object> variables) {
+        return ConditionExpression.compile(expression).evaluate(variables);
+    }
+
+    private void assertInvalid(String expression) {
+        try {
+            ConditionExpression.compile(expression);
+            fail("Expression '" + expression + "' should be rejected.");
+        } catch (IllegalArgumentException ex) {
+        } //expected
+    }
+
+    private Map<String, Object> variables(Double result, Double x, Double y) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("result", result);
+        variables.put("x", x);
+        variables.put("y", y);
+        return variables;
+    }
+}
@@ -0,0 +1,92 @@
+package org.perfrepo.test.alerting;
+
+import org.junit.Test;
+import org.perfrepo.web.alerting.DslGroupingFunctions;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.alerting.DslGroupingFunctions}
+ */
+public class DslGroupingFunctionsTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testPercentiles() {
+        double[] values = {7d, 1d, 5d, 3d, 9d};
+        assertEquals(5d, DslGroupingFunctions.MEDIAN.compute(values), DELTA);
+        assertEquals(8.2d, DslGroupingFunctions.P90.compute(values), DELTA);
+        assertEquals(8.92d, DslGroupingFunctions.P99.compute(values), DELTA);
+        // input isn't modified
+        assertArrayEquals(new double[] {7d, 1d, 5d, 3d, 9d}, values, 0d);
+
+        assertEquals(2.5d, DslGroupingFunctions.MEDIAN.compute(new double[] {4d, 1d, 3d, 2d}), DELTA);
+        assertEquals(42d, DslGroupingFunctions.P95.compute(new double[] {42d}), DELTA);
+        assertEquals(3d, DslGroupingFunctions.MEDIAN.compute(new double[] {3d, 3d, 3d, 1d, 3d, 5d}), DELTA);
+    }
+
+    @Test(timeout = 10000)
+    public void testPercentilesOfEqualValues() {
+        // selection would be quadratic without three-way partitioning
+        double[] values = new double[200000];
+        Arrays.fill(values, 3d);
+        values[0] = 1d;
+        values[values.length - 1] = 5d;
+        assertEquals(3d, DslGroupingFunctions.MEDIAN.compute(values), DELTA);
+        assertEquals(3d, DslGroupingFunctions.P99.compute(values), DELTA);
+    }
+
+    @Test
+    public void testPercentilesAgainstSorting() {
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            double[] values = new double[1 + random.nextInt(200)];
+            for (int i = 0; i < values.length; i++) {
+                // few distinct values to have ties as well
+                values[i] = random.nextInt(20);
+            }
+
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            double rank = 0.95 * (sorted.length - 1);
+            int lower = (int) Math.floor(rank);
+            double expected = sorted[lower] + (rank - lower) * (sorted[Math.min(lower + 1, sorted.length - 1)] - sorted[lower]);
+
+            assertEquals(expected, DslGroupingFunctions.P95.compute(values), DELTA);
+        }
+    }
+
+    @Test
+    public void testStandardDeviationAndEwma() {
+        assertEquals(Math.sqrt(2.5d), DslGroupingFunctions.STDDEV.compute(new double[] {1d, 2d, 3d, 4d, 5d}), DELTA);
+        assertEquals(0d, DslGroupingFunctions.STDDEV.compute(new double[] {5d}), DELTA);
+
+        // alpha = 0.5
+        assertEquals(6.25d, DslGroupingFunctions.EWMA.compute(new double[] {0d, 5d, 10d}), DELTA);
+        assertEquals(3d, DslGroupingFunctions.EWMA.compute(new double[] {3d}), DELTA);
+    }
+
+    @Test
+    public void testMannWhitney() {
+        // no change
+        assertEquals(1d, DslGroupingFunctions.MANNWHITNEY.compute(new double[] {5d, 5d, 5d, 5d}), DELTA);
+        assertTrue(DslGroupingFunctions.MANNWHITNEY.compute(new double[] {1d, 4d, 2d, 3d, 2d, 4d, 1d, 3d}) > 0.5d);
+
+        // step change in the newer half
+        double[] values = {10d, 11d, 9d, 10d, 12d, 11d, 10d, 9d, 20d, 21d, 19d, 22d, 20d, 21d, 23d, 20d};
+        assertTrue(DslGroupingFunctions.MANNWHITNEY.compute(values) < 0.01d);
+
+        // U = 1 for samples {1, 2, 4} and {3, 5, 6}, z = (4.5 - 1 - 0.5) / sqrt(5.25)
+        assertEquals(0.1904d, DslGroupingFunctions.mannWhitney(new double[] {1d, 2d, 4d}, new double[] {3d, 5d, 6d}), 1e-3);
+        assertEquals(1d, DslGroupingFunctions.mannWhitney(new double[0], new double[] {1d}), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyValues() {
+        DslGroupingFunctions.MEDIAN.compute(new double[0]);
+    }
+}
@@ -0,0 +1,138 @@
+package org.perfrepo.test.alerting;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.web.alerting.RollingStatisticsStore;
+import org.perfrepo.web.dao.TestExecutionDAO;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.perfrepo.test.alerting.TestUtils.createTest;
+
+/**
+ * Tests for {@link org.perfrepo.web.alerting.RollingStatisticsStore}
+ */
+public class RollingStatisticsStoreTest {
+
+    private static final String METRIC = "metric1";
+
+    private RollingStatisticsStore store;
+    private TestExecutionDAO mockedTestExecutionDAO;
+
+    /**
+     * Database contains test executions 1..5 with values 10, 20, 30, 40, 50, the third one has no value.
+     */
+    @Before
+    public void init() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 5; id >= 1; id--) {
+            rows.add(new Object[] {id, new Date(id * 1000), id == 3 ? null : id * 10d});
+        }
+
+        mockedTestExecutionDAO = mock(TestExecutionDAO.class);
+        when(mockedTestExecutionDAO.getLatestMetricValues(any(TestExecutionSearchTO.class), eq(METRIC))).thenReturn(rows);
+
+        store = new RollingStatisticsStore();
+        store.setTestExecutionDAO(mockedTestExecutionDAO);
+    }
+
+    @Test
+    public void testWindowPrecedingCurrentExecution() {
+        assertArrayEquals(new double[] {40d, 50d}, store.getWindow(METRIC, null, createExecution(6, 60d), 2, 2), 0d);
+        // execution without value is part of the window
+        assertArrayEquals(new double[] {20d, 40d}, store.getWindow(METRIC, null, createExecution(5, 50d), 3, 3), 0d);
+        // LAST 4, 2 - first two of last four
+        assertArrayEquals(new double[] {20d}, store.getWindow(METRIC, null, createExecution(6, 60d), 4, 2), 0d);
+        // not enough test executions
+        assertArrayEquals(new double[] {10d, 20d, 40d, 50d}, store.getWindow(METRIC, null, createExecution(6, 60d), 10, 10), 0d);
+        assertArrayEquals(new double[0], store.getWindow(METRIC, null, createExecution(1, 10d), 1, 1), 0d);
+        // newer test executions are not part of the window
+        assertArrayEquals(new double[] {20d}, store.getWindow(METRIC, null, createExecution(3, 30d), 1, 1), 0d);
+
+        // window is loaded only once
+        verify(mockedTestExecutionDAO, times(1)).getLatestMetricValues(any(TestExecutionSearchTO.class), eq(METRIC));
+    }
+
+    @Test
+    public void testAddAndInvalidate() {
+        assertArrayEquals(new double[] {50d}, store.getWindow(METRIC, null, createExecution(6, 60d), 1, 1), 0d);
+
+        store.add(createExecution(6, 60d));
+        store.add(createExecution(7, 70d));
+        // execution loaded from database after it was committed
+        store.add(createExecution(5, 50d));
+        assertArrayEquals(new double[] {50d, 60d, 70d}, store.getWindow(METRIC, null, createExecution(8, 80d), 3, 3), 0d);
+        verify(mockedTestExecutionDAO, times(1)).getLatestMetricValues(any(TestExecutionSearchTO.class), eq(METRIC));
+
+        store.invalidate();
+        assertEquals(0, store.size());
+        assertArrayEquals(new double[] {40d, 50d}, store.getWindow(METRIC, null, createExecution(8, 80d), 2, 2), 0d);
+        verify(mockedTestExecutionDAO, times(2)).getLatestMetricValues(any(TestExecutionSearchTO.class), eq(METRIC));
+    }
+
+    @Test
+    public void testExecutionsOfAllTests() {
+        store.getWindow(METRIC, null, createExecution(6, 60d), 1, 1);
+
+        // as in database, the window isn't restricted to a test and counts executions without the metric
+        TestExecution otherTest = createExecution(6, 60d);
+        otherTest.getTest().setId(2L);
+        store.add(otherTest);
+        store.add(TestExecution.builder().id(7L).started(new Date(7000)).value("metric2", 70d).build());
+
+        assertArrayEquals(new double[] {50d, 60d}, store.getWindow(METRIC, null, createExecution(8, 80d), 3, 3), 0d);
+    }
+
+    @Test
+    public void testTags() {
+        store.getWindow(METRIC, "stable -broken", createExecution(6, 60d), 1, 1);
+
+        TestExecution broken = createExecution(6, 60d);
+        broken.getTags().addAll(TestExecution.builder().tag("stable").tag("broken").build().getTags());
+        store.add(broken);
+        TestExecution untagged = createExecution(7, 70d);
+        store.add(untagged);
+        TestExecution stable = createExecution(8, 80d);
+        stable.getTags().addAll(TestExecution.builder().tag("Stable").build().getTags());
+        store.add(stable);
+
+        assertArrayEquals(new double[] {50d, 80d}, store.getWindow(METRIC, "-broken stable", createExecution(9, 90d), 2, 2), 0d);
+    }
+
+    @Test
+    public void testFullWindow() {
+        for (long id = 6; id < RollingStatisticsStore.WINDOW_CAPACITY + 10; id++) {
+            store.getWindow(METRIC, null, createExecution(id, id * 10d), 1, 1);
+            store.add(createExecution(id, id * 10d));
+        }
+
+        long next = RollingStatisticsStore.WINDOW_CAPACITY + 10;
+        assertEquals(2, store.getWindow(METRIC, null, createExecution(next, 0d), 2, 2).length);
+        assertEquals(2, store.getWindow(METRIC, null, createExecution(next, 0d), RollingStatisticsStore.WINDOW_CAPACITY, 2).length);
+        // the oldest test executions were discarded, database has to be used
+        assertNull(store.getWindow(METRIC, null, createExecution(3, 0d), 2, 2));
+        assertNull(store.getWindow(METRIC, null, createExecution(next, 0d), RollingStatisticsStore.WINDOW_CAPACITY + 1, 2));
+        // the window of test execution that wasn't stored is unknown
+        assertNull(store.getWindow(METRIC, null, TestExecution.builder().value(METRIC, 0d).build(), 2, 2));
+    }
+
+    private TestExecution createExecution(long id, double value) {
+        TestExecution testExecution = TestExecution.builder()
+            .id(id)
+            .started(new Date(id * 1000))
+            .value(METRIC, value)
+            .build();
+        testExecution.setTest(createTest());
+        testExecution.setTags(new ArrayList<>());
+
+        return testExecution;
+    }
+}
@@ -10,6 +10,7 @@ import org.perfrepo.model.Metric;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.Value;
 import org.perfrepo.model.builder.TestExecutionBuilder;
+import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 
 /**
@@ -85,6 +86,13 @@ public class TestUtils {
         return searchCriteria;
     }
 
+    public static TestExecutionSearchTO createLastSearchCriteria(String tags, Integer lastFrom) {
+        TestExecutionSearchTO searchCriteria = createSearchCriteria(null, tags, null, lastFrom, null, null);
+        searchCriteria.setOrderBy(OrderBy.DATE_DESC);
+
+        return searchCriteria;
+    }
+
     public static TestExecution createMultivalueTestExecution() {
         // laziness rules -> use builder to create multi value executions ;-)
         TestExecutionBuilder builder = TestExecution.builder();
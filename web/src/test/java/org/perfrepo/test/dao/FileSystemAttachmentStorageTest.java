@@ -0,0 +1,106 @@
+package org.perfrepo.test.dao;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.perfrepo.web.dao.FileSystemAttachmentStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.dao.FileSystemAttachmentStorage}
+ */
+public class FileSystemAttachmentStorageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] content;
+
+    @Before
+    public void init() {
+        content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+    }
+
+    @Test
+    public void testStoreAndWrite() throws IOException {
+        for (boolean compressed : new boolean[] {false, true}) {
+            FileSystemAttachmentStorage storage = new FileSystemAttachmentStorage(folder.newFolder().toPath(), compressed);
+            String key = storage.store(new ByteArrayInputStream(content), content.length);
+            assertTrue(key, key.endsWith("-" + content.length));
+            assertEquals(content.length, storage.getSize(key));
+
+            assertArrayEquals(content, write(storage, key, 0, content.length));
+            assertArrayEquals(Arrays.copyOfRange(content, 5000, 5100), write(storage, key, 5000, 100));
+            assertArrayEquals(new byte[0], write(storage, key, 10, 0));
+        }
+    }
+
+    @Test
+    public void testDeduplication() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        FileSystemAttachmentStorage storage = new FileSystemAttachmentStorage(directory, true);
+        String key = storage.store(new ByteArrayInputStream(content), content.length);
+        assertEquals(key, storage.store(new ByteArrayInputStream(content), content.length));
+        assertNotEquals(key, storage.store(new ByteArrayInputStream(content, 0, 10), 10));
+
+        // content stored compressed is found when compression is switched off
+        FileSystemAttachmentStorage uncompressed = new FileSystemAttachmentStorage(directory, false);
+        assertEquals(key, uncompressed.store(new ByteArrayInputStream(content), content.length));
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertEquals(2, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testShorterContent() throws IOException {
+        FileSystemAttachmentStorage storage = new FileSystemAttachmentStorage(folder.newFolder().toPath(), false);
+        storage.store(new ByteArrayInputStream(content), content.length + 1);
+    }
+
+    @Test
+    public void testRemoveStoredBefore() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        FileSystemAttachmentStorage storage = new FileSystemAttachmentStorage(directory, false);
+        String key = storage.store(new ByteArrayInputStream(content), content.length);
+        Date now = new Date(System.currentTimeMillis() + 1000);
+        assertEquals(Collections.singletonList(key), storage.getKeys(now));
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            Path file = files.filter(Files::isRegularFile).findFirst().get();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        }
+        Date past = new Date(1000);
+        assertEquals(Collections.singletonList(key), storage.getKeys(past));
+
+        // stored again after the content was found
+        storage.store(new ByteArrayInputStream(content), content.length);
+        assertFalse(storage.remove(key, past));
+        assertEquals(content.length, storage.getSize(key));
+
+        assertTrue(storage.remove(key, now));
+        assertEquals(-1, storage.getSize(key));
+        assertTrue(storage.getKeys(now).isEmpty());
+    }
+
+    private static byte[] write(FileSystemAttachmentStorage storage, String key, long offset, long length) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        storage.write(key, offset, length, output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,69 @@
+package org.perfrepo.test.dao;
+
+import org.junit.Test;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.to.OrderBy;
+import org.perfrepo.web.dao.SearchCursor;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.dao.SearchCursor}
+ */
+public class SearchCursorTest {
+
+    @Test
+    public void testStartedKeepsMicroseconds() {
+        Timestamp started = new Timestamp(1500000000123L);
+        started.setNanos(123456000);
+        TestExecution execution = new TestExecution();
+        execution.setId(7L);
+        execution.setStarted(started);
+
+        SearchCursor cursor = SearchCursor.decode(SearchCursor.after(OrderBy.DATE_DESC, execution).encode(), OrderBy.DATE_DESC);
+        assertEquals(Long.valueOf(7L), cursor.getId());
+        assertEquals(started, cursor.getStarted());
+        assertEquals(123456000, ((Timestamp) cursor.getStarted()).getNanos());
+    }
+
+    @Test
+    public void testStartedWithoutNanoseconds() {
+        TestExecution execution = new TestExecution();
+        execution.setId(7L);
+        execution.setStarted(new Date(1500000000123L));
+
+        SearchCursor cursor = SearchCursor.decode(SearchCursor.after(OrderBy.DATE_ASC, execution).encode(), OrderBy.DATE_ASC);
+        assertEquals(1500000000123L, cursor.getStarted().getTime());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrderingMismatch() {
+        TestExecution execution = new TestExecution();
+        execution.setId(7L);
+        execution.setName("a");
+        SearchCursor.decode(SearchCursor.after(OrderBy.NAME_ASC, execution).encode(), OrderBy.DATE_ASC);
+    }
+
+    @Test
+    public void testMalformedCursor() {
+        for (String token : new String[]{"not a cursor", "REFURV9BU0M6eDox", "REFURV9BU0M6MTp4"}) {
+            try {
+                SearchCursor.decode(token, OrderBy.DATE_ASC);
+                fail("Cursor " + token + " was accepted");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Invalid search cursor.", e.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedOrdering() {
+        TestExecution execution = new TestExecution();
+        execution.setId(7L);
+        execution.setName("a");
+        SearchCursor.decode(SearchCursor.after(OrderBy.NAME_ASC, execution).encode(), OrderBy.PARAMETER_ASC);
+    }
+}
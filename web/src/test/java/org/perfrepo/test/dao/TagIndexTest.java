@@ -0,0 +1,112 @@
+package org.perfrepo.test.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.web.dao.TagIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.dao.TagIndex}
+ */
+public class TagIndexTest {
+
+    private TagIndex tagIndex;
+
+    /**
+     * Test execution 1 has tags "stable" and "Nightly", 2 has "stable", 3 has "broken".
+     */
+    @Before
+    public void init() {
+        tagIndex = new TagIndex();
+        assertNull(tagIndex.match(Arrays.asList("stable"), Collections.emptyList(), false));
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {1L, "stable"});
+        rows.add(new Object[] {1L, "Nightly"});
+        rows.add(new Object[] {2L, "stable"});
+        rows.add(new Object[] {3L, "broken"});
+        assertTrue(tagIndex.beginLoad());
+        tagIndex.finishLoad(rows);
+        assertTrue(tagIndex.isLoaded());
+    }
+
+    @Test
+    public void testMatch() {
+        assertArrayEquals(new int[] {1, 2}, tagIndex.match(Arrays.asList("stable"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {1}, tagIndex.match(Arrays.asList("stable", "Nightly"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {2}, tagIndex.match(Arrays.asList("stable"), Arrays.asList("Nightly"), false).toArray());
+        assertArrayEquals(new int[0], tagIndex.match(Arrays.asList("stable", "unknown"), Collections.emptyList(), false).toArray());
+        // only excluded tags, test executions having any of them are returned
+        assertArrayEquals(new int[] {1, 3}, tagIndex.match(Collections.emptyList(), Arrays.asList("Nightly", "broken"), false).toArray());
+
+        // case sensitivity
+        assertArrayEquals(new int[0], tagIndex.match(Arrays.asList("nightly"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {1}, tagIndex.match(Arrays.asList("nightly"), Collections.emptyList(), true).toArray());
+    }
+
+    @Test
+    public void testChanges() {
+        tagIndex.addTags(3L, Arrays.asList("stable"));
+        tagIndex.removeTags(1L, Arrays.asList("stable"));
+        tagIndex.setTags(2L, Arrays.asList("broken", "Nightly"));
+        tagIndex.removeTestExecution(3L);
+
+        assertArrayEquals(new int[0], tagIndex.match(Arrays.asList("stable"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {1, 2}, tagIndex.match(Arrays.asList("Nightly"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {2}, tagIndex.match(Arrays.asList("broken"), Collections.emptyList(), false).toArray());
+        // tag without test executions is dropped
+        assertEquals(2, tagIndex.size());
+    }
+
+    @Test
+    public void testChangesOfOwnTagsOnly() {
+        // new test execution
+        tagIndex.setTags(4L, Arrays.asList("stable", "Nightly"));
+        tagIndex.addTags(Arrays.asList(2L, 4L), Arrays.asList("Nightly", "weekly"));
+        tagIndex.removeTags(Arrays.asList(3L, 4L), Arrays.asList("stable", "unknown"));
+
+        assertArrayEquals(new int[] {1, 2}, tagIndex.match(Arrays.asList("stable"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {1, 2, 4}, tagIndex.match(Arrays.asList("Nightly"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {2, 4}, tagIndex.match(Arrays.asList("weekly"), Collections.emptyList(), false).toArray());
+
+        tagIndex.removeTestExecutions(Arrays.asList(2L, 3L, 5L));
+        assertArrayEquals(new int[] {1}, tagIndex.match(Arrays.asList("stable"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {4}, tagIndex.match(Arrays.asList("weekly"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[0], tagIndex.match(Arrays.asList("broken"), Collections.emptyList(), false).toArray());
+        assertEquals(3, tagIndex.size());
+
+        // tags replaced, the previous ones are removed
+        tagIndex.setTags(4L, Arrays.asList("stable"));
+        assertArrayEquals(new int[] {1, 4}, tagIndex.match(Arrays.asList("stable"), Collections.emptyList(), false).toArray());
+        assertArrayEquals(new int[] {1}, tagIndex.match(Arrays.asList("Nightly"), Collections.emptyList(), false).toArray());
+        assertEquals(2, tagIndex.size());
+    }
+
+    @Test
+    public void testChangesDuringLoad() {
+        tagIndex.invalidate();
+        assertTrue(tagIndex.beginLoad());
+        assertFalse(tagIndex.beginLoad());
+        // committed after the rows were read from database
+        tagIndex.addTags(4L, Arrays.asList("stable"));
+        tagIndex.finishLoad(Collections.singletonList(new Object[] {1L, "stable"}));
+
+        assertArrayEquals(new int[] {1, 4}, tagIndex.match(Arrays.asList("stable"), Collections.emptyList(), false).toArray());
+    }
+
+    @Test
+    public void testFailedLoad() {
+        tagIndex.invalidate();
+        assertTrue(tagIndex.beginLoad());
+        tagIndex.finishLoad(null);
+
+        assertFalse(tagIndex.isLoaded());
+        assertTrue(tagIndex.beginLoad());
+    }
+}
@@ -0,0 +1,95 @@
+package org.perfrepo.test.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.model.Tag;
+import org.perfrepo.web.dao.TagDAO;
+import org.perfrepo.web.dao.TagResolver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.dao.TagResolver}
+ */
+public class TagResolverTest {
+
+    private TagResolver resolver;
+    private TagDAO mockedTagDAO;
+
+    /**
+     * Tags in database by their names, missing tags are added with new IDs.
+     */
+    private Map<String, Tag> tags;
+    private long nextId = 100;
+
+    @Before
+    public void init() {
+        tags = new HashMap<>();
+        mockedTagDAO = mock(TagDAO.class);
+        when(mockedTagDAO.getOrCreateIds(anyCollectionOf(String.class))).thenAnswer(invocation -> {
+            Map<String, Long> ids = new HashMap<>();
+            for (String name : (Collection<String>) invocation.getArguments()[0]) {
+                ids.put(name, tags.computeIfAbsent(name, this::createTag).getId());
+            }
+            return ids;
+        });
+        when(mockedTagDAO.get(anyLong())).thenAnswer(invocation -> tags.values().stream()
+            .filter(tag -> tag.getId().equals(invocation.getArguments()[0])).findFirst().orElse(null));
+
+        resolver = new TagResolver();
+        resolver.setTagDAO(mockedTagDAO);
+    }
+
+    @Test
+    public void testResolveBatch() {
+        tags.put("existing", createTag("existing"));
+
+        Map<String, Tag> resolved = resolver.resolve(Arrays.asList("new", "existing", null, "new"));
+        assertEquals(2, resolved.size());
+        assertEquals("new", resolved.get("new").getName());
+        assertSame(tags.get("existing"), resolved.get("existing"));
+        assertEquals(2, resolver.getSize());
+        // all names are resolved by one call
+        verify(mockedTagDAO, times(1)).getOrCreateIds(anyCollectionOf(String.class));
+    }
+
+    @Test
+    public void testCachedNames() {
+        resolver.resolve(Arrays.asList("a", "b"));
+        assertEquals("b", resolver.resolve("b").getName());
+        resolver.resolve(Arrays.asList("a", "b"));
+        verify(mockedTagDAO, times(1)).getOrCreateIds(anyCollectionOf(String.class));
+
+        // only the unknown name is looked up
+        resolver.resolve(Arrays.asList("a", "c"));
+        verify(mockedTagDAO).getOrCreateIds(new TreeSet<>(Arrays.asList("c")));
+    }
+
+    @Test
+    public void testRemovedTag() {
+        Tag tag = resolver.resolve("a");
+        tags.remove("a");
+
+        // cached ID doesn't exist anymore, tag is created again
+        Tag recreated = resolver.resolve("a");
+        assertEquals("a", recreated.getName());
+        assertNotEquals(tag.getId(), recreated.getId());
+        verify(mockedTagDAO, times(2)).getOrCreateIds(anyCollectionOf(String.class));
+    }
+
+    private Tag createTag(String name) {
+        Tag tag = new Tag();
+        tag.setId(nextId++);
+        tag.setName(name);
+        return tag;
+    }
+}
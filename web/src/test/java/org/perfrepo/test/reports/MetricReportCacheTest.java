@@ -0,0 +1,109 @@
+package org.perfrepo.test.reports;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.web.service.reports.MetricReportCache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.service.reports.MetricReportCache}
+ */
+public class MetricReportCacheTest {
+
+    private MetricReportCache cache;
+    private AtomicInteger queries;
+
+    @Before
+    public void init() {
+        cache = new MetricReportCache();
+        queries = new AtomicInteger();
+    }
+
+    @Test
+    public void testBaselineValuesAreCached() {
+        assertEquals(Double.valueOf(1d), cache.getBaselineValue(5L, "metric1", this::query));
+        assertEquals(Double.valueOf(1d), cache.getBaselineValue(5L, "metric1", this::query));
+
+        assertEquals(1, queries.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // different metric or test execution are different queries
+        cache.getBaselineValue(5L, "metric2", this::query);
+        cache.getBaselineValue(6L, "metric1", this::query);
+        assertEquals(3, queries.get());
+        assertEquals(3, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidation() {
+        cache.getBaselineValue(5L, "metric1", () -> 1d);
+        cache.getBaselineValue(5L, "metric2", () -> 1d);
+        cache.getBaselineValue(6L, "metric1", () -> 1d);
+
+        cache.invalidateExecution(5L);
+        assertEquals(1, cache.getSize());
+        assertEquals(Double.valueOf(2d), cache.getBaselineValue(5L, "metric1", () -> 2d));
+        assertEquals(Double.valueOf(1d), cache.getBaselineValue(6L, "metric1", () -> 2d));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testBatchInvalidation() {
+        cache.getBaselineValue(5L, "metric1", () -> 1d);
+        cache.getBaselineValue(6L, "metric1", () -> 1d);
+        cache.getBaselineValue(7L, "metric1", () -> 1d);
+
+        cache.invalidateExecutions(Arrays.asList(5L, 6L, null));
+        assertEquals(1, cache.getSize());
+        assertEquals(Double.valueOf(1d), cache.getBaselineValue(7L, "metric1", () -> 2d));
+        assertEquals(Double.valueOf(2d), cache.getBaselineValue(6L, "metric1", () -> 2d));
+    }
+
+    @Test
+    public void testMissingBaselineValueIsCached() {
+        assertNull(cache.getBaselineValue(5L, "metric1", () -> {
+            queries.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.getBaselineValue(5L, "metric1", () -> {
+            queries.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void testResultLoadedDuringInvalidationIsNotStored() {
+        Double result = cache.getBaselineValue(5L, "metric1", () -> {
+            // value is changed while the query runs
+            cache.invalidateExecution(5L);
+            return query();
+        });
+        assertEquals(Double.valueOf(1d), result);
+        assertEquals(0, cache.getSize());
+
+        cache.getBaselineValue(5L, "metric1", this::query);
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testSizeLimit() {
+        for (long execId = 0; execId < MetricReportCache.MAX_SIZE + 10; execId++) {
+            cache.getBaselineValue(execId, "metric1", this::query);
+        }
+        assertTrue(cache.getSize() <= MetricReportCache.MAX_SIZE);
+        assertTrue(cache.getEvictionCount() >= 10);
+    }
+
+    private Double query() {
+        queries.incrementAndGet();
+        return 1d;
+    }
+}
@@ -0,0 +1,169 @@
+package org.perfrepo.test.reports;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.model.Metric;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.Value;
+import org.perfrepo.model.to.MetricReportTO;
+import org.perfrepo.web.dao.TagSetDAO;
+import org.perfrepo.web.dao.TestExecutionDAO;
+import org.perfrepo.web.service.reports.MetricSeries;
+import org.perfrepo.web.service.reports.MetricSeriesCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.service.reports.MetricSeriesCache} and {@link org.perfrepo.web.service.reports.MetricSeries}
+ */
+public class MetricSeriesCacheTest {
+
+    private static final Long TEST_ID = 1L;
+    private static final Long METRIC_ID = 10L;
+
+    private MetricSeriesCache cache;
+    private TestExecutionDAO mockedTestExecutionDAO;
+
+    /**
+     * Database contains test executions 1..5 started at 1..5 seconds with values 10..50, even ones are tagged "a b"
+     * (tag set 100), odd ones "a" (tag set 200).
+     */
+    @Before
+    public void init() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            rows.add(new Object[] {new Date(id * 1000), id, id * 10d, id % 2 == 0 ? 100L : 200L});
+        }
+        mockedTestExecutionDAO = mock(TestExecutionDAO.class);
+        when(mockedTestExecutionDAO.getMetricSeries(TEST_ID, METRIC_ID)).thenReturn(rows);
+
+        Map<Long, String> tagSets = new HashMap<>();
+        tagSets.put(100L, "a b");
+        tagSets.put(200L, "a");
+        TagSetDAO mockedTagSetDAO = mock(TagSetDAO.class);
+        when(mockedTagSetDAO.getTags(anyCollectionOf(Long.class))).thenReturn(tagSets);
+
+        cache = new MetricSeriesCache();
+        cache.setTestExecutionDAO(mockedTestExecutionDAO);
+        cache.setTagSetDAO(mockedTagSetDAO);
+    }
+
+    @Test
+    public void testLatestValues() {
+        assertEquals(Arrays.asList(50d, 40d, 30d), values(cache.getDataPoints(TEST_ID, METRIC_ID, null, null, null, 3)));
+        assertEquals(Arrays.asList(40d, 20d), values(cache.getDataPoints(TEST_ID, METRIC_ID, Arrays.asList("b"), null, null, 10)));
+        assertEquals(Arrays.asList(50d, 40d), values(cache.getDataPoints(TEST_ID, METRIC_ID, Arrays.asList("a"), null, null, 2)));
+        assertEquals(Collections.emptyList(), values(cache.getDataPoints(TEST_ID, METRIC_ID, Arrays.asList("c"), null, null, 10)));
+
+        // series is loaded only once
+        verify(mockedTestExecutionDAO, times(1)).getMetricSeries(TEST_ID, METRIC_ID);
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testRange() {
+        assertEquals(Arrays.asList(40d, 30d, 20d), values(cache.getDataPoints(TEST_ID, METRIC_ID, null, new Date(2000), new Date(4000), 10)));
+        assertEquals(Arrays.asList(40d), values(cache.getDataPoints(TEST_ID, METRIC_ID, null, new Date(2000), new Date(4000), 1)));
+        assertEquals(3, cache.countExecutions(TEST_ID, METRIC_ID, null, new Date(1500), new Date(4000)));
+        assertEquals(1, cache.countExecutions(TEST_ID, METRIC_ID, Arrays.asList("a", "b"), new Date(1500), new Date(3999)));
+        assertEquals(0, cache.countExecutions(TEST_ID, METRIC_ID, null, new Date(6000), new Date(7000)));
+    }
+
+    @Test
+    public void testAddAndInvalidate() {
+        assertEquals(5, cache.countExecutions(TEST_ID, METRIC_ID, null, new Date(0), new Date(10000)));
+
+        cache.add(createExecution(7, 7000, 70d, 75d));
+        cache.add(createExecution(6, 3000, 60d));
+        // repeated add of the same test execution
+        cache.add(createExecution(7, 7000, 70d, 75d));
+        assertEquals(Arrays.asList(75d, 70d, 50d, 40d, 60d, 30d), values(cache.getDataPoints(TEST_ID, METRIC_ID, null, null, null, 6)));
+        // test execution with two values is counted once
+        assertEquals(7, cache.countExecutions(TEST_ID, METRIC_ID, null, new Date(0), new Date(10000)));
+        verify(mockedTestExecutionDAO, times(1)).getMetricSeries(TEST_ID, METRIC_ID);
+
+        cache.invalidate(TEST_ID);
+        assertEquals(0, cache.getSize());
+        assertEquals(Arrays.asList(50d), values(cache.getDataPoints(TEST_ID, METRIC_ID, null, null, null, 1)));
+        verify(mockedTestExecutionDAO, times(2)).getMetricSeries(TEST_ID, METRIC_ID);
+    }
+
+    @Test
+    public void testMemoryLimit() {
+        cache.setMaximumFootprint(10000);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            rows.add(new Object[] {new Date(id * 1000), id, (double) id, null});
+        }
+        when(mockedTestExecutionDAO.getMetricSeries(eq(2L), anyLong())).thenReturn(rows);
+
+        cache.getDataPoints(TEST_ID, METRIC_ID, null, null, null, 1);
+        assertEquals(1, cache.getSize());
+        assertTrue(cache.getFootprint() <= cache.getMaximumFootprint());
+
+        // series bigger than the limit is returned, but not kept
+        assertEquals(1, cache.getDataPoints(2L, METRIC_ID, null, null, null, 1).size());
+        assertTrue(cache.getFootprint() <= cache.getMaximumFootprint());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testSeriesOrderAndGrowth() {
+        MetricSeries series = new MetricSeries(1);
+        assertTrue(series.add(2000, 2, new double[] {2d}, 0));
+        assertTrue(series.add(1000, 5, new double[] {1d}, 0));
+        assertTrue(series.add(2000, 1, new double[] {3d, 4d}, 7));
+        assertFalse(series.add(2000, 1, new double[] {3d, 4d}, 7));
+
+        assertEquals(4, series.size());
+        assertEquals(Arrays.asList(2d, 4d, 3d, 1d), values(series.getLatest(tagSetId -> true, Long.MIN_VALUE, Long.MAX_VALUE, 10)));
+        assertEquals(Arrays.asList(2d, 1d), values(series.getLatest(tagSetId -> tagSetId == 0, Long.MIN_VALUE, Long.MAX_VALUE, 10)));
+        assertEquals(new HashSet<>(Arrays.asList(0L, 7L)), series.getTagSetIds());
+
+        // equal values of one test execution are stored once
+        assertTrue(series.add(3000, 3, new double[] {5d, 5d, 6d}, 0));
+        assertEquals(6, series.size());
+        assertEquals(4, series.countExecutions(tagSetId -> true, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(3, series.countExecutions(tagSetId -> true, 2000, 3000));
+    }
+
+    private TestExecution createExecution(long id, long started, double... values) {
+        Metric metric = new Metric();
+        metric.setId(METRIC_ID);
+        List<Value> executionValues = new ArrayList<>();
+        for (double resultValue : values) {
+            Value value = new Value();
+            value.setMetric(metric);
+            value.setResultValue(resultValue);
+            executionValues.add(value);
+        }
+
+        org.perfrepo.model.Test test = new org.perfrepo.model.Test();
+        test.setId(TEST_ID);
+        TestExecution testExecution = new TestExecution();
+        testExecution.setId(id);
+        testExecution.setTest(test);
+        testExecution.setStarted(new Date(started));
+        testExecution.setValues(executionValues);
+        return testExecution;
+    }
+
+    private static List<Double> values(List<MetricReportTO.DataPoint> dataPoints) {
+        return dataPoints.stream().map(MetricReportTO.DataPoint::getValue).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,77 @@
+package org.perfrepo.test.rest;
+
+import org.apache.log4j.Logger;
+import org.jboss.resteasy.plugins.providers.jackson.ResteasyJackson2Provider;
+import org.junit.Test;
+import org.perfrepo.model.TestExecution;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+import static org.perfrepo.test.rest.JsonProviderTest.createExecution;
+import static org.perfrepo.test.rest.JsonProviderTest.read;
+import static org.perfrepo.test.rest.JsonProviderTest.write;
+
+/**
+ * Compares payload size and (de)serialization time of XML and JSON representation of a test execution with
+ * {@link #BENCHMARK_VALUES} values having a parameter each. XML is handled by JAXB, JSON by
+ * {@link ResteasyJackson2Provider}, as in the REST API. Times are the best of {@link #BENCHMARK_ROUNDS} rounds after
+ * a warm-up and they're logged.
+ *
+ * The class name doesn't match the surefire test patterns, so the benchmark doesn't slow down the build, run it by
+ * <code>mvn test -Dtest=JsonPayloadBenchmark</code>.
+ */
+public class JsonPayloadBenchmark {
+
+    private static final Logger log = Logger.getLogger(JsonPayloadBenchmark.class);
+
+    private static final int BENCHMARK_VALUES = 10000;
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    @Test
+    public void testMultiValueExecution() throws Exception {
+        TestExecution execution = createExecution(BENCHMARK_VALUES);
+        JAXBContext context = JAXBContext.newInstance(TestExecution.class);
+        Marshaller marshaller = context.createMarshaller();
+        Unmarshaller unmarshaller = context.createUnmarshaller();
+        ResteasyJackson2Provider provider = JsonProviderTest.createProvider();
+
+        // byte streams as in REST requests and responses
+        byte[] xml = null;
+        byte[] json = null;
+        long xmlWrite = Long.MAX_VALUE, xmlRead = Long.MAX_VALUE, jsonWrite = Long.MAX_VALUE, jsonRead = Long.MAX_VALUE;
+        for (int round = 0; round < BENCHMARK_ROUNDS + 2; round++) {
+            boolean warmUp = round < 2;
+
+            long start = System.nanoTime();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            marshaller.marshal(execution, output);
+            xml = output.toByteArray();
+            xmlWrite = warmUp ? xmlWrite : Math.min(xmlWrite, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            TestExecution fromXml = (TestExecution) unmarshaller.unmarshal(new ByteArrayInputStream(xml));
+            xmlRead = warmUp ? xmlRead : Math.min(xmlRead, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            json = write(provider, execution);
+            jsonWrite = warmUp ? jsonWrite : Math.min(jsonWrite, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            TestExecution fromJson = read(provider, json);
+            jsonRead = warmUp ? jsonRead : Math.min(jsonRead, System.nanoTime() - start);
+
+            assertEquals(BENCHMARK_VALUES, fromXml.getValues().size());
+            assertEquals(BENCHMARK_VALUES, fromJson.getValues().size());
+        }
+
+        log.info(String.format("Test execution with %d values: XML %d bytes, written in %d ms, read in %d ms; JSON %d bytes (%.0f %%), written in %d ms, read in %d ms",
+                               BENCHMARK_VALUES, xml.length, xmlWrite / 1000000, xmlRead / 1000000, json.length, 100d * json.length / xml.length,
+                               jsonWrite / 1000000, jsonRead / 1000000));
+        assertTrue(json.length < xml.length);
+    }
+}
@@ -0,0 +1,118 @@
+package org.perfrepo.test.rest;
+
+import org.jboss.resteasy.plugins.providers.jackson.ResteasyJackson2Provider;
+import org.junit.Test;
+import org.perfrepo.model.Tag;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.TestExecutionParameter;
+import org.perfrepo.model.Value;
+import org.perfrepo.model.ValueParameter;
+import org.perfrepo.web.rest.json.JacksonContextResolver;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests JSON representation of the model written and read by {@link ResteasyJackson2Provider}, the JSON provider
+ * of the REST API.
+ */
+public class JsonProviderTest {
+
+    @Test
+    public void testMultiValueRoundTrip() throws Exception {
+        TestExecution original = createExecution(3);
+        ResteasyJackson2Provider provider = createProvider();
+
+        byte[] json = write(provider, original);
+        TestExecution read = read(provider, json);
+
+        assertEquals(original.getId(), read.getId());
+        assertEquals(original.getName(), read.getName());
+        assertEquals(original.getStarted(), read.getStarted());
+        assertEquals(original.getComment(), read.getComment());
+        assertEquals("5", read.getTestId());
+        assertEquals("nightly", read.getTags().iterator().next().getName());
+        assertEquals("42", read.getParameters().iterator().next().getValue());
+        assertEquals(3, read.getValues().size());
+
+        Iterator<Value> values = read.getValues().iterator();
+        for (int i = 0; i < 3; i++) {
+            Value value = values.next();
+            assertEquals("throughput", value.getMetricName());
+            assertEquals((double) i, value.getResultValue(), 0);
+            assertEquals(1, value.getParameters().size());
+            assertEquals("iteration", value.getParameters().iterator().next().getName());
+            assertEquals(String.valueOf(i), value.getParameters().iterator().next().getParamValue());
+        }
+    }
+
+    @Test
+    public void testRepeatedReadOfSameExecution() throws Exception {
+        ResteasyJackson2Provider provider = createProvider();
+        byte[] json = write(provider, createExecution(2));
+
+        // the provider is a singleton, the same entity may be posted again by a later request
+        assertEquals(2, read(provider, json).getValues().size());
+        assertEquals(2, read(provider, json).getValues().size());
+    }
+
+    /**
+     * Creates the JSON provider configured as in the REST API.
+     */
+    static ResteasyJackson2Provider createProvider() {
+        ResteasyJackson2Provider provider = new ResteasyJackson2Provider();
+        provider.setMapper(JacksonContextResolver.createMapper());
+        return provider;
+    }
+
+    static TestExecution createExecution(int valueCount) {
+        org.perfrepo.model.Test test = new org.perfrepo.model.Test();
+        test.setId(5L);
+
+        Tag tag = new Tag();
+        tag.setId(3L);
+        tag.setName("nightly");
+
+        List<Value> values = new ArrayList<>();
+        for (int i = 0; i < valueCount; i++) {
+            Value value = new Value();
+            value.setMetricName("throughput");
+            value.setResultValue((double) i);
+            value.setParameters(Collections.singletonList(new ValueParameter("iteration", String.valueOf(i))));
+            values.add(value);
+        }
+
+        TestExecution execution = new TestExecution();
+        execution.setId(1L);
+        execution.setName("execution \"1\"");
+        execution.setTest(test);
+        execution.setStarted(new Date(1500000000000L));
+        execution.setComment("first line\nsecond line");
+        execution.setTags(Collections.singletonList(tag));
+        execution.setParameters(Collections.singletonList(new TestExecutionParameter("build", "42")));
+        execution.setValues(values);
+        return execution;
+    }
+
+    static byte[] write(ResteasyJackson2Provider provider, TestExecution execution) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        provider.writeTo(execution, TestExecution.class, TestExecution.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+        return output.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    static TestExecution read(ResteasyJackson2Provider provider, byte[] json) throws Exception {
+        Class<Object> type = (Class) TestExecution.class;
+        return (TestExecution) provider.readFrom(type, TestExecution.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), new ByteArrayInputStream(json));
+    }
+}
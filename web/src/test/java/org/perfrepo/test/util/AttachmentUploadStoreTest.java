@@ -0,0 +1,121 @@
+package org.perfrepo.test.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.perfrepo.model.to.AttachmentUploadTO;
+import org.perfrepo.web.service.AttachmentUploadStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.service.AttachmentUploadStore}
+ */
+public class AttachmentUploadStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private AttachmentUploadStore store;
+    private byte[] content;
+
+    @Before
+    public void init() throws IOException {
+        directory = folder.newFolder().toPath();
+        store = new AttachmentUploadStore(directory);
+        content = new byte[2500];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+    }
+
+    @Test
+    public void testChunksInAnyOrder() throws IOException {
+        AttachmentUploadTO upload = store.create(createUpload(), "user");
+        assertEquals(3, upload.getChunkCount());
+        assertEquals(500, upload.getChunkLength(2));
+
+        storeChunk(upload, 2);
+        storeChunk(upload, 0);
+        // repeated chunk replaces the stored one
+        storeChunk(upload, 0);
+        upload = store.get(upload.getId(), "user");
+        assertEquals(Arrays.asList(0, 2), upload.getStoredChunks());
+        assertFalse(upload.isComplete());
+
+        storeChunk(upload, 1);
+        upload = store.get(upload.getId(), "user");
+        assertTrue(upload.isComplete());
+        assertEquals("data.bin", upload.getFilename());
+        assertEquals(Long.valueOf(7), upload.getTestExecutionId());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = store.openContent(upload)) {
+            byte[] buffer = new byte[300];
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                output.write(buffer, 0, read);
+            }
+        }
+        assertArrayEquals(content, output.toByteArray());
+
+        store.remove(upload.getId());
+        assertNull(store.get(upload.getId(), "user"));
+    }
+
+    @Test
+    public void testWrongChunkLength() throws IOException {
+        AttachmentUploadTO upload = store.create(createUpload(), "user");
+        try {
+            store.storeChunk(upload, 0, new ByteArrayInputStream(content, 0, 999));
+            fail("Shorter chunk was stored");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            store.storeChunk(upload, 2, new ByteArrayInputStream(new byte[501]));
+            fail("Longer chunk was stored");
+        } catch (IOException e) {
+            // expected
+        }
+        assertTrue(store.get(upload.getId(), "user").getStoredChunks().isEmpty());
+    }
+
+    @Test
+    public void testOwnerAndAbandonedUploads() throws IOException {
+        AttachmentUploadTO upload = store.create(createUpload(), "user");
+        assertNull(store.get(upload.getId(), "other"));
+        assertNull(store.get("../" + upload.getId(), "user"));
+
+        AttachmentUploadTO abandoned = store.create(createUpload(), "user");
+        Files.setLastModifiedTime(directory.resolve(abandoned.getId()), FileTime.fromMillis(0));
+        assertEquals(1, store.removeAbandoned(new Date(1000)));
+        assertNull(store.get(abandoned.getId(), "user"));
+        assertNotNull(store.get(upload.getId(), "user"));
+    }
+
+    private AttachmentUploadTO createUpload() {
+        AttachmentUploadTO upload = new AttachmentUploadTO();
+        upload.setTestExecutionId(7L);
+        upload.setFilename("data.bin");
+        upload.setMimetype("application/octet-stream");
+        upload.setSize(content.length);
+        upload.setChunkSize(1000);
+        return upload;
+    }
+
+    private void storeChunk(AttachmentUploadTO upload, int chunk) throws IOException {
+        store.storeChunk(upload, chunk, new ByteArrayInputStream(content, (int) upload.getOffset(chunk), upload.getChunkLength(chunk)));
+    }
+}
@@ -0,0 +1,55 @@
+package org.perfrepo.test.util;
+
+import org.junit.Test;
+import org.perfrepo.web.util.ByteRange;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.util.ByteRange}
+ */
+public class ByteRangeTest {
+
+    @Test
+    public void testWholeContent() {
+        for (String header : new String[] {null, "", "bytes=-", "items=0-10", "bytes=0-1,5-6", "bytes=10-5", "bytes=99999999999999999999-"}) {
+            ByteRange range = ByteRange.parse(header, 100);
+            assertTrue(range.isSatisfiable());
+            assertFalse(header, range.isPartial());
+            assertEquals(0, range.getOffset());
+            assertEquals(100, range.getLength());
+        }
+    }
+
+    @Test
+    public void testPartialContent() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 100);
+        assertTrue(range.isPartial());
+        assertEquals(10, range.getOffset());
+        assertEquals(10, range.getLength());
+        assertEquals("bytes 10-19/100", range.getContentRange());
+
+        range = ByteRange.parse("bytes=90-", 100);
+        assertEquals(90, range.getOffset());
+        assertEquals(10, range.getLength());
+
+        // end behind the content is truncated
+        range = ByteRange.parse("bytes=95-200", 100);
+        assertEquals("bytes 95-99/100", range.getContentRange());
+
+        // suffix range
+        range = ByteRange.parse("bytes=-30", 100);
+        assertEquals(70, range.getOffset());
+        assertEquals(30, range.getLength());
+        assertFalse(ByteRange.parse("bytes=-300", 100).isPartial());
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        ByteRange range = ByteRange.parse("bytes=100-", 100);
+        assertFalse(range.isSatisfiable());
+        assertTrue(range.isPartial());
+        assertEquals("bytes */100", range.getContentRange());
+        assertFalse(ByteRange.parse("bytes=-0", 100).isSatisfiable());
+    }
+}
@@ -0,0 +1,90 @@
+package org.perfrepo.test.util;
+
+import org.junit.Test;
+import org.perfrepo.web.util.CompressedBitmap;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.util.CompressedBitmap}
+ */
+public class CompressedBitmapTest {
+
+    @Test
+    public void testAddRemove() {
+        CompressedBitmap bitmap = CompressedBitmap.of(5, 1, 70000, 1);
+
+        assertEquals(3, bitmap.cardinality());
+        assertArrayEquals(new int[] {1, 5, 70000}, bitmap.toArray());
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(70001));
+        assertFalse(bitmap.add(5));
+
+        assertTrue(bitmap.remove(70000));
+        assertFalse(bitmap.remove(70000));
+        assertTrue(bitmap.remove(1));
+        assertTrue(bitmap.remove(5));
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void testSetOperations() {
+        CompressedBitmap a = CompressedBitmap.of(1, 2, 3, 100000, 200000);
+        CompressedBitmap b = CompressedBitmap.of(2, 3, 4, 200000, 300000);
+
+        assertArrayEquals(new int[] {2, 3, 200000}, a.and(b).toArray());
+        assertArrayEquals(new int[] {1, 100000}, a.andNot(b).toArray());
+        assertArrayEquals(new int[] {1, 2, 3, 4, 100000, 200000, 300000}, a.or(b).toArray());
+        // operands are not modified
+        assertEquals(5, a.cardinality());
+        assertEquals(5, b.cardinality());
+    }
+
+    @Test
+    public void testRandomDenseAndSparse() {
+        Random random = new Random(42);
+        TreeSet<Integer> expectedA = new TreeSet<>();
+        TreeSet<Integer> expectedB = new TreeSet<>();
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        // first chunk is dense, the others sparse
+        for (int i = 0; i < 30000; i++) {
+            int valueA = i < 20000 ? random.nextInt(65536) : random.nextInt(1 << 22);
+            int valueB = i < 10000 ? random.nextInt(65536) : random.nextInt(1 << 22);
+            assertEquals(expectedA.add(valueA), a.add(valueA));
+            assertEquals(expectedB.add(valueB), b.add(valueB));
+        }
+        for (int i = 0; i < 15000; i++) {
+            int value = random.nextInt(65536);
+            assertEquals(expectedA.remove(value), a.remove(value));
+        }
+
+        assertArrayEquals(toArray(expectedA), a.toArray());
+
+        TreeSet<Integer> and = new TreeSet<>(expectedA);
+        and.retainAll(expectedB);
+        assertArrayEquals(toArray(and), a.and(b).toArray());
+
+        TreeSet<Integer> andNot = new TreeSet<>(expectedA);
+        andNot.removeAll(expectedB);
+        assertArrayEquals(toArray(andNot), a.andNot(b).toArray());
+
+        TreeSet<Integer> or = new TreeSet<>(expectedA);
+        or.addAll(expectedB);
+        assertArrayEquals(toArray(or), a.or(b).toArray());
+        assertEquals(or.size(), a.or(b).cardinality());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValue() {
+        new CompressedBitmap().add(-1);
+    }
+
+    private int[] toArray(TreeSet<Integer> set) {
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,93 @@
+package org.perfrepo.test.util;
+
+import org.junit.Test;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.MetricRollup.Granularity;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.model.MetricRollup}
+ */
+public class MetricRollupTest {
+
+    @Test
+    public void testTruncate() throws Exception {
+        assertEquals(date("2016-03-16 00:00:00"), Granularity.DAY.truncate(date("2016-03-16 13:45:12")));
+        // 2016-03-16 is Wednesday
+        assertEquals(date("2016-03-14 00:00:00"), Granularity.WEEK.truncate(date("2016-03-16 13:45:12")));
+        assertEquals(date("2016-03-14 00:00:00"), Granularity.WEEK.truncate(date("2016-03-14 00:00:00")));
+        assertEquals(date("2016-03-14 00:00:00"), Granularity.WEEK.truncate(date("2016-03-20 23:59:59")));
+    }
+
+    @Test
+    public void testNextPeriod() throws Exception {
+        assertEquals(date("2016-03-01 00:00:00"), Granularity.DAY.next(date("2016-02-29 00:00:00")));
+        assertEquals(date("2016-01-04 00:00:00"), Granularity.WEEK.next(date("2015-12-28 00:00:00")));
+    }
+
+    @Test
+    public void testGranularityForRange() throws Exception {
+        assertEquals(3, Granularity.DAY.countPeriods(date("2016-03-14 12:00:00"), date("2016-03-16 08:00:00")));
+        assertEquals(Granularity.DAY, Granularity.forRange(date("2016-03-14 12:00:00"), date("2016-03-16 08:00:00"), 3));
+        assertEquals(Granularity.WEEK, Granularity.forRange(date("2016-03-14 12:00:00"), date("2016-03-16 08:00:00"), 2));
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        MetricRollup rollup = rollup();
+        rollup.add(2, 10L);
+        rollup.add(4, 12L);
+        rollup.add(6, 11L);
+
+        assertEquals(3, rollup.getCount());
+        assertEquals(2, rollup.getMin(), 0);
+        assertEquals(6, rollup.getMax(), 0);
+        assertEquals(4, rollup.getMean(), 0);
+        assertEquals(Math.sqrt(8.0 / 3), rollup.getStandardDeviation(), 1e-9);
+        assertEquals(4, rollup.getQuantile(0.5), 4 * 0.01);
+        assertEquals(12L, (long) rollup.getLastTestExecutionId());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        MetricRollup first = rollup();
+        first.add(1, 1L);
+        MetricRollup second = rollup();
+        second.add(-5, 3L);
+        second.add(9, 2L);
+        first.merge(second);
+        first.merge(rollup());
+
+        assertEquals(3, first.getCount());
+        assertEquals(-5, first.getMin(), 0);
+        assertEquals(9, first.getMax(), 0);
+        assertEquals(5, first.getSum(), 0);
+        assertEquals(107, first.getSumOfSquares(), 0);
+        assertEquals(3L, (long) first.getLastTestExecutionId());
+        assertTrue(first.hasQuantiles());
+    }
+
+    @Test
+    public void testEmptyRollup() throws Exception {
+        MetricRollup rollup = rollup();
+        rollup.add(1, 1L);
+        rollup.clear();
+
+        assertEquals(0, rollup.getCount());
+        assertNull(rollup.getMin());
+        assertTrue(Double.isNaN(rollup.getMean()));
+        assertTrue(Double.isNaN(rollup.getQuantile(0.5)));
+    }
+
+    private static MetricRollup rollup() throws Exception {
+        return new MetricRollup(1L, 2L, MetricRollup.NO_TAGS, Granularity.DAY, date("2016-03-16 00:00:00"));
+    }
+
+    private static Date date(String date) throws Exception {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(date);
+    }
+}
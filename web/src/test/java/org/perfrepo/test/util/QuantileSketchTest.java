@@ -0,0 +1,99 @@
+package org.perfrepo.test.util;
+
+import org.junit.Test;
+import org.perfrepo.model.util.QuantileSketch;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.model.util.QuantileSketch}
+ */
+public class QuantileSketchTest {
+
+    @Test
+    public void testQuantilesWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[10000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 3);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.getCount());
+        for (double quantile : new double[] {0, 0.01, 0.25, 0.5, 0.75, 0.99, 1}) {
+            double expected = values[(int) Math.floor(quantile * (values.length - 1))];
+            assertEquals(expected, sketch.getQuantile(quantile), expected * QuantileSketch.RELATIVE_ACCURACY);
+        }
+    }
+
+    @Test
+    public void testNegativeAndZeroValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : new double[] {-100, -10, 0, 0, 10}) {
+            sketch.add(value);
+        }
+
+        assertEquals(-100, sketch.getQuantile(0), 1);
+        assertEquals(-10, sketch.getQuantile(0.25), 0.1);
+        assertEquals(0, sketch.getQuantile(0.5), 0);
+        assertEquals(10, sketch.getQuantile(1), 0.1);
+    }
+
+    @Test
+    public void testMergeEqualsAddingAllValues() {
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = 1; i <= 1000; i++) {
+            all.add(i);
+            (i % 3 == 0 ? first : second).add(i);
+        }
+        first.merge(second);
+
+        assertEquals(all.getCount(), first.getCount());
+        assertArrayEquals(all.toBytes(), first.toBytes());
+    }
+
+    @Test
+    public void testBytesRoundTrip() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : new double[] {-3.5, 0, 1, 2, 1000, Double.NaN}) {
+            sketch.add(value);
+        }
+        QuantileSketch copy = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(5, copy.getCount());
+        assertEquals(sketch.getQuantile(0.5), copy.getQuantile(0.5), 0);
+        assertEquals(sketch.getQuantile(1), copy.getQuantile(1), 0);
+        assertEquals(0, QuantileSketch.fromBytes(null).getCount());
+        assertTrue(Double.isNaN(QuantileSketch.fromBytes(null).getQuantile(0.5)));
+    }
+
+    @Test
+    public void testConcatenatedBytesMerge() {
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = -100; i <= 1000; i++) {
+            (i % 3 == 0 ? first : second).add(i);
+        }
+        byte[] firstBytes = first.toBytes();
+        byte[] secondBytes = second.toBytes();
+        byte[] concatenated = Arrays.copyOf(firstBytes, firstBytes.length + secondBytes.length);
+        System.arraycopy(secondBytes, 0, concatenated, firstBytes.length, secondBytes.length);
+
+        QuantileSketch merged = QuantileSketch.fromBytes(concatenated);
+        first.merge(second);
+        assertEquals(1101, merged.getCount());
+        assertArrayEquals(first.toBytes(), merged.toBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormatVersion() {
+        QuantileSketch.fromBytes(new byte[] {2, 0, 0, 0});
+    }
+}
@@ -0,0 +1,51 @@
+package org.perfrepo.test.util;
+
+import org.junit.Test;
+import org.perfrepo.model.Tag;
+import org.perfrepo.model.TagSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.model.TagSet}
+ */
+public class TagSetTest {
+
+    @Test
+    public void testCanonicalForm() {
+        assertEquals("tag1 tag2 tag3", TagSet.canonicalize(Arrays.asList("tag3", "tag1", "tag2", "tag1")));
+        assertEquals("Tag2 tag1", TagSet.canonicalize(Arrays.asList("tag1", "Tag2")));
+        assertEquals("", TagSet.canonicalize(new ArrayList<>()));
+    }
+
+    @Test
+    public void testHashMatchesDatabaseMd5() {
+        // SELECT md5('tag1 tag2 tag3')
+        assertEquals("ff4358a61009e4be56829932bb1a3b2b", TagSet.hash("tag1 tag2 tag3"));
+    }
+
+    @Test
+    public void testSameTagsInAnyOrderGiveSameSet() {
+        TagSet first = new TagSet(createTags("tag2", "tag1"));
+        TagSet second = new TagSet(createTags("tag1", "tag2"));
+
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals("tag1 tag2", first.getTags());
+        assertEquals(2, first.getSize());
+        assertNotEquals(first.getHash(), new TagSet(createTags("tag1")).getHash());
+    }
+
+    private List<Tag> createTags(String... names) {
+        List<Tag> tags = new ArrayList<>();
+        for (String name : names) {
+            Tag tag = new Tag();
+            tag.setName(name);
+            tags.add(tag);
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,25 @@
+package org.perfrepo.test.util;
+
+import org.junit.Test;
+import org.perfrepo.model.TestExecutionParameter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.model.TestExecutionParameter}
+ */
+public class TestExecutionParameterTest {
+
+    @Test
+    public void testPairKeyMatchesDatabaseExpression() {
+        // SELECT ('x' || substr(md5('param' || chr(31) || '3'), 1, 16))::bit(64)::bigint
+        assertEquals(-1381365847120932659L, TestExecutionParameter.pairKey("param", "3"));
+        assertEquals(1612818027592902394L, TestExecutionParameter.pairKey("param", "a_b"));
+    }
+
+    @Test
+    public void testPairKeyDistinguishesNameAndValue() {
+        assertNotEquals(TestExecutionParameter.pairKey("ab", "c"), TestExecutionParameter.pairKey("a", "bc"));
+        assertNotEquals(TestExecutionParameter.pairKey("param", "1"), TestExecutionParameter.pairKey("param", "2"));
+    }
+}
@@ -0,0 +1,31 @@
+package org.perfrepo.test.util;
+
+import org.junit.Test;
+import org.perfrepo.web.service.TestExecutionRetention;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link org.perfrepo.web.service.TestExecutionRetention}
+ */
+public class TestExecutionRetentionTest {
+
+    @Test
+    public void testCutoffIsFirstDayOfMonth() throws Exception {
+        assertEquals(date("2016-01-01 00:00:00"), TestExecutionRetention.getCutoff(date("2016-07-15 13:45:12"), 6));
+        assertEquals(date("2016-07-01 00:00:00"), TestExecutionRetention.getCutoff(date("2016-07-01 00:00:00"), 0));
+    }
+
+    @Test
+    public void testCutoffOverYearBoundary() throws Exception {
+        assertEquals(date("2015-11-01 00:00:00"), TestExecutionRetention.getCutoff(date("2016-02-29 23:59:59"), 3));
+        assertEquals(date("2014-02-01 00:00:00"), TestExecutionRetention.getCutoff(date("2016-02-29 10:00:00"), 24));
+    }
+
+    private static Date date(String date) throws Exception {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(date);
+    }
+}